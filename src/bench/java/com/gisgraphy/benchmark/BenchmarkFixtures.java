@@ -0,0 +1,101 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.domain.valueobject.HouseNumberType;
+import com.gisgraphy.helper.GeolocHelper;
+
+/**
+ * Load the fixtures shared by the benchmarks from the classpath
+ * (src/bench/resources/benchmark)
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class BenchmarkFixtures {
+
+    public static final String ADDRESSES_FILE = "/benchmark/addresses.txt";
+
+    public static final String OPENSTREETMAP_FILE = "/benchmark/openstreetmap.tsv";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @param resource
+     *            the classpath resource to read
+     * @return the non empty lines of the resource that are not comments
+     */
+    public static List<String> readLines(String resource) {
+	InputStream stream = BenchmarkFixtures.class.getResourceAsStream(resource);
+	if (stream == null) {
+	    throw new IllegalArgumentException("can not find benchmark fixture " + resource);
+	}
+	List<String> lines = new ArrayList<String>();
+	BufferedReader reader = null;
+	try {
+	    reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		if (line.trim().length() != 0 && !line.startsWith("#")) {
+		    lines.add(line);
+		}
+	    }
+	} catch (IOException e) {
+	    throw new IllegalStateException("can not read benchmark fixture " + resource + " : " + e.getMessage(), e);
+	} finally {
+	    if (reader != null) {
+		try {
+		    reader.close();
+		} catch (IOException ignore) {
+		}
+	    }
+	}
+	return lines;
+    }
+
+    /**
+     * @return the house numbers of a street going to the east, from 1 to
+     *         numberOfHouses, every ten meters or so
+     */
+    public static List<HouseNumber> createHouseNumbers(int numberOfHouses) {
+	List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>(numberOfHouses);
+	for (int i = 1; i <= numberOfHouses; i++) {
+	    HouseNumber houseNumber = new HouseNumber();
+	    houseNumber.setNumber(String.valueOf(i));
+	    houseNumber.setLocation(GeolocHelper.createPoint(2.3522F + i * 0.0001F, 48.8566F + (i % 2) * 0.0001F));
+	    houseNumber.setOpenstreetmapId(Long.valueOf(i));
+	    houseNumber.setType(HouseNumberType.ASSOCIATED);
+	    houseNumbers.add(houseNumber);
+	}
+	return houseNumbers;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.helper.CountriesStaticData;
+import com.gisgraphy.helper.CountryDetector;
+import com.gisgraphy.helper.CountryDetectorDto;
+
+/**
+ * Benchmark the detection of the country at the end of the addresses, with
+ * the trie of the country names and with the former implementation that
+ * tried every alternate name of every country
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CountryDetectorBenchmark {
+
+    private static final String[] COUNTRIES = { "France", "italy", "Deutschland", "United States", "españa", "Schweiz" };
+
+    private String[] addresses;
+
+    private CountryDetector countryDetector = new CountryDetector();
+
+    @Setup
+    public void setup() {
+	List<String> lines = BenchmarkFixtures.readLines(BenchmarkFixtures.ADDRESSES_FILE);
+	List<String> withCountries = new ArrayList<String>();
+	int i = 0;
+	for (String line : lines) {
+	    //half of the addresses ends with a country
+	    withCountries.add(line);
+	    withCountries.add(line + ", " + COUNTRIES[i++ % COUNTRIES.length]);
+	}
+	addresses = withCountries.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void detectAndRemoveCountry(Blackhole blackhole) {
+	for (String address : addresses) {
+	    blackhole.consume(countryDetector.detectAndRemoveCountry(address));
+	}
+    }
+
+    @Benchmark
+    public void detectAndRemoveCountryWithoutTrie(Blackhole blackhole) {
+	for (String address : addresses) {
+	    blackhole.consume(detectAndRemoveCountryWithoutTrie(address));
+	}
+    }
+
+    /**
+     * The former implementation of {@link CountryDetector#detectAndRemoveCountry(String)}
+     */
+    private CountryDetectorDto detectAndRemoveCountryWithoutTrie(String cleanedAddress) {
+	for (String countryCode : CountriesStaticData.countryCodeSortedByPopularity) {
+	    if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
+		continue;
+	    }
+	    List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
+	    if (alternateNames != null) {
+		String sanitarizeAddress = cleanedAddress.replaceAll("[\\s\\-\\']+", " ").trim().toLowerCase();
+		for (String alternateName : alternateNames) {
+		    if (alternateName != null && alternateName.toLowerCase().contains("mexico")) {
+			continue;
+		    }
+		    if (sanitarizeAddress.endsWith(alternateName.toLowerCase())) {
+			Matcher matcher = Pattern.compile("(?i)" + alternateName + "\\s*$").matcher(sanitarizeAddress);
+			if (matcher.find()) {
+			    String result = cleanedAddress.substring(0, matcher.start()).trim();
+			    if (result != null && Pattern.matches(".*[,-]$", result)) {
+				result = result.substring(0, result.length() - 1).trim();
+			    }
+			    return new CountryDetectorDto(result, countryCode);
+			}
+		    }
+		}
+	    }
+	}
+	return new CountryDetectorDto(cleanedAddress, null);
+    }
+
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import static com.gisgraphy.domain.valueobject.Pagination.paginate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.domain.valueobject.Output;
+import com.gisgraphy.domain.valueobject.Output.OutputStyle;
+import com.gisgraphy.fulltext.Constants;
+import com.gisgraphy.fulltext.FulltextQuery;
+import com.gisgraphy.fulltext.FulltextQuerySolrHelper;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.serializer.common.OutputFormat;
+
+/**
+ * Benchmark the translation of the fulltext queries into solr parameters
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class FulltextBenchmark {
+
+    private FulltextQuery[] queries;
+
+    @Setup
+    public void setup() {
+	List<String> addresses = BenchmarkFixtures.readLines(BenchmarkFixtures.ADDRESSES_FILE);
+	queries = new FulltextQuery[addresses.size()];
+	Output output = Output.withFormat(OutputFormat.JSON).withStyle(OutputStyle.MEDIUM);
+	for (int i = 0; i < queries.length; i++) {
+	    FulltextQuery query = new FulltextQuery(addresses.get(i), paginate().from(1).to(10), output, Constants.ONLY_CITY_PLACETYPE, null);
+	    if (i % 2 == 0) {
+		//half of the queries are located ones
+		query.around(GeolocHelper.createPoint(2.3522F, 48.8566F));
+	    }
+	    queries[i] = query;
+	}
+    }
+
+    @Benchmark
+    public void parameterize(Blackhole blackhole) {
+	for (FulltextQuery query : queries) {
+	    blackhole.consume(FulltextQuerySolrHelper.parameterize(query));
+	}
+    }
+
+}
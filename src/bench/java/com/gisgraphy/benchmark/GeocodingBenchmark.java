@@ -0,0 +1,130 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.geocoding.GeocodingService;
+import com.gisgraphy.geocoding.HouseNumberDtoInterpolation;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.street.CompactHouseNumbers;
+import com.gisgraphy.street.HouseNumberDto;
+
+/**
+ * Benchmark the house number extraction of the raw addresses and the house
+ * number interpolation of the geocoder
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GeocodingBenchmark {
+
+    /**
+     * Give access to the protected methods of the geocoder
+     */
+    static class BenchmarkedGeocodingService extends GeocodingService {
+	public HouseNumberDtoInterpolation interpolate(Integer houseNumber, List<HouseNumberDto> houseNumbers, String countryCode) {
+	    return searchHouseNumber(houseNumber, houseNumbers, countryCode);
+	}
+    }
+
+    @Param({ "10", "100", "1000" })
+    public int numberOfHouses;
+
+    private String[] addresses;
+
+    private List<HouseNumberDto> houseNumbers;
+
+    private List<HouseNumberDto> compactHouseNumbers;
+
+    private Integer[] houseNumbersToSearch;
+
+    private BenchmarkedGeocodingService geocodingService;
+
+    @Setup
+    public void setup() {
+	addresses = BenchmarkFixtures.readLines(BenchmarkFixtures.ADDRESSES_FILE).toArray(new String[0]);
+	geocodingService = new BenchmarkedGeocodingService();
+	//only even numbers, to force the interpolation for the odd ones
+	houseNumbers = new ArrayList<HouseNumberDto>(numberOfHouses);
+	for (int i = 1; i <= numberOfHouses; i++) {
+	    houseNumbers.add(new HouseNumberDto(GeolocHelper.createPoint(2.3522F + i * 0.0001F, 48.8566F), String.valueOf(i * 2)));
+	}
+	//the house numbers as they are read from solr : decoded only if the list is read
+	List<HouseNumber> houses = new ArrayList<HouseNumber>(numberOfHouses);
+	for (HouseNumberDto houseNumber : houseNumbers) {
+	    houses.add(new HouseNumber(houseNumber.getNumber(), houseNumber.getLocation()));
+	}
+	compactHouseNumbers = CompactHouseNumbers.encode(houses).asList();
+	houseNumbersToSearch = new Integer[] { 1, numberOfHouses / 2, numberOfHouses + 1, numberOfHouses * 2, numberOfHouses * 3 };
+    }
+
+    @Benchmark
+    public void extractHouseNumber(Blackhole blackhole) {
+	for (String address : addresses) {
+	    Matcher matcher = GeocodingService.HOUSENUMBERPATTERN.matcher(address);
+	    if (matcher.find()) {
+		blackhole.consume(matcher.group());
+	    } else {
+		blackhole.consume(false);
+	    }
+	}
+    }
+
+    @Benchmark
+    public void searchHouseNumber(Blackhole blackhole) {
+	for (Integer houseNumber : houseNumbersToSearch) {
+	    blackhole.consume(geocodingService.interpolate(houseNumber, houseNumbers, "FR"));
+	}
+    }
+
+    @Benchmark
+    public void searchCompactHouseNumber(Blackhole blackhole) {
+	for (Integer houseNumber : houseNumbersToSearch) {
+	    blackhole.consume(geocodingService.interpolate(houseNumber, compactHouseNumbers, "FR"));
+	}
+    }
+
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.hibernate.PropertyNotFoundException;
+import org.hibernate.property.BasicPropertyAccessor;
+import org.hibernate.property.ChainedPropertyAccessor;
+import org.hibernate.property.DirectPropertyAccessor;
+import org.hibernate.property.PropertyAccessor;
+import org.hibernate.transform.AliasToBeanResultTransformer;
+import org.hibernate.transform.ResultTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.valueobject.GisFeatureDistance;
+import com.gisgraphy.helper.IntrospectionHelper;
+import com.gisgraphy.hibernate.criterion.BeanRowMapper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+/**
+ * Benchmark the mapping of the rows of a geoloc query on the cities, with the
+ * distance, to {@link GisFeatureDistance} : the hibernate transformer with
+ * the aliases introspected for each query, like before
+ * {@link BeanRowMapper}, and the cached mapper. Both remove the duplicated
+ * rows with {@link List#indexOf(Object)}. The gc profiler gives the
+ * allocation per operation
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class GeolocRowMappingBenchmark {
+
+    private static final PropertyAccessor PROPERTY_ACCESSOR = new ChainedPropertyAccessor(new PropertyAccessor[] {
+	    new BasicPropertyAccessor(), new DirectPropertyAccessor() });
+
+    @Param({ "10", "100" })
+    public int maxResults;
+
+    private List<Object[]> rows;
+
+    @Setup
+    public void setup() {
+	String[] aliases = BeanRowMapper.forProjection(GisFeatureDistance.class, City.class, "distance").getAliases();
+	GisFeatureDistance filled = GisgraphyTestHelper.createFullFilledGisFeatureDistanceWithFactory();
+	rows = new ArrayList<Object[]>(maxResults);
+	for (int i = 0; i < maxResults; i++) {
+	    Object[] row = new Object[aliases.length];
+	    for (int j = 0; j < aliases.length; j++) {
+		if ("id".equals(aliases[j])) {
+		    row[j] = Long.valueOf(i);
+		} else if ("distance".equals(aliases[j])) {
+		    row[j] = Double.valueOf(i * 10D);
+		} else {
+		    try {
+			row[j] = PROPERTY_ACCESSOR.getGetter(GisFeatureDistance.class, aliases[j]).get(filled);
+		    } catch (PropertyNotFoundException e) {
+			row[j] = null;
+		    }
+		}
+	    }
+	    rows.add(row);
+	}
+    }
+
+    @Benchmark
+    public List<GisFeatureDistance> aliasToBeanResultTransformer() {
+	String[] aliasList = (String[]) ArrayUtils.add(IntrospectionHelper.getFieldsAsArray(City.class), "distance");
+	ResultTransformer tr = new AliasToBeanResultTransformer(GisFeatureDistance.class);
+	List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>();
+	for (Object[] row : rows) {
+	    GisFeatureDistance gisFeatureDistance = (GisFeatureDistance) tr.transformTuple(row, aliasList);
+	    if (results.indexOf(gisFeatureDistance) == -1) {
+		results.add(gisFeatureDistance);
+	    }
+	}
+	return results;
+    }
+
+    @Benchmark
+    public List<GisFeatureDistance> beanRowMapper() {
+	BeanRowMapper<GisFeatureDistance> mapper = BeanRowMapper.forProjection(GisFeatureDistance.class, City.class, "distance");
+	List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>(rows.size());
+	for (Object[] row : rows) {
+	    GisFeatureDistance gisFeatureDistance = mapper.map(row);
+	    if (results.indexOf(gisFeatureDistance) == -1) {
+		results.add(gisFeatureDistance);
+	    }
+	}
+	return results;
+    }
+
+}
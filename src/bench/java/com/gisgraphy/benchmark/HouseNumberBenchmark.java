@@ -0,0 +1,107 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.importer.LabelGenerator;
+import com.gisgraphy.street.HouseNumberSerializer;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Benchmark the search of the nearest house used by the reverse geocoder and
+ * the serialization of the house numbers done when they are synchronized
+ * with the fulltext engine
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class HouseNumberBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int numberOfHouses;
+
+    private SortedSet<HouseNumber> houses;
+
+    private List<HouseNumber> houseList;
+
+    private Point[] locations;
+
+    private LabelGenerator labelGenerator = LabelGenerator.getInstance();
+
+    private HouseNumberSerializer serializer = new HouseNumberSerializer();
+
+    @Setup
+    public void setup() {
+	houseList = BenchmarkFixtures.createHouseNumbers(numberOfHouses);
+	houses = new TreeSet<HouseNumber>(houseList);
+	locations = new Point[] { GeolocHelper.createPoint(2.3522F, 48.8566F),
+		GeolocHelper.createPoint(2.3522F + numberOfHouses * 0.00005F, 48.8567F),
+		GeolocHelper.createPoint(2.3522F + numberOfHouses * 0.0002F, 48.8570F) };
+    }
+
+    @Benchmark
+    public void getNearestHouse(Blackhole blackhole) {
+	for (Point location : locations) {
+	    blackhole.consume(labelGenerator.getNearestHouse(houses, location));
+	}
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) {
+	for (HouseNumber houseNumber : houseList) {
+	    blackhole.consume(serializer.serialize(houseNumber));
+	}
+    }
+
+    @Benchmark
+    public String serializeList() {
+	//serializeList sorts the list it is given
+	return serializer.serializeList(new ArrayList<HouseNumber>(houseList));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisgraphy.domain.repository.IIdGenerator;
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.importer.ImporterConfig;
+import com.gisgraphy.importer.OpenStreetMapSimpleImporter;
+
+/**
+ * Benchmark the parsing of the openstreetmap dump lines (fields splitting,
+ * shape decoding, alternate names and labels generation). The dao is a mock,
+ * so the database is not part of the measure.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ImporterBenchmark {
+
+    /**
+     * Give access to the protected methods of the importer
+     */
+    static class BenchmarkedOpenStreetMapSimpleImporter extends OpenStreetMapSimpleImporter {
+	public void process(String line) {
+	    processData(line);
+	}
+    }
+
+    private String[] lines;
+
+    private BenchmarkedOpenStreetMapSimpleImporter importer;
+
+    @Setup
+    public void setup() {
+	lines = BenchmarkFixtures.readLines(BenchmarkFixtures.OPENSTREETMAP_FILE).toArray(new String[0]);
+	importer = new BenchmarkedOpenStreetMapSimpleImporter();
+	ImporterConfig importerConfig = new ImporterConfig();
+	importerConfig.setOpenStreetMapFillIsIn(false);
+	importer.setImporterConfig(importerConfig);
+	IIdGenerator idGenerator = EasyMock.createNiceMock(IIdGenerator.class);
+	EasyMock.replay(idGenerator);
+	importer.setIdGenerator(idGenerator);
+	IOpenStreetMapDao openStreetMapDao = EasyMock.createNiceMock(IOpenStreetMapDao.class);
+	EasyMock.replay(openStreetMapDao);
+	importer.setOpenStreetMapDao(openStreetMapDao);
+    }
+
+    @Benchmark
+    public void processData() {
+	for (String line : lines) {
+	    importer.process(line);
+	}
+    }
+
+}
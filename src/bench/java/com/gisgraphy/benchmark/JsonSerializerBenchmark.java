@@ -0,0 +1,128 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisgraphy.domain.valueobject.GisFeatureDistance;
+import com.gisgraphy.geoloc.GeolocResultsDto;
+import com.gisgraphy.helper.StreamingJsonSerializer;
+import com.gisgraphy.serializer.UniversalSerializer;
+import com.gisgraphy.serializer.common.OutputFormat;
+import com.gisgraphy.serializer.common.UniversalSerializerConstant;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+/**
+ * Benchmark the JSON serialization of the geoloc results by the streaming
+ * serializer and by the universal one. The bytes counter gives the written
+ * bytes per second, the gc profiler the allocation per operation
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JsonSerializerBenchmark {
+
+    /**
+     * Count the written bytes and discard them, like a response stream would
+     * do without buffering the whole response
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class CountingOutputStream extends OutputStream {
+
+	public long bytes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+	    bytes = 0;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+	    bytes++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+	    bytes += len;
+	}
+    }
+
+    @Param({ "1", "10", "100" })
+    public int numberOfResults;
+
+    @Param({ "false", "true" })
+    public boolean indent;
+
+    private GeolocResultsDto geolocResultsDto;
+
+    private StreamingJsonSerializer streamingJsonSerializer = new StreamingJsonSerializer();
+
+    private Map<String, Object> extraParameter = new HashMap<String, Object>();
+
+    @Setup
+    public void setup() {
+	List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>(numberOfResults);
+	for (int i = 0; i < numberOfResults; i++) {
+	    results.add(GisgraphyTestHelper.createFullFilledGisFeatureDistanceWithFactory());
+	}
+	geolocResultsDto = new GeolocResultsDto(results, 10L);
+	extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, null);
+    }
+
+    @Benchmark
+    public void streamingSerializer(CountingOutputStream outputStream) throws IOException {
+	streamingJsonSerializer.write(outputStream, geolocResultsDto, indent, null);
+    }
+
+    @Benchmark
+    public void universalSerializer(CountingOutputStream outputStream) {
+	UniversalSerializer.getInstance().write(outputStream, geolocResultsDto, indent, extraParameter, OutputFormat.JSON);
+    }
+
+}
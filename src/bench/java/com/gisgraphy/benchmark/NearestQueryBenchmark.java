@@ -0,0 +1,137 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.valueobject.Constants;
+import com.gisgraphy.domain.valueobject.SRID;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.helper.GisHelper;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Benchmark the nearest city query of the dao, whose location parameters are
+ * bound, and the same query with the location written in the query string,
+ * like before. Each operation searches around a new location, so the second
+ * one is parsed by hibernate and planned by the database each time.
+ * <p>
+ * Unlike the other benchmarks, it needs the database configured in
+ * env.properties (the one of the tests, or an imported one) with some cities
+ * in the searched area.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NearestQueryBenchmark {
+
+    private static final int NUMBER_OF_LOCATIONS = 10000;
+
+    @Param({ "10000", "50000" })
+    public int distance;
+
+    private ClassPathXmlApplicationContext context;
+
+    private ICityDao cityDao;
+
+    private HibernateTemplate hibernateTemplate;
+
+    private Point[] locations;
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+	context = new ClassPathXmlApplicationContext(Constants.APPLICATION_CONTEXT_NAMES_FOR_TEST);
+	cityDao = (ICityDao) context.getBean("cityDao");
+	hibernateTemplate = new HibernateTemplate((SessionFactory) context.getBean("sessionFactory"));
+	//some random locations in France
+	Random random = new Random(1);
+	locations = new Point[NUMBER_OF_LOCATIONS];
+	for (int i = 0; i < NUMBER_OF_LOCATIONS; i++) {
+	    locations[i] = GeolocHelper.createPoint(-1F + random.nextFloat() * 8F, 43F + random.nextFloat() * 6F);
+	}
+    }
+
+    @TearDown
+    public void tearDown() {
+	context.close();
+    }
+
+    private Point nextLocation() {
+	next = (next + 1) % NUMBER_OF_LOCATIONS;
+	return locations[next];
+    }
+
+    @Benchmark
+    public City boundParameters() {
+	return cityDao.getNearest(nextLocation(), null, false, distance);
+    }
+
+    @Benchmark
+    public Object literalQueryString() {
+	final Point location = nextLocation();
+	return hibernateTemplate.execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		String pointAsString = "ST_GeometryFromText('POINT(" + location.getX() + " " + location.getY() + ")',"
+			+ SRID.WGS84_SRID.getSRID() + ")";
+		String queryString = "from " + City.class.getSimpleName() + " as c  where st_distance_sphere(c.location," + pointAsString
+			+ ") < " + distance + " AND " + GisHelper.makeEnvelope("c", location.getY(), location.getX(), distance)
+			+ " order by st_distance_sphere(c.location," + pointAsString + ")";
+		List<?> results = session.createQuery(queryString).setMaxResults(1).list();
+		return results.isEmpty() ? null : results.get(0);
+	    }
+	});
+    }
+
+}
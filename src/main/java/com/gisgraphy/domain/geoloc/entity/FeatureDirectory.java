@@ -0,0 +1,206 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.geoloc.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Type;
+
+import com.gisgraphy.domain.valueobject.Constants;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * An entry of the feature directory : one narrow row per {@link GisFeature},
+ * whatever its placetype, that gives the table the feature is stored in.
+ * <p>
+ * The {@link GisFeature}s are mapped with one table per class, so a query on
+ * {@link GisFeature} is a union of all the placetype tables. The directory
+ * allows to find a feature by its featureId, or the nearest features of a
+ * point, in one spatially indexed table and then to load them from their
+ * placetype table only. It is kept in sync by the daos through the
+ * {@link com.gisgraphy.domain.geoloc.entity.event.FeatureDirectoryEventListener}.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+@Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+public class FeatureDirectory {
+
+    public static final String LOCATION_COLUMN_NAME = "location";
+
+    private Long featureId;
+
+    private Long gisFeatureId;
+
+    private String placetype;
+
+    private Point location;
+
+    private String countryCode;
+
+    /**
+     * Needed by CGLib
+     */
+    public FeatureDirectory() {
+    }
+
+    /**
+     * @param gisFeature
+     *                the feature to create the entry for
+     */
+    public FeatureDirectory(GisFeature gisFeature) {
+	this.featureId = gisFeature.getFeatureId();
+	this.gisFeatureId = gisFeature.getId();
+	this.placetype = gisFeature.getClass().getSimpleName();
+	this.location = gisFeature.getLocation();
+	this.countryCode = gisFeature.getCountryCode();
+    }
+
+    /**
+     * @return the featureId of the {@link GisFeature}
+     */
+    @Id
+    public Long getFeatureId() {
+	return featureId;
+    }
+
+    /**
+     * @param featureId
+     *                the featureId to set
+     */
+    public void setFeatureId(Long featureId) {
+	this.featureId = featureId;
+    }
+
+    /**
+     * @return the id (technical one) of the {@link GisFeature}
+     */
+    @Column(nullable = false)
+    public Long getGisFeatureId() {
+	return gisFeatureId;
+    }
+
+    /**
+     * @param gisFeatureId
+     *                the gisFeatureId to set
+     */
+    public void setGisFeatureId(Long gisFeatureId) {
+	this.gisFeatureId = gisFeatureId;
+    }
+
+    /**
+     * @return the simple class name of the {@link GisFeature}, that is the
+     *         name of the table it is stored in
+     */
+    @Index(name = "featureDirectoryPlacetypeIndex")
+    @Column(nullable = false, length = 50)
+    public String getPlacetype() {
+	return placetype;
+    }
+
+    /**
+     * @param placetype
+     *                the placetype to set
+     */
+    public void setPlacetype(String placetype) {
+	this.placetype = placetype;
+    }
+
+    /**
+     * @return the class of the {@link GisFeature}
+     */
+    @Transient
+    @SuppressWarnings("unchecked")
+    public Class<? extends GisFeature> getPlacetypeClass() {
+	try {
+	    return (Class<? extends GisFeature>) Class.forName(Constants.ENTITY_PACKAGE + placetype);
+	} catch (ClassNotFoundException e) {
+	    throw new IllegalStateException("unknown placetype in the feature directory : " + placetype);
+	}
+    }
+
+    /**
+     * @return the location of the {@link GisFeature}
+     */
+    @Type(type = "org.hibernatespatial.GeometryUserType")
+    @Column(name = FeatureDirectory.LOCATION_COLUMN_NAME, nullable = false)
+    public Point getLocation() {
+	return location;
+    }
+
+    /**
+     * @param location
+     *                the location to set
+     */
+    public void setLocation(Point location) {
+	this.location = location;
+    }
+
+    /**
+     * @return the ISO 3166 alpha-2 letter code of the {@link GisFeature}
+     */
+    @Column(length = 3)
+    public String getCountryCode() {
+	return countryCode;
+    }
+
+    /**
+     * @param countryCode
+     *                the countryCode to set
+     */
+    public void setCountryCode(String countryCode) {
+	this.countryCode = countryCode;
+    }
+
+    @Override
+    public int hashCode() {
+	return featureId == null ? 0 : featureId.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+	if (this == obj) {
+	    return true;
+	}
+	if (obj == null || getClass() != obj.getClass()) {
+	    return false;
+	}
+	FeatureDirectory other = (FeatureDirectory) obj;
+	if (featureId == null) {
+	    return other.featureId == null;
+	}
+	return featureId.equals(other.featureId);
+    }
+
+    @Override
+    public String toString() {
+	return "FeatureDirectory [featureId=" + featureId + ", gisFeatureId=" + gisFeatureId + ", placetype=" + placetype + ", countryCode=" + countryCode + "]";
+    }
+
+}
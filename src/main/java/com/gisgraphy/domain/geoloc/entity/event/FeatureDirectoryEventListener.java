@@ -0,0 +1,95 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.geoloc.entity.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Required;
+
+import com.gisgraphy.domain.geoloc.entity.FeatureDirectory;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IFeatureDirectoryDao;
+
+/**
+ * Keep the {@link FeatureDirectory} in sync with the {@link GisFeature}s
+ * stored and removed by the daos. The stored features are only written when
+ * the directory is maintained, because the imports fill it in bulk at the end
+ * (see {@link IFeatureDirectoryDao#rebuild(List)})
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FeatureDirectoryEventListener implements IEventListener {
+
+    IFeatureDirectoryDao featureDirectoryDao;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.geoloc.entity.event.IEventListener#handleEvent(com.gisgraphy.domain.geoloc.entity.event.IEvent)
+     */
+    public void handleEvent(IEvent event) {
+	if (event instanceof GisFeatureStoredEvent) {
+	    if (featureDirectoryDao.isMaintained()) {
+		featureDirectoryDao.store(((GisFeatureStoredEvent) event).getGisFeature());
+	    }
+	} else if (event instanceof GisFeatureDeletedEvent) {
+	    List<Long> featureIds = new ArrayList<Long>();
+	    addFeatureId(featureIds, ((GisFeatureDeletedEvent) event).getGisFeature());
+	    featureDirectoryDao.removeByFeatureIds(featureIds);
+	} else if (event instanceof GisFeatureDeleteAllEvent) {
+	    List<Long> featureIds = new ArrayList<Long>();
+	    for (GisFeature gisFeature : ((GisFeatureDeleteAllEvent) event).getGisFeatures()) {
+		addFeatureId(featureIds, gisFeature);
+	    }
+	    featureDirectoryDao.removeByFeatureIds(featureIds);
+	} else if (event instanceof PlaceTypeDeleteAllEvent) {
+	    featureDirectoryDao.deleteAllByPlacetype(((PlaceTypeDeleteAllEvent) event).getPlaceType());
+	}
+    }
+
+    private void addFeatureId(List<Long> featureIds, GisFeature gisFeature) {
+	if (gisFeature != null && gisFeature.getFeatureId() != null) {
+	    featureIds.add(gisFeature.getFeatureId());
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.geoloc.entity.event.IEventListener#supports(com.gisgraphy.domain.geoloc.entity.event.IEvent)
+     */
+    public boolean supports(IEvent event) {
+	return event instanceof IGisRepositoryEvent;
+    }
+
+    /**
+     * @param featureDirectoryDao
+     *                The dao of the directory to keep in sync
+     */
+    @Required
+    public void setFeatureDirectoryDao(IFeatureDirectoryDao featureDirectoryDao) {
+	this.featureDirectoryDao = featureDirectoryDao;
+    }
+
+}
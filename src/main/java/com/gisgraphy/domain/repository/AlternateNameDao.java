@@ -33,6 +33,7 @@ import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.stereotype.Repository;
 
 import com.gisgraphy.domain.geoloc.entity.AlternateName;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
 
 /**
  * A data access object for {@link AlternateName}
@@ -78,4 +79,55 @@ public class AlternateNameDao extends GenericDao<AlternateName, Long> implements
 
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IAlternateNameDao#bulkInsert(java.util.List)
+     */
+    public void bulkInsert(List<AlternateName> alternateNames) {
+	if (alternateNames == null || alternateNames.size() == 0) {
+	    return;
+	}
+	insertWithStatelessSession(alternateNames);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IAlternateNameDao#listNamesByGisFeatureIds(java.util.List)
+     */
+    @SuppressWarnings("unchecked")
+    public List<AlternateName> listNamesByGisFeatureIds(final List<Long> gisFeatureIds) {
+	if (gisFeatureIds == null || gisFeatureIds.size() == 0) {
+	    return new ArrayList<AlternateName>();
+	}
+	return (List<AlternateName>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(final Session session)
+			    throws PersistenceException {
+			final String queryString = "select a.gisFeature.id, a.language, a.name from AlternateName a where a.gisFeature.id in (:ids)";
+
+			final Query qry = session.createQuery(queryString);
+			qry.setParameterList("ids", gisFeatureIds);
+
+			List<Object[]> rows = (List<Object[]>) qry.list();
+			List<AlternateName> result = new ArrayList<AlternateName>();
+			if (rows == null) {
+			    return result;
+			}
+			for (Object[] row : rows) {
+			    GisFeature gisFeature = new GisFeature();
+			    gisFeature.setId((Long) row[0]);
+			    AlternateName alternateName = new AlternateName();
+			    alternateName.setGisFeature(gisFeature);
+			    alternateName.setLanguage((String) row[1]);
+			    alternateName.setName((String) row[2]);
+			    result.add(alternateName);
+			}
+			return result;
+		    }
+		});
+    }
+
 }
@@ -28,6 +28,7 @@ import java.util.Set;
 
 import javax.persistence.PersistenceException;
 
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.springframework.orm.hibernate3.HibernateCallback;
@@ -39,6 +40,8 @@ import com.gisgraphy.domain.geoloc.entity.City;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.geoloc.entity.ZipCode;
 import com.gisgraphy.domain.valueobject.SRID;
+import com.gisgraphy.helper.GisHelper;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -141,6 +144,44 @@ public class CityDao extends GenericGisDao<City> implements ICityDao {
 		});
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.gisgraphy.domain.repository.ICityDao#listEagerInEnvelope(com.vividsolutions.jts.geom.Envelope)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<City> listEagerInEnvelope(final Envelope envelope) {
+		Assert.notNull(envelope);
+		return (List<City>) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String envelopeAsString = "ST_MakeEnvelope(:" + GisHelper.ENVELOPE_MIN_X_PARAMETER + ", :" + GisHelper.ENVELOPE_MIN_Y_PARAMETER + ", :"
+				+ GisHelper.ENVELOPE_MAX_X_PARAMETER + ", :" + GisHelper.ENVELOPE_MAX_Y_PARAMETER + ", " + SRID.WGS84_SRID.getSRID() + ")";
+			String queryString = "from " + persistentClass.getSimpleName()
+				+ " as c where st_intersects(c.shape," + envelopeAsString + ")=true or " + GisHelper.makeEnvelope("c")
+				+ " order by c.id";
+
+			Query qry = session.createQuery(queryString);
+			qry.setDouble(GisHelper.ENVELOPE_MIN_X_PARAMETER, envelope.getMinX());
+			qry.setDouble(GisHelper.ENVELOPE_MIN_Y_PARAMETER, envelope.getMinY());
+			qry.setDouble(GisHelper.ENVELOPE_MAX_X_PARAMETER, envelope.getMaxX());
+			qry.setDouble(GisHelper.ENVELOPE_MAX_Y_PARAMETER, envelope.getMaxY());
+			List<City> results = (List<City>) qry.list();
+			if (results == null) {
+			    return new ArrayList<City>();
+			}
+			//initialize the lazy fields so that the cities can be used outside of the session
+			for (City city : results) {
+			    Hibernate.initialize(city.getAdm());
+			    Hibernate.initialize(city.getAlternateNames());
+			    Hibernate.initialize(city.getZipCodes());
+			}
+			return results;
+		    }
+		});
+	}
+	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public int fixPolygons(){
 		return (Integer) this.getHibernateTemplate().execute(
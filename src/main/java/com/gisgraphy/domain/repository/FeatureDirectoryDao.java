@@ -0,0 +1,308 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.geoloc.entity.FeatureDirectory;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.valueobject.SRID;
+import com.gisgraphy.helper.GisHelper;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * A data access object for {@link FeatureDirectory}. The directory is filled
+ * by {@link #rebuild(List)} at the end of the imports, with one query by
+ * placetype table. When it is maintained, the entries are also stored by the
+ * {@link com.gisgraphy.domain.geoloc.entity.event.FeatureDirectoryEventListener}
+ * each time a {@link GisFeature} is saved by a dao.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FeatureDirectoryDao extends GenericDao<FeatureDirectory, Long> implements IFeatureDirectoryDao {
+
+    private static final String LOCATION_INDEX_NAME = "locationIndexFeatureDirectory";
+
+    private boolean enabled = false;
+
+    private boolean maintained = false;
+
+    private volatile boolean suspended = false;
+
+    /**
+     * Default constructor
+     */
+    public FeatureDirectoryDao() {
+	super(FeatureDirectory.class);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#store(com.gisgraphy.domain.geoloc.entity.GisFeature)
+     */
+    public void store(GisFeature gisFeature) {
+	if (gisFeature == null || gisFeature.getFeatureId() == null || gisFeature.getId() == null || gisFeature.getLocation() == null) {
+	    return;
+	}
+	this.getHibernateTemplate().merge(new FeatureDirectory(gisFeature));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#removeByFeatureIds(java.util.List)
+     */
+    public int removeByFeatureIds(final List<Long> featureIds) {
+	if (featureIds == null || featureIds.size() == 0) {
+	    return 0;
+	}
+	return ((Integer) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		Query qry = session.createQuery("delete from " + persistentClass.getSimpleName() + " as d where d.featureId in (:ids)");
+		qry.setParameterList("ids", featureIds);
+		return Integer.valueOf(qry.executeUpdate());
+	    }
+	})).intValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#deleteAllByPlacetype(java.lang.Class)
+     */
+    public int deleteAllByPlacetype(final Class<? extends GisFeature> placetype) {
+	Assert.notNull(placetype, "can not delete the entries of a null placetype");
+	if (placetype == GisFeature.class) {
+	    return deleteAll();
+	}
+	return ((Integer) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		Query qry = session.createQuery("delete from " + persistentClass.getSimpleName() + " as d where d.placetype= ?");
+		qry.setParameter(0, placetype.getSimpleName());
+		return Integer.valueOf(qry.executeUpdate());
+	    }
+	})).intValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#listByFeatureIds(java.util.List)
+     */
+    @SuppressWarnings("unchecked")
+    public List<FeatureDirectory> listByFeatureIds(final List<Long> featureIds) {
+	if (featureIds == null || featureIds.size() == 0) {
+	    return new ArrayList<FeatureDirectory>();
+	}
+	return (List<FeatureDirectory>) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		Query qry = session.createQuery("from " + persistentClass.getSimpleName() + " as d where d.featureId in (:ids)");
+		qry.setParameterList("ids", featureIds);
+		qry.setCacheable(true);
+		List<FeatureDirectory> results = (List<FeatureDirectory>) qry.list();
+		if (results == null) {
+		    results = new ArrayList<FeatureDirectory>();
+		}
+		return results;
+	    }
+	});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#listNearest(com.vividsolutions.jts.geom.Point, long, double, int, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<FeatureDirectory> listNearest(final Point point, final long excludedGisFeatureId, final double distance, final int firstResult, final int maxResults) {
+	Assert.notNull(point, "can not find the nearest features of a null point");
+	return (List<FeatureDirectory>) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		String pointAsString = "st_setsrid(:" + GenericGisDao.NEAREST_POINT_PARAMETER + "," + SRID.WGS84_SRID.getSRID() + ")";
+		String queryString = "from " + persistentClass.getSimpleName() + " as d where st_distance_sphere(d.location," + pointAsString + ") < :"
+			+ GenericGisDao.NEAREST_DISTANCE_PARAMETER + " AND " + GisHelper.makeEnvelope("d");
+		if (excludedGisFeatureId != 0) {
+		    queryString += " and d.gisFeatureId <> :excludedGisFeatureId";
+		}
+		queryString += " order by st_distance_sphere(d.location," + pointAsString + ")";
+
+		Query qry = session.createQuery(queryString);
+		qry.setParameter(GenericGisDao.NEAREST_POINT_PARAMETER, point, GenericGisDao.GEOMETRY_TYPE);
+		qry.setDouble(GenericGisDao.NEAREST_DISTANCE_PARAMETER, distance);
+		double[] bounds = GisHelper.getEnvelopeBounds(point.getY(), point.getX(), distance);
+		qry.setDouble(GisHelper.ENVELOPE_MIN_X_PARAMETER, bounds[0]);
+		qry.setDouble(GisHelper.ENVELOPE_MIN_Y_PARAMETER, bounds[1]);
+		qry.setDouble(GisHelper.ENVELOPE_MAX_X_PARAMETER, bounds[2]);
+		qry.setDouble(GisHelper.ENVELOPE_MAX_Y_PARAMETER, bounds[3]);
+		if (excludedGisFeatureId != 0) {
+		    qry.setLong("excludedGisFeatureId", excludedGisFeatureId);
+		}
+		if (maxResults > 0) {
+		    qry.setMaxResults(maxResults);
+		}
+		if (firstResult >= 1) {
+		    qry.setFirstResult(firstResult - 1);
+		}
+		List<FeatureDirectory> results = (List<FeatureDirectory>) qry.list();
+		if (results == null) {
+		    results = new ArrayList<FeatureDirectory>();
+		}
+		return results;
+	    }
+	});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#rebuild(java.util.List)
+     */
+    public int rebuild(final List<Class<? extends GisFeature>> placetypes) {
+	Assert.notNull(placetypes, "can not rebuild the directory without the placetypes");
+	if (!enabled && !maintained) {
+	    logger.info("the feature directory is not used, it won't be rebuilt");
+	    suspended = false;
+	    return 0;
+	}
+	int count = ((Integer) this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		session.flush();
+		String directoryTable = persistentClass.getSimpleName().toLowerCase();
+		session.createSQLQuery("delete from " + directoryTable).executeUpdate();
+		int count = 0;
+		for (Class<? extends GisFeature> placetype : placetypes) {
+		    // a feature can be stored in several tables, the first one wins
+		    String insert = "insert into " + directoryTable + " (featureId, gisFeatureId, placetype, "
+			    + FeatureDirectory.LOCATION_COLUMN_NAME + ", countryCode) select t.featureId, t.id, '"
+			    + placetype.getSimpleName() + "', t." + GisFeature.LOCATION_COLUMN_NAME + ", t.countryCode from "
+			    + placetype.getSimpleName().toLowerCase() + " t where t.featureId is not null and t."
+			    + GisFeature.LOCATION_COLUMN_NAME + " is not null and not exists (select 1 from " + directoryTable
+			    + " d where d.featureId = t.featureId)";
+		    int inserted = session.createSQLQuery(insert).executeUpdate();
+		    logger.info(inserted + " " + placetype.getSimpleName() + " have been stored in the feature directory");
+		    count += inserted;
+		}
+		return Integer.valueOf(count);
+	    }
+	})).intValue();
+	//if the rebuild fails, the directory stays suspended and the features are searched in the placetype tables
+	suspended = false;
+	return count;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#suspend()
+     */
+    public void suspend() {
+	suspended = true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#resume()
+     */
+    public void resume() {
+	suspended = false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#createGISTIndexForLocationColumn()
+     */
+    public void createGISTIndexForLocationColumn() {
+	this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session) throws PersistenceException {
+		session.flush();
+		String checkingLocationIndex = "SELECT 1 FROM   pg_class c  JOIN   pg_namespace n ON n.oid = c.relnamespace WHERE  c.relname = '"
+			+ LOCATION_INDEX_NAME.toLowerCase() + "'";
+		if (session.createSQLQuery(checkingLocationIndex).uniqueResult() == null) {
+		    logger.info("will create GIST index for " + persistentClass.getSimpleName());
+		    String createIndex = "CREATE INDEX " + LOCATION_INDEX_NAME + " ON " + persistentClass.getSimpleName().toLowerCase() + " USING GIST ("
+			    + FeatureDirectory.LOCATION_COLUMN_NAME + ")";
+		    session.createSQLQuery(createIndex).executeUpdate();
+		} else {
+		    logger.info("won't create GIST index for " + persistentClass.getSimpleName() + " because it already exists");
+		}
+		return null;
+	    }
+	});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#isEnabled()
+     */
+    public boolean isEnabled() {
+	return enabled && !suspended;
+    }
+
+    /**
+     * @param enabled
+     *                whether the directory is complete and should be used to
+     *                find the features. It is filled by {@link #rebuild(List)}
+     *                at the end of the imports
+     */
+    public void setEnabled(boolean enabled) {
+	this.enabled = enabled;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IFeatureDirectoryDao#isMaintained()
+     */
+    public boolean isMaintained() {
+	return maintained && !suspended;
+    }
+
+    /**
+     * @param maintained
+     *                whether each saved feature should be stored in the
+     *                directory, one query by feature. It is only needed when
+     *                the features are edited after the imports
+     */
+    public void setMaintained(boolean maintained) {
+	this.maintained = maintained;
+    }
+
+}
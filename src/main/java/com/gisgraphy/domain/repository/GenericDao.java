@@ -36,6 +36,8 @@ import org.hibernate.HibernateException;
 import org.hibernate.ObjectNotFoundException;
 import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.SessionImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessResourceFailureException;
@@ -114,6 +116,41 @@ public class GenericDao<T, PK extends Serializable> extends HibernateDaoSupport
 
     }
 
+    /**
+     * Insert some objects with a {@link StatelessSession} that uses the
+     * connection, and so the transaction, of the current session. There is no
+     * dirty checking, no session cache and no cascade, and the inserts are
+     * sent by JDBC batch. The lists are inserted one after the other, so the
+     * parents must be in the first lists and the children in the last ones :
+     * the ids of the parents are set when they are inserted.
+     * 
+     * @param lists
+     *                the objects to insert
+     */
+    protected void insertWithStatelessSession(final List<?>... lists) {
+	this.getHibernateTemplate().execute(new HibernateCallback() {
+
+	    public Object doInHibernate(Session session)
+		    throws PersistenceException {
+		StatelessSession statelessSession = session.getSessionFactory()
+			.openStatelessSession(session.connection());
+		try {
+		    for (List<?> list : lists) {
+			for (Object o : list) {
+			    statelessSession.insert(o);
+			}
+		    }
+		    //the stateless session doesn't execute the last batch by itself
+		    ((SessionImplementor) statelessSession).getBatcher()
+			    .executeBatch();
+		} finally {
+		    statelessSession.close();
+		}
+		return null;
+	    }
+	});
+    }
+
     /*
      * (non-Javadoc)
      * 
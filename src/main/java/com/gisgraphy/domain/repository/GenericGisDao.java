@@ -31,7 +31,6 @@ import java.util.Set;
 
 import javax.persistence.PersistenceException;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.QueryResponse;
@@ -51,7 +50,10 @@ import org.springframework.beans.factory.annotation.Required;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.util.Assert;
 
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.AlternateName;
 import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.Country;
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.geoloc.entity.ZipCode;
@@ -68,7 +70,7 @@ import com.gisgraphy.fulltext.FullTextFields;
 import com.gisgraphy.fulltext.IsolrClient;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.helper.GisHelper;
-import com.gisgraphy.helper.IntrospectionHelper;
+import com.gisgraphy.hibernate.criterion.BeanRowMapper;
 import com.gisgraphy.hibernate.criterion.DistanceRestriction;
 import com.gisgraphy.hibernate.criterion.ProjectionOrder;
 import com.gisgraphy.hibernate.criterion.ResultTransformerUtil;
@@ -102,6 +104,10 @@ public class GenericGisDao<T extends GisFeature> extends
 
     public static final int MAX_FULLTEXT_RESULTS = 100;
 
+    protected static final String NEAREST_POINT_PARAMETER = "point";
+    protected static final String NEAREST_DISTANCE_PARAMETER = "distance";
+    protected static final String NEAREST_COUNTRYCODE_PARAMETER = "countryCode";
+
     @Autowired
     @Qualifier("solrClient")
     private IsolrClient solrClient;
@@ -204,99 +210,113 @@ public class GenericGisDao<T extends GisFeature> extends
 
 		    public Object doInHibernate(Session session)
 			    throws PersistenceException {
-			Criteria criteria = session
-				.createCriteria(requiredClass);
-			
-			if (maxResults > 0) {
-			    criteria = criteria.setMaxResults(maxResults);
-			}
-			if (firstResult >= 1) {
-			    criteria = criteria.setFirstResult(firstResult - 1);
-			}
-			criteria = criteria.add(new DistanceRestriction(point,
-				distance));
-			List<String> fieldList = IntrospectionHelper
-				.getFieldsAsList(requiredClass);
-			ProjectionList projections = ProjectionBean.fieldList(
-				fieldList,true);
-			if (includeDistanceField){
-			    projections.add(
-				SpatialProjection.distance_sphere(point,GisFeature.LOCATION_COLUMN_NAME).as(
-					"distance"));
-			}
-			criteria.setProjection(projections);
-			if (pointId != 0) {
-			    // remove The From Point
-			    criteria = criteria.add(Restrictions.not(Restrictions.idEq(pointId)));
-			}
-			if (includeDistanceField){
-			    criteria.addOrder(new ProjectionOrder("distance"));
-			}
-			if (isMunicipality && (requiredClass == City.class || requiredClass == GisFeature.class)){
-				criteria.add(Restrictions.eq(City.MUNICIPALITY_FIELD_NAME, isMunicipality));
-			}
-			
-			criteria.setCacheable(true);
-			List<Object[]> queryResults = criteria.list();
-			
-			String[] aliasList;
-			if (includeDistanceField){
-			aliasList = (String[]) ArrayUtils
-				.add(
-					IntrospectionHelper
-						.getFieldsAsArray(requiredClass),
-					"distance");
-			} else {
-			    aliasList = IntrospectionHelper
-				.getFieldsAsArray(requiredClass);
-			}
-			int idPropertyIndexInAliasList=0;
-			for (int i=0;i<aliasList.length;i++){
-			    if (aliasList[i]=="id"){
-				idPropertyIndexInAliasList = i;
-				break;
-			    }
-			}
-			
-			
-			boolean hasZipCodesProperty = ZipCodesAware.class.isAssignableFrom(requiredClass);
-			Map<Long, Set<String>> idToZipCodesMap = null;
-			if (hasZipCodesProperty && queryResults.size()>0){
-			List<Long> ids = new ArrayList<Long>();
-			for (Object[] tuple: queryResults){
-			    ids.add((Long)tuple[idPropertyIndexInAliasList]);
-			}
-			String zipCodeQuery = "SELECT code as code,gisfeature as id FROM "+ZipCode.class.getSimpleName().toLowerCase() +" zip where zip.gisfeature in (:ids)" ;
-			Query qry = session.createSQLQuery(zipCodeQuery).addScalar("code", Hibernate.STRING).addScalar("id", Hibernate.LONG);
-			qry.setCacheable(true);
-
-			qry.setParameterList("ids", ids);
-			List<Object[]> zipCodes = (List<Object[]>) qry.list();
-			
-			if (zipCodes.size() > 0) {
-			    idToZipCodesMap = new HashMap<Long, Set<String>>();
-			    for (Object[] zipCode : zipCodes){
-				Long idFromZipcode = (Long) zipCode[1];
-				Set<String> zipCodesFromMap  = idToZipCodesMap.get(idFromZipcode);
-				if (zipCodesFromMap == null){
-				    Set<String> zipCodesToAdd = new HashSet<String>();
-				    idToZipCodesMap.put(idFromZipcode, zipCodesToAdd);
-				    zipCodesFromMap = zipCodesToAdd;
-				} 
-				zipCodesFromMap.add((String)zipCode[0]);
-			    }
-			}
-			}
-			List<GisFeatureDistance> results = ResultTransformerUtil
-			.transformToGisFeatureDistance(
-					aliasList,
-				queryResults,idToZipCodesMap,requiredClass);
-			return results;
+			return listGisFeatureDistance(session, point, pointId,
+				distance, firstResult, maxResults,
+				includeDistanceField, requiredClass,
+				requiredClass, isMunicipality, null);
 		    }
 		});
 
     }
 
+    /**
+     * The query of {@link #getNearestAndDistanceFrom(Point, Long, double, int, int, boolean, Class, boolean)}
+     * 
+     * @param queriedClass
+     *                the class of the table to query
+     * @param projectedClass
+     *                the class whose fields are retrieved, the queried class
+     *                or one of its super class
+     * @param gisFeatureIds
+     *                if not null, only the features with those ids are
+     *                retrieved
+     * @return a list of gisFeatureDistance, ordered by distance if the
+     *         distance is included (never return null)
+     */
+    @SuppressWarnings("unchecked")
+    protected List<GisFeatureDistance> listGisFeatureDistance(Session session,
+	    final Point point, final Long pointId, final double distance,
+	    final int firstResult, final int maxResults,
+	    final boolean includeDistanceField,
+	    final Class<? extends GisFeature> queriedClass,
+	    final Class<? extends GisFeature> projectedClass,
+	    final boolean isMunicipality, final List<Long> gisFeatureIds) {
+	Criteria criteria = session
+		.createCriteria(queriedClass);
+	
+	if (maxResults > 0) {
+	    criteria = criteria.setMaxResults(maxResults);
+	}
+	if (firstResult >= 1) {
+	    criteria = criteria.setFirstResult(firstResult - 1);
+	}
+	criteria = criteria.add(new DistanceRestriction(point,
+		distance));
+	BeanRowMapper<GisFeatureDistance> mapper = includeDistanceField ? BeanRowMapper.forProjection(GisFeatureDistance.class, projectedClass, "distance")
+		: BeanRowMapper.forProjection(GisFeatureDistance.class, projectedClass);
+	ProjectionList projections = ProjectionBean.fieldList(
+		mapper.getFieldList(),true);
+	if (includeDistanceField){
+	    projections.add(
+		SpatialProjection.distance_sphere(point,GisFeature.LOCATION_COLUMN_NAME).as(
+			"distance"));
+	}
+	criteria.setProjection(projections);
+	if (pointId != 0) {
+	    // remove The From Point
+	    criteria = criteria.add(Restrictions.not(Restrictions.idEq(pointId)));
+	}
+	if (includeDistanceField){
+	    criteria.addOrder(new ProjectionOrder("distance"));
+	}
+	if (gisFeatureIds != null) {
+	    criteria = criteria.add(Restrictions.in("id", gisFeatureIds));
+	}
+	if (isMunicipality && (queriedClass == City.class || queriedClass == GisFeature.class)){
+		criteria.add(Restrictions.eq(City.MUNICIPALITY_FIELD_NAME, isMunicipality));
+	}
+	
+	criteria.setCacheable(true);
+	List<Object[]> queryResults = criteria.list();
+	
+	int idPropertyIndexInAliasList = Math.max(mapper.indexOf("id"), 0);
+	
+	
+	boolean hasZipCodesProperty = ZipCodesAware.class.isAssignableFrom(projectedClass);
+	Map<Long, Set<String>> idToZipCodesMap = null;
+	if (hasZipCodesProperty && queryResults.size()>0){
+	List<Long> ids = new ArrayList<Long>();
+	for (Object[] tuple: queryResults){
+	    ids.add((Long)tuple[idPropertyIndexInAliasList]);
+	}
+	String zipCodeQuery = "SELECT code as code,gisfeature as id FROM "+ZipCode.class.getSimpleName().toLowerCase() +" zip where zip.gisfeature in (:ids)" ;
+	Query qry = session.createSQLQuery(zipCodeQuery).addScalar("code", Hibernate.STRING).addScalar("id", Hibernate.LONG);
+	qry.setCacheable(true);
+
+	qry.setParameterList("ids", ids);
+	List<Object[]> zipCodes = (List<Object[]>) qry.list();
+	
+	if (zipCodes.size() > 0) {
+	    idToZipCodesMap = new HashMap<Long, Set<String>>();
+	    for (Object[] zipCode : zipCodes){
+		Long idFromZipcode = (Long) zipCode[1];
+		Set<String> zipCodesFromMap  = idToZipCodesMap.get(idFromZipcode);
+		if (zipCodesFromMap == null){
+		    Set<String> zipCodesToAdd = new HashSet<String>();
+		    idToZipCodesMap.put(idFromZipcode, zipCodesToAdd);
+		    zipCodesFromMap = zipCodesToAdd;
+		} 
+		zipCodesFromMap.add((String)zipCode[0]);
+	    }
+	}
+	}
+	List<GisFeatureDistance> results = ResultTransformerUtil
+	.transformToGisFeatureDistance(
+			mapper,
+		queryResults,idToZipCodesMap,projectedClass);
+	return results;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -426,6 +446,31 @@ public class GenericGisDao<T extends GisFeature> extends
 	return savedgisFeature;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#bulkInsert(java.util.List)
+     */
+    public void bulkInsert(List<T> gisFeatures) {
+	if (gisFeatures == null || gisFeatures.size() == 0) {
+	    return;
+	}
+	List<AlternateName> alternateNames = new ArrayList<AlternateName>();
+	List<ZipCode> zipCodes = new ArrayList<ZipCode>();
+	for (T gisFeature : gisFeatures) {
+	    if (gisFeature.getAlternateNames() != null) {
+		alternateNames.addAll(gisFeature.getAlternateNames());
+	    }
+	    if (gisFeature.getZipCodes() != null) {
+		zipCodes.addAll(gisFeature.getZipCodes());
+	    }
+	}
+	insertWithStatelessSession(gisFeatures, alternateNames, zipCodes);
+	for (T gisFeature : gisFeatures) {
+	    eventManager.handleEvent(new GisFeatureStoredEvent(gisFeature));
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -656,6 +701,51 @@ public class GenericGisDao<T extends GisFeature> extends
 			});
     }
     
+    /**
+     * @param filterMunicipality
+     *            whether the query should only retrieve the municipalities
+     * @param filterCountryCode
+     *            whether the query should filter on a country code
+     * @return the HQL query used by {@link #getNearest(Point, String, boolean, int)}
+     *         and {@link #getNearests(Point, String, boolean, int, int)}. The
+     *         location, the distance and the country code are bound
+     *         parameters, so the string only depends on the filters : hibernate
+     *         parses it once and the prepared statement can be reused whatever
+     *         the location is.
+     */
+    protected String getNearestQueryString(boolean filterMunicipality, boolean filterCountryCode) {
+	String pointAsString = "st_setsrid(:" + NEAREST_POINT_PARAMETER + "," + SRID.WGS84_SRID.getSRID() + ")";
+	String queryString = "from " + persistentClass.getSimpleName()
+		+ " as c  where st_distance_sphere(c.location," + pointAsString + ") < :" + NEAREST_DISTANCE_PARAMETER
+		+ " AND " + GisHelper.makeEnvelope("c");
+	if (filterMunicipality) {
+	    queryString += " and c.municipality=true";
+	}
+	if (filterCountryCode) {
+	    queryString += " and c.countryCode=:" + NEAREST_COUNTRYCODE_PARAMETER;
+	}
+	return queryString + " order by st_distance_sphere(c.location," + pointAsString + ")";
+    }
+
+    /**
+     * create the query returned by
+     * {@link #getNearestQueryString(boolean, boolean)} and bind its parameters
+     */
+    protected Query createNearestQuery(Session session, Point location, String countryCode, boolean filterMunicipality, int distance) {
+	Query qry = session.createQuery(getNearestQueryString(filterMunicipality, countryCode != null));
+	qry.setParameter(NEAREST_POINT_PARAMETER, location, GEOMETRY_TYPE);
+	qry.setDouble(NEAREST_DISTANCE_PARAMETER, distance);
+	double[] bounds = GisHelper.getEnvelopeBounds(location.getY(), location.getX(), distance);
+	qry.setDouble(GisHelper.ENVELOPE_MIN_X_PARAMETER, bounds[0]);
+	qry.setDouble(GisHelper.ENVELOPE_MIN_Y_PARAMETER, bounds[1]);
+	qry.setDouble(GisHelper.ENVELOPE_MAX_X_PARAMETER, bounds[2]);
+	qry.setDouble(GisHelper.ENVELOPE_MAX_Y_PARAMETER, bounds[3]);
+	if (countryCode != null) {
+	    qry.setString(NEAREST_COUNTRYCODE_PARAMETER, countryCode);
+	}
+	return qry;
+    }
+
     @SuppressWarnings("unchecked")
 	public T getNearest(final Point location,final String countryCode,final boolean filterMunicipality,final int distance) {
 		Assert.notNull(location);
@@ -663,29 +753,8 @@ public class GenericGisDao<T extends GisFeature> extends
 
 		    public Object doInHibernate(Session session)
 			    throws PersistenceException {
-		    String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
-		   /* String bbox = "st_setSRID(cast ('BOX3D(39.875947845588854 -6.649904839690944,57.85738955675488 11.316505067046899)'as box3d), 4326)";
-		    String bbox2 = "ST_MakeEnvelope(39.875947845588854, -6.649904839690944,57.85738955675488, 11.316505067046899, 4326)";*/
-			String queryString = "from " + persistentClass.getSimpleName()
-				+ " as c  where st_distance_sphere(c.location,"+pointAsString+") < "+distance
-				//+" AND st_contains("+bbox2+",c.location)=true ";
-				+ " AND "+GisHelper.makeEnvelope("c", location.getY(),location.getX(), distance)
-	
-						//GisHelper.getBoundingBox(criteriaQuery.getSQLAlias(criteria), this.point
-							//	.getY(), this.point.getX(), distance)
-				
-				;//left outer join c.zipCodes z
-			if (filterMunicipality){
-				queryString+=" and c.municipality=true";
-			}
-			if (countryCode!=null ){
-				queryString+=" and c.countryCode='"+countryCode+"'";
-			}
-			queryString = queryString+ " order by st_distance_sphere(c.location,"+pointAsString+")";
-
-			Query qry = session.createQuery(queryString).setMaxResults(1);
+			Query qry = createNearestQuery(session, location, countryCode, filterMunicipality, distance).setMaxResults(1);
 
-			//qry.setParameter("point2", location);
 			T result = (T) qry.uniqueResult();
 
 			return result;
@@ -700,32 +769,11 @@ public class GenericGisDao<T extends GisFeature> extends
 
   		    public Object doInHibernate(Session session)
   			    throws PersistenceException {
-  		    String pointAsString = "ST_GeometryFromText('POINT("+location.getX()+" "+location.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
-  		  /*  String bbox = "st_setSRID(cast ('BOX3D(39.875947845588854 -6.649904839690944,57.85738955675488 11.316505067046899)'as box3d), 4326)";
-  		    String bbox2 = "ST_MakeEnvelope(39.875947845588854, -6.649904839690944,57.85738955675488, 11.316505067046899, 4326)";*/
-  			String queryString = "from " + persistentClass.getSimpleName()
-  				+ " as c  where st_distance_sphere(c.location,"+pointAsString+") < "+distance
-  				//+" AND st_contains("+bbox2+",c.location)=true ";
-  				+ " AND "+GisHelper.makeEnvelope("c", location.getY(),location.getX(), distance)
-  	
-  						//GisHelper.getBoundingBox(criteriaQuery.getSQLAlias(criteria), this.point
-  							//	.getY(), this.point.getX(), distance)
-  				
-  				;//left outer join c.zipCodes z
-  			if (filterMunicipality){
-  				queryString+=" and c.municipality=true";
-  			}
-  			if (countryCode!=null ){
-  				queryString+=" and c.countryCode='"+countryCode+"'";
-  			}
-  			queryString = queryString+ " order by st_distance_sphere(c.location,"+pointAsString+")";
-
-  			Query qry = session.createQuery(queryString);
+  			Query qry = createNearestQuery(session, location, countryCode, filterMunicipality, distance);
   			if (limit >0){
   				qry.setMaxResults(limit);
   			}
 
-  			//qry.setParameter("point2", location);
   			List<T> results = (List<T>) qry.list();
   			if (results == null) {
 			    results = new ArrayList<T>();
@@ -736,6 +784,141 @@ public class GenericGisDao<T extends GisFeature> extends
   		});
   	}
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#listEagerFromId(long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> listEagerFromId(final long fromId, final int maxResults) {
+	return (List<T>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "from "
+				+ persistentClass.getSimpleName()
+				+ " o where o.id > ? order by o.id";
+			//we don't use setFirstResult because offset becomes slow on big tables
+
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, fromId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<T> results = (List<T>) qry.list();
+			if (results == null) {
+			    return new ArrayList<T>();
+			}
+			//initialize the lazy fields so that the features can be used outside of the session
+			for (T feature : results) {
+			    Hibernate.initialize(feature.getAdm());
+			    Hibernate.initialize(feature.getAlternateNames());
+			    Hibernate.initialize(feature.getZipCodes());
+			}
+			return results;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#listForFullTextFromId(long, long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> listForFullTextFromId(final long fromId, final long toId, final int maxResults) {
+	return (List<T>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "from "
+				+ persistentClass.getSimpleName()
+				+ " o where o.id > ? and o.id <= ? order by o.id";
+
+			Query qry = session.createQuery(queryString);
+			qry.setReadOnly(true);
+			qry.setParameter(0, fromId);
+			qry.setParameter(1, toId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<T> results = (List<T>) qry.list();
+			if (results == null) {
+			    return new ArrayList<T>();
+			}
+			for (T feature : results) {
+			    Hibernate.initialize(feature.getAlternateNames());
+			    Hibernate.initialize(feature.getZipCodes());
+			    Adm adm = feature instanceof Adm ? (Adm) feature : feature.getAdm();
+			    while (adm != null) {
+				Hibernate.initialize(adm);
+				if (adm.getLevel() == 1 || adm.getLevel() == 2) {
+				    Hibernate.initialize(adm.getAlternateNames());
+				}
+				adm = adm.getParent();
+			    }
+			    if (feature instanceof Country) {
+				Hibernate.initialize(((Country) feature).getSpokenLanguages());
+			    }
+			}
+			return results;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#getMaxId()
+     */
+    public long getMaxId() {
+	return (Long) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select max(o.id) from "
+				+ persistentClass.getSimpleName() + " o";
+
+			Query qry = session.createQuery(queryString);
+			Long maxId = (Long) qry.uniqueResult();
+			return maxId == null ? 0L : maxId;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IGisDao#listShapesFromId(long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listShapesFromId(final long fromId, final int maxResults) {
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select o.id, o.shape from "
+				+ persistentClass.getSimpleName()
+				+ " o where o.id > ? and o.shape is not null order by o.id";
+			//we don't use setFirstResult because offset becomes slow on big tables
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, fromId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    return new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+
     public void createGISTIndexForShapeColumn() {
 		 this.getHibernateTemplate().execute(
 				 new HibernateCallback() {
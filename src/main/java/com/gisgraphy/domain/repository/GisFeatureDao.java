@@ -22,16 +22,27 @@
  *******************************************************************************/
 package com.gisgraphy.domain.repository;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.persistence.PersistenceException;
 
+import org.hibernate.EntityMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.metadata.ClassMetadata;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
+import com.gisgraphy.domain.geoloc.entity.FeatureDirectory;
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.valueobject.GisFeatureDistance;
 import com.vividsolutions.jts.geom.Point;
@@ -45,6 +56,8 @@ import com.vividsolutions.jts.geom.Point;
 public class GisFeatureDao extends GenericGisDao<GisFeature> implements
 	IGisFeatureDao {
 
+    private IFeatureDirectoryDao featureDirectoryDao;
+
     /**
      * Default Constructor
      */
@@ -119,6 +132,129 @@ public class GisFeatureDao extends GenericGisDao<GisFeature> implements
 	return getNearestAndDistanceFrom(point, distance, -1, -1, includeDistanceField, requiredClass);
     }
 
+    /**
+     * Find the nearest features in the {@link FeatureDirectory} when it is
+     * enabled and no placetype is required, instead of querying the union of
+     * all the placetype tables. The features are then retrieved from their
+     * placetype tables only.
+     * 
+     * @see com.gisgraphy.domain.repository.GenericGisDao#getNearestAndDistanceFrom(com.vividsolutions.jts.geom.Point,
+     *      java.lang.Long, double, int, int, boolean, java.lang.Class,
+     *      boolean)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<GisFeatureDistance> getNearestAndDistanceFrom(
+	    final Point point, final Long pointId, final double distance,
+	    final int firstResult, final int maxResults,
+	    final boolean includeDistanceField,
+	    final Class<? extends GisFeature> requiredClass, final boolean isMunicipality) {
+	if (requiredClass != GisFeature.class || isMunicipality || !isFeatureDirectoryEnabled()) {
+	    return super.getNearestAndDistanceFrom(point, pointId, distance,
+		    firstResult, maxResults, includeDistanceField, requiredClass, isMunicipality);
+	}
+	Assert.notNull(point);
+	final List<FeatureDirectory> nearests = featureDirectoryDao.listNearest(point,
+		pointId == null ? 0 : pointId.longValue(), distance, firstResult, maxResults);
+	if (nearests.size() == 0) {
+	    return new ArrayList<GisFeatureDistance>();
+	}
+	return (List<GisFeatureDistance>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			Map<Long, GisFeatureDistance> gisFeatureDistances = new HashMap<Long, GisFeatureDistance>();
+			for (Entry<Class<? extends GisFeature>, List<Long>> placetypeIds : groupByPlacetype(nearests).entrySet()) {
+			    for (GisFeatureDistance gisFeatureDistance : listGisFeatureDistance(session, point, 0L, distance, -1, -1,
+				    includeDistanceField, placetypeIds.getKey(), GisFeature.class, false, placetypeIds.getValue())) {
+				gisFeatureDistances.put(gisFeatureDistance.getId(), gisFeatureDistance);
+			    }
+			}
+			List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>(nearests.size());
+			for (FeatureDirectory nearest : nearests) {
+			    GisFeatureDistance gisFeatureDistance = gisFeatureDistances.get(nearest.getGisFeatureId());
+			    if (gisFeatureDistance != null) {
+				results.add(gisFeatureDistance);
+			    }
+			}
+			return results;
+		    }
+		});
+    }
+
+    /**
+     * Retrieve the feature from its placetype table, found in the
+     * {@link FeatureDirectory}, when the directory is enabled
+     * 
+     * @see com.gisgraphy.domain.repository.GenericGisDao#getByFeatureId(java.lang.Long)
+     */
+    @Override
+    public GisFeature getByFeatureId(final Long featureId) {
+	if (!isFeatureDirectoryEnabled()) {
+	    return super.getByFeatureId(featureId);
+	}
+	Assert.notNull(featureId);
+	FeatureDirectory entry = featureDirectoryDao.get(featureId);
+	if (entry == null) {
+	    return null;
+	}
+	return (GisFeature) this.getHibernateTemplate().get(entry.getPlacetypeClass(), entry.getGisFeatureId());
+    }
+
+    /**
+     * Retrieve the features from their placetype tables, found in the
+     * {@link FeatureDirectory}, when the directory is enabled
+     * 
+     * @see com.gisgraphy.domain.repository.GenericGisDao#listByFeatureIds(java.util.List)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<GisFeature> listByFeatureIds(final List<Long> ids) {
+	if (!isFeatureDirectoryEnabled()) {
+	    return super.listByFeatureIds(ids);
+	}
+	if (ids == null || ids.size() == 0) {
+	    return new ArrayList<GisFeature>();
+	}
+	final List<FeatureDirectory> entries = featureDirectoryDao.listByFeatureIds(ids);
+	if (entries.size() == 0) {
+	    return new ArrayList<GisFeature>();
+	}
+	return (List<GisFeature>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			List<GisFeature> results = new ArrayList<GisFeature>(entries.size());
+			for (Entry<Class<? extends GisFeature>, List<Long>> placetypeIds : groupByPlacetype(entries).entrySet()) {
+			    Query qry = session.createQuery("from " + placetypeIds.getKey().getSimpleName() + " as g where g.id in (:ids)");
+			    qry.setParameterList("ids", placetypeIds.getValue());
+			    qry.setCacheable(true);
+			    results.addAll((List<GisFeature>) qry.list());
+			}
+			return results;
+		    }
+		});
+    }
+
+    private Map<Class<? extends GisFeature>, List<Long>> groupByPlacetype(List<FeatureDirectory> entries) {
+	Map<Class<? extends GisFeature>, List<Long>> idsByPlacetype = new LinkedHashMap<Class<? extends GisFeature>, List<Long>>();
+	for (FeatureDirectory entry : entries) {
+	    List<Long> ids = idsByPlacetype.get(entry.getPlacetypeClass());
+	    if (ids == null) {
+		ids = new ArrayList<Long>();
+		idsByPlacetype.put(entry.getPlacetypeClass(), ids);
+	    }
+	    ids.add(entry.getGisFeatureId());
+	}
+	return idsByPlacetype;
+    }
+
+    private boolean isFeatureDirectoryEnabled() {
+	return featureDirectoryDao != null && featureDirectoryDao.isEnabled();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -130,14 +266,21 @@ public class GisFeatureDao extends GenericGisDao<GisFeature> implements
 
 		    public Object doInHibernate(Session session)
 			    throws PersistenceException {
+			String whereClause = " where (g.featureCode NOT IN ('ADM1','ADM2','ADM3','ADM4') OR g.featureCode is null) AND g.featureId NOT IN (select featureId from Country)  ";
 			String queryString = "delete from "
 				+ persistentClass.getSimpleName()
-				+ " as g where (g.featureCode NOT IN ('ADM1','ADM2','ADM3','ADM4') OR g.featureCode is null) AND g.featureId NOT IN (select featureId from Country)  ";
+				+ " as g" + whereClause;
 
 			Query qry = session.createQuery(queryString);
 			// Need to flush to avoid optimisticLock exception
 			session.flush();
 			session.clear();
+			if (featureDirectoryDao != null) {
+			    // the bulk delete doesn't send any event
+			    session.createQuery("delete from " + FeatureDirectory.class.getSimpleName()
+				    + " as d where d.featureId in (select g.featureId from " + persistentClass.getSimpleName() + " as g" + whereClause + ")")
+				    .executeUpdate();
+			}
 			qry.setCacheable(false);
 
 			return Integer.valueOf(qry.executeUpdate());
@@ -168,4 +311,90 @@ public class GisFeatureDao extends GenericGisDao<GisFeature> implements
 		});
     }
 
+    /* (non-Javadoc)
+     * @see com.gisgraphy.domain.repository.IGisFeatureDao#listPlacetypes()
+     */
+    @SuppressWarnings("unchecked")
+    public List<Class<? extends GisFeature>> listPlacetypes() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	Map<String, ClassMetadata> metadatas = (Map<String, ClassMetadata>) getSessionFactory().getAllClassMetadata();
+	for (ClassMetadata metadata : metadatas.values()) {
+	    Class<?> mappedClass = metadata.getMappedClass(EntityMode.POJO);
+	    if (mappedClass != null && GisFeature.class.isAssignableFrom(mappedClass)) {
+		placetypes.add((Class<? extends GisFeature>) mappedClass);
+	    }
+	}
+	Collections.sort(placetypes, new Comparator<Class<? extends GisFeature>>() {
+	    public int compare(Class<? extends GisFeature> o1, Class<? extends GisFeature> o2) {
+		return o1.getSimpleName().compareTo(o2.getSimpleName());
+	    }
+	});
+	return placetypes;
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.domain.repository.IGisFeatureDao#listFeatureIdsFromId(java.lang.Class, long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listFeatureIdsFromId(final Class<? extends GisFeature> placetype, final long fromId, final int maxResults) {
+	Assert.notNull(placetype, "can not list the featureIds of a null placetype");
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			//native query on the table of the placetype only : an hql query would be polymorphic
+			String queryString = "select id as id, featureId as featureId from "
+				+ placetype.getSimpleName().toLowerCase()
+				+ " where id > :fromId order by id";
+			Query qry = session.createSQLQuery(queryString).addScalar("id", Hibernate.LONG).addScalar("featureId", Hibernate.LONG);
+			qry.setParameter("fromId", fromId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    return new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+
+    /* (non-Javadoc)
+     * @see com.gisgraphy.domain.repository.IGisFeatureDao#listByPlacetypeAndIds(java.lang.Class, java.util.List)
+     */
+    @SuppressWarnings("unchecked")
+    public List<GisFeature> listByPlacetypeAndIds(final Class<? extends GisFeature> placetype, final List<Long> ids) {
+	Assert.notNull(placetype, "can not list the features of a null placetype");
+	if (ids == null || ids.size() == 0) {
+	    return new ArrayList<GisFeature>();
+	}
+	return (List<GisFeature>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "from " + placetype.getSimpleName()
+				+ " as g where g.id in (:ids)";
+			Query qry = session.createQuery(queryString);
+			qry.setParameterList("ids", ids);
+			List<GisFeature> results = (List<GisFeature>) qry.list();
+			if (results == null) {
+			    return new ArrayList<GisFeature>();
+			}
+			return results;
+		    }
+		});
+    }
+
+    /**
+     * @param featureDirectoryDao
+     *                the dao of the directory used to find the features
+     *                without querying all the placetype tables
+     */
+    public void setFeatureDirectoryDao(IFeatureDirectoryDao featureDirectoryDao) {
+	this.featureDirectoryDao = featureDirectoryDao;
+    }
+
 }
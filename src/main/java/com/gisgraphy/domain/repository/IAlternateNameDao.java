@@ -43,4 +43,25 @@ public interface IAlternateNameDao extends IDao<AlternateName, Long> {
      */
     public List<String> getUsedLanguagesCodes();
 
+    /**
+     * Insert some new alternate names by JDBC batch, without dirty checking
+     * nor session cache. The features of the alternate names must exist, only
+     * their ids are used, and they are not sent to the fulltext engine.
+     * 
+     * @param alternateNames
+     *                the alternate names to insert
+     */
+    public void bulkInsert(List<AlternateName> alternateNames);
+
+    /**
+     * List the names of the alternate names of some features, without loading
+     * the features nor the other fields of the alternate names.
+     * 
+     * @param gisFeatureIds
+     *                the ids (not the featureIds) of the features
+     * @return the alternate names of the features, with only the language,
+     *         the name and a feature that only has its id, never null
+     */
+    public List<AlternateName> listNamesByGisFeatureIds(List<Long> gisFeatureIds);
+
 }
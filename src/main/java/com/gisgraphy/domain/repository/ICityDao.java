@@ -25,6 +25,7 @@ package com.gisgraphy.domain.repository;
 import java.util.List;
 
 import com.gisgraphy.domain.geoloc.entity.City;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -51,6 +52,18 @@ public interface ICityDao extends IGisDao<City> {
      * we can filter the result if the city is a municipality or not
      */
     public City getByShape(Point location,final String countryCode,boolean filterMunicipality);
+
+    /**
+     * List the cities whose shape intersects the envelope or whose location is
+     * in it. The adm, the zip codes and the alternate names are initialized,
+     * like {@link #listEagerFromId(long, int)}, so the cities can be used once
+     * the session is closed or cleared.
+     * 
+     * @param envelope
+     *                the envelope in WGS84 degrees
+     * @return the cities ordered by id, never null
+     */
+    public List<City> listEagerInEnvelope(Envelope envelope);
     
     /**
      * run an sql request that transfrom linestring to polygon
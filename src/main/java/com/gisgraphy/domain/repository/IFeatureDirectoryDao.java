@@ -0,0 +1,136 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.List;
+
+import com.gisgraphy.domain.geoloc.entity.FeatureDirectory;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Interface of data access object for {@link FeatureDirectory}
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IFeatureDirectoryDao extends IDao<FeatureDirectory, Long> {
+
+    /**
+     * @return true if the directory is complete and should be used to find
+     *         the {@link GisFeature}s, false if it is not used or if it is
+     *         suspended until it is rebuilt
+     */
+    public boolean isEnabled();
+
+    /**
+     * @return true if each saved {@link GisFeature} should be stored in the
+     *         directory, false if the directory is only filled by
+     *         {@link #rebuild(List)} or if it is suspended
+     */
+    public boolean isMaintained();
+
+    /**
+     * Stop using and maintaining the directory until the next
+     * {@link #rebuild(List)}, typically while the imports fill the tables of
+     * the placetypes
+     */
+    public void suspend();
+
+    /**
+     * Use and maintain the directory again without rebuilding it, e.g. when
+     * it can not be rebuilt and the entries stored before the suspension are
+     * better than none
+     */
+    public void resume();
+
+    /**
+     * Empty the directory and fill it again with one insert...select by
+     * placetype table, then resume it. If the rebuild fails, the directory
+     * stays suspended. This is the only way the entries of
+     * the features that are saved without id (e.g. the streets, whose id is
+     * generated by the database) are stored. It does nothing but resuming
+     * the directory if it is neither enabled nor maintained
+     * 
+     * @param placetypes
+     *                the placetypes whose table should be read, in order of
+     *                precedence if a featureId is in several tables
+     * @return the number of stored entries
+     */
+    public int rebuild(List<Class<? extends GisFeature>> placetypes);
+
+    /**
+     * Create or update the entry of a {@link GisFeature}
+     * 
+     * @param gisFeature
+     *                the feature to store, it is ignored if it has no
+     *                featureId, no id or no location
+     */
+    public void store(GisFeature gisFeature);
+
+    /**
+     * @param featureIds
+     *                the featureIds of the entries to remove
+     * @return the number of removed entries
+     */
+    public int removeByFeatureIds(List<Long> featureIds);
+
+    /**
+     * @param placetype
+     *                the placetype of the entries to remove, all the entries
+     *                are removed for {@link GisFeature}
+     * @return the number of removed entries
+     */
+    public int deleteAllByPlacetype(Class<? extends GisFeature> placetype);
+
+    /**
+     * @param featureIds
+     *                the featureIds to look for
+     * @return the entries of the featureIds, never null
+     */
+    public List<FeatureDirectory> listByFeatureIds(List<Long> featureIds);
+
+    /**
+     * @param point
+     *                the point from which we want the nearest features
+     * @param excludedGisFeatureId
+     *                the id of the {@link GisFeature} that should not be
+     *                returned, 0 to return all the features
+     * @param distance
+     *                the radius in meters
+     * @param firstResult
+     *                the firstResult index (for pagination), numbered from 1,
+     *                if < 1 : it will not be taken into account
+     * @param maxResults
+     *                The Maximum number of results to retrieve (for
+     *                pagination), if <= 0 : it will not be taken into acount
+     * @return the entries of the nearest features, ordered by distance, never
+     *         null
+     */
+    public List<FeatureDirectory> listNearest(Point point, long excludedGisFeatureId, double distance, int firstResult, int maxResults);
+
+    /**
+     * Create the spatial index of the location column if it doesn't exist
+     */
+    public void createGISTIndexForLocationColumn();
+
+}
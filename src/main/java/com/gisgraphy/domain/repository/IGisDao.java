@@ -239,6 +239,71 @@ public interface IGisDao<T> extends IDao<T, java.lang.Long> {
      */
     public List<T> getNearests(final Point location,final String countryCode,final boolean filterMunicipality,final int distance,int limit);
 
+    /**
+     * List the features with an id greater than the given one, ordered by id.
+     * The adm, the zip codes and the alternate names are initialized, so the
+     * features can be used once the session is closed or cleared. Useful to
+     * load a whole table in memory by batch.
+     * 
+     * @param fromId
+     *                the features with an id strictly greater than this one
+     *                will be returned
+     * @param maxResults
+     *                the maximum number of features to return, 0 or a
+     *                negative value means no limit
+     * @return the features, never null
+     */
+    public List<T> listEagerFromId(long fromId, int maxResults);
+
+    /**
+     * List the features with an id in ]fromId,toId], ordered by id, with
+     * everything needed to build their fulltext document initialized : the
+     * adm and their parents, the alternate names of the adm1 and adm2, the
+     * zip codes, the alternate names and the spoken languages of the
+     * countries. The entities are loaded read only.
+     * 
+     * @param fromId
+     *                the features with an id strictly greater than this one
+     *                will be returned
+     * @param toId
+     *                the highest id to return (included)
+     * @param maxResults
+     *                the maximum number of features to return, 0 or a
+     *                negative value means no limit
+     * @return the features, never null
+     */
+    public List<T> listForFullTextFromId(long fromId, long toId, int maxResults);
+
+    /**
+     * @return the highest id of the table, 0 if it is empty
+     */
+    public long getMaxId();
+
+    /**
+     * List the id and the shape of the features that have a shape, ordered by
+     * id. It is used to page over all the shapes without loading the
+     * entities.
+     * 
+     * @param fromId
+     *                the id from which we want the shapes (excluded)
+     * @param maxResults
+     *                the max number of results, 0 or less means all
+     * @return an array of id and shape for each feature, never null
+     */
+    public List<Object[]> listShapesFromId(long fromId, int maxResults);
+
+    /**
+     * Insert some new features with their alternate names and zip codes,
+     * without dirty checking nor session cache, and send them to the fulltext
+     * engine like {@link #save(Object)} does. The features must not already
+     * exist, and the inserts are done by JDBC batch in the current
+     * transaction : if one of them fails, the transaction must be rolled back.
+     * 
+     * @param gisFeatures
+     *                the features to insert
+     */
+    public void bulkInsert(List<T> gisFeatures);
+
     /**
      * create the shape index for the entity if it doesn't already exists. 
      */
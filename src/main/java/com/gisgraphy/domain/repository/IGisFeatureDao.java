@@ -162,4 +162,40 @@ public interface IGisFeatureDao extends IGisDao<GisFeature> {
      */
     public long getMaxFeatureId();
 
+    /**
+     * @return the placetypes : the classes of the features that are mapped
+     *         (GisFeature included), each of them has its own table
+     */
+    public List<Class<? extends GisFeature>> listPlacetypes();
+
+    /**
+     * List the id and the featureId of the features stored in the table of a
+     * placetype, ordered by id. Unlike the queries on a placetype, the
+     * features of its subclasses are not listed, so that all the features can
+     * be read with one scan of each table.
+     * 
+     * @param placetype
+     *                the placetype, as returned by {@link #listPlacetypes()}
+     * @param fromId
+     *                the id from which we want the features (excluded)
+     * @param maxResults
+     *                the max number of results, 0 or less means all
+     * @return an array of id and featureId for each feature, never null
+     */
+    public List<Object[]> listFeatureIdsFromId(Class<? extends GisFeature> placetype, long fromId, int maxResults);
+
+    /**
+     * List the features of a placetype by id. The query is done on the
+     * placetype, so it doesn't query the tables of the other placetypes like
+     * a query on {@link GisFeature} would do.
+     * 
+     * @param placetype
+     *                the placetype of the features, as returned by
+     *                {@link #listPlacetypes()}
+     * @param ids
+     *                the ids of the features
+     * @return the features, never null
+     */
+    public List<GisFeature> listByPlacetypeAndIds(Class<? extends GisFeature> placetype, List<Long> ids);
+
 }
@@ -113,6 +113,14 @@ public interface IOpenStreetMapDao extends IDao<OpenStreetMap, java.lang.Long> {
      * @return the openstreetmap
      */
     public OpenStreetMap getByOpenStreetMapId(Long openstreetmapId);
+
+    /**
+     * @param openstreetmapIds the openstreetmap ids (not the ids, not the gids)
+     * @return the streets with the given openstreetmap ids, in one query. A
+     *         street that is in two countries is returned twice
+     * @see #getByOpenStreetMapId(Long)
+     */
+    public List<OpenStreetMap> getByOpenStreetMapIds(List<Long> openstreetmapIds);
     
     
     /**
@@ -164,4 +172,51 @@ public interface IOpenStreetMapDao extends IDao<OpenStreetMap, java.lang.Long> {
      * @return the shape as wkt
      */
     public String getShapeAsWKTByGId(final Long gid);
+
+    /**
+     * Insert some new streets with their alternate names, without dirty
+     * checking nor session cache, and send them to the fulltext engine like
+     * {@link #save(Object)} does. The streets must not already exist, and the
+     * inserts are done by JDBC batch in the current transaction : if one of
+     * them fails, the transaction must be rolled back.
+     * 
+     * @param openStreetMaps
+     *                the streets to insert
+     */
+    public void bulkInsert(List<OpenStreetMap> openStreetMaps);
+
+    /**
+     * List the id, the {@link StreetType} and the shape of the streets that
+     * have a name, ordered by id. It is used to page over all the streets
+     * without loading the entities.
+     * 
+     * @param fromId
+     *                the id from which we want the streets (excluded)
+     * @param maxResults
+     *                the max number of results, 0 or less means all
+     * @return an array of id, street type and shape for each street, never
+     *         null
+     */
+    public List<Object[]> listNamedShapesFromId(long fromId, int maxResults);
+
+    /**
+     * List the streets with an id in ]fromId,toId], ordered by id, with their
+     * alternate names and house numbers initialized so that they can be sent
+     * to the fulltext engine once the session is closed. The entities are
+     * loaded read only.
+     * 
+     * @param fromId
+     *                the id from which we want the streets (excluded)
+     * @param toId
+     *                the highest id to return (included)
+     * @param maxResults
+     *                the max number of results, 0 or less means all
+     * @return the streets, never null
+     */
+    public List<OpenStreetMap> listForFullTextFromId(long fromId, long toId, int maxResults);
+
+    /**
+     * @return the highest id of the table (not the gid), 0 if it is empty
+     */
+    public long getMaxId();
 }
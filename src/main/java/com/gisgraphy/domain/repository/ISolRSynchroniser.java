@@ -22,6 +22,9 @@
  *******************************************************************************/
 package com.gisgraphy.domain.repository;
 
+import org.apache.solr.common.SolrInputDocument;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.geoloc.entity.event.IEvent;
 
 /**
@@ -52,6 +55,17 @@ public interface ISolRSynchroniser {
      */
     public boolean commit();
 
+    /**
+     * Wait for all the features that have been handled to be sent to the full
+     * text search engine (it does not commit). It does nothing if the features
+     * are not buffered
+     * 
+     * @throws com.gisgraphy.geoloc.GisgraphyCommunicationException
+     *             if some features can not be sent
+     */
+    public void flush();
+
+
     /**
      * Send a optimize command to the full text search engine
      */
@@ -64,4 +78,15 @@ public interface ISolRSynchroniser {
      */
     public void deleteAll();
 
+    /**
+     * Build the document to index in the full text search engine for the
+     * specified feature, without sending it
+     * 
+     * @param gisFeature
+     *            the feature to index
+     * @return the document or null if the feature can not or should not be
+     *         indexed (no featureId, no location, not fulltext searchable,...)
+     */
+    public SolrInputDocument buildSolrInputDocument(GisFeature gisFeature);
+
 }
\ No newline at end of file
@@ -29,9 +29,9 @@ import java.util.List;
 
 import javax.persistence.PersistenceException;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.NotImplementedException;
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.ProjectionList;
@@ -44,6 +44,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
 import com.gisgraphy.GisgraphyException;
+import com.gisgraphy.domain.geoloc.entity.AlternateOsmName;
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.geoloc.entity.Street;
@@ -55,8 +56,8 @@ import com.gisgraphy.domain.valueobject.GisgraphyConfig;
 import com.gisgraphy.domain.valueobject.SRID;
 import com.gisgraphy.domain.valueobject.StreetDistance;
 import com.gisgraphy.helper.GeolocHelper;
-import com.gisgraphy.helper.IntrospectionHelper;
 import com.gisgraphy.helper.StringHelper;
+import com.gisgraphy.hibernate.criterion.BeanRowMapper;
 import com.gisgraphy.hibernate.criterion.DistanceRestriction;
 import com.gisgraphy.hibernate.criterion.FulltextRestriction;
 import com.gisgraphy.hibernate.criterion.IntersectsRestriction;
@@ -91,6 +92,10 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 	    .getLogger(OpenStreetMapDao.class);
 
 	protected static final int DEFAULT_DISTANCE = 7000;
+
+	protected static final String NEAREST_POINT_PARAMETER = "point";
+	protected static final String NEAREST_BOX_PARAMETER = "box";
+	protected static final String NEAREST_STREETTYPE_PARAMETER = "streetType";
 	
     /**
      * Default constructor
@@ -125,11 +130,11 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 			Criteria criteria = session
 				.createCriteria(OpenStreetMap.class);
 			
-			List<String> fieldList = IntrospectionHelper
-				.getFieldsAsList(OpenStreetMap.class);
+			BeanRowMapper<StreetDistance> mapper = includeDistanceField && point != null ? BeanRowMapper.forProjection(StreetDistance.class, OpenStreetMap.class, "distance")
+				: BeanRowMapper.forProjection(StreetDistance.class, OpenStreetMap.class);
 
 			ProjectionList projections = ProjectionBean.fieldList(
-				fieldList,false);
+				mapper.getFieldList(),false);
 				if (includeDistanceField && point!=null){
 				projections.add(
 //				SpatialProjection.distance_sphere(point, GisFeature.LOCATION_COLUMN_NAME).as(
@@ -173,20 +178,9 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 			List<?> queryResults = criteria.list();
 			
 			if (queryResults != null && queryResults.size()!=0){
-			    String[] propertiesNameArray ;
-			    if (includeDistanceField && point!=null){
-			propertiesNameArray = (String[]) ArrayUtils
-			    	.add(
-			    		IntrospectionHelper
-			    			.getFieldsAsArray(OpenStreetMap.class),
-			    		"distance");
-			    } else  {
-				propertiesNameArray = IntrospectionHelper
-	    			.getFieldsAsArray(OpenStreetMap.class);
-			    }
 			List<StreetDistance> results = ResultTransformerUtil
 				.transformToStreetDistance(
-					propertiesNameArray,
+					mapper,
 					queryResults);
 			return results;
 			} else {
@@ -363,6 +357,112 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 	return savedEntity;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#bulkInsert(java.util.List)
+     */
+    public void bulkInsert(List<OpenStreetMap> openStreetMaps) {
+	if (openStreetMaps == null || openStreetMaps.size() == 0) {
+	    return;
+	}
+	List<AlternateOsmName> alternateNames = new ArrayList<AlternateOsmName>();
+	for (OpenStreetMap openStreetMap : openStreetMaps) {
+	    if (openStreetMap.getAlternateNames() != null) {
+		alternateNames.addAll(openStreetMap.getAlternateNames());
+	    }
+	}
+	insertWithStatelessSession(openStreetMaps, alternateNames);
+	for (OpenStreetMap openStreetMap : openStreetMaps) {
+	    eventManager.handleEvent(new GisFeatureStoredEvent(streetFactory.create(openStreetMap)));
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#listNamedShapesFromId(long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> listNamedShapesFromId(final long fromId, final int maxResults) {
+	return (List<Object[]>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select o.id, o.streetType, o.shape from "
+				+ OpenStreetMap.class.getSimpleName()
+				+ " o where o.id > ? and o.name is not null and o.shape is not null order by o.id";
+			//we don't use setFirstResult because offset becomes slow on big tables
+			Query qry = session.createQuery(queryString);
+			qry.setParameter(0, fromId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<Object[]> results = (List<Object[]>) qry.list();
+			if (results == null) {
+			    return new ArrayList<Object[]>();
+			}
+			return results;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#listForFullTextFromId(long, long, int)
+     */
+    @SuppressWarnings("unchecked")
+    public List<OpenStreetMap> listForFullTextFromId(final long fromId, final long toId, final int maxResults) {
+	return (List<OpenStreetMap>) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "from "
+				+ OpenStreetMap.class.getSimpleName()
+				+ " o where o.id > ? and o.id <= ? order by o.id";
+			Query qry = session.createQuery(queryString);
+			qry.setReadOnly(true);
+			qry.setParameter(0, fromId);
+			qry.setParameter(1, toId);
+			if (maxResults > 0) {
+			    qry.setMaxResults(maxResults);
+			}
+			List<OpenStreetMap> results = (List<OpenStreetMap>) qry.list();
+			if (results == null) {
+			    return new ArrayList<OpenStreetMap>();
+			}
+			for (OpenStreetMap openStreetMap : results) {
+			    Hibernate.initialize(openStreetMap.getAlternateNames());
+			    Hibernate.initialize(openStreetMap.getHouseNumbers());
+			}
+			return results;
+		    }
+		});
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#getMaxId()
+     */
+    public long getMaxId() {
+	return (Long) this.getHibernateTemplate().execute(
+		new HibernateCallback() {
+
+		    public Object doInHibernate(Session session)
+			    throws PersistenceException {
+			String queryString = "select max(o.id) from "
+				+ OpenStreetMap.class.getSimpleName() + " o";
+			Query qry = session.createQuery(queryString);
+			Long maxId = (Long) qry.uniqueResult();
+			return maxId == null ? 0L : maxId;
+		    }
+		});
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -416,6 +516,30 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 			});
 	}
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#getByOpenStreetMapIds(java.util.List)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<OpenStreetMap> getByOpenStreetMapIds(final List<Long> openstreetmapIds) {
+		if (openstreetmapIds == null || openstreetmapIds.size() == 0) {
+			return new ArrayList<OpenStreetMap>();
+		}
+		return (List<OpenStreetMap>) this.getHibernateTemplate().execute(
+			new HibernateCallback() {
+
+			    public Object doInHibernate(Session session)
+				    throws PersistenceException {
+				String queryString = "from "
+					+ OpenStreetMap.class.getSimpleName()
+					+ " as c where c.openstreetmapId in (:ids)";
+
+				Query qry = session.createQuery(queryString);
+				qry.setParameterList("ids", openstreetmapIds);
+				return qry.list();
+			    }
+			});
+	}
+
 
 	/* (non-Javadoc)
 	 * @see com.gisgraphy.domain.repository.IOpenStreetMapDao#getMaxOpenstreetMapId()
@@ -527,6 +651,39 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
     
  
     
+    /**
+     * @return the sql query used by {@link #getNearestFrom(Point, boolean, boolean)}.
+     *         The point and the bounding box are bound parameters, so the
+     *         string only depends on the filters and the prepared statement
+     *         can be reused whatever the point is.
+     */
+    protected String getNearestFromQueryString(boolean onlyroad, boolean filterEmptyName) {
+	String pointAsString = "st_setsrid(:" + NEAREST_POINT_PARAMETER + "," + SRID.WGS84_SRID.getSRID() + ")";
+	StringBuffer sb = new StringBuffer("select {o.*} from ")
+		.append(OpenStreetMap.class.getSimpleName())
+		.append(" o where o.").append(OpenStreetMap.SHAPE_COLUMN_NAME)
+		.append(" && :").append(NEAREST_BOX_PARAMETER);
+	if (onlyroad) {
+	    sb.append(" and o.streetType <> :").append(NEAREST_STREETTYPE_PARAMETER);
+	}
+	if (filterEmptyName) {
+	    sb.append(" and o.name is not null");
+	}
+	sb.append(" order by ")
+		.append(DISTANCE_SPHERE_FUNCTION)
+		.append("(")
+			.append(pointAsString)
+			.append(",")
+			.append(SpatialProjection.ST_CLOSEST_POINT)
+			.append("(")
+				.append("o.").append(OpenStreetMap.SHAPE_COLUMN_NAME)
+				.append(",")
+				.append(pointAsString)
+			.append(")")
+		.append(")");
+	return sb.toString();
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
 	public OpenStreetMap getNearestFrom(
 	    final Point point,final boolean onlyroad,final boolean filterEmptyName) {
@@ -539,40 +696,18 @@ public class OpenStreetMapDao extends GenericDao<OpenStreetMap, Long> implements
 		    public Object doInHibernate(Session session)
 			    throws PersistenceException {
 		    	
-		    	Criteria criteria = session
-						.createCriteria(OpenStreetMap.class);
-					
-		    		if (point!=null){
-		    			//An intersect restriction will probably have better performances and use the index than a distance restriction 
-		    			Polygon polygonBox = GeolocHelper.createPolygonBox(point.getX(), point.getY(), DEFAULT_DISTANCE);
-		    			criteria = criteria.add(new IntersectsRestriction(OpenStreetMap.SHAPE_COLUMN_NAME, polygonBox));
-		    		}
-					if (onlyroad) {
-						criteria = criteria.add(Restrictions.ne("streetType",StreetType.FOOTWAY));
-					}
-					if (filterEmptyName){
-						criteria = criteria.add(Restrictions.isNotNull("name"));
-					}
-					
-					String pointAsString = "ST_GeometryFromText('POINT("+point.getX()+" "+point.getY()+")',"+SRID.WGS84_SRID.getSRID()+")";
-					String distanceCondition = new StringBuffer()
-					.append(DISTANCE_SPHERE_FUNCTION)
-					.append("(")
-						.append(pointAsString)
-						.append(",")
-						.append(SpatialProjection.ST_CLOSEST_POINT)
-						.append("(")
-							.append("this_.").append(OpenStreetMap.SHAPE_COLUMN_NAME)
-							.append(",")
-							.append(pointAsString)
-						.append(")")
-					.append(")")
-					.toString();
-					criteria.addOrder(new NativeSQLOrder(distanceCondition));
-					criteria = criteria.setMaxResults(1);
-					criteria.setCacheable(true);
-					// List<Object[]> queryResults =testCriteria.list();
-					OpenStreetMap openStreetMap = (OpenStreetMap)criteria.uniqueResult();
+		    	//An intersect restriction will probably have better performances and use the index than a distance restriction 
+		    	Polygon polygonBox = GeolocHelper.createPolygonBox(point.getX(), point.getY(), DEFAULT_DISTANCE);
+		    	Query qry = session.createSQLQuery(getNearestFromQueryString(onlyroad, filterEmptyName))
+		    			.addEntity("o", OpenStreetMap.class);
+		    	qry.setParameter(NEAREST_BOX_PARAMETER, polygonBox, GenericGisDao.GEOMETRY_TYPE);
+		    	qry.setParameter(NEAREST_POINT_PARAMETER, point, GenericGisDao.GEOMETRY_TYPE);
+		    	if (onlyroad) {
+		    		qry.setString(NEAREST_STREETTYPE_PARAMETER, StreetType.FOOTWAY.toString());
+		    	}
+		    	qry.setMaxResults(1);
+		    	qry.setCacheable(true);
+		    	OpenStreetMap openStreetMap = (OpenStreetMap) qry.uniqueResult();
 					
 					return openStreetMap;
 					
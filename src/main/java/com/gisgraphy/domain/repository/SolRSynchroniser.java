@@ -30,6 +30,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
@@ -52,11 +61,14 @@ import com.gisgraphy.domain.geoloc.entity.event.IEvent;
 import com.gisgraphy.domain.geoloc.entity.event.PlaceTypeDeleteAllEvent;
 import com.gisgraphy.fulltext.FullTextFields;
 import com.gisgraphy.fulltext.IsolrClient;
+import com.gisgraphy.geocoding.GeocodingResultCache;
 import com.gisgraphy.geoloc.GisgraphyCommunicationException;
 import com.gisgraphy.helper.ClassNameHelper;
 import com.gisgraphy.helper.EncodingHelper;
+import com.gisgraphy.helper.NamedThreadFactory;
 import com.gisgraphy.helper.RetryOnErrorTemplate;
 import com.gisgraphy.street.HouseNumberComparator;
+import com.gisgraphy.street.CompactHouseNumbers;
 import com.gisgraphy.street.HouseNumberSerializer;
 
 /**
@@ -85,6 +97,86 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 
     private IsolrClient solClient;
 
+    /**
+     * Default value for {@link #setQueueSize(int)}
+     */
+    public final static int DEFAULT_QUEUE_SIZE = 20000;
+
+    /**
+     * Default value for {@link #setBatchSize(int)}
+     */
+    public final static int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Default value for {@link #setLingerTime(long)}, in milliseconds
+     */
+    public final static long DEFAULT_LINGER_TIME = 1000;
+
+    /**
+     * Default value for {@link #setNumberOfFlushers(int)}
+     */
+    public final static int DEFAULT_NUMBER_OF_FLUSHERS = 2;
+
+    private boolean buffered = false;
+
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private long lingerTime = DEFAULT_LINGER_TIME;
+
+    private int numberOfFlushers = DEFAULT_NUMBER_OF_FLUSHERS;
+
+    private GeocodingResultCache geocodingResultCache;
+
+    private boolean compactHouseNumbers = false;
+
+    /**
+     * The documents waiting to be sent, created when the first document is
+     * buffered
+     */
+    private volatile BlockingQueue<SolrInputDocument> documentQueue;
+
+    private ExecutorService flushers;
+
+    /**
+     * The number of documents that have been buffered but not sent yet
+     */
+    private final AtomicLong pendingDocuments = new AtomicLong(0);
+
+    /**
+     * The number of threads that are waiting for the buffer to be flushed, the
+     * flushers don't wait for the linger time when it is not 0
+     */
+    private final AtomicInteger flushRequests = new AtomicInteger(0);
+
+    private final Object flushLock = new Object();
+
+    /**
+     * The number of flushers that are running, the buffer can not be sent
+     * when it is 0
+     */
+    private final AtomicInteger aliveFlushers = new AtomicInteger(0);
+
+    /**
+     * The max number of featureIds of the documents that have not been sent,
+     * that are kept to be reported
+     */
+    private final static int MAX_REPORTED_LOST_FEATURES = 100;
+
+    /**
+     * The last error that occurs in a flusher, it is thrown to the importer
+     * thread at the next call with the featureIds of the documents that have
+     * not been sent
+     */
+    private volatile Throwable flushError;
+
+    private long lostDocuments = 0;
+
+    private final List<Object> lostFeatureIds = new ArrayList<Object>();
+
+    private final Object flushErrorLock = new Object();
+
     public SolRSynchroniser(IsolrClient solrClient) {
 	Assert
 		.notNull(solrClient,
@@ -92,10 +184,214 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 	this.solClient = solrClient;
     }
 
+    /**
+     * Add the document to the buffer. If the buffer is full, the caller is
+     * blocked until some documents are sent, this slow down the importer to the
+     * speed of the fulltext search engine.
+     */
+    protected void enqueue(SolrInputDocument document) {
+	checkFlushError();
+	BlockingQueue<SolrInputDocument> queue = getDocumentQueue();
+	pendingDocuments.incrementAndGet();
+	try {
+	    while (!queue.offer(document, lingerTime, TimeUnit.MILLISECONDS)) {
+		if (aliveFlushers.get() == 0) {
+		    pendingDocuments.decrementAndGet();
+		    throw new GisgraphyCommunicationException("Can not synchronise SolR : all the flushers have stopped, " + queue.size() + " buffered documents can not be sent");
+		}
+	    }
+	} catch (InterruptedException e) {
+	    pendingDocuments.decrementAndGet();
+	    Thread.currentThread().interrupt();
+	    throw new GisgraphyCommunicationException("Can not synchronise SolR : interrupted while waiting for the buffer", e);
+	}
+    }
+
+    private BlockingQueue<SolrInputDocument> getDocumentQueue() {
+	if (documentQueue == null) {
+	    synchronized (this) {
+		if (documentQueue == null) {
+		    logger.info("Synchronise SolR with " + numberOfFlushers + " flushers, batch of " + batchSize + " documents and a buffer of " + queueSize + " documents");
+		    BlockingQueue<SolrInputDocument> queue = new ArrayBlockingQueue<SolrInputDocument>(queueSize);
+		    flushers = Executors.newFixedThreadPool(numberOfFlushers, new NamedThreadFactory("solr-synchroniser"));
+		    aliveFlushers.set(numberOfFlushers);
+		    for (int i = 0; i < numberOfFlushers; i++) {
+			flushers.execute(new Flusher(queue));
+		    }
+		    documentQueue = queue;
+		}
+	    }
+	}
+	return documentQueue;
+    }
+
+    /**
+     * Send the buffered documents by batch to the fulltext search engine until
+     * it is interrupted
+     */
+    private class Flusher implements Runnable {
+
+	private final BlockingQueue<SolrInputDocument> queue;
+
+	public Flusher(BlockingQueue<SolrInputDocument> queue) {
+	    this.queue = queue;
+	}
+
+	public void run() {
+	    try {
+		while (!Thread.currentThread().isInterrupted()) {
+		    SolrInputDocument first = queue.poll(lingerTime, TimeUnit.MILLISECONDS);
+		    if (first == null) {
+			continue;
+		    }
+		    List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(batchSize);
+		    batch.add(first);
+		    long deadline = System.currentTimeMillis() + lingerTime;
+		    while (batch.size() < batchSize) {
+			queue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.currentTimeMillis();
+			if (batch.size() >= batchSize || remaining <= 0 || flushRequests.get() > 0) {
+			    break;
+			}
+			SolrInputDocument next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+			if (next == null) {
+			    break;
+			}
+			batch.add(next);
+		    }
+		    sendBatch(batch);
+		}
+	    } catch (InterruptedException e) {
+		logger.info("Solr synchroniser flusher has been stopped");
+	    } catch (Throwable t) {
+		logger.error("Solr synchroniser flusher has stopped on an unexpected error : " + t, t);
+		setFlushError(t, null);
+	    } finally {
+		aliveFlushers.decrementAndGet();
+		synchronized (flushLock) {
+		    flushLock.notifyAll();
+		}
+	    }
+	}
+    }
+
+    private void sendBatch(final List<SolrInputDocument> batch) {
+	try {
+	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
+		@Override
+		public Boolean tryThat() throws Exception {
+		    solClient.getServer().add(batch);
+		    return true;
+		}
+	    };
+	    retryOnError.setLoggingSentence("Synchronise SolR : Add a batch of " + batch.size() + " features");
+	    retryOnError.times(numberOfRetryOnFailure);
+	} catch (Throwable t) {
+	    //the flusher should go on with the next batches, even on an error
+	    logger.error("Can not synchronise SolR : can not add a batch of " + batch.size() + " features (featureIds " + getFeatureIds(batch, batch.size()) + ") : " + t, t);
+	    setFlushError(t, batch);
+	} finally {
+	    pendingDocuments.addAndGet(-batch.size());
+	    synchronized (flushLock) {
+		flushLock.notifyAll();
+	    }
+	}
+    }
+
+    private List<Object> getFeatureIds(Collection<SolrInputDocument> documents, int max) {
+	List<Object> featureIds = new ArrayList<Object>();
+	for (SolrInputDocument document : documents) {
+	    if (featureIds.size() >= max) {
+		break;
+	    }
+	    featureIds.add(document.getFieldValue(FullTextFields.FEATUREID.getValue()));
+	}
+	return featureIds;
+    }
+
+    private void setFlushError(Throwable error, List<SolrInputDocument> lostBatch) {
+	synchronized (flushErrorLock) {
+	    flushError = error;
+	    if (lostBatch != null) {
+		lostDocuments += lostBatch.size();
+		lostFeatureIds.addAll(getFeatureIds(lostBatch, MAX_REPORTED_LOST_FEATURES - lostFeatureIds.size()));
+	    }
+	}
+    }
+
+    private void checkFlushError() {
+	String message;
+	Throwable error;
+	synchronized (flushErrorLock) {
+	    error = flushError;
+	    if (error == null) {
+		return;
+	    }
+	    if (lostDocuments == 0) {
+		message = "Can not synchronise SolR : a flusher has stopped : " + error;
+	    } else {
+		message = "Can not synchronise SolR : " + lostDocuments + " buffered features have not been added (featureIds " + lostFeatureIds
+			+ (lostDocuments > lostFeatureIds.size() ? " and " + (lostDocuments - lostFeatureIds.size()) + " more" : "") + ") : " + error;
+	    }
+	    flushError = null;
+	    lostDocuments = 0;
+	    lostFeatureIds.clear();
+	}
+	throw new GisgraphyCommunicationException(message, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.domain.repository.ISolRSynchroniser#flush()
+     */
+    public void flush() {
+	if (pendingDocuments.get() > 0) {
+	    logger.info("Synchronise SolR : waiting for " + pendingDocuments.get() + " buffered documents to be sent");
+	    flushRequests.incrementAndGet();
+	    try {
+		synchronized (flushLock) {
+		    while (pendingDocuments.get() > 0) {
+			if (aliveFlushers.get() == 0) {
+			    throw new GisgraphyCommunicationException("Can not synchronise SolR : all the flushers have stopped, " + pendingDocuments.get()
+				    + " buffered features can not be sent (first featureIds in the buffer : " + getFeatureIds(documentQueue, MAX_REPORTED_LOST_FEATURES) + ")", flushError);
+			}
+			flushLock.wait(lingerTime);
+		    }
+		}
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new GisgraphyCommunicationException("Can not synchronise SolR : interrupted while flushing the buffer", e);
+	    } finally {
+		flushRequests.decrementAndGet();
+	    }
+	}
+	checkFlushError();
+    }
+
+    /**
+     * Send the buffered documents and stop the flushers
+     */
+    @PreDestroy
+    public void destroy() {
+	try {
+	    flush();
+	} catch (RuntimeException e) {
+	    logger.error("Can not flush the buffered documents before shutdown : " + e.getMessage(), e);
+	} finally {
+	    if (flushers != null) {
+		flushers.shutdownNow();
+	    }
+	}
+    }
+
+
     /**
      * @param gisFeatureEvent
      */
     private void handleEvent(final GisFeatureDeletedEvent gisFeatureEvent) {
+	//the feature may have been buffered and not sent yet
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -121,6 +417,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#deleteAll()
      */
     public void deleteAll() {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -151,6 +448,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     public void deleteAllByPlaceType(final Class<? extends GisFeature> placetype) {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -175,6 +473,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     private void handleEvent(final GisFeatureDeleteAllEvent gisFeatureDeleteAllEvent) {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Object> retryOnError = new RetryOnErrorTemplate<Object>() {
 		    @Override
@@ -223,6 +522,12 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#commit()
      */
     public boolean commit() {
+	try {
+	    flush();
+	} catch (GisgraphyCommunicationException e) {
+	    logger.error("Can not synchronise SolR : can not commit because buffered documents can not be sent : " + e.getMessage(), e);
+	    return false;
+	}
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
@@ -232,7 +537,12 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 		    }
 		};
 		retryOnError.setLoggingSentence("Synchronise SolR : commit");
-		return retryOnError.times(numberOfRetryOnFailure);
+		Boolean committed = retryOnError.times(numberOfRetryOnFailure);
+		if (geocodingResultCache != null) {
+		    //the new documents can change the geocoding results
+		    geocodingResultCache.invalidate();
+		}
+		return committed;
 	    
 	    
 	} catch (Exception e) {
@@ -247,6 +557,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
      * @see com.gisgraphy.domain.repository.ISolRSynchroniser#optimize()
      */
     public void optimize() {
+	flush();
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
@@ -265,22 +576,55 @@ public class SolRSynchroniser implements ISolRSynchroniser {
     }
 
     private void handleEvent(final GisFeatureStoredEvent gisfeatureCreatedEventEvent) {
+	if (buffered) {
+	    SolrInputDocument document = buildSolrInputDocument(gisfeatureCreatedEventEvent.getGisFeature());
+	    if (document != null) {
+		enqueue(document);
+	    }
+	    return;
+	}
 	try {
 	    RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
 		    @Override
 		    public Boolean tryThat() throws Exception {
+			SolrInputDocument ex = buildSolrInputDocument(gisfeatureCreatedEventEvent.getGisFeature());
+			if (ex == null) {
+			    return false;
+			}
+			solClient.getServer().add(ex);
+			return true;
+		    }
+		};
+		retryOnError.setLoggingSentence("Synchronise SolR : Add feature with id "+gisfeatureCreatedEventEvent.getGisFeature());
+		retryOnError.times(numberOfRetryOnFailure);
+	    
+	    
+	} catch (Exception e) {
+	  throw new GisgraphyCommunicationException("Can not synchronise SolR : can not synchronize  "+gisfeatureCreatedEventEvent.getGisFeature()+":" +e,e.getCause());
+	}
+    }
+
+    /**
+     * Build the document to index in the fulltext search engine for the
+     * specified feature
+     * 
+     * @param gisFeature
+     *            the feature to index
+     * @return the document or null if the feature can not or should not be
+     *         indexed (no featureId, no location, not fulltext searchable,...)
+     */
+    public SolrInputDocument buildSolrInputDocument(GisFeature gisFeature) {
 			SolrInputDocument ex = new SolrInputDocument();
-			GisFeature gisFeature = gisfeatureCreatedEventEvent.getGisFeature();
 
 			if (gisFeature == null) {
 			    logger.info("Can not synchronize a null gisFeature");
-			    return false;
+			    return null;
 			}
 			if (gisFeature.getFeatureId() == null || gisFeature.getFeatureId() <= 0) {
 			    logger
 				    .info("Can not synchronize GisFeature with wrong featureId : "
 					    + gisFeature.getFeatureId());
-			    return false;
+			    return null;
 			}
 
 			if (gisFeature.getLatitude() == 0 && gisFeature.getLongitude() == 0) {
@@ -288,14 +632,14 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 				    + gisFeature.getFeatureId() + " with wrong Location "
 				    + gisFeature.getName() + ": [" + gisFeature.getLongitude()
 				    + "," + gisFeature.getLatitude() + "]");
-			    return false;
+			    return null;
 			}
 			
 			
 			if (!gisFeature.isFullTextSearchable()) {
 			    logger.debug(gisFeature.getClass().getSimpleName()
 				    + " is not FullTextSearchable");
-			    return false;
+			    return null;
 			}
 
 			ex.setField(FullTextFields.FEATUREID.getValue(), gisFeature
@@ -372,7 +716,12 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 		    	    ex.setField(FullTextFields.FULLY_QUALIFIED_ADDRESS.getValue(), ((Street) gisFeature).getFullyQualifiedAddress());
 		    	}*/
 		    	SortedSet<HouseNumber> houseNumbersFromEntity = ((Street) gisFeature).getHouseNumbers();
-		    	if (houseNumbersFromEntity!=null && houseNumbersFromEntity.size()!=0){
+		    	if (compactHouseNumbers){
+		    		CompactHouseNumbers compact = CompactHouseNumbers.encode(houseNumbersFromEntity);
+		    		if (compact!=null){
+		    			ex.setField(FullTextFields.HOUSE_NUMBERS.getValue(),compact.toSolrValue());
+		    		}
+		    	} else if (houseNumbersFromEntity!=null && houseNumbersFromEntity.size()!=0){
 			    	//SortedSet<HouseNumber> houseNumbers = new TreeSet<HouseNumber>(houseNumberComparator);
 					//houseNumbers.addAll(houseNumbersFromEntity);
 						 List<String> houseNumbersToAdd= new ArrayList<String>();
@@ -529,17 +878,7 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 				}
 			}
 			}
-			solClient.getServer().add(ex);
-			return true;
-		    }
-		};
-		retryOnError.setLoggingSentence("Synchronise SolR : Add feature with id "+gisfeatureCreatedEventEvent.getGisFeature());
-		retryOnError.times(numberOfRetryOnFailure);
-	    
-	    
-	} catch (Exception e) {
-	  throw new GisgraphyCommunicationException("Can not synchronise SolR : can not synchronize  "+gisfeatureCreatedEventEvent.getGisFeature()+":" +e,e.getCause());
-	}
+			return ex;
     }
     
     //Same as gisfeature but ignore language 
@@ -620,4 +959,83 @@ public class SolRSynchroniser implements ISolRSynchroniser {
 				.size()]));
     }
 
+    /**
+     * @return true if the added features are buffered and sent by batch
+     *         asynchronously
+     */
+    public boolean isBuffered() {
+	return buffered;
+    }
+
+    /**
+     * @param buffered
+     *            whether the added features should be buffered and sent by
+     *            batch asynchronously instead of one by one. The buffer is
+     *            flushed before each commit, optimize or deletion
+     */
+    public void setBuffered(boolean buffered) {
+	this.buffered = buffered;
+    }
+
+    /**
+     * @param queueSize
+     *            the maximum number of buffered documents, when the buffer is
+     *            full, the importer wait for the documents to be sent
+     * @see #DEFAULT_QUEUE_SIZE
+     */
+    public void setQueueSize(int queueSize) {
+	Assert.isTrue(queueSize > 0, "the queue size should be positive");
+	this.queueSize = queueSize;
+    }
+
+    /**
+     * @param batchSize
+     *            the maximum number of documents sent in one request
+     * @see #DEFAULT_BATCH_SIZE
+     */
+    public void setBatchSize(int batchSize) {
+	Assert.isTrue(batchSize > 0, "the batch size should be positive");
+	this.batchSize = batchSize;
+    }
+
+    /**
+     * @param lingerTime
+     *            how many milliseconds a flusher waits for a batch to be full
+     *            before sending it
+     * @see #DEFAULT_LINGER_TIME
+     */
+    public void setLingerTime(long lingerTime) {
+	Assert.isTrue(lingerTime > 0, "the linger time should be positive");
+	this.lingerTime = lingerTime;
+    }
+
+    /**
+     * @param numberOfFlushers
+     *            the number of threads that send the batches
+     * @see #DEFAULT_NUMBER_OF_FLUSHERS
+     */
+    public void setNumberOfFlushers(int numberOfFlushers) {
+	Assert.isTrue(numberOfFlushers > 0, "the number of flushers should be positive");
+	this.numberOfFlushers = numberOfFlushers;
+    }
+
+    /**
+     * @param geocodingResultCache
+     *            the cache to invalidate when the documents are committed
+     */
+    public void setGeocodingResultCache(GeocodingResultCache geocodingResultCache) {
+	this.geocodingResultCache = geocodingResultCache;
+    }
+
+    /**
+     * @param compactHouseNumbers
+     *            whether the house numbers of the streets are stored in one
+     *            compact binary value instead of one 'number:lng,lat' value
+     *            per house number
+     * @see CompactHouseNumbers
+     */
+    public void setCompactHouseNumbers(boolean compactHouseNumbers) {
+	this.compactHouseNumbers = compactHouseNumbers;
+    }
+
 }
@@ -0,0 +1,509 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.repository.ISolRSynchroniser;
+import com.gisgraphy.geoloc.GisgraphyCommunicationException;
+import com.gisgraphy.helper.NamedThreadFactory;
+import com.gisgraphy.helper.RetryOnErrorTemplate;
+import com.gisgraphy.street.IStreetFactory;
+import com.gisgraphy.street.StreetFactory;
+
+/**
+ * Rebuild the fulltext search engine from the gisfeature and openstreetmap
+ * tables. The tables are split in ranges of ids that are read by several
+ * threads, each range is read by batch (keyset pagination, read only) and the
+ * documents are built with the same rules as the {@link ISolRSynchroniser}
+ * used during import. When a range is indexed, it is committed and recorded in
+ * the checkpoint file, so an interrupted reindex is resumed from the ranges
+ * that have not been indexed yet.
+ * <p>
+ * The fields that are only computed during import and not stored in the
+ * database (is_in_zip, is_in_cities, alternate_labels of the streets) are not
+ * rebuilt.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FullTextReindexer implements IFullTextReindexer {
+
+    protected static final Logger logger = LoggerFactory.getLogger(FullTextReindexer.class);
+
+    /**
+     * Default value for {@link #setNumberOfThreads(int)}
+     */
+    public final static int DEFAULT_NUMBER_OF_THREADS = 4;
+
+    /**
+     * Default value for {@link #setRangeSize(long)}
+     */
+    public final static long DEFAULT_RANGE_SIZE = 1000000;
+
+    /**
+     * Default value for {@link #setBatchSize(int)}
+     */
+    public final static int DEFAULT_BATCH_SIZE = 1000;
+
+    private static int numberOfRetryOnFailure = 3;
+
+    /**
+     * The tables that are reindexed
+     */
+    enum Source {
+	GISFEATURE, OPENSTREETMAP
+    }
+
+    private IGisFeatureDao gisFeatureDao;
+
+    private IOpenStreetMapDao openStreetMapDao;
+
+    private ISolRSynchroniser solRSynchroniser;
+
+    private IsolrClient solrClient;
+
+    private IStreetFactory streetFactory = new StreetFactory();
+
+    private int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+
+    private long rangeSize = DEFAULT_RANGE_SIZE;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private String checkpointFile;
+
+    private final AtomicBoolean inProgress = new AtomicBoolean(false);
+
+    private final AtomicLong indexedDocuments = new AtomicLong(0);
+
+    private final Object checkpointLock = new Object();
+
+    /**
+     * A range of ids of a table : ]fromId,toId]
+     */
+    static class Range {
+	final Source source;
+	final long fromId;
+	final long toId;
+
+	Range(Source source, long fromId, long toId) {
+	    this.source = source;
+	    this.fromId = fromId;
+	    this.toId = toId;
+	}
+
+	String getKey() {
+	    return source.name().toLowerCase() + "." + fromId;
+	}
+
+	@Override
+	public String toString() {
+	    return source.name().toLowerCase() + " ]" + fromId + "," + toId + "]";
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.fulltext.IFullTextReindexer#reindex()
+     */
+    public long reindex() {
+	if (!inProgress.compareAndSet(false, true)) {
+	    throw new IllegalStateException("A reindex of the fulltext search engine is already in progress");
+	}
+	return doReindex();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.fulltext.IFullTextReindexer#reindexInBackground()
+     */
+    public boolean reindexInBackground() {
+	if (!inProgress.compareAndSet(false, true)) {
+	    return false;
+	}
+	boolean started = false;
+	try {
+	    Thread thread = new Thread(new Runnable() {
+		public void run() {
+		    try {
+			doReindex();
+		    } catch (RuntimeException e) {
+			logger.error("The reindex of the fulltext search engine has failed, it will be resumed at the next reindex : " + e.getMessage(), e);
+		    }
+		}
+	    }, "fulltext-reindex");
+	    thread.start();
+	    started = true;
+	} finally {
+	    if (!started) {
+		inProgress.set(false);
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Do the reindex, the caller must have set the in progress flag, it is
+     * released when the reindex is over
+     */
+    private long doReindex() {
+	ExecutorService executor = null;
+	try {
+	    indexedDocuments.set(0);
+	    long start = System.currentTimeMillis();
+	    Properties checkpoint = loadCheckpoint();
+	    List<Range> ranges = new ArrayList<Range>();
+	    ranges.addAll(createRanges(Source.GISFEATURE, gisFeatureDao.getMaxId(), checkpoint));
+	    ranges.addAll(createRanges(Source.OPENSTREETMAP, openStreetMapDao.getMaxId(), checkpoint));
+	    logger.info("Reindex the fulltext search engine : " + ranges.size() + " ranges of " + rangeSize + " ids to index with " + numberOfThreads + " threads, "
+		    + checkpoint.size() + " ranges already indexed");
+
+	    executor = Executors.newFixedThreadPool(numberOfThreads, new NamedThreadFactory("fulltext-reindexer"));
+	    List<Future<Long>> results = new ArrayList<Future<Long>>(ranges.size());
+	    for (Range range : ranges) {
+		results.add(executor.submit(new RangeIndexer(range)));
+	    }
+	    executor.shutdown();
+	    for (Future<Long> result : results) {
+		try {
+		    result.get();
+		} catch (ExecutionException e) {
+		    Throwable cause = e.getCause() == null ? e : e.getCause();
+		    throw new GisgraphyCommunicationException("Can not reindex the fulltext search engine : " + cause.getMessage(), cause);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    throw new GisgraphyCommunicationException("Can not reindex the fulltext search engine : interrupted", e);
+		}
+	    }
+	    //invalidate the caches that depend on the index
+	    solRSynchroniser.commit();
+	    resetCheckpoint();
+	    logger.info("The fulltext search engine has been reindexed : " + indexedDocuments.get() + " documents in " + (System.currentTimeMillis() - start) / 1000 + " s");
+	    return indexedDocuments.get();
+	} finally {
+	    if (executor != null) {
+		executor.shutdownNow();
+	    }
+	    inProgress.set(false);
+	}
+    }
+
+    /**
+     * Split the ids of a table in ranges of {@link #setRangeSize(long)} ids.
+     * The bounds of the ranges only depend on the range size, so they are
+     * the same from one reindex to another even if the table has grown
+     */
+    List<Range> createRanges(Source source, long maxId, Properties checkpoint) {
+	List<Range> ranges = new ArrayList<Range>();
+	for (long fromId = 0; fromId < maxId; fromId += rangeSize) {
+	    Range range = new Range(source, fromId, fromId + rangeSize);
+	    if (!String.valueOf(range.toId).equals(checkpoint.getProperty(range.getKey()))) {
+		ranges.add(range);
+	    }
+	}
+	return ranges;
+    }
+
+    /**
+     * Index all the rows of a range and record it in the checkpoint
+     */
+    class RangeIndexer implements Callable<Long> {
+
+	private final Range range;
+
+	RangeIndexer(Range range) {
+	    this.range = range;
+	}
+
+	public Long call() throws Exception {
+	    long lastId = range.fromId;
+	    long count = 0;
+	    while (!Thread.currentThread().isInterrupted()) {
+		List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(batchSize);
+		int rows;
+		if (range.source == Source.GISFEATURE) {
+		    List<GisFeature> features = gisFeatureDao.listForFullTextFromId(lastId, range.toId, batchSize);
+		    rows = features.size();
+		    for (GisFeature feature : features) {
+			addDocument(documents, feature);
+			lastId = feature.getId();
+		    }
+		} else {
+		    List<OpenStreetMap> streets = openStreetMapDao.listForFullTextFromId(lastId, range.toId, batchSize);
+		    rows = streets.size();
+		    for (OpenStreetMap street : streets) {
+			addDocument(documents, streetFactory.create(street));
+			lastId = street.getId();
+		    }
+		}
+		if (documents.size() > 0) {
+		    send(documents);
+		    count += documents.size();
+		    indexedDocuments.addAndGet(documents.size());
+		}
+		if (rows < batchSize) {
+		    break;
+		}
+	    }
+	    if (Thread.currentThread().isInterrupted()) {
+		throw new InterruptedException("the reindex of " + range + " has been interrupted");
+	    }
+	    if (count > 0) {
+		commit();
+	    }
+	    saveCheckpoint(range);
+	    logger.info("Reindex of " + range + " done : " + count + " documents");
+	    return count;
+	}
+    }
+
+    private void addDocument(List<SolrInputDocument> documents, GisFeature feature) {
+	SolrInputDocument document = solRSynchroniser.buildSolrInputDocument(feature);
+	if (document != null) {
+	    documents.add(document);
+	}
+    }
+
+    private void send(final List<SolrInputDocument> documents) throws Exception {
+	RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
+	    @Override
+	    public Boolean tryThat() throws Exception {
+		solrClient.getServer().add(documents);
+		return true;
+	    }
+	};
+	retryOnError.setLoggingSentence("Reindex : add a batch of " + documents.size() + " documents");
+	retryOnError.times(numberOfRetryOnFailure);
+    }
+
+    private void commit() throws Exception {
+	RetryOnErrorTemplate<Boolean> retryOnError = new RetryOnErrorTemplate<Boolean>() {
+	    @Override
+	    public Boolean tryThat() throws Exception {
+		solrClient.getServer().commit(true, true);
+		return true;
+	    }
+	};
+	retryOnError.setLoggingSentence("Reindex : commit");
+	retryOnError.times(numberOfRetryOnFailure);
+    }
+
+    private Properties loadCheckpoint() {
+	Properties checkpoint = new Properties();
+	File file = getCheckpointFile();
+	if (file == null || !file.exists()) {
+	    return checkpoint;
+	}
+	InputStream in = null;
+	try {
+	    in = new FileInputStream(file);
+	    checkpoint.load(in);
+	} catch (IOException e) {
+	    logger.warn("Can not read the reindex checkpoint " + file.getAbsolutePath() + ", everything will be reindexed : " + e.getMessage());
+	    checkpoint.clear();
+	} finally {
+	    closeQuietly(in);
+	}
+	return checkpoint;
+    }
+
+    private void saveCheckpoint(Range range) {
+	File file = getCheckpointFile();
+	if (file == null) {
+	    return;
+	}
+	synchronized (checkpointLock) {
+	    Properties checkpoint = loadCheckpoint();
+	    checkpoint.setProperty(range.getKey(), String.valueOf(range.toId));
+	    File temp = new File(file.getAbsolutePath() + ".tmp");
+	    OutputStream out = null;
+	    try {
+		if (file.getAbsoluteFile().getParentFile() != null) {
+		    file.getAbsoluteFile().getParentFile().mkdirs();
+		}
+		out = new FileOutputStream(temp);
+		checkpoint.store(out, "ranges of ids already reindexed");
+		out.close();
+		out = null;
+		if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+		    logger.warn("Can not write the reindex checkpoint " + file.getAbsolutePath());
+		}
+	    } catch (IOException e) {
+		//the range will be reindexed if the reindex is resumed, that is not an error
+		logger.warn("Can not write the reindex checkpoint " + file.getAbsolutePath() + " : " + e.getMessage());
+	    } finally {
+		closeQuietly(out);
+	    }
+	}
+    }
+
+    private File getCheckpointFile() {
+	if (checkpointFile == null || checkpointFile.trim().length() == 0) {
+	    return null;
+	}
+	return new File(checkpointFile.trim());
+    }
+
+    private void closeQuietly(Closeable closeable) {
+	if (closeable != null) {
+	    try {
+		closeable.close();
+	    } catch (IOException e) {
+		logger.warn("Can not close the reindex checkpoint : " + e.getMessage());
+	    }
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.fulltext.IFullTextReindexer#resetCheckpoint()
+     */
+    public void resetCheckpoint() {
+	File file = getCheckpointFile();
+	synchronized (checkpointLock) {
+	    if (file != null && file.exists() && !file.delete()) {
+		logger.warn("Can not delete the reindex checkpoint " + file.getAbsolutePath());
+	    }
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.fulltext.IFullTextReindexer#isInProgress()
+     */
+    public boolean isInProgress() {
+	return inProgress.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.fulltext.IFullTextReindexer#getNumberOfIndexedDocuments()
+     */
+    public long getNumberOfIndexedDocuments() {
+	return indexedDocuments.get();
+    }
+
+    @Required
+    public void setGisFeatureDao(IGisFeatureDao gisFeatureDao) {
+	this.gisFeatureDao = gisFeatureDao;
+    }
+
+    @Required
+    public void setOpenStreetMapDao(IOpenStreetMapDao openStreetMapDao) {
+	this.openStreetMapDao = openStreetMapDao;
+    }
+
+    @Required
+    public void setSolRSynchroniser(ISolRSynchroniser solRSynchroniser) {
+	this.solRSynchroniser = solRSynchroniser;
+    }
+
+    @Required
+    public void setSolrClient(IsolrClient solrClient) {
+	this.solrClient = solrClient;
+    }
+
+    public void setStreetFactory(IStreetFactory streetFactory) {
+	this.streetFactory = streetFactory;
+    }
+
+    /**
+     * @param numberOfThreads
+     *                the number of ranges that are read and sent at the same
+     *                time
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+	if (numberOfThreads < 1) {
+	    logger.warn("The number of threads of the reindexer should be greater than 0, using " + DEFAULT_NUMBER_OF_THREADS);
+	    numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+	}
+	this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * @param rangeSize
+     *                the number of ids of a range, a range is committed and
+     *                checkpointed once indexed. Changing it invalidates the
+     *                checkpoint
+     */
+    public void setRangeSize(long rangeSize) {
+	if (rangeSize < 1) {
+	    logger.warn("The range size of the reindexer should be greater than 0, using " + DEFAULT_RANGE_SIZE);
+	    rangeSize = DEFAULT_RANGE_SIZE;
+	}
+	this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @param batchSize
+     *                the number of rows read and sent to the fulltext search
+     *                engine at once
+     */
+    public void setBatchSize(int batchSize) {
+	if (batchSize < 1) {
+	    logger.warn("The batch size of the reindexer should be greater than 0, using " + DEFAULT_BATCH_SIZE);
+	    batchSize = DEFAULT_BATCH_SIZE;
+	}
+	this.batchSize = batchSize;
+    }
+
+    /**
+     * @param checkpointFile
+     *                the file where the ranges already indexed are recorded,
+     *                null or empty to always reindex everything
+     */
+    public void setCheckpointFile(String checkpointFile) {
+	this.checkpointFile = checkpointFile;
+    }
+
+}
@@ -23,17 +23,15 @@
 package com.gisgraphy.fulltext;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
-import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.impl.CommonsHttpSolrServer;
+import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -70,8 +68,6 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
     protected static final Logger logger = LoggerFactory
 	    .getLogger(FullTextSearchEngine.class);
 
-    private HttpClient httpClient;
-
     private IsolrClient solrClient;
     
     FulltextResultDtoBuilder builder = new FulltextResultDtoBuilder();
@@ -106,16 +102,8 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 	    throws FullTextSearchException {
 	Assert.notNull(multiThreadedHttpConnectionManager,
 		"multiThreadedHttpConnectionManager can not be null");
-	HttpConnectionManagerParams p = new HttpConnectionManagerParams();
-	p.setSoTimeout(0);
-	p.setConnectionTimeout(0);
-	multiThreadedHttpConnectionManager.setParams(p);
-	this.httpClient = new HttpClient(multiThreadedHttpConnectionManager);
-	if (this.httpClient == null) {
-	    throw new FullTextSearchException(
-		    "Can not instanciate http client with multiThreadedHttpConnectionManager : "
-			    + multiThreadedHttpConnectionManager);
-	}
+	//the queries are sent by the server of the solr client, which uses the
+	//same connection manager with the limits of the spring configuration
     }
 
     /*
@@ -132,24 +120,32 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 		"Can not serialize into a null outputStream");
 	String queryString = ZipcodeNormalizer.normalize(query.getQuery(), query.getCountryCode());
 	query.withQuery(queryString);
+	long start = System.currentTimeMillis();
 	try {
 		if (!disableLogging){
 			logger.info(query.toString());
 		}
 
 	    ModifiableSolrParams params = FulltextQuerySolrHelper.parameterize(query);
-	    CommonsHttpSolrServer server = new CommonsHttpSolrServer(solrClient
-		    .getURL(), this.httpClient,
-		    new OutputstreamResponseWrapper(outputStream, params
-			    .get(Constants.OUTPUT_FORMAT_PARAMETER)));
-	    server.query(params);
+	    //the response is streamed by the shared server, the parser is only set for this request
+	    OutputstreamResponseWrapper responseWrapper = new OutputstreamResponseWrapper(outputStream, params
+		    .get(Constants.OUTPUT_FORMAT_PARAMETER));
+	    QueryRequest request = new QueryRequest(params);
+	    request.setResponseParser(responseWrapper);
+	    solrClient.getServer().request(request);
+	    statsUsageService.recordLatency(StatsUsageType.FULLTEXT, System.currentTimeMillis() - start);
+	    if (!disableLogging && logger.isDebugEnabled()){
+	    	logger.debug(query + " streamed " + responseWrapper.getBytesStreamed()
+	    		+ " bytes, first byte after " + responseWrapper.getTimeToFirstByte() + " ms");
+	    }
 	} catch (SolrServerException e) {
 	    logger.error("Can not execute query " + FulltextQuerySolrHelper.toQueryString(query)
 		    + "for URL : " + solrClient.getURL() + " : "
 		    + e.getCause().getMessage(),e);
 	    throw new FullTextSearchException(e.getCause().getMessage());
-	} catch (MalformedURLException e1) {
-	    logger.error("The URL " + solrClient.getURL() + " is incorrect",e1);
+	} catch (IOException e1) {
+	    logger.error("Can not execute query " + FulltextQuerySolrHelper.toQueryString(query)
+		    + "for URL : " + solrClient.getURL() + " : " + e1.getMessage(),e1);
 	    throw new FullTextSearchException(e1);
 	} catch (RuntimeException e2) {
 	    String message = e2.getCause()!=null?e2.getCause().getMessage():e2.getMessage();
@@ -234,6 +230,7 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
 	if (response != null) {
 	    long numberOfResults = response.getResults() != null ? response
 		    .getResults().getNumFound() : 0;
+		    statsUsageService.recordLatency(StatsUsageType.FULLTEXT, response.getQTime());
 		    if (!disableLogging){
 		    	logger.info(query + " took " + response.getQTime()
 		    	+ " ms and returns " + numberOfResults + " results");
@@ -263,6 +260,7 @@ public class FullTextSearchEngine implements IFullTextSearchEngine {
     	if (response != null) {
     	    long numberOfResults = response.getResults() != null ? response
     		    .getResults().getNumFound() : 0;
+    		    statsUsageService.recordLatency(StatsUsageType.FULLTEXT, response.getQTime());
     		    if (!disableLogging){
     		    	logger.info("addressQuery" + address + " took " + response.getQTime()
     		    	+ " ms and returns " + numberOfResults + " results");
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+/**
+ * Rebuild the fulltext search engine from the database, without running the
+ * import again (e.g : after a change of the solr schema or if the index has
+ * been lost)
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IFullTextReindexer {
+
+    /**
+     * Send all the features and streets of the database to the fulltext
+     * search engine and commit. The ranges of ids that have already been
+     * indexed by a previous reindex that has not finished are skipped.
+     * 
+     * @return the number of documents sent
+     * @throws IllegalStateException
+     *                 if a reindex is already in progress
+     * @throws com.gisgraphy.geoloc.GisgraphyCommunicationException
+     *                 if some documents can not be sent
+     */
+    public long reindex();
+
+    /**
+     * Start a {@link #reindex()} in a new thread, unless a reindex is already
+     * in progress. The check and the start are atomic, so two concurrent calls
+     * can not start two reindexes. The errors of the reindex are logged.
+     * 
+     * @return true if the reindex has been started, false if a reindex is
+     *         already in progress
+     */
+    public boolean reindexInBackground();
+
+    /**
+     * @return true if a reindex is in progress
+     */
+    public boolean isInProgress();
+
+    /**
+     * @return the number of documents sent by the current or the last
+     *         reindex
+     */
+    public long getNumberOfIndexedDocuments();
+
+    /**
+     * Forget the ranges already indexed, the next reindex will start from
+     * the beginning
+     */
+    public void resetCheckpoint();
+
+}
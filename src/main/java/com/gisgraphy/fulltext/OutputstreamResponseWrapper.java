@@ -48,9 +48,15 @@ public class OutputstreamResponseWrapper extends ResponseParser {
     protected static final Logger logger = LoggerFactory
     .getLogger(OutputstreamResponseWrapper.class);
     
+    private static final int BUFFER_SIZE = 8192;
+
     private final OutputStream outputStream;
     private final String writerType;
 
+    private final long creationTime = System.currentTimeMillis();
+    private long bytesStreamed = 0;
+    private long timeToFirstByte = -1;
+
     /**
      * The encoding of the response Default to {@link Constants#CHARSET}
      */
@@ -115,8 +121,9 @@ public class OutputstreamResponseWrapper extends ResponseParser {
 	    String encoding) {
 	try {
 	    this.encoding = encoding;
-	    IOUtils.copy(inputStream, outputStream);
+	    transfer(inputStream);
 	} catch (IOException e1) {
+	    logger.error("error when streaming fulltext response : "+e1,e1);
 	} finally {
 
 	    try {
@@ -129,6 +136,42 @@ public class OutputstreamResponseWrapper extends ResponseParser {
 	return new NamedList<Object>();
     }
 
+    /**
+     * Copy the solr response as it comes to the output stream, without
+     * buffering the whole response
+     */
+    protected void transfer(InputStream inputStream) throws IOException {
+	byte[] buffer = new byte[BUFFER_SIZE];
+	int read;
+	while ((read = inputStream.read(buffer)) != -1) {
+	    if (read == 0) {
+		continue;
+	    }
+	    if (timeToFirstByte == -1) {
+		timeToFirstByte = System.currentTimeMillis() - creationTime;
+	    }
+	    outputStream.write(buffer, 0, read);
+	    bytesStreamed += read;
+	}
+    }
+
+    /**
+     * @return the number of bytes that have been copied from the solr
+     *         response to the output stream
+     */
+    public long getBytesStreamed() {
+	return bytesStreamed;
+    }
+
+    /**
+     * @return the number of milliseconds between the creation of the wrapper
+     *         (just before the request is sent) and the first byte of the
+     *         response, or -1 if nothing has been received
+     */
+    public long getTimeToFirstByte() {
+	return timeToFirstByte;
+    }
+
     /**
      * @return The encoding of the response
      */
@@ -1,6 +1,7 @@
 package com.gisgraphy.fulltext;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.Set;
 import org.apache.solr.common.SolrDocument;
 
 import com.gisgraphy.domain.repository.exception.RepositoryException;
+import com.gisgraphy.street.CompactHouseNumbers;
 import com.gisgraphy.street.HouseNumberDeserializer;
 import com.gisgraphy.street.HouseNumberDto;
 
@@ -172,10 +174,20 @@ public class solrResponseDtoBuilder {
 	private List<HouseNumberDto> getHouseNumber(SolrDocument solrDocument) {
 		List<HouseNumberDto> housenumbers = new ArrayList<HouseNumberDto>();
 		String fieldname = FullTextFields.HOUSE_NUMBERS.getValue();
+		Collection<Object> fieldValues = solrDocument.getFieldValues(fieldname);
+		if (fieldValues != null && fieldValues.size() == 1) {
+			Object fieldValue = fieldValues.iterator().next();
+			if (fieldValue != null && CompactHouseNumbers.isCompact(fieldValue.toString())) {
+				//the dtos are decoded only if they are read, the geocoder scans the compact values
+				return CompactHouseNumbers.fromSolrValue(fieldValue.toString()).asList();
+			}
+		}
 		if (solrDocument.getFieldValues(fieldname) != null) {
 			for (Object fieldValue : solrDocument.getFieldValues(fieldname)) {
 				if (fieldValue == null) {
 					continue;
+				} else if (CompactHouseNumbers.isCompact(fieldValue.toString())) {
+					housenumbers.addAll(CompactHouseNumbers.fromSolrValue(fieldValue.toString()).toHouseNumberDtos());
 				} else if (fieldValue instanceof String) {
 					HouseNumberDto dto = houseNumberDeserializer
 							.deserialize((String) fieldValue);
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.addressparser.Address;
+import com.gisgraphy.addressparser.AddressResultsDto;
+
+/**
+ * Bounded cache of the geocoding results, with a least recently used
+ * eviction and a time to live. The keys are built from a canonical form of
+ * the address (see {@link #canonicalize(String)}) so that the same address
+ * written with different case or spaces is geocoded once.<br/>
+ * The cache must be invalidated when the data change (import, commit of the
+ * fulltext engine). The results are copied with their addresses when they are
+ * cached and when they are looked up, so that the caller can modify them (e.g.
+ * set its own QTime). The serialized results are not cached because they
+ * contain the QTime of the request.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class GeocodingResultCache {
+
+    protected static final Logger logger = LoggerFactory.getLogger(GeocodingResultCache.class);
+
+    /**
+     * Default value for {@link #setTimeToLive(long)}, in seconds
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 3600;
+
+    private int maxSize = 0;
+
+    private long timeToLiveInMillis = DEFAULT_TIME_TO_LIVE * 1000;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class Entry {
+	final Object value;
+	final long expirationTime;
+
+	Entry(Object value, long expirationTime) {
+	    this.value = value;
+	    this.expirationTime = expirationTime;
+	}
+    }
+
+    /**
+     * the entries in access order, guarded by itself
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75F, true) {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+	    return size() > maxSize;
+	}
+    };
+
+    /**
+     * @return true if the cache can store some results
+     */
+    public boolean isEnabled() {
+	return maxSize > 0;
+    }
+
+    /**
+     * @return a copy of the cached results for the key, whose QTime should be
+     *         set by the caller, or null
+     */
+    public AddressResultsDto getResults(String key) {
+	AddressResultsDto cached = (AddressResultsDto) get(key);
+	if (cached == null) {
+	    return null;
+	}
+	return copy(cached);
+    }
+
+    /**
+     * Cache a copy of the results, so that the caller can still modify them
+     */
+    public void putResults(String key, AddressResultsDto results) {
+	if (results != null) {
+	    put(key, copy(results));
+	}
+    }
+
+    private static AddressResultsDto copy(AddressResultsDto results) {
+	List<Address> addresses = new ArrayList<Address>();
+	if (results.getResult() != null) {
+	    for (Address address : results.getResult()) {
+		addresses.add(copy(address));
+	    }
+	}
+	AddressResultsDto copy = new AddressResultsDto(addresses, results.getQTime());
+	copy.setParsedAddress(copy(results.getParsedAddress()));
+	return copy;
+    }
+
+    /**
+     * @return a copy of the address, its properties are immutable values
+     *         (strings, numbers, enums) so they are shared
+     */
+    static Address copy(Address address) {
+	if (address == null) {
+	    return null;
+	}
+	Address copy = new Address();
+	try {
+	    PropertyUtils.copyProperties(copy, address);
+	} catch (Exception e) {
+	    throw new RuntimeException("can not copy the address " + address + " : " + e.getMessage(), e);
+	}
+	return copy;
+    }
+
+    private Object get(String key) {
+	if (!isEnabled() || key == null) {
+	    return null;
+	}
+	Entry entry;
+	synchronized (entries) {
+	    entry = entries.get(key);
+	    if (entry != null && entry.expirationTime < System.currentTimeMillis()) {
+		entries.remove(key);
+		entry = null;
+	    }
+	}
+	if (entry == null) {
+	    misses.incrementAndGet();
+	    return null;
+	}
+	hits.incrementAndGet();
+	return entry.value;
+    }
+
+    private void put(String key, Object value) {
+	if (!isEnabled() || key == null || value == null) {
+	    return;
+	}
+	Entry entry = new Entry(value, System.currentTimeMillis() + timeToLiveInMillis);
+	synchronized (entries) {
+	    entries.put(key, entry);
+	}
+    }
+
+    /**
+     * Remove all the results, must be called when the data change
+     */
+    public void invalidate() {
+	int size;
+	synchronized (entries) {
+	    size = entries.size();
+	    entries.clear();
+	}
+	if (size > 0) {
+	    logger.info("geocoding cache invalidated, " + size + " entries removed (" + hits.get() + " hits, " + misses.get() + " misses)");
+	}
+    }
+
+    /**
+     * @return a canonical form of the text : lower case, trimmed and the
+     *         spaces are collapsed, or an empty string for null. The
+     *         punctuation is kept because it can change the result (e.g.
+     *         '10-12' is a range of house numbers)
+     */
+    public static String canonicalize(String text) {
+	if (text == null) {
+	    return "";
+	}
+	StringBuilder sb = new StringBuilder(text.length());
+	boolean space = false;
+	for (int i = 0; i < text.length(); i++) {
+	    char c = text.charAt(i);
+	    if (Character.isWhitespace(c)) {
+		space = true;
+	    } else {
+		if (space && sb.length() > 0) {
+		    sb.append(' ');
+		}
+		sb.append(Character.toLowerCase(c));
+		space = false;
+	    }
+	}
+	return sb.toString();
+    }
+
+    /**
+     * @return the key for a raw address
+     */
+    public static String buildKey(String rawAddress, String countryCode, boolean postal, boolean withParsedAddress) {
+	return new StringBuilder(canonicalize(rawAddress)).append('|').append(canonicalize(countryCode)).append('|').append(postal)
+		.append('|').append(withParsedAddress).toString();
+    }
+
+    /**
+     * @return the key for a structured address, built from the fields used by
+     *         the geocoder
+     */
+    public static String buildKey(Address address, String countryCode) {
+	return new StringBuilder("structured|").append(canonicalize(address.getHouseNumber())).append('|')
+		.append(canonicalize(address.getStreetName())).append('|').append(canonicalize(address.getStreetType())).append('|')
+		.append(canonicalize(address.getStreetNameIntersection())).append('|').append(canonicalize(address.getDependentLocality()))
+		.append('|').append(canonicalize(address.getCity())).append('|').append(canonicalize(address.getPostTown())).append('|')
+		.append(canonicalize(address.getZipCode())).append('|').append(canonicalize(address.getState())).append('|')
+		.append(canonicalize(countryCode)).toString();
+    }
+
+    /**
+     * @return the number of results found in the cache
+     */
+    public long getHits() {
+	return hits.get();
+    }
+
+    /**
+     * @return the number of results not found in the cache
+     */
+    public long getMisses() {
+	return misses.get();
+    }
+
+    /**
+     * @return the number of entries in the cache
+     */
+    public int getSize() {
+	synchronized (entries) {
+	    return entries.size();
+	}
+    }
+
+    /**
+     * @param maxSize
+     *            the max number of entries, 0 or less disable the cache
+     */
+    public void setMaxSize(int maxSize) {
+	this.maxSize = maxSize;
+	if (maxSize <= 0) {
+	    invalidate();
+	}
+    }
+
+    /**
+     * @param timeToLive
+     *            how long (in seconds) a result is kept
+     * @see #DEFAULT_TIME_TO_LIVE
+     */
+    public void setTimeToLive(long timeToLive) {
+	if (timeToLive <= 0) {
+	    logger.warn("the time to live of the geocoding cache should be positive, use the default one : " + DEFAULT_TIME_TO_LIVE);
+	    timeToLive = DEFAULT_TIME_TO_LIVE;
+	}
+	this.timeToLiveInMillis = timeToLive * 1000;
+    }
+
+}
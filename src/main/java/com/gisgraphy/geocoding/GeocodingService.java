@@ -31,9 +31,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,6 +76,7 @@ import com.gisgraphy.fulltext.SmartStreetDetection;
 import com.gisgraphy.fulltext.SolrResponseDto;
 import com.gisgraphy.fulltext.SolrResponseDtoDistanceComparator;
 import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.helper.NamedThreadFactory;
 import com.gisgraphy.helper.StringHelper;
 import com.gisgraphy.importer.ImporterConfig;
 import com.gisgraphy.importer.LabelGenerator;
@@ -72,6 +84,7 @@ import com.gisgraphy.serializer.UniversalSerializer;
 import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsageType;
+import com.gisgraphy.street.CompactHouseNumbers;
 import com.gisgraphy.street.HouseNumberDto;
 import com.gisgraphy.street.HouseNumberUtil;
 import com.vividsolutions.jts.geom.Point;
@@ -90,11 +103,41 @@ public class GeocodingService implements IGeocodingService {
 	private IAddressParserService addressParser;
 	private FullTextSearchEngine fullTextSearchEngine;
 	private GisgraphyConfig gisgraphyConfig;
+	private GeocodingResultCache geocodingResultCache;
 	
 	private LabelGenerator labelGenerator = LabelGenerator.getInstance();
 	private BasicAddressFormater addressFormater = BasicAddressFormater.getInstance();
 	
 	SmartStreetDetection smartStreetDetection = new SmartStreetDetection();
+	
+	/**
+	 * The executor that run the geocoding stages when the pipeline is enabled,
+	 * lazy created
+	 * @see #isPipelineEnabled()
+	 */
+	private volatile ExecutorService pipelineExecutor;
+
+	/**
+	 * Default value for {@link #setPipelineThreads(int)}
+	 */
+	public final static int DEFAULT_PIPELINE_THREADS = 16;
+
+	/**
+	 * Default value for {@link #setPipelineTimeout(long)} in milliseconds
+	 */
+	public final static long DEFAULT_PIPELINE_TIMEOUT = 3000;
+
+	private boolean pipelineEnabled = false;
+
+	private int pipelineThreads = DEFAULT_PIPELINE_THREADS;
+
+	private long pipelineTimeout = DEFAULT_PIPELINE_TIMEOUT;
+
+	/**
+	 * How many pending stages can be queued by pipeline thread before falling
+	 * back to the sequential geocoding
+	 */
+	public final static int PIPELINE_QUEUE_SIZE_BY_THREAD = 4;
 
 	public final static int ACCEPT_DISTANCE_BETWEEN_CITY_AND_STREET = 15000;
 	public final static Output LONG_OUTPUT = Output.withDefaultFormat().withStyle(OutputStyle.LONG);
@@ -165,7 +208,10 @@ public class GeocodingService implements IGeocodingService {
 		if (outputStream == null) {
 			throw new GeocodingException("Can not serialize into a null outputStream");
 		}
-		AddressResultsDto geolocResultsDto = geocode(query);
+		serialize(query, geocode(query), outputStream);
+	}
+
+	private void serialize(AddressQuery query, AddressResultsDto geolocResultsDto, OutputStream outputStream) {
 		Map<String, Object> extraParameter = new HashMap<String, Object>();
 		// extraParameter.put(GeolocResultsDtoSerializer.START_PAGINATION_INDEX_EXTRA_PARAMETER,
 		// query.getFirstPaginationIndex());
@@ -202,6 +248,36 @@ public class GeocodingService implements IGeocodingService {
 		if (query == null) {
 			throw new GeocodingException("Can not geocode a null query");
 		}
+		if (!isCacheEnabled() || query instanceof StructuredAddressQuery) {
+			//the structured addresses are cached by geocode(Address, String)
+			return doGeocode(query);
+		}
+		long startTime = System.currentTimeMillis();
+		String key = buildCacheKey(query);
+		AddressResultsDto results = geocodingResultCache.getResults(key);
+		if (results != null) {
+			results.setQTime(System.currentTimeMillis() - startTime);
+			statsUsageService.increaseUsage(StatsUsageType.GEOCODING);
+			logger.info(query + " served from the geocoding cache");
+			return results;
+		}
+		results = doGeocode(query);
+		geocodingResultCache.putResults(key, results);
+		return results;
+	}
+
+	protected boolean isCacheEnabled() {
+		return geocodingResultCache != null && geocodingResultCache.isEnabled();
+	}
+
+	protected String buildCacheKey(AddressQuery query) {
+		return GeocodingResultCache.buildKey(query.getAddress(), query.getCountry(), query.isPostal(), shouldSetParseAddress(query));
+	}
+
+	/**
+	 * geocode the query without the cache
+	 */
+	protected AddressResultsDto doGeocode(AddressQuery query) throws GeocodingException {
 		logger.info(query.toString());
 		String countryCode = query.getCountry();
 		if (countryCode !=null  && countryCode.trim().length() != 2) {
@@ -241,7 +317,8 @@ public class GeocodingService implements IGeocodingService {
 				logger.debug("successfully parsed address : " + rawAddress + " : " + addressResultDto.getResult().get(0));
 			}
 			Address address = addressResultDto.getResult().get(0);
-			AddressResultsDto addressesDto = geocode(address, countryCode);
+			//not cached since the parsed address can be set on the results
+			AddressResultsDto addressesDto = doGeocode(address, countryCode);
 			if (shouldSetParseAddress(query)){
 				addressesDto.setParsedAddress(address);
 			}
@@ -264,52 +341,58 @@ public class GeocodingService implements IGeocodingService {
 				logger.info("splitstreettype ("+s+")"+newAddress);
 			}*/
 			if (GisgraphyConfig.searchForExactMatchWhenGeocoding) {
-				List<SolrResponseDto> exactMatches = findExactMatches(newAddress, countryCode);
-					/*List<SolrResponseDto> aproximativeMatches = findStreetInText(newAddress, countryCode, null); //we search for street because we think that it is not a city nor an adm that 
-					//have been probably found by exact matc, so we search for address and so a street*/
-				
-				//------------------------------------------------------------------------------------
-				/*if (!needParsing && exactMatches!=null && exactMatches.size() >=1){
-					results = buildAddressResultDtoFromSolrResponseDto(exactMatches, houseNumber);
-				} else {*/
-				List<SolrResponseDto> cities = null;
-				cities = findCitiesInText(newAddress, countryCode);
-				Point cityLocation = null;
-				String cityName=null;
-				if (cities != null && cities.size() > 0 && cities.get(0) != null) {
-					logger.debug("city found "+cities.get(0).getName()+"/"+cities.get(0).getFeature_id());
-					cityLocation = GeolocHelper.createPoint(cities.get(0).getLng().floatValue(), cities.get(0).getLat().floatValue());
-					cityName = cities.get(0).getName();
+				results = null;
+				if (pipelineEnabled){
+					results = geocodeWithPipeline(newAddress, countryCode, houseNumber);
 				}
-				// TODO iterate over cities
-				List<SolrResponseDto> fulltextResultsDto = null;
+				if (results == null){
+					List<SolrResponseDto> exactMatches = findExactMatches(newAddress, countryCode);
+						/*List<SolrResponseDto> aproximativeMatches = findStreetInText(newAddress, countryCode, null); //we search for street because we think that it is not a city nor an adm that 
+						//have been probably found by exact matc, so we search for address and so a street*/
+				
+					//------------------------------------------------------------------------------------
+					/*if (!needParsing && exactMatches!=null && exactMatches.size() >=1){
+						results = buildAddressResultDtoFromSolrResponseDto(exactMatches, houseNumber);
+					} else {*/
+					List<SolrResponseDto> cities = null;
+					cities = findCitiesInText(newAddress, countryCode);
+					Point cityLocation = null;
+					String cityName=null;
+					if (cities != null && cities.size() > 0 && cities.get(0) != null) {
+						logger.debug("city found "+cities.get(0).getName()+"/"+cities.get(0).getFeature_id());
+						cityLocation = GeolocHelper.createPoint(cities.get(0).getLng().floatValue(), cities.get(0).getLat().floatValue());
+						cityName = cities.get(0).getName();
+					}
+					// TODO iterate over cities
+					List<SolrResponseDto> fulltextResultsDto = null;
 									
-				/*if (cityName!=null){
-					/*String addressNormalized = StringHelper.normalize(newAddress);
-					String cityNormalized = StringHelper.normalize(cityName);
-					String addressNormalizedWithoutCity = addressNormalized.replace(cityNormalized, "");
-					//String addressNormalizedWithoutCity = newAddress;
-						if (isNotEmptyString(addressNormalizedWithoutCity)) {
-							//if (logger.isDebugEnabled()) {
-								logger.debug("normalized address without city '+"+cityNormalized+"' : was '" +addressNormalized+"' and is now " + addressNormalizedWithoutCity);
-							//}
-							fulltextResultsDto = findStreetInText(addressNormalizedWithoutCity, countryCode, cityLocation);
-						} 
-				} else {
-					fulltextResultsDto = findStreetInText(newAddress, countryCode, cityLocation);
-				}*/
+					/*if (cityName!=null){
+						/*String addressNormalized = StringHelper.normalize(newAddress);
+						String cityNormalized = StringHelper.normalize(cityName);
+						String addressNormalizedWithoutCity = addressNormalized.replace(cityNormalized, "");
+						//String addressNormalizedWithoutCity = newAddress;
+							if (isNotEmptyString(addressNormalizedWithoutCity)) {
+								//if (logger.isDebugEnabled()) {
+									logger.debug("normalized address without city '+"+cityNormalized+"' : was '" +addressNormalized+"' and is now " + addressNormalizedWithoutCity);
+								//}
+								fulltextResultsDto = findStreetInText(addressNormalizedWithoutCity, countryCode, cityLocation);
+							} 
+					} else {
+						fulltextResultsDto = findStreetInText(newAddress, countryCode, cityLocation);
+					}*/
 				
-				fulltextResultsDto = findStreetInText(newAddress, countryCode, cityLocation);
-				//------------------------------------------------------------------------------------------------
+					fulltextResultsDto = findStreetInText(newAddress, countryCode, cityLocation);
+					//------------------------------------------------------------------------------------------------
 				
 				
 				
 				
 				
-					List<SolrResponseDto> mergedResults = mergeSolrResponseDto(exactMatches, fulltextResultsDto);
-//					//results = buildAddressResultDtoFromSolrResponseDto(mergedResults, houseNumber);
-					results = buildAddressResultDtoFromStreetsAndCities(mergedResults, cities, houseNumber);
-				//}
+						List<SolrResponseDto> mergedResults = mergeSolrResponseDto(exactMatches, fulltextResultsDto);
+//						//results = buildAddressResultDtoFromSolrResponseDto(mergedResults, houseNumber);
+						results = buildAddressResultDtoFromStreetsAndCities(mergedResults, cities, houseNumber);
+					//}
+				}
 			} else {
 				List<SolrResponseDto> aproximativeMatches = findStreetInText(newAddress, countryCode, null);
 				results = buildAddressResultDtoFromStreetsAndCities(aproximativeMatches, null, houseNumber);
@@ -393,6 +476,128 @@ public class GeocodingService implements IGeocodingService {
 
 	}
 
+	/**
+	 * Search for exact matches, cities and streets concurrently : the exact
+	 * matches and the cities are searched at the same time, and a street search
+	 * without city location is done speculatively. if a city is found, the
+	 * speculative search is cancelled and the streets are searched around the
+	 * city, otherwise the speculative results are used. The results are the
+	 * same as the sequential geocoding.
+	 * 
+	 * @param address
+	 *            the address without house number
+	 * @param countryCode
+	 *            the country code to filter
+	 * @param houseNumber
+	 *            the house number to find or null
+	 * @return the results or null if the stages take more than the pipeline
+	 *         timeout (for all of them), if a stage has failed or if the
+	 *         pipeline is full. In this case, the caller should fall back to
+	 *         the sequential geocoding
+	 */
+	protected AddressResultsDto geocodeWithPipeline(final String address, final String countryCode, String houseNumber) {
+		long timeout = pipelineTimeout;
+		long deadline = System.currentTimeMillis() + timeout;
+		List<Future<List<SolrResponseDto>>> stages = new ArrayList<Future<List<SolrResponseDto>>>();
+		try {
+			ExecutorService executor = getPipelineExecutor();
+			Future<List<SolrResponseDto>> exactMatchesStage = executor.submit(new Callable<List<SolrResponseDto>>() {
+				public List<SolrResponseDto> call() throws Exception {
+					return findExactMatches(address, countryCode);
+				}
+			});
+			stages.add(exactMatchesStage);
+			Future<List<SolrResponseDto>> citiesStage = executor.submit(new Callable<List<SolrResponseDto>>() {
+				public List<SolrResponseDto> call() throws Exception {
+					return findCitiesInText(address, countryCode);
+				}
+			});
+			stages.add(citiesStage);
+			Future<List<SolrResponseDto>> speculativeStreetsStage = executor.submit(new Callable<List<SolrResponseDto>>() {
+				public List<SolrResponseDto> call() throws Exception {
+					return findStreetInText(address, countryCode, null);
+				}
+			});
+			stages.add(speculativeStreetsStage);
+
+			List<SolrResponseDto> cities = citiesStage.get(getRemainingTime(deadline), TimeUnit.MILLISECONDS);
+			List<SolrResponseDto> streets;
+			if (cities != null && cities.size() > 0 && cities.get(0) != null) {
+				speculativeStreetsStage.cancel(true);
+				logger.debug("city found "+cities.get(0).getName()+"/"+cities.get(0).getFeature_id());
+				final Point cityLocation = GeolocHelper.createPoint(cities.get(0).getLng().floatValue(), cities.get(0).getLat().floatValue());
+				Future<List<SolrResponseDto>> streetsStage = executor.submit(new Callable<List<SolrResponseDto>>() {
+					public List<SolrResponseDto> call() throws Exception {
+						return findStreetInText(address, countryCode, cityLocation);
+					}
+				});
+				stages.add(streetsStage);
+				streets = streetsStage.get(getRemainingTime(deadline), TimeUnit.MILLISECONDS);
+			} else {
+				streets = speculativeStreetsStage.get(getRemainingTime(deadline), TimeUnit.MILLISECONDS);
+			}
+			List<SolrResponseDto> exactMatches = exactMatchesStage.get(getRemainingTime(deadline), TimeUnit.MILLISECONDS);
+			List<SolrResponseDto> mergedResults = mergeSolrResponseDto(exactMatches, streets);
+			return buildAddressResultDtoFromStreetsAndCities(mergedResults, cities, houseNumber);
+		} catch (TimeoutException e) {
+			logger.warn("the geocoding stages take more than " + timeout + " ms for '" + address + "', fall back to sequential geocoding");
+		} catch (RejectedExecutionException e) {
+			logger.warn("the geocoding pipeline is full, fall back to sequential geocoding for '" + address + "'");
+		} catch (ExecutionException e) {
+			logger.error("a geocoding stage has failed for '" + address + "', fall back to sequential geocoding : " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			logger.warn("geocoding pipeline has been interrupted for '" + address + "', fall back to sequential geocoding");
+			Thread.currentThread().interrupt();
+		} finally {
+			for (Future<List<SolrResponseDto>> stage : stages) {
+				if (!stage.isDone()) {
+					stage.cancel(true);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param deadline
+	 *            the time (in milliseconds) when all the stages of the pipeline
+	 *            should be done
+	 * @return the time left before the deadline in milliseconds, 0 if it is
+	 *         over
+	 */
+	private long getRemainingTime(long deadline) {
+		return Math.max(0, deadline - System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the executor that run the geocoding stages, it is created at the
+	 *         first call
+	 */
+	protected ExecutorService getPipelineExecutor() {
+		if (pipelineExecutor == null) {
+			synchronized (this) {
+				if (pipelineExecutor == null) {
+					int threads = pipelineThreads;
+					logger.info("create a geocoding pipeline with " + threads + " threads");
+					pipelineExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(threads * PIPELINE_QUEUE_SIZE_BY_THREAD), new NamedThreadFactory("geocoding-pipeline"));
+				}
+			}
+		}
+		return pipelineExecutor;
+	}
+
+	/**
+	 * Stop the pipeline threads
+	 */
+	@PreDestroy
+	public void shutdownPipeline() {
+		ExecutorService executor = pipelineExecutor;
+		pipelineExecutor = null;
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
 	protected boolean needParsing(String query) {
 		if (query !=null){
 			String str = query.trim();
@@ -425,6 +630,27 @@ public class GeocodingService implements IGeocodingService {
 	 * .Address)
 	 */
 	public AddressResultsDto geocode(Address address, String countryCode) throws GeocodingException {
+		if (address == null || !isCacheEnabled()) {
+			return doGeocode(address, countryCode);
+		}
+		long startTime = System.currentTimeMillis();
+		String key = GeocodingResultCache.buildKey(address, countryCode);
+		AddressResultsDto results = geocodingResultCache.getResults(key);
+		if (results != null) {
+			results.setQTime(System.currentTimeMillis() - startTime);
+			statsUsageService.increaseUsage(StatsUsageType.GEOCODING);
+			logger.info("geocoding of " + address + " and country=" + countryCode + " served from the geocoding cache");
+			return results;
+		}
+		results = doGeocode(address, countryCode);
+		geocodingResultCache.putResults(key, results);
+		return results;
+	}
+
+	/**
+	 * geocode the address without the cache
+	 */
+	protected AddressResultsDto doGeocode(Address address, String countryCode) throws GeocodingException {
 		if (address == null) {
 			throw new GeocodingException("Can not geocode a null address");
 		}
@@ -765,16 +991,20 @@ public class GeocodingService implements IGeocodingService {
 			logger.info("no house number to search : ");
 			return null;
 		}
+		if (houseNumbersList instanceof CompactHouseNumbers.HouseNumberDtoList){
+			return searchHouseNumber(houseNumberToFindAsInt.intValue(), ((CompactHouseNumbers.HouseNumberDtoList) houseNumbersList).getCompactHouseNumbers(), countryCode);
+		}
 		Integer nearestLower = null;
 		Integer nearestUpper = null;
 		HouseNumberDto nearestHouseLower = null;
 		HouseNumberDto nearestHouseUpper = null;
-		//for debug purpose, need to be removed
-		StringBuffer sb = new StringBuffer();
-		for (HouseNumberDto candidate :houseNumbersList){
-			sb.append(candidate.getNumber()).append(",");
+		if (logger.isDebugEnabled()){
+			StringBuffer sb = new StringBuffer();
+			for (HouseNumberDto candidate :houseNumbersList){
+				sb.append(candidate.getNumber()).append(",");
+			}
+			logger.debug("will analyze HN  : "+sb.toString());
 		}
-		logger.info("will analyze HN  : "+sb.toString());
 		
 		for (HouseNumberDto candidate :houseNumbersList){
 			if (candidate != null && candidate.getNumber()!=null){
@@ -784,7 +1014,10 @@ public class GeocodingService implements IGeocodingService {
 				} else {
 					candidateNormalized = HouseNumberUtil.normalizeNumberToInt(candidate.getNumber());
 				}
-				if (candidateNormalized!=null && candidateNormalized == houseNumberToFindAsInt){
+				if (candidateNormalized == null){
+					continue;
+				}
+				if (candidateNormalized.intValue() == houseNumberToFindAsInt.intValue()){
 					logger.info("house number candidate found : "+candidate.getNumber());
 					return new HouseNumberDtoInterpolation(candidate.getLocation(),houseNumberToFindAsInt);
 				} else if (candidateNormalized < houseNumberToFindAsInt ){
@@ -829,6 +1062,72 @@ public class GeocodingService implements IGeocodingService {
 		return result;
 	}
 
+	/**
+	 * Same search as {@link #searchHouseNumber(Integer, List, String)}, but the
+	 * house numbers are scanned with a {@link CompactHouseNumbers.Cursor},
+	 * without decoding them into dtos. Only the points of the result are
+	 * created.
+	 */
+	protected HouseNumberDtoInterpolation searchHouseNumber(int houseNumberToFind, CompactHouseNumbers houseNumbers, String countryCode) {
+		boolean skCz = countryCode!=null && ("SK".equalsIgnoreCase(countryCode) || "CZ".equalsIgnoreCase(countryCode));
+		boolean lowerFound = false;
+		boolean upperFound = false;
+		int nearestLower = 0;
+		int nearestUpper = 0;
+		double lowerLatitude = 0;
+		double lowerLongitude = 0;
+		double upperLatitude = 0;
+		double upperLongitude = 0;
+		CompactHouseNumbers.Cursor cursor = houseNumbers.cursor();
+		while (cursor.next()){
+			int candidateNormalized;
+			if (skCz){
+				Integer skCzNumber = HouseNumberUtil.normalizeSkCzNumberToInt(cursor.getLabel());
+				if (skCzNumber == null){
+					continue;
+				}
+				candidateNormalized = skCzNumber.intValue();
+			} else if (cursor.hasNumber()){
+				candidateNormalized = cursor.getNumber();
+			} else {
+				continue;
+			}
+			if (candidateNormalized == houseNumberToFind){
+				logger.info("house number candidate found : "+cursor.getLabel());
+				return new HouseNumberDtoInterpolation(GeolocHelper.createPoint(cursor.getLongitude(), cursor.getLatitude()),houseNumberToFind);
+			} else if (candidateNormalized < houseNumberToFind){
+				if (!lowerFound || candidateNormalized > nearestLower){
+					lowerFound = true;
+					nearestLower = candidateNormalized;
+					lowerLatitude = cursor.getLatitude();
+					lowerLongitude = cursor.getLongitude();
+				}
+			} else if (!upperFound || candidateNormalized < nearestUpper){
+				upperFound = true;
+				nearestUpper = candidateNormalized;
+				upperLatitude = cursor.getLatitude();
+				upperLongitude = cursor.getLongitude();
+			}
+		}
+		logger.info("no exact house number candidate found for "+houseNumberToFind);
+		if (!lowerFound && !upperFound){
+			logger.info(" no lower, nor upper house number found");
+			return null;
+		}
+		HouseNumberDtoInterpolation result = new HouseNumberDtoInterpolation();
+		if (upperFound){
+			logger.info(" higher : "+nearestUpper);
+			result.setHigherLocation(GeolocHelper.createPoint(upperLongitude, upperLatitude));
+			result.setHigherNumber(nearestUpper);
+		}
+		if (lowerFound){
+			logger.info(" lower : "+nearestLower);
+			result.setLowerLocation(GeolocHelper.createPoint(lowerLongitude, lowerLatitude));
+			result.setLowerNumber(nearestLower);
+		}
+		return result;
+	}
+
 	protected AddressResultsDto buildAddressResultDtoFromSolrResponseDto(List<SolrResponseDto> solResponseDtos, String houseNumberToFind) {
 		List<Address> addresses = new ArrayList<Address>();
 
@@ -1216,9 +1515,66 @@ public class GeocodingService implements IGeocodingService {
 		this.importerConfig = importerConfig;
 	}
 
+	@Autowired(required = false)
+	public void setGeocodingResultCache(GeocodingResultCache geocodingResultCache) {
+		this.geocodingResultCache = geocodingResultCache;
+	}
+
 	@Autowired
 	public void setGisgraphyConfig(GisgraphyConfig gisgraphyConfig) {
 		this.gisgraphyConfig = gisgraphyConfig;
 	}
 
+	/**
+	 * @return true if the exact match, city and street searches are run
+	 *         concurrently instead of one after another
+	 */
+	public boolean isPipelineEnabled() {
+		return pipelineEnabled;
+	}
+
+	/**
+	 * @see #isPipelineEnabled()
+	 */
+	public void setPipelineEnabled(boolean pipelineEnabled) {
+		this.pipelineEnabled = pipelineEnabled;
+	}
+
+	/**
+	 * @return the number of threads used to run the geocoding stages when the
+	 *         pipeline is enabled
+	 * @see #DEFAULT_PIPELINE_THREADS
+	 */
+	public int getPipelineThreads() {
+		return pipelineThreads;
+	}
+
+	/**
+	 * @see #getPipelineThreads()
+	 */
+	public void setPipelineThreads(int pipelineThreads) {
+		if (pipelineThreads <= 0) {
+			logger.warn("the number of geocoding pipeline threads should be positive, use default : " + DEFAULT_PIPELINE_THREADS);
+			this.pipelineThreads = DEFAULT_PIPELINE_THREADS;
+		} else {
+			this.pipelineThreads = pipelineThreads;
+		}
+	}
+
+	/**
+	 * @return the maximum time (in milliseconds) to wait for all the stages of
+	 *         the pipeline before falling back to the sequential geocoding
+	 * @see #DEFAULT_PIPELINE_TIMEOUT
+	 */
+	public long getPipelineTimeout() {
+		return pipelineTimeout;
+	}
+
+	/**
+	 * @see #getPipelineTimeout()
+	 */
+	public void setPipelineTimeout(long pipelineTimeout) {
+		this.pipelineTimeout = pipelineTimeout;
+	}
+
 }
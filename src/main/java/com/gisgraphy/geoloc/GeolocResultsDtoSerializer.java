@@ -39,8 +39,10 @@ import com.gisgraphy.domain.valueobject.GisFeatureDistance;
 import com.gisgraphy.domain.valueobject.GisgraphyServiceType;
 import com.gisgraphy.domain.valueobject.Pagination;
 import com.gisgraphy.helper.OutputFormatHelper;
+import com.gisgraphy.helper.StreamingJsonSerializer;
 import com.gisgraphy.serializer.UniversalSerializer;
 import com.gisgraphy.serializer.common.OutputFormat;
+import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.serializer.exception.UnsupportedFormatException;
 import com.gisgraphy.service.ServiceException;
 import com.sun.syndication.feed.module.georss.GeoRSSModule;
@@ -72,6 +74,8 @@ public class GeolocResultsDtoSerializer implements
     protected static final Logger logger = LoggerFactory
 	    .getLogger(GeolocResultsDtoSerializer.class);
 
+    private StreamingJsonSerializer streamingJsonSerializer;
+
   
 
     /*
@@ -90,7 +94,9 @@ public class GeolocResultsDtoSerializer implements
 		    + " is not applicable for Geoloc");
 	} 
 	   
-	if (outputFormat == OutputFormat.JSON || outputFormat == OutputFormat.PHP || outputFormat == OutputFormat.PYTHON  || outputFormat == OutputFormat.RUBY || outputFormat == OutputFormat.XML || outputFormat == OutputFormat.YAML) {
+	if (outputFormat == OutputFormat.JSON && streamingJsonSerializer != null && streamingJsonSerializer.isEnabled()) {
+	    serializeWithStreamingJsonSerializer(outputStream, geolocResultsDto, indent, extraParameters);
+	} else if (outputFormat == OutputFormat.JSON || outputFormat == OutputFormat.PHP || outputFormat == OutputFormat.PYTHON  || outputFormat == OutputFormat.RUBY || outputFormat == OutputFormat.XML || outputFormat == OutputFormat.YAML) {
 		serializeWithUniveraslSerializer(outputStream, geolocResultsDto,  indent, outputFormat,extraParameters);
 	} else 	if (outputFormat==OutputFormat.ATOM){
 	   int  startPaginationIndex = getStartPaginationIndex(extraParameters);
@@ -115,6 +121,15 @@ public class GeolocResultsDtoSerializer implements
 	return 1;
     }
     
+    private void serializeWithStreamingJsonSerializer(OutputStream outputStream, GeolocResultsDto geolocResultsDto, boolean indent, Map<String, Object> extraParameters) {
+	Object callback = extraParameters == null ? null : extraParameters.get(UniversalSerializerConstant.CALLBACK_METHOD_NAME);
+	try {
+	    streamingJsonSerializer.write(outputStream, geolocResultsDto, indent, callback == null ? null : callback.toString());
+	} catch (Exception e) {
+	    throw new ServiceException(e);
+	}
+    }
+
     private void serializeWithUniveraslSerializer(OutputStream outputStream, GeolocResultsDto geolocResultsDto,boolean indent, OutputFormat format,Map<String,Object> extraParameters) {
 	 try {
 	     UniversalSerializer.getInstance().write(outputStream, geolocResultsDto,  indent,extraParameters, format);
@@ -208,4 +223,12 @@ public class GeolocResultsDtoSerializer implements
 
     }
 
+    /**
+     * @param streamingJsonSerializer
+     *                the serializer to write the JSON with, when it is enabled
+     */
+    public void setStreamingJsonSerializer(StreamingJsonSerializer streamingJsonSerializer) {
+	this.streamingJsonSerializer = streamingJsonSerializer;
+    }
+
 }
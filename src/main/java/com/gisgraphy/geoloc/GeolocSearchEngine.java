@@ -109,6 +109,7 @@ public class GeolocSearchEngine implements IGeolocSearchEngine {
 
 	long end = System.currentTimeMillis();
 	long qTime = end - start;
+	statsUsageService.recordLatency(StatsUsageType.GEOLOC, qTime);
 	if (!disableLogging){
 		logger.info(query + " took " + (qTime) + " ms and returns "
 				+ results.size() + " results");
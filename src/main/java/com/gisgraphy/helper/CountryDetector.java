@@ -23,8 +23,8 @@
 package com.gisgraphy.helper;
 
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map.Entry;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +32,13 @@ import org.slf4j.LoggerFactory;
 /**
  * 
  * Detect Country
+ * <p>
+ * The alternate names of all the countries are compiled once in a trie of
+ * the reversed names, the address is then read backward, one character at a
+ * time, to find all the names it ends with. When several names match, the
+ * one of the most popular country wins (see
+ * {@link CountriesStaticData#countryCodeSortedByPopularity}), then the first
+ * one in the alternate names of the country.
  * 
  * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
  * 
@@ -43,38 +50,153 @@ public class CountryDetector {
 	 */
 	public static final Logger logger = LoggerFactory.getLogger(CountryDetector.class);
 
-	 public CountryDetectorDto detectAndRemoveCountry(String cleanedAddress) {
-		 for (String countryCode: com.gisgraphy.helper.CountriesStaticData.countryCodeSortedByPopularity){
-	    	if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
-	    		// shortcut for specific country that got countryname and city is
-	    		// the same (panama, singapour
-	    		continue;
-	    	}
-	    	List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
-	    	if (alternateNames != null) {
-	    		String sanitarizeAddress = cleanedAddress.replaceAll("[\\s\\-\\']+", " ").trim().toLowerCase();
-	    		for (String alternateName : alternateNames) {
-	    			if (alternateName!=null && alternateName.toLowerCase().contains("mexico")){
-	    				 //special case for mexico =>we should not remove because it is also a city and a sate
-	    				continue;
-	    			}
-	    			if (sanitarizeAddress.endsWith(alternateName.toLowerCase())) {
-	    				//String pattern = "(?i)" + alternateName + "\\s*$";
-	    				Matcher matcher = Pattern.compile("(?i)" + alternateName + "\\s*$").matcher(sanitarizeAddress);
-	    				if (matcher.find()){
-	    					int index = matcher.start();
-	    					String result = cleanedAddress.substring(0, index).trim();
-	    					if (result != null && Pattern.matches(".*[,-]$", result) ){
-	    						result = result.substring(0, result.length()-1).trim();
-	    					}
-	    					logger.info("'"+alternateName +"' has been detected as a country name and removed from "+cleanedAddress +" : "+result);
-	    					return new CountryDetectorDto(result, countryCode);
-	    				}
-	    			}
-	    		}
-	    	}
+	private static final Node COUNTRY_NAMES = buildCountryNames();
 
-	    }
+	 public CountryDetectorDto detectAndRemoveCountry(String cleanedAddress) {
+		 if (cleanedAddress == null) {
+			 return new CountryDetectorDto(cleanedAddress, null);
+		 }
+		 Node node = COUNTRY_NAMES;
+		 Node detected = null;
+		 int detectedIndex = -1;
+		 int index = cleanedAddress.length() - 1;
+		 //the address is read as if the separators were replaced by one space and it was trimmed
+		 while (index >= 0 && isSeparator(cleanedAddress.charAt(index))) {
+			 index--;
+		 }
+		 while (index >= 0 && node != null) {
+			 char c = cleanedAddress.charAt(index);
+			 int nextIndex = index - 1;
+			 if (isSeparator(c)) {
+				 while (nextIndex >= 0 && isSeparator(cleanedAddress.charAt(nextIndex))) {
+					 nextIndex--;
+				 }
+				 if (nextIndex < 0) {
+					 //leading separators
+					 break;
+				 }
+				 c = ' ';
+			 } else {
+				 c = Character.toLowerCase(c);
+			 }
+			 node = node.getChild(c);
+			 if (node != null && node.rank != -1 && (detected == null || node.rank < detected.rank)) {
+				 detected = node;
+				 detectedIndex = index;
+			 }
+			 index = nextIndex;
+		 }
+		 if (detected != null) {
+			 String result = cleanedAddress.substring(0, detectedIndex).trim();
+			 if (result.length() > 0 && (result.charAt(result.length() - 1) == ',' || result.charAt(result.length() - 1) == '-')) {
+				 result = result.substring(0, result.length() - 1).trim();
+			 }
+			 logger.info("'" + detected.name + "' has been detected as a country name and removed from " + cleanedAddress + " : " + result);
+			 return new CountryDetectorDto(result, detected.countryCode);
+		 }
 		 return new CountryDetectorDto(cleanedAddress, null);
 	 }
+
+	 private static boolean isSeparator(char c) {
+		 //same as [\s\-\']
+		 return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '-' || c == '\'';
+	 }
+
+	 private static Node buildCountryNames() {
+		 BuildNode root = new BuildNode();
+		 int rank = 0;
+		 for (String countryCode : CountriesStaticData.countryCodeSortedByPopularity) {
+			 if (countryCode == null || "SG".equalsIgnoreCase(countryCode) || "PA".equalsIgnoreCase(countryCode)) {
+				 // shortcut for specific country that got countryname and city is
+				 // the same (panama, singapour
+				 continue;
+			 }
+			 List<String> alternateNames = CountriesStaticData.countryAlternateNames.get(countryCode.toUpperCase());
+			 if (alternateNames == null) {
+				 continue;
+			 }
+			 for (String alternateName : alternateNames) {
+				 if (alternateName == null || alternateName.length() == 0 || alternateName.toLowerCase().contains("mexico")) {
+					 //special case for mexico =>we should not remove because it is also a city and a sate
+					 continue;
+				 }
+				 String name = alternateName.toLowerCase();
+				 BuildNode node = root;
+				 for (int i = name.length() - 1; i >= 0; i--) {
+					 char c = name.charAt(i);
+					 BuildNode child = node.children.get(c);
+					 if (child == null) {
+						 child = new BuildNode();
+						 node.children.put(c, child);
+					 }
+					 node = child;
+				 }
+				 if (node.countryCode == null) {
+					 node.rank = rank;
+					 node.countryCode = countryCode;
+					 node.name = alternateName;
+				 }
+				 rank++;
+			 }
+		 }
+		 return root.freeze();
+	 }
+
+	 /**
+	  * A node of the trie of the reversed country names
+	  */
+	 private static class Node {
+		 private final char[] keys;
+		 private final Node[] children;
+		 /**
+		  * the order of the name that ends here in the popularity order, -1
+		  * if no name ends here
+		  */
+		 private final int rank;
+		 private final String countryCode;
+		 private final String name;
+
+		 private Node(char[] keys, Node[] children, int rank, String countryCode, String name) {
+			 this.keys = keys;
+			 this.children = children;
+			 this.rank = rank;
+			 this.countryCode = countryCode;
+			 this.name = name;
+		 }
+
+		 private Node getChild(char c) {
+			 int low = 0;
+			 int high = keys.length - 1;
+			 while (low <= high) {
+				 int middle = (low + high) >>> 1;
+				 if (keys[middle] < c) {
+					 low = middle + 1;
+				 } else if (keys[middle] > c) {
+					 high = middle - 1;
+				 } else {
+					 return children[middle];
+				 }
+			 }
+			 return null;
+		 }
+	 }
+
+	 private static class BuildNode {
+		 private final TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+		 private int rank = -1;
+		 private String countryCode;
+		 private String name;
+
+		 private Node freeze() {
+			 char[] keys = new char[children.size()];
+			 Node[] frozen = new Node[children.size()];
+			 int i = 0;
+			 for (Entry<Character, BuildNode> child : children.entrySet()) {
+				 keys[i] = child.getKey();
+				 frozen[i] = child.getValue().freeze();
+				 i++;
+			 }
+			 return new Node(keys, frozen, rank, countryCode, name);
+		 }
+	 }
 }
@@ -44,6 +44,14 @@ public class GisHelper {
     private static final String INTERSECTION = "&&";
     private static final String BBOX = "BOX3D";
     
+    /**
+     * The names of the parameters of {@link #makeEnvelope(String)}
+     */
+    public static final String ENVELOPE_MIN_X_PARAMETER = "envelopeMinX";
+    public static final String ENVELOPE_MIN_Y_PARAMETER = "envelopeMinY";
+    public static final String ENVELOPE_MAX_X_PARAMETER = "envelopeMaxX";
+    public static final String ENVELOPE_MAX_Y_PARAMETER = "envelopeMaxY";
+    
     /**
      * The logger
      */
@@ -194,6 +202,69 @@ public class GisHelper {
 
     }
     
+    /**
+     * @param alias the
+     *                sql alias
+     * @return a sql String that represents an envelope whose bounds are the
+     *         named parameters {@link #ENVELOPE_MIN_X_PARAMETER},
+     *         {@link #ENVELOPE_MIN_Y_PARAMETER},
+     *         {@link #ENVELOPE_MAX_X_PARAMETER} and
+     *         {@link #ENVELOPE_MAX_Y_PARAMETER}. The values to bind are given
+     *         by {@link #getEnvelopeBounds(double, double, double)}. Unlike
+     *         {@link #makeEnvelope(String, double, double, double)}, the
+     *         string is the same for all the locations, so the query can be
+     *         parsed and planned once.
+     */
+    public static String makeEnvelope(String alias) {
+	StringBuffer sb = new StringBuffer();
+	sb.append("st_contains(");
+	sb.append("ST_MakeEnvelope(");
+	sb.append(":").append(ENVELOPE_MIN_X_PARAMETER);
+	sb.append(", ");
+	sb.append(":").append(ENVELOPE_MIN_Y_PARAMETER);
+	sb.append(", ");
+	sb.append(":").append(ENVELOPE_MAX_X_PARAMETER);
+	sb.append(", ");
+	sb.append(":").append(ENVELOPE_MAX_Y_PARAMETER);
+	sb.append(", ");
+	sb.append(SRID.WGS84_SRID.getSRID());
+	sb.append(")  ");
+	sb.append(",");
+	sb.append(alias);
+	sb.append(".").append(GisFeature.LOCATION_COLUMN_NAME);
+	sb.append(")=true ");
+
+	return sb.toString();
+    }
+    
+    /**
+     * @param latInDegree
+     *                the latitude in degree
+     * @param longInDegree
+     *                the longitude in degree
+     * @param distance
+     *                the boundingbox distance
+     * @return the bounds of the envelope in degree : minX, minY, maxX, maxY
+     */
+    public static double[] getEnvelopeBounds(double latInDegree, double longInDegree,
+	    double distance) {
+	double lat = Math.toRadians(latInDegree);
+	double lon = Math.toRadians(longInDegree);
+
+	double deltaXInDegrees = Math.abs(
+		Math.asin(
+			Math.sin(distance / Constants.RADIUS_OF_EARTH_IN_METERS)/ Math.cos(lat)
+		)
+	);
+	double deltaYInDegrees = Math.abs(distance
+		/ Constants.RADIUS_OF_EARTH_IN_METERS);
+
+	return new double[] { Math.toDegrees(lon - deltaXInDegrees),
+		Math.toDegrees(lat - deltaYInDegrees),
+		Math.toDegrees(lon + deltaXInDegrees),
+		Math.toDegrees(lat + deltaYInDegrees) };
+    }
+    
    
     
   
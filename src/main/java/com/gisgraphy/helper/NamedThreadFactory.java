@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ThreadFactory} that gives a meaningful name to the threads it
+ * creates (e.g : geocoding-pipeline-3) so that they can be identified in a
+ * thread dump. Threads are daemon by default in order to not prevent the JVM
+ * to shutdown.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+
+    private final boolean daemon;
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    /**
+     * @param prefix
+     *            the prefix of the name of the threads
+     */
+    public NamedThreadFactory(String prefix) {
+	this(prefix, true);
+    }
+
+    /**
+     * @param prefix
+     *            the prefix of the name of the threads
+     * @param daemon
+     *            whether the threads should be daemon
+     */
+    public NamedThreadFactory(String prefix, boolean daemon) {
+	if (prefix == null) {
+	    throw new IllegalArgumentException("the prefix of the thread name can not be null");
+	}
+	this.prefix = prefix;
+	this.daemon = daemon;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    public Thread newThread(Runnable runnable) {
+	Thread thread = new Thread(runnable, prefix + "-" + threadNumber.getAndIncrement());
+	thread.setDaemon(daemon);
+	return thread;
+    }
+
+}
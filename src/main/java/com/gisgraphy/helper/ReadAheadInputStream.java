@@ -0,0 +1,244 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link InputStream} that reads the wrapped stream in a background thread,
+ * a few chunks ahead of the consumer. It is used to decompress the archives
+ * while the importer parses and saves the lines that have already been
+ * decompressed, so that the decompression is not on the critical path of the
+ * import. This class is not thread safe : it is intended to be read by one
+ * thread.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_NUMBER_OF_CHUNKS = 16;
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final InputStream in;
+
+    private final int chunkSize;
+
+    private final BlockingQueue<byte[]> chunks;
+
+    private volatile boolean closed = false;
+
+    private volatile Throwable failure;
+
+    private byte[] current;
+
+    private int position;
+
+    private final Thread reader;
+
+    /**
+     * Read the stream with chunks of {@link #DEFAULT_CHUNK_SIZE} bytes, at
+     * most {@link #DEFAULT_NUMBER_OF_CHUNKS} chunks ahead
+     * 
+     * @param in
+     *            the stream to read
+     * @param name
+     *            the name of the thread that reads the stream
+     */
+    public ReadAheadInputStream(InputStream in, String name) {
+	this(in, name, DEFAULT_CHUNK_SIZE, DEFAULT_NUMBER_OF_CHUNKS);
+    }
+
+    /**
+     * @param in
+     *            the stream to read
+     * @param name
+     *            the name of the thread that reads the stream
+     * @param chunkSize
+     *            the size of the chunks read in the background
+     * @param numberOfChunks
+     *            how many chunks can be read ahead of the consumer
+     */
+    public ReadAheadInputStream(InputStream in, String name, int chunkSize, int numberOfChunks) {
+	if (in == null) {
+	    throw new IllegalArgumentException("the stream to read can not be null");
+	}
+	if (chunkSize < 1 || numberOfChunks < 1) {
+	    throw new IllegalArgumentException("the chunk size and the number of chunks should be at least 1");
+	}
+	this.in = in;
+	this.chunkSize = chunkSize;
+	this.chunks = new ArrayBlockingQueue<byte[]>(numberOfChunks);
+	this.reader = new NamedThreadFactory(name).newThread(new Runnable() {
+	    public void run() {
+		readAhead();
+	    }
+	});
+	this.reader.start();
+    }
+
+    private void readAhead() {
+	try {
+	    while (!closed) {
+		byte[] chunk = new byte[chunkSize];
+		int length = fill(chunk);
+		if (length > 0) {
+		    if (length < chunkSize) {
+			byte[] last = new byte[length];
+			System.arraycopy(chunk, 0, last, 0, length);
+			chunk = last;
+		    }
+		    if (!enqueue(chunk)) {
+			return;
+		    }
+		}
+		if (length < chunkSize) {
+		    break;
+		}
+	    }
+	} catch (InterruptedException e) {
+	    return;
+	} catch (Throwable e) {
+	    //the decompressors can throw runtime exceptions or errors on a
+	    //corrupted archive, they are given back to the consumer
+	    failure = e;
+	} finally {
+	    //always end the stream, otherwise the consumer waits forever
+	    try {
+		enqueue(END_OF_STREAM);
+	    } catch (InterruptedException ignore) {
+	    }
+	}
+    }
+
+    /**
+     * @return the number of bytes read, less than the size of the chunk only
+     *         if the end of the stream has been reached
+     */
+    private int fill(byte[] chunk) throws IOException {
+	int length = 0;
+	while (length < chunk.length) {
+	    int read = in.read(chunk, length, chunk.length - length);
+	    if (read == -1) {
+		break;
+	    }
+	    length += read;
+	}
+	return length;
+    }
+
+    /**
+     * @return false if the stream has been closed before the chunk could be
+     *         queued
+     */
+    private boolean enqueue(byte[] chunk) throws InterruptedException {
+	while (!closed) {
+	    if (chunks.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * @return false if the end of the stream has been reached
+     */
+    private boolean nextChunk() throws IOException {
+	if (current == END_OF_STREAM) {
+	    return false;
+	}
+	if (current != null && position < current.length) {
+	    return true;
+	}
+	if (closed) {
+	    throw new IOException("the stream is closed");
+	}
+	try {
+	    current = chunks.take();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException("interrupted while waiting for the stream to be read");
+	}
+	position = 0;
+	if (current == END_OF_STREAM) {
+	    if (failure != null) {
+		IOException e = new IOException("can not read the stream : " + failure.getMessage());
+		e.initCause(failure);
+		throw e;
+	    }
+	    return false;
+	}
+	return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+	if (!nextChunk()) {
+	    return -1;
+	}
+	return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+	if (len == 0) {
+	    return 0;
+	}
+	if (!nextChunk()) {
+	    return -1;
+	}
+	int length = Math.min(len, current.length - position);
+	System.arraycopy(current, position, b, off, length);
+	position += length;
+	return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+	return current == null || current == END_OF_STREAM ? 0 : current.length - position;
+    }
+
+    /**
+     * Stop the background thread and close the wrapped stream
+     */
+    @Override
+    public void close() throws IOException {
+	if (closed) {
+	    return;
+	}
+	closed = true;
+	reader.interrupt();
+	chunks.clear();
+	in.close();
+    }
+
+}
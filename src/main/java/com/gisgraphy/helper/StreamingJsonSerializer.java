@@ -0,0 +1,555 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.annotation.XmlAccessOrder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorOrder;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+
+import com.gisgraphy.domain.valueobject.Constants;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Write the results dto (geoloc, street search, reverse geocoding) in JSON
+ * directly into the output stream, with the same bytes as the universal
+ * serializer.
+ * <p>
+ * The properties of a class are introspected once and cached, a response only
+ * reads the values and writes them : no intermediate tree nor buffer of the
+ * whole response is created. The properties are resolved like the universal
+ * serializer does, from the JAXB annotations :
+ * <ul>
+ * <li>the {@link XmlAccessorType} tells whether the fields or the public
+ * getters are read, the members annotated with {@link XmlElement},
+ * {@link XmlAttribute} or {@link XmlElementWrapper} are always read and the
+ * {@link XmlTransient} ones never</li>
+ * <li>the names are the ones of those annotations, or the ones of the fields
+ * and of the getters</li>
+ * <li>the properties are written in the order of {@link XmlType#propOrder()},
+ * alphabetically with {@link XmlAccessorOrder}, or else in the order of the
+ * fields (of the superclass first) then of the getters</li>
+ * <li>the null values are written, except the ones of the properties
+ * annotated with a non nillable {@link XmlElement} or
+ * {@link XmlElementWrapper}</li>
+ * <li>the dates are written as timestamps, NaN and infinite numbers as
+ * strings, and the indentation is the one of the jackson pretty printer</li>
+ * </ul>
+ * The geometries are not written.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class StreamingJsonSerializer {
+
+    private static final int MAX_DEPTH = 32;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final String DEFAULT_NAME = "##default";
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final ConcurrentMap<Class<?>, Property[]> properties = new ConcurrentHashMap<Class<?>, Property[]>();
+
+    private boolean enabled = false;
+
+    /**
+     * @param outputStream
+     *                the stream to write in, it is flushed but not closed
+     * @param dto
+     *                the object to serialize
+     * @param indent
+     *                whether the JSON should be indented
+     * @param callback
+     *                the javascript method to wrap the JSON in, or null
+     * @throws IOException
+     *                 if the stream can not be written
+     */
+    public void write(OutputStream outputStream, Object dto, boolean indent, String callback) throws IOException {
+	Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, Constants.CHARSET), BUFFER_SIZE);
+	boolean hasCallback = callback != null && callback.trim().length() != 0;
+	if (hasCallback) {
+	    writer.write(callback.trim());
+	    writer.write('(');
+	}
+	writeValue(writer, dto, indent, 0, 0);
+	if (hasCallback) {
+	    writer.write(");");
+	}
+	writer.flush();
+    }
+
+    /**
+     * @param depth
+     *                the number of enclosing values, to detect the cycles
+     * @param nesting
+     *                the number of enclosing objects, to indent (the arrays
+     *                are written on one line)
+     */
+    private void writeValue(Writer writer, Object value, boolean indent, int depth, int nesting) throws IOException {
+	if (depth > MAX_DEPTH) {
+	    throw new IllegalStateException("can not serialize more than " + MAX_DEPTH + " nested objects, is there a cycle ?");
+	}
+	if (value == null) {
+	    writer.write("null");
+	} else if (value instanceof String || value instanceof Character) {
+	    writeString(writer, value.toString());
+	} else if (value instanceof Double || value instanceof Float) {
+	    double d = ((Number) value).doubleValue();
+	    if (Double.isNaN(d) || Double.isInfinite(d)) {
+		writeString(writer, value.toString());
+	    } else {
+		writer.write(value.toString());
+	    }
+	} else if (value instanceof Number || value instanceof Boolean) {
+	    writer.write(value.toString());
+	} else if (value instanceof Date) {
+	    writer.write(String.valueOf(((Date) value).getTime()));
+	} else if (value instanceof Calendar) {
+	    writer.write(String.valueOf(((Calendar) value).getTimeInMillis()));
+	} else if (value instanceof Enum<?>) {
+	    writeString(writer, getEnumValue((Enum<?>) value));
+	} else if (value instanceof Collection<?>) {
+	    writeArray(writer, ((Collection<?>) value).iterator(), indent, depth, nesting);
+	} else if (value.getClass().isArray()) {
+	    int length = Array.getLength(value);
+	    List<Object> list = new ArrayList<Object>(length);
+	    for (int i = 0; i < length; i++) {
+		list.add(Array.get(value, i));
+	    }
+	    writeArray(writer, list.iterator(), indent, depth, nesting);
+	} else if (value instanceof Map<?, ?>) {
+	    writeMap(writer, (Map<?, ?>) value, indent, depth, nesting);
+	} else if (value.getClass().getName().startsWith("java.")) {
+	    writeString(writer, value.toString());
+	} else {
+	    writeBean(writer, value, indent, depth, nesting);
+	}
+    }
+
+    private void writeBean(Writer writer, Object bean, boolean indent, int depth, int nesting) throws IOException {
+	writer.write('{');
+	int count = 0;
+	for (Property property : getProperties(bean.getClass())) {
+	    Object value = property.get(bean);
+	    if (value == null && !property.writeNull) {
+		continue;
+	    }
+	    writeFieldName(writer, property.name, count++, indent, nesting + 1);
+	    writeValue(writer, value, indent, depth + 1, nesting + 1);
+	}
+	writeObjectEnd(writer, count, indent, nesting);
+    }
+
+    private void writeMap(Writer writer, Map<?, ?> map, boolean indent, int depth, int nesting) throws IOException {
+	writer.write('{');
+	int count = 0;
+	for (Map.Entry<?, ?> entry : map.entrySet()) {
+	    writeFieldName(writer, String.valueOf(entry.getKey()), count++, indent, nesting + 1);
+	    writeValue(writer, entry.getValue(), indent, depth + 1, nesting + 1);
+	}
+	writeObjectEnd(writer, count, indent, nesting);
+    }
+
+    private void writeArray(Writer writer, Iterator<?> iterator, boolean indent, int depth, int nesting) throws IOException {
+	writer.write('[');
+	int count = 0;
+	while (iterator.hasNext()) {
+	    if (count++ > 0) {
+		writer.write(',');
+	    }
+	    if (indent) {
+		writer.write(' ');
+	    }
+	    writeValue(writer, iterator.next(), indent, depth + 1, nesting);
+	}
+	if (indent) {
+	    writer.write(' ');
+	}
+	writer.write(']');
+    }
+
+    private void writeFieldName(Writer writer, String name, int index, boolean indent, int nesting) throws IOException {
+	if (index > 0) {
+	    writer.write(',');
+	}
+	if (indent) {
+	    writeNewLine(writer, nesting);
+	}
+	writeString(writer, name);
+	writer.write(indent ? " : " : ":");
+    }
+
+    private void writeObjectEnd(Writer writer, int count, boolean indent, int nesting) throws IOException {
+	if (indent) {
+	    if (count > 0) {
+		writeNewLine(writer, nesting);
+	    } else {
+		writer.write(' ');
+	    }
+	}
+	writer.write('}');
+    }
+
+    private void writeNewLine(Writer writer, int nesting) throws IOException {
+	writer.write(LINE_SEPARATOR);
+	for (int i = 0; i < nesting; i++) {
+	    writer.write("  ");
+	}
+    }
+
+    static void writeString(Writer writer, String value) throws IOException {
+	writer.write('"');
+	int length = value.length();
+	int start = 0;
+	for (int i = 0; i < length; i++) {
+	    char c = value.charAt(i);
+	    if (c >= 0x20 && c != '"' && c != '\\') {
+		continue;
+	    }
+	    writer.write(value, start, i - start);
+	    start = i + 1;
+	    switch (c) {
+	    case '"':
+		writer.write("\\\"");
+		break;
+	    case '\\':
+		writer.write("\\\\");
+		break;
+	    case '\b':
+		writer.write("\\b");
+		break;
+	    case '\f':
+		writer.write("\\f");
+		break;
+	    case '\n':
+		writer.write("\\n");
+		break;
+	    case '\r':
+		writer.write("\\r");
+		break;
+	    case '\t':
+		writer.write("\\t");
+		break;
+	    default:
+		writer.write("\\u00");
+		writer.write(HEX[(c >> 4) & 0xF]);
+		writer.write(HEX[c & 0xF]);
+	    }
+	}
+	writer.write(value, start, length - start);
+	writer.write('"');
+    }
+
+    private static String getEnumValue(Enum<?> value) {
+	try {
+	    XmlEnumValue enumValue = value.getDeclaringClass().getField(value.name()).getAnnotation(XmlEnumValue.class);
+	    if (enumValue != null) {
+		return enumValue.value();
+	    }
+	} catch (NoSuchFieldException e) {
+	    //can not happen for a constant
+	}
+	return value.name();
+    }
+
+    private static Property[] getProperties(Class<?> clazz) {
+	Property[] cached = properties.get(clazz);
+	if (cached == null) {
+	    cached = introspect(clazz);
+	    properties.putIfAbsent(clazz, cached);
+	}
+	return cached;
+    }
+
+    private static Property[] introspect(Class<?> clazz) {
+	List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+	for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+	    hierarchy.add(0, current);
+	}
+	//the fields of the superclasses first, then the getters of the class first
+	Map<String, Accessors> candidates = new LinkedHashMap<String, Accessors>();
+	for (Class<?> current : hierarchy) {
+	    for (Field field : current.getDeclaredFields()) {
+		int modifiers = field.getModifiers();
+		if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+		    getAccessors(candidates, field.getName()).field = field;
+		}
+	    }
+	}
+	for (int i = hierarchy.size() - 1; i >= 0; i--) {
+	    for (Method method : hierarchy.get(i).getDeclaredMethods()) {
+		String name = getPropertyName(method);
+		if (name != null) {
+		    Accessors accessors = getAccessors(candidates, name);
+		    if (accessors.getter == null) {
+			accessors.getter = method;
+		    }
+		}
+	    }
+	}
+	XmlAccessorType accessorType = findAnnotation(clazz, XmlAccessorType.class);
+	XmlAccessType accessType = accessorType == null ? XmlAccessType.PUBLIC_MEMBER : accessorType.value();
+	XmlAccessorOrder accessorOrder = findAnnotation(clazz, XmlAccessorOrder.class);
+	boolean alphabetical = accessorOrder != null && accessorOrder.value() == XmlAccessOrder.ALPHABETICAL;
+	Map<String, Property> byName = alphabetical ? new TreeMap<String, Property>() : new LinkedHashMap<String, Property>();
+	Map<String, String> names = new LinkedHashMap<String, String>();
+	for (Map.Entry<String, Accessors> candidate : candidates.entrySet()) {
+	    Accessors accessors = candidate.getValue();
+	    if (isAnnotated(accessors.field, XmlTransient.class) || isAnnotated(accessors.getter, XmlTransient.class)) {
+		continue;
+	    }
+	    Field field = isVisible(accessors.field, accessType) ? accessors.field : null;
+	    Method getter = isVisible(accessors.getter, accessType) ? accessors.getter : null;
+	    if (field == null && getter == null) {
+		continue;
+	    }
+	    Class<?> type = getter != null ? getter.getReturnType() : field.getType();
+	    if (Geometry.class.isAssignableFrom(type)) {
+		continue;
+	    }
+	    //the getter is read rather than the field, the annotations of both are used
+	    AccessibleObject accessor = getter != null ? getter : field;
+	    accessor.setAccessible(true);
+	    String name = findName(accessors.field, accessors.getter, candidate.getKey());
+	    byName.put(name, new Property(name, accessor, isNillable(getter, field)));
+	    names.put(candidate.getKey(), name);
+	}
+	Map<String, Property> ordered = new LinkedHashMap<String, Property>();
+	XmlType xmlType = findAnnotation(clazz, XmlType.class);
+	if (xmlType != null) {
+	    for (String propertyName : xmlType.propOrder()) {
+		String name = byName.containsKey(propertyName) ? propertyName : names.get(propertyName);
+		if (name != null && byName.containsKey(name)) {
+		    ordered.put(name, byName.get(name));
+		}
+	    }
+	}
+	for (Map.Entry<String, Property> entry : byName.entrySet()) {
+	    if (!ordered.containsKey(entry.getKey())) {
+		ordered.put(entry.getKey(), entry.getValue());
+	    }
+	}
+	return ordered.values().toArray(new Property[ordered.size()]);
+    }
+
+    private static Accessors getAccessors(Map<String, Accessors> candidates, String name) {
+	Accessors accessors = candidates.get(name);
+	if (accessors == null) {
+	    accessors = new Accessors();
+	    candidates.put(name, accessors);
+	}
+	return accessors;
+    }
+
+    /**
+     * @return the name of the property read by the getter (the leading upper
+     *         case letters are lowered) or null if it is not a getter
+     */
+    private static String getPropertyName(Method method) {
+	if (Modifier.isStatic(method.getModifiers()) || method.isSynthetic() || method.getParameterTypes().length != 0) {
+	    return null;
+	}
+	Class<?> type = method.getReturnType();
+	String name = method.getName();
+	String baseName;
+	if (name.startsWith("get") && type != Void.TYPE) {
+	    baseName = name.substring(3);
+	} else if (name.startsWith("is") && (type == Boolean.TYPE || type == Boolean.class)) {
+	    baseName = name.substring(2);
+	} else {
+	    return null;
+	}
+	if (baseName.length() == 0) {
+	    return null;
+	}
+	StringBuilder sb = new StringBuilder(baseName);
+	for (int i = 0; i < sb.length(); i++) {
+	    char c = sb.charAt(i);
+	    char lower = Character.toLowerCase(c);
+	    if (c == lower) {
+		break;
+	    }
+	    sb.setCharAt(i, lower);
+	}
+	return sb.toString();
+    }
+
+    private static boolean isVisible(Member member, XmlAccessType accessType) {
+	if (member == null) {
+	    return false;
+	}
+	AccessibleObject accessor = (AccessibleObject) member;
+	if (isAnnotated(accessor, XmlElement.class) || isAnnotated(accessor, XmlAttribute.class) || isAnnotated(accessor, XmlElementWrapper.class)
+		|| isAnnotated(accessor, XmlElementRef.class)) {
+	    return true;
+	}
+	boolean isPublic = Modifier.isPublic(member.getModifiers());
+	if (member instanceof Field) {
+	    return accessType == XmlAccessType.FIELD || (accessType == XmlAccessType.PUBLIC_MEMBER && isPublic);
+	}
+	return (accessType == XmlAccessType.PROPERTY || accessType == XmlAccessType.PUBLIC_MEMBER) && isPublic;
+    }
+
+    private static String findName(Field field, Method getter, String defaultName) {
+	AccessibleObject[] accessors = new AccessibleObject[] { field, getter };
+	for (AccessibleObject accessor : accessors) {
+	    if (accessor == null) {
+		continue;
+	    }
+	    String name = null;
+	    XmlElementWrapper wrapper = accessor.getAnnotation(XmlElementWrapper.class);
+	    XmlAttribute attribute = accessor.getAnnotation(XmlAttribute.class);
+	    XmlElement element = accessor.getAnnotation(XmlElement.class);
+	    if (wrapper != null) {
+		name = wrapper.name();
+	    } else if (attribute != null) {
+		name = attribute.name();
+	    } else if (element != null) {
+		name = element.name();
+	    }
+	    if (name != null && !DEFAULT_NAME.equals(name)) {
+		return name;
+	    }
+	}
+	return defaultName;
+    }
+
+    private static boolean isNillable(Method getter, Field field) {
+	AccessibleObject[] accessors = new AccessibleObject[] { getter, field };
+	for (AccessibleObject accessor : accessors) {
+	    if (accessor == null) {
+		continue;
+	    }
+	    XmlElementWrapper wrapper = accessor.getAnnotation(XmlElementWrapper.class);
+	    if (wrapper != null) {
+		return wrapper.nillable();
+	    }
+	    XmlElement element = accessor.getAnnotation(XmlElement.class);
+	    if (element != null) {
+		return element.nillable();
+	    }
+	}
+	return true;
+    }
+
+    private static boolean isAnnotated(AccessibleObject accessor, Class<? extends Annotation> annotationClass) {
+	return accessor != null && accessor.isAnnotationPresent(annotationClass);
+    }
+
+    /**
+     * @return the annotation of the class, of its superclasses or of its
+     *         package, or null
+     */
+    private static <T extends Annotation> T findAnnotation(Class<?> clazz, Class<T> annotationClass) {
+	for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+	    T annotation = current.getAnnotation(annotationClass);
+	    if (annotation == null && current.getPackage() != null) {
+		annotation = current.getPackage().getAnnotation(annotationClass);
+	    }
+	    if (annotation != null) {
+		return annotation;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * @return true if the JSON should be written with this serializer rather
+     *         than with the universal one
+     */
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+    /**
+     * @param enabled
+     *                whether the JSON should be written with this serializer
+     *                rather than with the universal one
+     */
+    public void setEnabled(boolean enabled) {
+	this.enabled = enabled;
+    }
+
+    private static class Accessors {
+	private Field field;
+	private Method getter;
+    }
+
+    private static class Property {
+	private final String name;
+	private final AccessibleObject accessor;
+	private final boolean writeNull;
+
+	private Property(String name, AccessibleObject accessor, boolean writeNull) {
+	    this.name = name;
+	    this.accessor = accessor;
+	    this.writeNull = writeNull;
+	}
+
+	private Object get(Object bean) {
+	    try {
+		if (accessor instanceof Method) {
+		    return ((Method) accessor).invoke(bean);
+		}
+		return ((Field) accessor).get(bean);
+	    } catch (Exception e) {
+		throw new IllegalStateException("can not read " + name + " of " + bean.getClass().getName() + " : " + e.getMessage(), e);
+	    }
+	}
+    }
+
+}
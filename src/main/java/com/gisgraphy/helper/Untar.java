@@ -66,6 +66,19 @@ public class Untar {
 
     private InputStream getDecompressedInputStream(final String name, final InputStream istream) throws IOException {
 	logger.info("untar: decompress " + name + " to " + dest);
+	return decompress(name, istream);
+    }
+
+    /**
+     * @param name
+     *            the name of the archive, its extension determines the
+     *            compression
+     * @param istream
+     *            the compressed stream of the archive
+     * @return the decompressed stream of the tar archive
+     * @throws IOException
+     */
+    public static InputStream decompress(final String name, final InputStream istream) throws IOException {
 	if (name == null) {
 	    throw new RuntimeException("fileName to decompress can not be null");
 	}
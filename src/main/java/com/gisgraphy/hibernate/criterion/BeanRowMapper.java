@@ -0,0 +1,185 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.hibernate.criterion;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.property.BasicPropertyAccessor;
+import org.hibernate.property.ChainedPropertyAccessor;
+import org.hibernate.property.DirectPropertyAccessor;
+import org.hibernate.property.PropertyAccessor;
+import org.hibernate.property.Setter;
+
+import com.gisgraphy.helper.IntrospectionHelper;
+
+/**
+ * Map the rows of a projection to beans, like the hibernate
+ * {@link org.hibernate.transform.AliasToBeanResultTransformer}, but the
+ * setters are resolved once per bean class and list of aliases, and the
+ * mappers are cached : a query only instantiates the beans and calls the
+ * setters.
+ * <p>
+ * The setters are looked up like the hibernate transformer does : the
+ * property setter and then the field. The mappers are immutable and thread
+ * safe.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class BeanRowMapper<T> {
+
+    private static final PropertyAccessor PROPERTY_ACCESSOR = new ChainedPropertyAccessor(new PropertyAccessor[] {
+	    new BasicPropertyAccessor(), new DirectPropertyAccessor() });
+
+    private static final ConcurrentMap<List<Object>, BeanRowMapper<?>> mappers = new ConcurrentHashMap<List<Object>, BeanRowMapper<?>>();
+
+    private final Constructor<T> constructor;
+
+    private final List<String> fieldList;
+
+    private final String[] aliases;
+
+    private final Setter[] setters;
+
+    private BeanRowMapper(Class<T> beanClass, List<String> fieldList, String[] aliases) {
+	try {
+	    this.constructor = beanClass.getDeclaredConstructor();
+	    this.constructor.setAccessible(true);
+	} catch (NoSuchMethodException e) {
+	    throw new IllegalArgumentException(beanClass.getName() + " has no default constructor");
+	}
+	this.fieldList = Collections.unmodifiableList(fieldList);
+	this.aliases = aliases;
+	this.setters = new Setter[aliases.length];
+	for (int i = 0; i < aliases.length; i++) {
+	    if (aliases[i] != null) {
+		setters[i] = PROPERTY_ACCESSOR.getSetter(beanClass, aliases[i]);
+	    }
+	}
+    }
+
+    /**
+     * @param beanClass
+     *                the class of the beans to create
+     * @param projectedClass
+     *                the class whose fields (as given by
+     *                {@link IntrospectionHelper#getFieldsAsList(Class)}) are
+     *                projected
+     * @param extraAliases
+     *                the aliases of the projections added after the fields
+     *                (e.g : 'distance')
+     * @return the cached mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> forProjection(Class<T> beanClass, Class<?> projectedClass, String... extraAliases) {
+	List<Object> key = new ArrayList<Object>(extraAliases.length + 2);
+	key.add(beanClass);
+	key.add(projectedClass);
+	key.addAll(Arrays.asList(extraAliases));
+	BeanRowMapper<T> mapper = (BeanRowMapper<T>) mappers.get(key);
+	if (mapper == null) {
+	    List<String> fieldList = IntrospectionHelper.getFieldsAsList(projectedClass);
+	    String[] aliases = new String[fieldList.size() + extraAliases.length];
+	    fieldList.toArray(aliases);
+	    System.arraycopy(extraAliases, 0, aliases, fieldList.size(), extraAliases.length);
+	    mapper = new BeanRowMapper<T>(beanClass, new ArrayList<String>(fieldList), aliases);
+	    mappers.putIfAbsent(key, mapper);
+	}
+	return mapper;
+    }
+
+    /**
+     * @param beanClass
+     *                the class of the beans to create
+     * @param aliases
+     *                the aliases of the columns of the rows
+     * @return the cached mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> forAliases(Class<T> beanClass, String[] aliases) {
+	List<Object> key = new ArrayList<Object>(aliases.length + 1);
+	key.add(beanClass);
+	key.addAll(Arrays.asList(aliases));
+	BeanRowMapper<T> mapper = (BeanRowMapper<T>) mappers.get(key);
+	if (mapper == null) {
+	    mapper = new BeanRowMapper<T>(beanClass, Arrays.asList(aliases), aliases.clone());
+	    mappers.putIfAbsent(key, mapper);
+	}
+	return mapper;
+    }
+
+    /**
+     * @param row
+     *                a row whose columns are in the order of the aliases
+     * @return a new bean filled with the values of the row
+     */
+    public T map(Object[] row) {
+	T bean;
+	try {
+	    bean = constructor.newInstance();
+	} catch (Exception e) {
+	    throw new RuntimeException("can not instantiate " + constructor.getDeclaringClass().getName() + " : " + e.getMessage(), e);
+	}
+	for (int i = 0; i < setters.length; i++) {
+	    if (setters[i] != null) {
+		setters[i].set(bean, row[i], null);
+	    }
+	}
+	return bean;
+    }
+
+    /**
+     * @return the projected fields, without the extra aliases
+     */
+    public List<String> getFieldList() {
+	return fieldList;
+    }
+
+    /**
+     * @return the aliases of the columns, in the order of the rows. The array
+     *         must not be modified
+     */
+    public String[] getAliases() {
+	return aliases;
+    }
+
+    /**
+     * @param alias
+     *                an alias
+     * @return the index of the column of the alias, or -1
+     */
+    public int indexOf(String alias) {
+	for (int i = 0; i < aliases.length; i++) {
+	    if (alias.equals(aliases[i])) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+}
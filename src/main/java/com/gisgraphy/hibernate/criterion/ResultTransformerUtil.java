@@ -12,14 +12,12 @@
 package com.gisgraphy.hibernate.criterion;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.hibernate.transform.AliasToBeanResultTransformer;
-import org.hibernate.transform.ResultTransformer;
-
 import com.gisgraphy.domain.valueobject.GisFeatureDistance;
 import com.gisgraphy.domain.valueobject.GisFeatureDistanceFactory;
 import com.gisgraphy.domain.valueobject.StreetDistance;
@@ -46,17 +44,38 @@ public class ResultTransformerUtil<T> {
 	 */
 	//TODO tests zip test
 	public static List<GisFeatureDistance> transformToGisFeatureDistance(String aliasList[], List<?> resultList, Map<Long, Set<String>> featureIdToZipCodesMap,Class clazz) {
-		List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>();
-		if (aliasList != null && !resultList.isEmpty()) {
-			ResultTransformer tr = new AliasToBeanResultTransformer(GisFeatureDistance.class);
+		if (aliasList == null) {
+		    return new ArrayList<GisFeatureDistance>();
+		}
+		return transformToGisFeatureDistance(BeanRowMapper.forAliases(GisFeatureDistance.class, aliasList), resultList, featureIdToZipCodesMap, clazz);
+	}
+
+	/**
+	 * Transform the rows to {@link GisFeatureDistance} with a cached mapper.
+	 * The rows equal to one that has already been transformed are ignored
+	 * (see {@link GisFeatureDistance#equals(Object)}), they are found with a
+	 * set instead of a search in the results.
+	 * 
+	 * @param mapper
+	 *                the mapper of the rows, see
+	 *                {@link BeanRowMapper#forProjection(Class, Class, String...)}
+	 * @param resultList
+	 *                the result list
+	 * 
+	 * @return the list of GisFeatureDistance
+	 */
+	public static List<GisFeatureDistance> transformToGisFeatureDistance(BeanRowMapper<GisFeatureDistance> mapper, List<?> resultList, Map<Long, Set<String>> featureIdToZipCodesMap,Class clazz) {
+		List<GisFeatureDistance> results = new ArrayList<GisFeatureDistance>(resultList.size());
+		Set<GisFeatureDistance> alreadyTransformed = new HashSet<GisFeatureDistance>(resultList.size() * 2);
+		if (!resultList.isEmpty()) {
 			Iterator<?> it = resultList.iterator();
 			Object[] obj;
 			GisFeatureDistance gisFeatureDistance;
 			while (it.hasNext()) {
 				obj = (Object[]) it.next();
-				gisFeatureDistance = (GisFeatureDistance) tr.transformTuple(obj, aliasList);
-				int indexInList = results.indexOf(gisFeatureDistance);
-				if (indexInList == -1) {
+				gisFeatureDistance = mapper.map(obj);
+				//the hash is computed before updateFields, like the one of the next rows
+				if (alreadyTransformed.add(gisFeatureDistance)) {
 				    gisFeatureDistanceFactory.updateFields(gisFeatureDistance,clazz);
 					results.add(gisFeatureDistance);
 					if (featureIdToZipCodesMap != null){
@@ -81,14 +100,31 @@ public class ResultTransformerUtil<T> {
 	 * @return the list of {@link StreetDistance}
 	 */
 	public static List<StreetDistance> transformToStreetDistance(String aliasList[], List<?> resultList) {
-		List<StreetDistance> transformList = new ArrayList<StreetDistance>();
-		if (aliasList != null && !resultList.isEmpty()) {
-			AliasToBeanResultTransformer tr = new AliasToBeanResultTransformer(StreetDistance.class);
+		if (aliasList == null) {
+		    return new ArrayList<StreetDistance>();
+		}
+		return transformToStreetDistance(BeanRowMapper.forAliases(StreetDistance.class, aliasList), resultList);
+	}
+
+	/**
+	 * Transform the rows to {@link StreetDistance} with a cached mapper.
+	 * 
+	 * @param mapper
+	 *                the mapper of the rows, see
+	 *                {@link BeanRowMapper#forProjection(Class, Class, String...)}
+	 * @param resultList
+	 *                the result list
+	 * 
+	 * @return the list of {@link StreetDistance}
+	 */
+	public static List<StreetDistance> transformToStreetDistance(BeanRowMapper<StreetDistance> mapper, List<?> resultList) {
+		List<StreetDistance> transformList = new ArrayList<StreetDistance>(resultList.size());
+		if (!resultList.isEmpty()) {
 			Iterator<?> it = resultList.iterator();
 			Object[] obj;
 			while (it.hasNext()) {
 				obj = (Object[]) it.next();
-				StreetDistance streetDistance = (StreetDistance) tr.transformTuple(obj, aliasList);
+				StreetDistance streetDistance = mapper.map(obj);
 				streetDistance.updateFields();
 				transformList.add(streetDistance);
 			}
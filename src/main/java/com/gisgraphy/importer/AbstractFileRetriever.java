@@ -30,6 +30,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +42,7 @@ import org.springframework.beans.factory.annotation.Required;
 
 import com.gisgraphy.domain.valueobject.ImporterStatus;
 import com.gisgraphy.domain.valueobject.NameValueDTO;
+import com.gisgraphy.helper.NamedThreadFactory;
 import com.gisgraphy.service.IInternationalisationService;
 
 /**
@@ -63,6 +68,8 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
     protected String statusMessage = "";
     
     private long fileSizeToDownloadCached =0;
+
+    private ChunkedDownloader downloader;
     
     
     /**
@@ -89,8 +96,12 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
 		    logger
 			.info("DownloadFiles option is set to false, we won't download but decompress files");
 		}
-		statusMessage = internationalisationService.getString("import.extract.info");
-		decompressFiles();
+		if (importerConfig.isStreamingImportEnabled() && isStreamable()) {
+		    logger.info("StreamingImport option is set to true, we won't decompress files, they will be read directly by the importer");
+		} else {
+		    statusMessage = internationalisationService.getString("import.extract.info");
+		    decompressFiles();
+		}
 		this.status = ImporterStatus.PROCESSED ;
 	    } else {
 		this.status = ImporterStatus.SKIPPED;
@@ -110,6 +121,11 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
     protected void downloadFiles() {
 	List<String> downloadFileList = getFilesToDownload();
 	this.numberOfFileToDownload = downloadFileList.size();
+	int downloadThreads = importerConfig.getDownloadThreads();
+	if (downloadThreads > 1 && downloadFileList.size() > 1) {
+	    downloadFilesInParallel(downloadFileList, downloadThreads);
+	    return;
+	}
 	for (String file : downloadFileList) {
 	    this.fileIndex++;
 	    this.currentFileName = file;
@@ -126,10 +142,77 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
 	}
     }
 
+    /**
+     * Download several files at the same time. The first error is thrown once
+     * all the downloads are done, the other files are not downloaded
+     * 
+     * @param downloadThreads
+     *            the number of files that are downloaded at the same time
+     */
+    private void downloadFilesInParallel(List<String> downloadFileList, int downloadThreads) {
+	logger.info("will download " + downloadFileList.size() + " files, " + downloadThreads + " at the same time");
+	final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	ExecutorService executor = Executors.newFixedThreadPool(downloadThreads, new NamedThreadFactory(getClass().getSimpleName()));
+	try {
+	    for (final String file : downloadFileList) {
+		executor.execute(new Runnable() {
+		    public void run() {
+			if (failure.get() != null) {
+			    return;
+			}
+			synchronized (AbstractFileRetriever.this) {
+			    fileIndex++;
+			    currentFileName = file;
+			}
+			try {
+			    downloadFile(file);
+			} catch (FileNotFoundException e) {
+			    if (isFileNotFoundTolerant()) {
+				logger.error(getDownloadBaseUrl() + file + " can not be downloaded");
+			    } else {
+				failure.compareAndSet(null, new RuntimeException(e));
+			    }
+			} catch (Throwable e) {
+			    //an Error too, otherwise the other files would still be downloaded
+			    failure.compareAndSet(null, e);
+			}
+		    }
+		});
+	    }
+	    executor.shutdown();
+	    while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+		// wait for the downloads
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new ImporterException("the download has been interrupted", e);
+	} finally {
+	    executor.shutdownNow();
+	}
+	Throwable e = failure.get();
+	if (e instanceof RuntimeException) {
+	    throw (RuntimeException) e;
+	} else if (e != null) {
+	    throw new ImporterException("the download of the files has failed : " + e.getMessage(), e);
+	}
+    }
+
     protected void downloadFile(String file) throws FileNotFoundException {
-	ImporterHelper.download(getDownloadBaseUrl()
+	getDownloader().download(getDownloadBaseUrl()
 	    + file, getDownloadDirectory() + file);
     }
+
+    /**
+     * @return the downloader configured with the {@link ImporterConfig}
+     *         options, it is shared by all the files of the retriever
+     */
+    protected synchronized ChunkedDownloader getDownloader() {
+	if (downloader == null) {
+	    downloader = new ChunkedDownloader(importerConfig.getDownloadChunkSize(), importerConfig.getDownloadConnectionsPerFile(), importerConfig
+		    .isDownloadChecksumEnabled());
+	}
+	return downloader;
+    }
     
     /**
      * @return false if download files that doesn't exists on the remote server
@@ -137,6 +220,15 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
      */
     public abstract boolean isFileNotFoundTolerant();
 
+    /**
+     * @return true if the importer of the downloaded files can read them
+     *         without extracting them (see
+     *         {@link ImporterConfig#isStreamingImportEnabled()})
+     */
+    public boolean isStreamable() {
+	return false;
+    }
+
     /**
      * @return A list of file to be download
      */
@@ -193,6 +285,13 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
 	if (ImporterStatus.SKIPPED.equals(status) || ImporterStatus.WAITING.equals(status)){
 	    return 0;
 	}
+	synchronized (this) {
+	    if (downloader != null) {
+		// the files are preallocated, so their size doesn't give the
+		// progress of the download
+		return downloader.getDownloadedBytes();
+	    }
+	}
 	List<String> downloadedFiles;
 	try {
 	    downloadedFiles = getFilesToDownload();
@@ -275,6 +374,9 @@ public abstract class AbstractFileRetriever implements IImporterProcessor {
     }
 
     public void resetStatus() {
+	synchronized (this) {
+	    downloader = null;
+	}
 	currentFileName = null;
 	status = ImporterStatus.WAITING;
 	fileIndex = 0;
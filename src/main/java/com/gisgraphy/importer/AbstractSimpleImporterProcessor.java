@@ -34,7 +34,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
-
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +62,9 @@ import org.springframework.transaction.support.DefaultTransactionDefinition;
 import com.gisgraphy.domain.repository.GisFeatureDao;
 import com.gisgraphy.domain.valueobject.Constants;
 import com.gisgraphy.domain.valueobject.ImporterStatus;
+import com.gisgraphy.helper.NamedThreadFactory;
+import com.gisgraphy.helper.ReadAheadInputStream;
+import com.gisgraphy.helper.Untar;
 import com.gisgraphy.service.IInternationalisationService;
 
 /**
@@ -57,8 +74,9 @@ import com.gisgraphy.service.IInternationalisationService;
  * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
  */
 public abstract class AbstractSimpleImporterProcessor implements IImporterProcessor {
-    protected int totalReadLine = 0;
-    protected int readFileLine = 0;
+    //volatile because they are updated by the workers in parallel mode and read by the status page
+    protected volatile int totalReadLine = 0;
+    protected volatile int readFileLine = 0;
     protected String statusMessage = "";
 
     protected ImporterStatus status = ImporterStatus.WAITING;
@@ -71,6 +89,24 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      */
     int numberOfLinesToProcess = 0;
 
+    /**
+     * The size of the archives to read, when the import is done in streaming
+     * mode
+     * 
+     * @see #isStreamingImport()
+     */
+    long numberOfBytesToProcess = 0;
+
+    /**
+     * The compressed bytes of the archives that have been entirely read
+     */
+    private volatile long readArchivesBytes = 0;
+
+    /**
+     * Count the compressed bytes read of the current archive
+     */
+    private volatile CountingInputStream archiveCounter;
+
     /**
      * This fields is use to generate unique featureid when importing features
      * because we don't know yet the featureId and this field is required. it
@@ -188,6 +224,32 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      */
     protected abstract File[] getFiles();
 
+    /**
+     * Template method that can be override by the importers whose files are
+     * downloaded as tar archives. The entries of the archives are then read
+     * directly, without being extracted to disk, if
+     * {@link ImporterConfig#isStreamingImportEnabled()} is true.
+     * 
+     * @return the archives to read, or null if the importer doesn't support
+     *         the streaming import
+     * @see ImporterHelper#listTarFiles(String)
+     */
+    protected File[] getArchives() {
+	return null;
+    }
+
+    /**
+     * @return true if the lines are read directly from the archives
+     * @see #getArchives()
+     */
+    protected boolean isStreamingImport() {
+	if (importerConfig == null || !importerConfig.isStreamingImportEnabled()) {
+	    return false;
+	}
+	File[] archives = getArchives();
+	return archives != null && archives.length > 0;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -229,36 +291,7 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 		if (this.shouldIgnoreFirstLine() && !hasConsumedFirstLine) {
 		    hasConsumedFirstLine = true;
 		} else {
-		    try {
-			this.processData(input);
-		    } catch (MissingRequiredFieldException mrfe) {
-			if (this.importerConfig.isMissingRequiredFieldThrows()) {
-			    logger.error("A requrired field is missing "
-				    + mrfe.getMessage());
-			    throw new ImporterException(
-				    "A requrired field is missing "
-					    + mrfe.getMessage(), mrfe);
-			} else {
-			    logger.warn(mrfe.getMessage());
-			}
-		    } catch (WrongNumberOfFieldsException wnofe) {
-			if (this.importerConfig.isWrongNumberOfFieldsThrows()) {
-			    logger
-				    .error("wrong number of fields during import "
-					    + wnofe.getMessage());
-			    throw new ImporterException(
-				    "Wrong number of fields during import "
-					    + wnofe.getMessage(), wnofe);
-			} else {
-			    logger.warn(wnofe.getMessage());
-			}
-		    } catch (Exception e) {
-			String message= "An Error occurred on Line "
-				+ readFileLine + " for " + input + " : "
-				+ e.getMessage();
-			throw new ImporterException(
-				message, e);
-		    }
+		    processLine(input, readFileLine);
 		}
 	    }
 
@@ -268,6 +301,51 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	return readFileLine;
     }
 
+    /**
+     * Call {@link #processData(String)} and handle the errors according to
+     * the {@link ImporterConfig} options
+     * 
+     * @param input
+     *                the line to process
+     * @param lineNumber
+     *                the number of the line in the current file, used in the
+     *                error messages
+     * @throws ImporterException
+     *                 if an error occurred and it should stop the import
+     */
+    private void processLine(String input, int lineNumber) throws ImporterException {
+	try {
+	    this.processData(input);
+	} catch (MissingRequiredFieldException mrfe) {
+	    if (this.importerConfig.isMissingRequiredFieldThrows()) {
+		logger.error("A requrired field is missing "
+			+ mrfe.getMessage());
+		throw new ImporterException(
+			"A requrired field is missing "
+				+ mrfe.getMessage(), mrfe);
+	    } else {
+		logger.warn(mrfe.getMessage());
+	    }
+	} catch (WrongNumberOfFieldsException wnofe) {
+	    if (this.importerConfig.isWrongNumberOfFieldsThrows()) {
+		logger
+			.error("wrong number of fields during import "
+				+ wnofe.getMessage());
+		throw new ImporterException(
+			"Wrong number of fields during import "
+				+ wnofe.getMessage(), wnofe);
+	    } else {
+		logger.warn(wnofe.getMessage());
+	    }
+	} catch (Exception e) {
+	    String message= "An Error occurred on Line "
+		    + lineNumber + " for " + input + " : "
+		    + e.getMessage();
+	    throw new ImporterException(
+		    message, e);
+	}
+    }
+
     /**
      * Process a read line of the geonames file, must be implemented by the
      * concrete class
@@ -290,6 +368,10 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	    this.status = ImporterStatus.PROCESSING;
 	    this.getNumberOfLinesToProcess();
 	    setup();
+	    if (isStreamingImport()) {
+		processArchives(getArchives());
+		return;
+	    }
 	    this.filesToProcess = getFiles();
 	    if (this.filesToProcess.length == 0) {
 	    	logger.info("there is 0 file to process for "
@@ -362,7 +444,61 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	}
     }
 
+    /**
+     * Read the lines of the country files of the archives without extracting
+     * them. The archives are decompressed in a background thread, while the
+     * lines that have already been decompressed are processed
+     */
+    private void processArchives(File[] archives) throws IOException {
+	readArchivesBytes = 0;
+	for (int i = 0; i < archives.length; i++) {
+	    File archive = archives[i];
+	    logger.info("will stream " + archive.getName());
+	    TarInputStream tarInputStream = openArchive(archive);
+	    try {
+		TarEntry entry;
+		while ((entry = tarInputStream.getNextEntry()) != null) {
+		    if (entry.isDirectory() || !ImporterHelper.isCountryFileName(new File(entry.getName()).getName())) {
+			logger.info("the entry " + entry.getName() + " of " + archive.getName() + " will not be imported");
+			continue;
+		    }
+		    currentFile = new File(archive.getParentFile(), entry.getName());
+		    this.endOfDocument = false;
+		    //the reader is not closed after each entry because it would close the archive
+		    this.in = new BufferedReader(new InputStreamReader(tarInputStream, Constants.CHARSET));
+		    processFile();
+		}
+	    } finally {
+		archiveCounter = null;
+		readArchivesBytes += archive.length();
+		tarInputStream.close();
+	    }
+	    currentFile = archive;
+	    onFileProcessed(archive);
+	}
+    }
+
+    private TarInputStream openArchive(File archive) throws IOException {
+	CountingInputStream counter = new CountingInputStream(new FileInputStream(archive));
+	try {
+	    InputStream decompressed = Untar.decompress(archive.getName(), new BufferedInputStream(counter));
+	    archiveCounter = counter;
+	    return new TarInputStream(new ReadAheadInputStream(decompressed, getClass().getSimpleName() + "-decompression"));
+	} catch (IOException e) {
+	    counter.close();
+	    throw e;
+	} catch (RuntimeException e) {
+	    counter.close();
+	    throw e;
+	}
+    }
+
     private void processFile() throws ImporterException {
+	int numberOfWorkers = getNumberOfWorkers();
+	if (numberOfWorkers > 1) {
+	    processFileInParallel(numberOfWorkers);
+	    return;
+	}
 	try {
 	    hasConsumedFirstLine = false;
 	    readFileLine = 0;
@@ -401,13 +537,379 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	}
     }
 
-    protected int incrementReadedFileLine(int increment) {
+    /**
+     * The maximum number of lines that wait in the batches of the partitions,
+     * by worker and in number of batches
+     */
+    private static final int MAX_PENDING_BATCHES_BY_WORKER = 8;
+
+    /**
+     * A batch is only sent before it is full if it has at least batch size /
+     * MIN_EARLY_BATCH_DIVISOR lines, a smaller batch would cost a transaction
+     * for a few lines
+     */
+    static final int MIN_EARLY_BATCH_DIVISOR = 4;
+
+    /**
+     * How often (in milliseconds) the reader checks for a failure of the
+     * workers while it waits to send a batch
+     */
+    private static final long FAILURE_CHECK_INTERVAL = 1000;
+
+    /**
+     * Process the current file with one thread that reads the lines and
+     * several workers that process them. The lines are sent to the workers by
+     * batch of {@link #getMaxInsertsBeforeFlush()} lines, each batch is
+     * processed in its own transaction (and so its own Hibernate session) and
+     * committed independently. If a batch fails, the other workers stop
+     * after their current batch and the error is thrown once they are all
+     * done.<br/>
+     * If the importer partitions the lines (see {@link #getPartition(String)}),
+     * each batch only contains lines of the same partition. The lines wait in
+     * one batch by partition until the batch is full, or until there are too
+     * many waiting lines : the biggest batch is then sent if it is not too
+     * small (see {@link #MIN_EARLY_BATCH_DIVISOR}). If all the batches are
+     * small, the lines wait until one of them is big enough, or until there
+     * are twice too many waiting lines.
+     * 
+     * @param numberOfWorkers
+     *                the number of threads that process the lines
+     * @see #isParallelizable()
+     */
+    private void processFileInParallel(int numberOfWorkers) throws ImporterException {
+	hasConsumedFirstLine = false;
+	readFileLine = 0;
+	logger.info("will process " + getCurrentFileName() + " with " + numberOfWorkers + " workers");
+	int batchSize = Math.max(1, getMaxInsertsBeforeFlush());
+	BlockingQueue<LineBatch> batches = new ArrayBlockingQueue<LineBatch>(numberOfWorkers * 2);
+	AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	ExecutorService workers = Executors.newFixedThreadPool(numberOfWorkers, new NamedThreadFactory(getClass().getSimpleName()));
+	try {
+	    for (int i = 0; i < numberOfWorkers; i++) {
+		workers.execute(new ImportWorker(batches, failure));
+	    }
+	    PendingBatches pendingBatches = new PendingBatches(batchSize, batchSize * numberOfWorkers * MAX_PENDING_BATCHES_BY_WORKER);
+	    String input;
+	    while (failure.get() == null && (input = readLineOrFail()) != null) {
+		readFileLine++;
+		if (!isNotComment(input)) {
+		    incrementReadedFileLine(1);
+		} else if (this.shouldIgnoreFirstLine() && !hasConsumedFirstLine) {
+		    hasConsumedFirstLine = true;
+		    incrementReadedFileLine(1);
+		} else {
+		    LineBatch batch = pendingBatches.add(getPartition(input), input, readFileLine);
+		    if (batch != null) {
+			sendBatch(batches, batch, failure);
+		    }
+		}
+	    }
+	    for (LineBatch batch : pendingBatches.removeAll()) {
+		if (!sendBatch(batches, batch, failure)) {
+		    break;
+		}
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    failure.compareAndSet(null, e);
+	} catch (Exception e) {
+	    failure.compareAndSet(null, e);
+	} finally {
+	    endOfDocument = true;
+	    stopWorkers(workers, batches, numberOfWorkers, failure);
+	}
+	Throwable e = failure.get();
+	if (e != null) {
+	    throw new ImporterException(
+		    "An error occurred when processing "
+			    + getCurrentFileName() + " : " + e.getMessage(), e.getCause() != null ? e.getCause() : e);
+	}
+    }
+
+    private String readLineOrFail() throws ImporterException {
+	try {
+	    return this.in.readLine();
+	} catch (IOException e) {
+	    throw new ImporterException("can not read line ", e);
+	}
+    }
+
+    /**
+     * Wait until the batch can be sent to the workers or until a worker fails
+     * 
+     * @return false if the batch has not been sent because of a failure
+     */
+    private boolean sendBatch(BlockingQueue<LineBatch> batches, LineBatch batch, AtomicReference<Throwable> failure) throws InterruptedException {
+	while (!batches.offer(batch, FAILURE_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+	    if (failure.get() != null) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private void stopWorkers(ExecutorService workers, BlockingQueue<LineBatch> batches, int numberOfWorkers, AtomicReference<Throwable> failure) {
+	try {
+	    for (int i = 0; i < numberOfWorkers; i++) {
+		while (!batches.offer(LineBatch.END_OF_FILE, FAILURE_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+		    if (failure.get() != null) {
+			//the batches would be ignored, and the workers may be dead
+			batches.clear();
+		    }
+		}
+	    }
+	    workers.shutdown();
+	    while (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+		logger.info("waiting for the workers of " + getCurrentFileName() + " to finish");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    workers.shutdownNow();
+	}
+    }
+
+    /**
+     * Process the batches of lines until it receives
+     * {@link LineBatch#END_OF_FILE}. When a batch fails, the error is stored in
+     * failure and the next batches are ignored.
+     */
+    private class ImportWorker implements Runnable {
+
+	private final BlockingQueue<LineBatch> batches;
+
+	private final AtomicReference<Throwable> failure;
+
+	private ImportWorker(BlockingQueue<LineBatch> batches, AtomicReference<Throwable> failure) {
+	    this.batches = batches;
+	    this.failure = failure;
+	}
+
+	public void run() {
+	    while (true) {
+		LineBatch batch;
+		try {
+		    batch = batches.take();
+		} catch (InterruptedException e) {
+		    failure.compareAndSet(null, e);
+		    return;
+		}
+		if (batch == LineBatch.END_OF_FILE) {
+		    return;
+		}
+		if (failure.get() != null) {
+		    continue;
+		}
+		TransactionStatus workerTxStatus = null;
+		try {
+		    workerTxStatus = transactionManager.getTransaction(createTransactionDefinition());
+		    setCommitFlushMode();
+		    onBatchStart(batch.partition);
+		    for (int i = 0; i < batch.size(); i++) {
+			processLine(batch.lines.get(i), batch.lineNumbers[i]);
+		    }
+		    flushAndClear();
+		    transactionManager.commit(workerTxStatus);
+		    incrementReadedFileLine(batch.size());
+		} catch (Throwable e) {
+		    //an Error too, otherwise the worker would die silently
+		    failure.compareAndSet(null, e);
+		    logger.error("An error occurred in " + Thread.currentThread().getName() + " when processing " + getCurrentFileName() + " : "
+			    + e.getMessage(), e);
+		    if (workerTxStatus != null && !workerTxStatus.isCompleted()) {
+			try {
+			    transactionManager.rollback(workerTxStatus);
+			} catch (Exception rollbackException) {
+			    logger.warn("can not rollback the transaction : " + rollbackException.getMessage());
+			}
+		    }
+		}
+	    }
+	}
+    }
+
+    /**
+     * Some lines of a file, of the same partition, with their line numbers
+     */
+    static final class LineBatch {
+
+	private static final LineBatch END_OF_FILE = new LineBatch(0, null);
+
+	final Object partition;
+
+	private final List<String> lines;
+
+	private int[] lineNumbers;
+
+	private LineBatch(int capacity, Object partition) {
+	    this.partition = partition;
+	    this.lines = new ArrayList<String>(capacity);
+	    this.lineNumbers = new int[capacity];
+	}
+
+	private void add(String line, int lineNumber) {
+	    if (lines.size() == lineNumbers.length) {
+		int[] newLineNumbers = new int[lineNumbers.length * 2 + 1];
+		System.arraycopy(lineNumbers, 0, newLineNumbers, 0, lineNumbers.length);
+		lineNumbers = newLineNumbers;
+	    }
+	    lineNumbers[lines.size()] = lineNumber;
+	    lines.add(line);
+	}
+
+	int size() {
+	    return lines.size();
+	}
+    }
+
+    /**
+     * The batches of lines that are not full yet, one by partition. The batch
+     * of a partition starts small because most of the partitions may only
+     * have a few lines.
+     */
+    static final class PendingBatches {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<Object, LineBatch> batches = new HashMap<Object, LineBatch>();
+
+	private final int batchSize;
+
+	private final int maxPendingLines;
+
+	private final int minEarlyBatchSize;
+
+	private int pendingLines = 0;
+
+	/**
+	 * true if no batch has reached the minimum size since the last search
+	 * of the biggest batch, only the batch of the added line can grow, so
+	 * the batches are not searched again for each line
+	 */
+	private boolean onlySmallBatches = false;
+
+	PendingBatches(int batchSize, int maxPendingLines) {
+	    this.batchSize = batchSize;
+	    this.maxPendingLines = maxPendingLines;
+	    this.minEarlyBatchSize = Math.max(1, batchSize / MIN_EARLY_BATCH_DIVISOR);
+	}
+
+	/**
+	 * @return a batch to send to the workers or null if the line waits in
+	 *         the batch of its partition
+	 */
+	LineBatch add(Object partition, String line, int lineNumber) {
+	    LineBatch batch = batches.get(partition);
+	    if (batch == null) {
+		batch = new LineBatch(Math.min(batchSize, INITIAL_CAPACITY), partition);
+		batches.put(partition, batch);
+	    }
+	    batch.add(line, lineNumber);
+	    pendingLines++;
+	    if (batch.size() >= batchSize) {
+		return remove(batch);
+	    }
+	    if (batch.size() >= minEarlyBatchSize) {
+		onlySmallBatches = false;
+	    }
+	    boolean tooManyLines = pendingLines >= maxPendingLines * 2;
+	    if (pendingLines >= maxPendingLines && (!onlySmallBatches || tooManyLines)) {
+		LineBatch biggest = batch;
+		for (LineBatch pending : batches.values()) {
+		    if (pending.size() > biggest.size()) {
+			biggest = pending;
+		    }
+		}
+		if (biggest.size() >= minEarlyBatchSize || tooManyLines) {
+		    return remove(biggest);
+		}
+		onlySmallBatches = true;
+	    }
+	    return null;
+	}
+
+	private LineBatch remove(LineBatch batch) {
+	    batches.remove(batch.partition);
+	    pendingLines -= batch.size();
+	    return batch;
+	}
+
+	/**
+	 * @return all the batches that are not empty
+	 */
+	List<LineBatch> removeAll() {
+	    List<LineBatch> all = new ArrayList<LineBatch>(batches.values());
+	    batches.clear();
+	    pendingLines = 0;
+	    onlySmallBatches = false;
+	    for (Iterator<LineBatch> iterator = all.iterator(); iterator.hasNext();) {
+		if (iterator.next().size() == 0) {
+		    iterator.remove();
+		}
+	    }
+	    return all;
+	}
+    }
+
+    /**
+     * Template method that can be override by the parallelizable importers
+     * that benefit from processing the lines that are near (e.g : the ones of
+     * the same geographic tile) together. The lines of the same partition are
+     * sent to the workers in the same batches, and
+     * {@link #onBatchStart(Object)} is called with the partition before each
+     * batch. It is only called when the lines are processed by several
+     * workers, by the thread that reads the file, so it must be fast and must
+     * not throw. Default to null : all the lines are in the same partition.
+     * 
+     * @param line
+     *                the line to process
+     * @return the partition of the line, that must implement equals and
+     *         hashCode, or null
+     */
+    protected Object getPartition(String line) {
+	return null;
+    }
+
+    /**
+     * Template method that can be override. Called by a worker, in the
+     * transaction of the batch, before the lines of the batch are processed.
+     * 
+     * @param partition
+     *                the partition of all the lines of the batch, as returned
+     *                by {@link #getPartition(String)}
+     */
+    protected void onBatchStart(Object partition) {
+    }
+
+    /**
+     * Template method that can be override. Whether the lines can be
+     * processed in any order by several threads : the processing of a line
+     * doesn't depend on the other lines and {@link #processData(String)} is
+     * thread safe. Default to false.
+     * 
+     * @see ImporterConfig#getImporterThreads()
+     */
+    protected boolean isParallelizable() {
+	return false;
+    }
+
+    /**
+     * @return the number of threads that process the lines, 1 if the files
+     *         are processed sequentially
+     */
+    protected int getNumberOfWorkers() {
+	if (!isParallelizable() || importerConfig == null) {
+	    return 1;
+	}
+	return Math.max(1, importerConfig.getImporterThreads());
+    }
+
+    protected synchronized int incrementReadedFileLine(int increment) {
 	totalReadLine = totalReadLine+increment;
 	return totalReadLine;
 	
     }
     
-    protected int decrementReadedFileLine(int decrement) {
+    protected synchronized int decrementReadedFileLine(int decrement) {
 	totalReadLine = totalReadLine-decrement;
 	return totalReadLine;
 	
@@ -422,15 +924,20 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
     }
 
     protected void startTransaction() {
-    txDefinition = new DefaultTransactionDefinition();
-	    txDefinition
-		    .setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
-	    txDefinition.setIsolationLevel(Isolation.READ_UNCOMMITTED.value());
-	    txDefinition.setReadOnly(false);
+    txDefinition = createTransactionDefinition();
 	txStatus = transactionManager.getTransaction(txDefinition);
 	
     }
 
+    private DefaultTransactionDefinition createTransactionDefinition() {
+	DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+	definition
+		.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+	definition.setIsolationLevel(Isolation.READ_UNCOMMITTED.value());
+	definition.setReadOnly(false);
+	return definition;
+    }
+
     /**
      * Template method that can be override. This method is called after the end
      * of the process. it is not called for each file processed.
@@ -589,6 +1096,11 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
      * @see com.gisgraphy.domain.geoloc.importer.IGeonamesProcessor#getTotalReadedLine()
      */
     public long getTotalReadLine() {
+	if (numberOfBytesToProcess > 0) {
+	    // streaming import : the progress is given in compressed bytes
+	    CountingInputStream counter = archiveCounter;
+	    return readArchivesBytes + (counter == null ? 0 : counter.getByteCount());
+	}
 	return this.totalReadLine;
     }
 
@@ -651,14 +1163,34 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	return lines;
     }
 
+    /**
+     * @return the cumulated size of the files
+     */
+    protected long sizeOf(File[] files) {
+	long size = 0;
+	for (int i = 0; i < files.length; i++) {
+	    size += files[i].length();
+	}
+	return size;
+    }
+
     /*
      * (non-Javadoc)
      * 
      * @see com.gisgraphy.domain.geoloc.importer.IGeonamesProcessor#getNumberOfLinesToProcess()
      */
     public long getNumberOfLinesToProcess() {
+	if (this.numberOfBytesToProcess > 0) {
+	    return this.numberOfBytesToProcess;
+	}
 	if (this.numberOfLinesToProcess == 0 && this.status == ImporterStatus.PROCESSING) {
 	    // it may not have been calculated yet
+	    if (isStreamingImport()) {
+		// don't read the archives only to count the lines, the progress
+		// is given in compressed bytes
+		this.numberOfBytesToProcess = sizeOf(getArchives());
+		return this.numberOfBytesToProcess;
+	    }
 	    this.numberOfLinesToProcess = countLines(getFiles());
 	}
 	return this.numberOfLinesToProcess;
@@ -686,6 +1218,8 @@ public abstract class AbstractSimpleImporterProcessor implements IImporterProces
 	this.readFileLine = 0;
 	this.totalReadLine = 0;
 	this.numberOfLinesToProcess = 0;
+	this.numberOfBytesToProcess = 0;
+	this.readArchivesBytes = 0;
 	this.status = ImporterStatus.WAITING;
 	this.statusMessage = "";
     }
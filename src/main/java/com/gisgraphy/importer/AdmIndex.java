@@ -0,0 +1,181 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.repository.IAdmDao;
+
+/**
+ * Read through index of the {@link Adm} by codes, for the lifetime of an
+ * import. The importers ask for the same code tuples again and again (all
+ * the Adm2 of an Adm1 look for the same parent), so the results of the
+ * {@link IAdmDao} lookups are kept by (countryCode, adm1Code, adm2Code,
+ * adm3Code, adm4Code).
+ * <p>
+ * The ids are kept, not the entities, because the entities belong to the
+ * hibernate session of the transaction that loaded them. They are then
+ * retrieved by id, from the session or the second level cache. The tuples
+ * that are not found are kept too, until a new Adm is saved (see
+ * {@link #onAdmSaved(Adm)}).
+ * <p>
+ * It is not thread safe.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class AdmIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(AdmIndex.class);
+
+    private static final String ADM1_KEY_PREFIX = "adm1\t";
+
+    private final IAdmDao admDao;
+
+    private final Map<String, Long> admIds = new HashMap<String, Long>();
+
+    private final Set<String> notFound = new HashSet<String>();
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    /**
+     * @param admDao
+     *            the dao to query when the codes are not in the index
+     */
+    public AdmIndex(IAdmDao admDao) {
+	this.admDao = admDao;
+    }
+
+    /**
+     * Same as {@link IAdmDao#getAdm(String, String, String, String, String)}
+     */
+    public Adm getAdm(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	return lookup(createKey(countryCode, adm1Code, adm2Code, adm3Code, adm4Code), false, countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+    }
+
+    /**
+     * Same as {@link IAdmDao#getAdm1(String, String)}
+     */
+    public Adm getAdm1(String countryCode, String adm1Code) {
+	//getAdm1 doesn't check if the adm1 code is empty like getAdm does, so it has its own keys
+	return lookup(ADM1_KEY_PREFIX + createKey(countryCode, adm1Code, null, null, null), true, countryCode, adm1Code, null, null, null);
+    }
+
+    /**
+     * Same as
+     * {@link IAdmDao#getAdmOrFirstValidParentIfNotFound(String, String, String, String, String)}
+     * , each level is looked up in the index
+     */
+    public Adm getAdmOrFirstValidParentIfNotFound(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	String adm2CodeTemp = adm2Code;
+	String adm3CodeTemp = adm3Code;
+	String adm4CodeTemp = adm4Code;
+	while (true) {
+	    Adm adm = getAdm(countryCode, adm1Code, adm2CodeTemp, adm3CodeTemp, adm4CodeTemp);
+	    if (adm != null) {
+		return adm;
+	    }
+	    // downgrade the admvalue to search a lower level
+	    if (adm4CodeTemp != null) {
+		adm4CodeTemp = null;
+	    } else if (adm3CodeTemp != null) {
+		adm3CodeTemp = null;
+	    } else if (adm2CodeTemp != null) {
+		adm2CodeTemp = null;
+	    } else {
+		return getAdm1(countryCode, adm1Code);
+	    }
+	}
+    }
+
+    /**
+     * Must be called when an Adm is saved : the codes that were not found may
+     * now match it
+     */
+    public void onAdmSaved(Adm adm) {
+	notFound.clear();
+    }
+
+    /**
+     * @return the number of lookups that didn't query the database by codes
+     */
+    public long getHits() {
+	return hits;
+    }
+
+    /**
+     * @return the number of lookups that queried the database by codes
+     */
+    public long getMisses() {
+	return misses;
+    }
+
+    /**
+     * @return the number of code tuples in the index
+     */
+    public int size() {
+	return admIds.size() + notFound.size();
+    }
+
+    private Adm lookup(String key, boolean adm1Only, String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	Long id = admIds.get(key);
+	if (id != null) {
+	    Adm adm = admDao.get(id);
+	    if (adm != null) {
+		hits++;
+		return adm;
+	    }
+	    //deleted in the meantime
+	    admIds.remove(key);
+	} else if (notFound.contains(key)) {
+	    hits++;
+	    return null;
+	}
+	misses++;
+	Adm adm = adm1Only ? admDao.getAdm1(countryCode, adm1Code) : admDao.getAdm(countryCode, adm1Code, adm2Code, adm3Code, adm4Code);
+	if (adm == null) {
+	    notFound.add(key);
+	} else if (adm.getId() != null) {
+	    admIds.put(key, adm.getId());
+	}
+	return adm;
+    }
+
+    private String createKey(String countryCode, String adm1Code, String adm2Code, String adm3Code, String adm4Code) {
+	return new StringBuilder(countryCode == null ? "" : countryCode.toUpperCase())
+		.append('\t').append(adm1Code)
+		.append('\t').append(adm2Code)
+		.append('\t').append(adm3Code)
+		.append('\t').append(adm4Code)
+		.toString();
+    }
+
+}
@@ -0,0 +1,490 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.helper.NamedThreadFactory;
+import com.gisgraphy.helper.RetryOnErrorTemplate;
+
+/**
+ * Download the files by chunks, with HTTP range requests, so that a file can
+ * be downloaded with several connections at the same time and a download
+ * that fails can be resumed. The chunks are written at their position in a
+ * file that is preallocated, and the chunks already downloaded are saved in
+ * a manifest next to the file (file name + {@link #MANIFEST_EXTENSION}), so
+ * that only the missing chunks are downloaded the next time. If the server
+ * publishes a md5 checksum for the file (url + {@link #CHECKSUM_EXTENSION}),
+ * the downloaded file is checked against it. If the server doesn't accept
+ * range requests or doesn't give the size of the file, the file is
+ * downloaded with {@link ImporterHelper#download(String, String)}. This class
+ * is thread safe.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class ChunkedDownloader {
+
+    public static final long DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    public static final int DEFAULT_NUMBER_OF_CONNECTIONS = 1;
+
+    public static final String MANIFEST_EXTENSION = ".parts";
+
+    public static final String CHECKSUM_EXTENSION = ".md5";
+
+    /**
+     * How many times a chunk is tried before the download fails
+     */
+    public static final int NUMBER_OF_TRIES = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String URL_PROPERTY = "url";
+
+    private static final String LENGTH_PROPERTY = "length";
+
+    private static final String CHUNK_SIZE_PROPERTY = "chunkSize";
+
+    private static final String VERSION_PROPERTY = "version";
+
+    private static final String CHUNK_PROPERTY_PREFIX = "chunk.";
+
+    protected static final Logger logger = LoggerFactory.getLogger(ChunkedDownloader.class);
+
+    private final long chunkSize;
+
+    private final int numberOfConnections;
+
+    private final boolean checksumVerified;
+
+    private final AtomicLong downloadedBytes = new AtomicLong();
+
+    /**
+     * Informations about a remote file, given by a HEAD request
+     */
+    static class RemoteFile {
+	long length = -1;
+	boolean acceptRanges = false;
+	/**
+	 * The etag or the last modified date, to check that the file has not
+	 * changed since the chunks of the manifest have been downloaded
+	 */
+	String version = "";
+    }
+
+    /**
+     * Create a downloader with the {@link #DEFAULT_CHUNK_SIZE},
+     * {@link #DEFAULT_NUMBER_OF_CONNECTIONS} that verifies the checksums
+     */
+    public ChunkedDownloader() {
+	this(DEFAULT_CHUNK_SIZE, DEFAULT_NUMBER_OF_CONNECTIONS, true);
+    }
+
+    /**
+     * @param chunkSize
+     *            the size of the chunks in bytes
+     * @param numberOfConnections
+     *            how many chunks of a file are downloaded at the same time
+     * @param checksumVerified
+     *            whether the files should be checked against the md5
+     *            checksum published by the server
+     */
+    public ChunkedDownloader(long chunkSize, int numberOfConnections, boolean checksumVerified) {
+	if (chunkSize < 1) {
+	    throw new IllegalArgumentException("the chunk size should be positive");
+	}
+	if (numberOfConnections < 1) {
+	    throw new IllegalArgumentException("the number of connections should be at least 1");
+	}
+	this.chunkSize = chunkSize;
+	this.numberOfConnections = numberOfConnections;
+	this.checksumVerified = checksumVerified;
+    }
+
+    /**
+     * @param address
+     *            the address of the file to be downloaded
+     * @param localFileName
+     *            the local file name (with absolute path)
+     * @throws FileNotFoundException
+     *             if the file doesn't exist on the server
+     */
+    public void download(String address, String localFileName) throws FileNotFoundException {
+	File file = new File(localFileName);
+	RemoteFile remoteFile = head(address);
+	if (remoteFile.length <= 0 || !remoteFile.acceptRanges) {
+	    logger.info(address + " can not be downloaded by chunks, it will be downloaded with one connection");
+	    ImporterHelper.download(address, localFileName, downloadedBytes);
+	} else {
+	    downloadByChunks(address, file, remoteFile);
+	}
+	if (checksumVerified) {
+	    verifyChecksum(address, file);
+	}
+    }
+
+    /**
+     * @return the number of bytes downloaded (or already downloaded when a
+     *         download is resumed) since the creation of the downloader
+     */
+    public long getDownloadedBytes() {
+	return downloadedBytes.get();
+    }
+
+    protected RemoteFile head(String address) throws FileNotFoundException {
+	HttpURLConnection connection = null;
+	try {
+	    connection = openConnection(address);
+	    connection.setRequestMethod("HEAD");
+	    checkResponseCode(connection.getResponseCode(), address);
+	    RemoteFile remoteFile = new RemoteFile();
+	    String contentLength = connection.getHeaderField("Content-Length");
+	    if (contentLength != null) {
+		try {
+		    remoteFile.length = Long.parseLong(contentLength.trim());
+		} catch (NumberFormatException e) {
+		    logger.warn("the content length of " + address + " is not correct : " + contentLength);
+		}
+	    }
+	    remoteFile.acceptRanges = "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+	    String etag = connection.getHeaderField("ETag");
+	    remoteFile.version = etag != null ? etag : String.valueOf(connection.getLastModified());
+	    return remoteFile;
+	} catch (FileNotFoundException e) {
+	    throw e;
+	} catch (IOException e) {
+	    throw new ImporterException("can not get the size of " + address + " : " + e.getMessage(), e);
+	} finally {
+	    if (connection != null) {
+		connection.disconnect();
+	    }
+	}
+    }
+
+    private void downloadByChunks(final String address, File file, RemoteFile remoteFile) {
+	final File manifestFile = new File(file.getPath() + MANIFEST_EXTENSION);
+	final Properties manifest = loadManifest(manifestFile, address, file, remoteFile);
+	int numberOfChunks = (int) ((remoteFile.length + chunkSize - 1) / chunkSize);
+	List<Integer> chunksToDownload = new ArrayList<Integer>();
+	for (int i = 0; i < numberOfChunks; i++) {
+	    if (manifest.getProperty(CHUNK_PROPERTY_PREFIX + i) == null) {
+		chunksToDownload.add(i);
+	    } else {
+		downloadedBytes.addAndGet(getChunkLength(i, remoteFile.length));
+	    }
+	}
+	logger.info("download " + address + " to " + file + " : " + chunksToDownload.size() + " of " + numberOfChunks + " chunks to download with "
+		+ numberOfConnections + " connections");
+	RandomAccessFile randomAccessFile = null;
+	ExecutorService executor = null;
+	try {
+	    randomAccessFile = new RandomAccessFile(file, "rw");
+	    randomAccessFile.setLength(remoteFile.length);
+	    storeManifest(manifest, manifestFile);
+	    final FileChannel channel = randomAccessFile.getChannel();
+	    executor = Executors.newFixedThreadPool(Math.min(numberOfConnections, Math.max(1, chunksToDownload.size())), new NamedThreadFactory("download"));
+	    List<Future<Object>> results = new ArrayList<Future<Object>>();
+	    for (final Integer chunk : chunksToDownload) {
+		final long start = chunk * chunkSize;
+		final long length = getChunkLength(chunk, remoteFile.length);
+		results.add(executor.submit(new Callable<Object>() {
+		    public Object call() throws Exception {
+			RetryOnErrorTemplate<Object> retry = new RetryOnErrorTemplate<Object>() {
+			    @Override
+			    public Object tryThat() throws Exception {
+				downloadChunk(address, channel, start, length);
+				return null;
+			    }
+			};
+			retry.setLoggingSentence("download of the bytes " + start + "-" + (start + length - 1) + " of " + address);
+			retry.times(NUMBER_OF_TRIES);
+			//the chunk must be on the disk before it is marked as done,
+			//otherwise a crash could skip it when the download is resumed
+			channel.force(false);
+			synchronized (manifest) {
+			    manifest.setProperty(CHUNK_PROPERTY_PREFIX + chunk, "done");
+			    storeManifest(manifest, manifestFile);
+			}
+			return null;
+		    }
+		}));
+	    }
+	    for (Future<Object> result : results) {
+		result.get();
+	    }
+	    channel.force(false);
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause() != null ? e.getCause() : e;
+	    throw new ImporterException("can not download " + address + " to " + file + ", the download will be resumed next time : " + cause.getMessage(), cause);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new ImporterException("the download of " + address + " has been interrupted", e);
+	} catch (IOException e) {
+	    throw new ImporterException("can not download " + address + " to " + file + " : " + e.getMessage(), e);
+	} finally {
+	    if (executor != null) {
+		executor.shutdownNow();
+	    }
+	    if (randomAccessFile != null) {
+		try {
+		    randomAccessFile.close();
+		} catch (IOException e) {
+		    logger.error("can not close " + file);
+		}
+	    }
+	}
+	if (!manifestFile.delete()) {
+	    logger.warn("can not delete the manifest " + manifestFile);
+	}
+	logger.info(file + "\t" + remoteFile.length);
+    }
+
+    private long getChunkLength(long chunk, long fileLength) {
+	return Math.min(chunkSize, fileLength - chunk * chunkSize);
+    }
+
+    /**
+     * Download a chunk of the file and write it at its position
+     */
+    protected void downloadChunk(String address, FileChannel channel, long start, long length) throws IOException {
+	HttpURLConnection connection = openConnection(address);
+	InputStream in = null;
+	try {
+	    connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+	    int responseCode = connection.getResponseCode();
+	    if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+		checkResponseCode(responseCode, address);
+		throw new IOException("the server doesn't return a partial content for a range request but a " + responseCode);
+	    }
+	    in = connection.getInputStream();
+	    byte[] buffer = new byte[BUFFER_SIZE];
+	    long position = start;
+	    long end = start + length;
+	    int read;
+	    while (position < end && (read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position))) != -1) {
+		ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+		while (byteBuffer.hasRemaining()) {
+		    position += channel.write(byteBuffer, position);
+		}
+		downloadedBytes.addAndGet(read);
+	    }
+	    if (position != end) {
+		throw new IOException("the chunk " + start + "-" + (end - 1) + " is incomplete, only " + (position - start) + " bytes have been received");
+	    }
+	} finally {
+	    if (in != null) {
+		in.close();
+	    }
+	    connection.disconnect();
+	}
+    }
+
+    /**
+     * @return the manifest of the chunks already downloaded, or a new one if
+     *         there is none or if it doesn't match the remote file anymore
+     */
+    private Properties loadManifest(File manifestFile, String address, File file, RemoteFile remoteFile) {
+	Properties manifest = new Properties();
+	if (manifestFile.exists() && file.exists()) {
+	    InputStream in = null;
+	    try {
+		in = new FileInputStream(manifestFile);
+		manifest.load(in);
+	    } catch (IOException e) {
+		logger.warn("can not read the manifest " + manifestFile + ", the file will be entirely downloaded : " + e.getMessage());
+		manifest.clear();
+	    } finally {
+		if (in != null) {
+		    try {
+			in.close();
+		    } catch (IOException ignore) {
+		    }
+		}
+	    }
+	    if (address.equals(manifest.getProperty(URL_PROPERTY)) && String.valueOf(remoteFile.length).equals(manifest.getProperty(LENGTH_PROPERTY))
+		    && String.valueOf(chunkSize).equals(manifest.getProperty(CHUNK_SIZE_PROPERTY))
+		    && remoteFile.version.equals(manifest.getProperty(VERSION_PROPERTY)) && file.length() == remoteFile.length) {
+		logger.info("resume the download of " + address + " from " + manifestFile);
+		return manifest;
+	    }
+	    logger.info("the manifest " + manifestFile + " doesn't match " + address + " anymore, the file will be entirely downloaded");
+	}
+	manifest.clear();
+	manifest.setProperty(URL_PROPERTY, address);
+	manifest.setProperty(LENGTH_PROPERTY, String.valueOf(remoteFile.length));
+	manifest.setProperty(CHUNK_SIZE_PROPERTY, String.valueOf(chunkSize));
+	manifest.setProperty(VERSION_PROPERTY, remoteFile.version);
+	return manifest;
+    }
+
+    private void storeManifest(Properties manifest, File manifestFile) throws IOException {
+	OutputStream out = new FileOutputStream(manifestFile);
+	try {
+	    manifest.store(out, "chunks already downloaded");
+	} finally {
+	    out.close();
+	}
+    }
+
+    /**
+     * Check the file against the md5 published by the server, if any
+     * 
+     * @throws ImporterException
+     *             if the file doesn't match the checksum, the file is then
+     *             deleted
+     */
+    protected void verifyChecksum(String address, File file) {
+	String expected = getExpectedChecksum(address + CHECKSUM_EXTENSION);
+	if (expected == null) {
+	    logger.info("there is no checksum for " + address + ", the file is not verified");
+	    return;
+	}
+	String actual = md5(file);
+	if (!expected.equalsIgnoreCase(actual)) {
+	    if (!file.delete()) {
+		logger.error("can not delete " + file);
+	    }
+	    throw new ImporterException("the checksum of " + file + " (" + actual + ") doesn't match the one of " + address + " (" + expected
+		    + "), the file has been deleted");
+	}
+	logger.info("the checksum of " + file + " is correct");
+    }
+
+    /**
+     * @return the first word of the checksum file, or null if it doesn't
+     *         exist
+     */
+    private String getExpectedChecksum(String checksumAddress) {
+	HttpURLConnection connection = null;
+	BufferedReader reader = null;
+	try {
+	    connection = openConnection(checksumAddress);
+	    if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+		return null;
+	    }
+	    reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "US-ASCII"));
+	    String line = reader.readLine();
+	    if (line == null || line.trim().length() == 0) {
+		return null;
+	    }
+	    return line.trim().split("\\s+")[0];
+	} catch (IOException e) {
+	    logger.warn("can not retrieve the checksum " + checksumAddress + " : " + e.getMessage());
+	    return null;
+	} finally {
+	    if (reader != null) {
+		try {
+		    reader.close();
+		} catch (IOException ignore) {
+		}
+	    }
+	    if (connection != null) {
+		connection.disconnect();
+	    }
+	}
+    }
+
+    static String md5(File file) {
+	InputStream in = null;
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("MD5");
+	    in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+	    byte[] buffer = new byte[BUFFER_SIZE];
+	    int read;
+	    while ((read = in.read(buffer)) != -1) {
+		digest.update(buffer, 0, read);
+	    }
+	    StringBuffer sb = new StringBuffer();
+	    for (byte b : digest.digest()) {
+		sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+	    }
+	    return sb.toString();
+	} catch (NoSuchAlgorithmException e) {
+	    throw new RuntimeException(e);
+	} catch (IOException e) {
+	    throw new ImporterException("can not compute the checksum of " + file + " : " + e.getMessage(), e);
+	} finally {
+	    if (in != null) {
+		try {
+		    in.close();
+		} catch (IOException ignore) {
+		}
+	    }
+	}
+    }
+
+    private HttpURLConnection openConnection(String address) throws IOException {
+	HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+	connection.setRequestProperty("User-Agent", "gisgraphy_");
+	connection.setInstanceFollowRedirects(false);
+	return connection;
+    }
+
+    /**
+     * Manage the most frequent error codes, the same way as
+     * {@link ImporterHelper#download(String, String)}
+     */
+    private void checkResponseCode(int responseCode, String address) throws FileNotFoundException {
+	switch (responseCode) {
+	case 509:
+	    throw new RuntimeException("Sorry, there is too many users connected for " + address + ", this site has limmited resources, please try again later");
+	case 500:
+	    throw new RuntimeException("Sorry, the server return an 500 status code for " + address + ", an internal error has occured");
+	case 404:
+	    throw new FileNotFoundException("Sorry, the server return an 404 status code for " + address + ", the file probably not exists or the URL is not correct");
+	case 302:
+	    throw new FileNotFoundException("Sorry, the server return an 302 status code for " + address + ", the file is not at the correct URL");
+	default:
+	    break;
+	}
+    }
+
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
+
+/**
+ * In memory index of all the features, from their featureId to their id and
+ * their placetype, for the lifetime of an import. It is loaded with one scan
+ * of each placetype table (see
+ * {@link IGisFeatureDao#listFeatureIdsFromId(Class, long, int)}), so that the
+ * importers don't have to search the feature of each line in the cities,
+ * then the adms and finally in all the placetype tables.
+ * <p>
+ * The featureIds are kept in a sorted array of primitive longs, with the ids
+ * and the index of the placetypes in parallel arrays : about 17 bytes by
+ * feature. It is read only once loaded and can be shared by several threads.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FeatureIdIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(FeatureIdIndex.class);
+
+    /**
+     * The number of features read by query when the index is loaded
+     */
+    public static final int PAGE_SIZE = 10000;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final List<Class<? extends GisFeature>> placetypes;
+
+    private long[] featureIds;
+
+    private long[] ids;
+
+    private byte[] placetypeIndexes;
+
+    private int size = 0;
+
+    FeatureIdIndex(List<Class<? extends GisFeature>> placetypes, int initialCapacity) {
+	if (placetypes.size() > 256) {
+	    throw new IllegalArgumentException("the index can not handle more than 256 placetypes : " + placetypes.size());
+	}
+	this.placetypes = placetypes;
+	int capacity = Math.max(16, initialCapacity);
+	this.featureIds = new long[capacity];
+	this.ids = new long[capacity];
+	this.placetypeIndexes = new byte[capacity];
+    }
+
+    /**
+     * @param gisFeatureDao
+     *            the dao to read the placetypes tables with
+     * @return the index of all the features of the database
+     */
+    public static FeatureIdIndex load(IGisFeatureDao gisFeatureDao) {
+	long start = System.currentTimeMillis();
+	List<Class<? extends GisFeature>> placetypes = gisFeatureDao.listPlacetypes();
+	FeatureIdIndex index = new FeatureIdIndex(placetypes, PAGE_SIZE);
+	for (int placetypeIndex = 0; placetypeIndex < placetypes.size(); placetypeIndex++) {
+	    Class<? extends GisFeature> placetype = placetypes.get(placetypeIndex);
+	    long fromId = 0;
+	    List<Object[]> page;
+	    do {
+		page = gisFeatureDao.listFeatureIdsFromId(placetype, fromId, PAGE_SIZE);
+		for (Object[] row : page) {
+		    Long id = (Long) row[0];
+		    Long featureId = (Long) row[1];
+		    if (featureId != null) {
+			index.add(featureId.longValue(), id.longValue(), placetypeIndex);
+		    }
+		    fromId = id.longValue();
+		}
+	    } while (page.size() == PAGE_SIZE);
+	}
+	index.sort();
+	logger.info("the featureId index of " + index.size() + " features has been loaded in " + (System.currentTimeMillis() - start) / 1000 + " seconds");
+	return index;
+    }
+
+    void add(long featureId, long id, int placetypeIndex) {
+	if (size == featureIds.length) {
+	    int capacity = size + (size >> 1);
+	    featureIds = copyOf(featureIds, capacity);
+	    ids = copyOf(ids, capacity);
+	    byte[] newPlacetypeIndexes = new byte[capacity];
+	    System.arraycopy(placetypeIndexes, 0, newPlacetypeIndexes, 0, size);
+	    placetypeIndexes = newPlacetypeIndexes;
+	}
+	featureIds[size] = featureId;
+	ids[size] = id;
+	placetypeIndexes[size] = (byte) placetypeIndex;
+	size++;
+    }
+
+    /**
+     * Sort the features by featureId and release the unused capacity, must be
+     * called once all the features are added
+     */
+    void sort() {
+	if (size != featureIds.length) {
+	    featureIds = copyOf(featureIds, size);
+	    ids = copyOf(ids, size);
+	    byte[] trimmed = new byte[size];
+	    System.arraycopy(placetypeIndexes, 0, trimmed, 0, size);
+	    placetypeIndexes = trimmed;
+	}
+	quickSort(0, size - 1);
+    }
+
+    /**
+     * @param featureId
+     *            the featureId of a feature
+     * @return the id of the feature or -1 if there is no feature with this
+     *         featureId
+     */
+    public long getId(long featureId) {
+	int position = indexOf(featureId);
+	return position < 0 ? -1 : ids[position];
+    }
+
+    /**
+     * @param featureId
+     *            the featureId of a feature
+     * @return the placetype of the feature or null if there is no feature with
+     *         this featureId
+     */
+    public Class<? extends GisFeature> getPlacetype(long featureId) {
+	int position = indexOf(featureId);
+	return position < 0 ? null : placetypes.get(placetypeIndexes[position] & 0xFF);
+    }
+
+    /**
+     * @return the number of features in the index
+     */
+    public int size() {
+	return size;
+    }
+
+    private int indexOf(long featureId) {
+	int low = 0;
+	int high = size - 1;
+	while (low <= high) {
+	    int middle = (low + high) >>> 1;
+	    long value = featureIds[middle];
+	    if (value < featureId) {
+		low = middle + 1;
+	    } else if (value > featureId) {
+		high = middle - 1;
+	    } else {
+		return middle;
+	    }
+	}
+	return -1;
+    }
+
+    private void quickSort(int low, int high) {
+	while (high - low > INSERTION_SORT_THRESHOLD) {
+	    int middle = (low + high) >>> 1;
+	    //median of three as pivot, to avoid the worst case on the already sorted ranges
+	    if (featureIds[middle] < featureIds[low]) {
+		swap(low, middle);
+	    }
+	    if (featureIds[high] < featureIds[low]) {
+		swap(low, high);
+	    }
+	    if (featureIds[high] < featureIds[middle]) {
+		swap(middle, high);
+	    }
+	    long pivot = featureIds[middle];
+	    int i = low;
+	    int j = high;
+	    while (i <= j) {
+		while (featureIds[i] < pivot) {
+		    i++;
+		}
+		while (featureIds[j] > pivot) {
+		    j--;
+		}
+		if (i <= j) {
+		    swap(i, j);
+		    i++;
+		    j--;
+		}
+	    }
+	    //recurse on the smallest part only, to bound the depth of the stack
+	    if (j - low < high - i) {
+		quickSort(low, j);
+		low = i;
+	    } else {
+		quickSort(i, high);
+		high = j;
+	    }
+	}
+	for (int i = low + 1; i <= high; i++) {
+	    for (int j = i; j > low && featureIds[j] < featureIds[j - 1]; j--) {
+		swap(j, j - 1);
+	    }
+	}
+    }
+
+    private void swap(int i, int j) {
+	long featureId = featureIds[i];
+	featureIds[i] = featureIds[j];
+	featureIds[j] = featureId;
+	long id = ids[i];
+	ids[i] = ids[j];
+	ids[j] = id;
+	byte placetypeIndex = placetypeIndexes[i];
+	placetypeIndexes[i] = placetypeIndexes[j];
+	placetypeIndexes[j] = placetypeIndex;
+    }
+
+    private static long[] copyOf(long[] array, int length) {
+	long[] copy = new long[length];
+	System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+	return copy;
+    }
+
+}
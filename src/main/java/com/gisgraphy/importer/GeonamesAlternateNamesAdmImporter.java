@@ -54,4 +54,13 @@ public class GeonamesAlternateNamesAdmImporter extends GeonamesAlternateNamesSim
 			return files;
 		    }
 
+		 /**
+		  * The adm alternate names are few, they are imported feature by
+		  * feature rather than loading the index of all the features
+		  */
+		 @Override
+		    protected boolean isSortMergeImport() {
+			return false;
+		    }
+
 }
@@ -24,7 +24,14 @@ package com.gisgraphy.importer;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.hibernate.FlushMode;
 import org.slf4j.Logger;
@@ -67,6 +74,30 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
     
     protected ISpellCheckerIndexer spellCheckerIndexer;
 
+    /**
+     * The index of the features, only in sort merge mode
+     * 
+     * @see #isSortMergeImport()
+     */
+    protected FeatureIdIndex featureIdIndex;
+
+    /**
+     * The alternate names waiting to be inserted by batch, in sort merge mode
+     */
+    private final List<AlternateName> alternateNamesToInsert = new ArrayList<AlternateName>();
+
+    /**
+     * The featureIds of the features whose alternate names are waiting to be
+     * inserted, in sort merge mode
+     */
+    private final Set<Long> featureIdsToSave = new LinkedHashSet<Long>();
+
+    private static final Comparator<AlternateName> FEATURE_ID_COMPARATOR = new Comparator<AlternateName>() {
+	public int compare(AlternateName o1, AlternateName o2) {
+	    return o1.getGisFeature().getFeatureId().compareTo(o2.getGisFeature().getFeatureId());
+	}
+    };
+
 
     /**
      * Default constructor
@@ -75,6 +106,30 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	super();
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#setup()
+     */
+    @Override
+    protected void setup() {
+	super.setup();
+	if (isSortMergeImport()) {
+	    featureIdIndex = FeatureIdIndex.load(gisFeatureDao);
+	}
+    }
+
+    /**
+     * @return true if the features are found in a {@link FeatureIdIndex} and
+     *         the alternate names are inserted by batch, sorted by featureId,
+     *         instead of searching and saving the feature of each alternate
+     *         name
+     * @see ImporterConfig#isAlternateNamesSortMergeImportEnabled()
+     */
+    protected boolean isSortMergeImport() {
+	return importerConfig != null && importerConfig.isAlternateNamesSortMergeImportEnabled();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -115,14 +170,18 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 		logger.warn("The featureId " + fields[1] + " is not a number");
 		return;
 	    }
-	    // get the features
-	   // to improve performance we first search in cities then adm and finally in all features
-	    gisFeature = cityDao.getByFeatureId(gisFeatureId);
-	    if (gisFeature == null){
-		gisFeature = this.admDao.getByFeatureId(gisFeatureId);
-	    }
-	    if (gisFeature == null){
-		gisFeature = this.gisFeatureDao.getByFeatureId(gisFeatureId);
+	    if (featureIdIndex != null) {
+		gisFeature = getFeatureFromIndex(gisFeatureId, fields.length > 2 && "post".equals(fields[2]));
+	    } else {
+		// get the features
+		// to improve performance we first search in cities then adm and finally in all features
+		gisFeature = cityDao.getByFeatureId(gisFeatureId);
+		if (gisFeature == null){
+		    gisFeature = this.admDao.getByFeatureId(gisFeatureId);
+		}
+		if (gisFeature == null){
+		    gisFeature = this.gisFeatureDao.getByFeatureId(gisFeatureId);
+		}
 	    }
 	    if (gisFeature == null) {
 		return;
@@ -194,12 +253,134 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	    alternateNames = new ArrayList<AlternateName>();
 	}
 	alternateNames.add(alternateName);*/
+	if (featureIdIndex != null) {
+	    //the feature is only a reference : the alternate name is inserted with the others in flushAndClear
+	    if (alternateName.getName() != null && alternateName.getName().length() > GisFeature.MAX_ALTERNATENAME_SIZE) {
+		logger.warn("alternate name " + alternateName.getName() + " is too long");
+	    } else {
+		alternateNamesToInsert.add(alternateName);
+		featureIdsToSave.add(gisFeatureId);
+	    }
+	    return;
+	}
 	gisFeature.addAlternateName(alternateName);
 
 	this.gisFeatureDao.save(gisFeature);
 
     }
 
+    /**
+     * @param featureId
+     *                the featureId of the feature to find in the index
+     * @param loadEntity
+     *                whether the feature should be loaded (e.g : to add a zip
+     *                code), otherwise a feature that only has the id and the
+     *                featureId is returned
+     * @return the feature or null if it is not in the index
+     */
+    protected GisFeature getFeatureFromIndex(Long featureId, boolean loadEntity) {
+	long id = featureIdIndex.getId(featureId.longValue());
+	if (id == -1) {
+	    return null;
+	}
+	if (loadEntity) {
+	    //the placetype is known, so we don't query the tables of the other ones
+	    List<GisFeature> features = gisFeatureDao.listByPlacetypeAndIds(featureIdIndex.getPlacetype(featureId.longValue()),
+		    Collections.singletonList(Long.valueOf(id)));
+	    return features.size() == 0 ? null : features.get(0);
+	}
+	GisFeature reference = new GisFeature();
+	reference.setId(id);
+	reference.setFeatureId(featureId);
+	return reference;
+    }
+
+    /**
+     * Insert the alternate names of the current batch, sorted by featureId
+     */
+    protected void insertAlternateNames() {
+	if (alternateNamesToInsert.size() == 0) {
+	    return;
+	}
+	try {
+	    List<AlternateName> alternateNames = removeDuplicatedNames(alternateNamesToInsert);
+	    Collections.sort(alternateNames, FEATURE_ID_COMPARATOR);
+	    alternateNameDao.bulkInsert(alternateNames);
+	} finally {
+	    alternateNamesToInsert.clear();
+	}
+    }
+
+    /**
+     * The alternate names of a feature are a set, so
+     * {@link GisFeature#addAlternateName(AlternateName)} ignores the names
+     * that the feature already has (same language and name). Do the same for
+     * the names inserted by batch : the names repeated in the batch and the
+     * names already stored for the feature are removed.
+     * 
+     * @param alternateNames
+     *                the alternate names to insert
+     * @return the alternate names that are not duplicates, in the same order
+     */
+    protected List<AlternateName> removeDuplicatedNames(List<AlternateName> alternateNames) {
+	Set<Long> ids = new LinkedHashSet<Long>();
+	for (AlternateName alternateName : alternateNames) {
+	    ids.add(alternateName.getGisFeature().getId());
+	}
+	Map<Long, Set<AlternateName>> namesById = new HashMap<Long, Set<AlternateName>>();
+	for (AlternateName storedName : alternateNameDao.listNamesByGisFeatureIds(new ArrayList<Long>(ids))) {
+	    getNames(namesById, storedName.getGisFeature().getId()).add(storedName);
+	}
+	List<AlternateName> result = new ArrayList<AlternateName>(alternateNames.size());
+	for (AlternateName alternateName : alternateNames) {
+	    if (getNames(namesById, alternateName.getGisFeature().getId()).add(alternateName)) {
+		result.add(alternateName);
+	    }
+	}
+	return result;
+    }
+
+    private Set<AlternateName> getNames(Map<Long, Set<AlternateName>> namesById, Long id) {
+	Set<AlternateName> names = namesById.get(id);
+	if (names == null) {
+	    names = new HashSet<AlternateName>();
+	    namesById.put(id, names);
+	}
+	return names;
+    }
+
+    /**
+     * Save the features whose alternate names have been inserted in the
+     * current batch, once by feature, so that they are synchronised with the
+     * fulltext engine like when each alternate name is saved with its feature.
+     * The features are loaded with one query by placetype.
+     */
+    protected void saveFeaturesOfInsertedAlternateNames() {
+	if (featureIdsToSave.size() == 0) {
+	    return;
+	}
+	try {
+	    Map<Class<? extends GisFeature>, List<Long>> idsByPlacetype = new HashMap<Class<? extends GisFeature>, List<Long>>();
+	    for (Long featureId : featureIdsToSave) {
+		Class<? extends GisFeature> placetype = featureIdIndex.getPlacetype(featureId.longValue());
+		List<Long> ids = idsByPlacetype.get(placetype);
+		if (ids == null) {
+		    ids = new ArrayList<Long>();
+		    idsByPlacetype.put(placetype, ids);
+		}
+		ids.add(Long.valueOf(featureIdIndex.getId(featureId.longValue())));
+	    }
+	    for (Map.Entry<Class<? extends GisFeature>, List<Long>> entry : idsByPlacetype.entrySet()) {
+		for (GisFeature gisFeature : gisFeatureDao.listByPlacetypeAndIds(entry.getKey(), entry.getValue())) {
+		    // Hibernate will save the feature according to his class
+		    this.gisFeatureDao.save(gisFeature);
+		}
+	    }
+	} finally {
+	    featureIdsToSave.clear();
+	}
+    }
+
     protected boolean isAnUnWantedLanguageField(String languageField) {
 	boolean unWanted = false;
 	// TODO v2 option : || languageField.equals("icao") ||
@@ -245,6 +426,16 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 
     @Override
     protected void flushAndClear() {
+	if (alternateNamesToInsert.size() != 0) {
+	    insertAlternateNames();
+	    //the features are loaded again, after the zip codes are flushed, to get the inserted alternate names
+	    clearSessions();
+	    saveFeaturesOfInsertedAlternateNames();
+	}
+	clearSessions();
+    }
+
+    private void clearSessions() {
 	this.gisFeatureDao.flushAndClear();
 	this.cityDao.flushAndClear();
 	this.alternateNameDao.flushAndClear();
@@ -271,6 +462,11 @@ public class GeonamesAlternateNamesSimpleImporter extends AbstractSimpleImporter
 	if (!solRSynchroniser.commit()){
 	    logger.warn("The commit in tearDown of "+this.getClass().getSimpleName()+" has failed, the uncommitted changes will be commited with the auto commit of solr in few minuts");
 	}
+	//release the memory
+	featureIdIndex = null;
+	//the alternate names that are still there have been rolled back
+	alternateNamesToInsert.clear();
+	featureIdsToSave.clear();
 	spellCheckerIndexer.buildAllIndex();
 	solRSynchroniser.optimize();
     }
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IFeatureDirectoryDao;
 import com.gisgraphy.domain.repository.IGisDao;
 import com.gisgraphy.domain.valueobject.ImporterStatus;
 import com.gisgraphy.domain.valueobject.NameValueDTO;
@@ -54,6 +55,9 @@ public class GeonamesDatabaseIndexer implements IImporterProcessor {
     @Autowired
     protected IGisDao<? extends GisFeature>[] daos;
     
+    @Autowired(required = false)
+    protected IFeatureDirectoryDao featureDirectoryDao;
+    
     @Autowired
     protected ImporterConfig importerConfig;
     
@@ -108,6 +112,9 @@ public class GeonamesDatabaseIndexer implements IImporterProcessor {
 	       daos[i].createGISTIndexForLocationColumn();
 	       numberOfDaoThatHaveBeenIndexed++;
 	   }
+	   if (featureDirectoryDao != null) {
+	       featureDirectoryDao.createGISTIndexForLocationColumn();
+	   }
 	    
 	this.status = ImporterStatus.PROCESSED;
 	this.statusMessage="";
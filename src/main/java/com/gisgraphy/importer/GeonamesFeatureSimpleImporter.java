@@ -26,7 +26,11 @@ import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -86,6 +90,33 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
     protected Pattern acceptedPatterns ;
     
     protected ISolRSynchroniser solRSynchroniser;
+    
+    /**
+     * the in memory index used to fill the is_in fields, null if
+     * {@link ImporterConfig#isIsInSpatialIndexEnabled()} is false. It is
+     * loaded in {@link #setup()} and the cities saved by this importer are
+     * added to it, like they are found by the database queries.
+     */
+    protected IsInSpatialIndex isInSpatialIndex;
+
+    /**
+     * The adm already looked up by codes during this import, created in
+     * {@link #setup()}
+     */
+    protected AdmIndex admIndex;
+
+    /**
+     * The feature ids of the countries, loaded in {@link #setup()}, so that
+     * the database is queried only for the lines that are countries. null if
+     * not loaded
+     */
+    private Set<Long> countryFeatureIds;
+
+    /**
+     * The postal code patterns by country code (the value is null if the
+     * country doesn't exist or has no postal code regex)
+     */
+    private Map<String, Pattern> postalCodePatterns = new HashMap<String, Pattern>();
 
     @Autowired
     protected IGisDao<? extends GisFeature>[] iDaos;
@@ -292,7 +323,11 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	}
 
 	//TODO  //NAI list countryid
-	Country country = this.countryDao.getByFeatureId(new Long(fields[0]));
+	Long featureId = new Long(fields[0]);
+	Country country = null;
+	if (countryFeatureIds == null || countryFeatureIds.contains(featureId)) {
+	    country = this.countryDao.getByFeatureId(featureId);
+	}
 
 	if (country != null) {
 	    String countryName = country.getName();
@@ -329,6 +364,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 				Adm adm = processAdm(fields, gisFeature);
 				if (adm != null) {
 					this.admDao.save(adm);
+					getAdmIndex().onAdmSaved(adm);
 				}
 				return;
 			} else {
@@ -393,6 +429,9 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 			gisFeature.addZipCode(new ZipCode(foundZipCode));//TODO tests zip we should take embeded option into account
 		}
 	    this.gisFeatureDao.save(gisFeature);
+	    if (isInSpatialIndex != null && gisFeature instanceof City) {
+		isInSpatialIndex.addCity((City) gisFeature);
+	    }
 	} else {
 	    logger.debug(featureClass + "_" + featureCode
 		    + " have no entry in " + FeatureCode.class.getSimpleName()
@@ -408,7 +447,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	 protected void setIsInFields(GisFeature poi) {
 	    	if (poi != null && poi.getLocation() != null) {
 	    		//first searchByShape because it is the more reliable :
-	    		City cityByShape = cityDao.getByShape(poi.getLocation(),poi.getCountryCode(),true);
+	    		City cityByShape = getCityByShape(poi.getLocation(),poi.getCountryCode(),true);
 	    		if (cityByShape != null){
 	    			poi.setIsIn(cityByShape.getName());
 	    			poi.setCityId(cityByShape.getId());
@@ -514,10 +553,20 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	    }
 
 	 
+	 protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+			if (isInSpatialIndex != null){
+				return isInSpatialIndex.getCityByShape(location, countryCode, filterMunicipality);
+			}
+			return cityDao.getByShape(location, countryCode, filterMunicipality);
+		}
+
 	 protected City getNearestCity(Point location, String countryCode, boolean filterMunicipality) {
 			if (location ==null){
 				return null;
 			}
+			if (isInSpatialIndex != null){
+				return isInSpatialIndex.getNearestCity(location, countryCode, filterMunicipality, DISTANCE);
+			}
 			return cityDao.getNearest(location, countryCode, filterMunicipality, DISTANCE);
 		}
 	 
@@ -554,7 +603,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 		+ fields[0] + "] will be ignored");
 	return null;
 	}
-	Adm adm = this.admDao.getAdm(fields[8], fields[10], fields[11],
+	Adm adm = getAdmIndex().getAdm(fields[8], fields[10], fields[11],
 	    fields[12], fields[13]);
 	if (adm != null) {
 		logger
@@ -578,7 +627,7 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	    setAdmCodesWithCSVOnes(fields, adm);
 	    // try to link to his parent
 	    if (levelFromCode>1){
-	    Adm admParent = this.admDao
+	    Adm admParent = getAdmIndex()
 		    .getAdmOrFirstValidParentIfNotFound(fields[8],
 			    fields[10], fields[11], fields[12],
 			    fields[13]);
@@ -757,23 +806,8 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	Pattern patterncountry = null;
 	Matcher matcherCountry = null;
 	if (!isEmptyField(fields, 8, false)) {
-	    Country country = countryDao.getByIso3166Alpha2Code(fields[8]);
-	    if (country != null) {
-		String regex = country.getPostalCodeRegex();
-		if (regex != null) {
-		    patterncountry = Pattern.compile(regex);
-		    if (patterncountry == null) {
-			logger.info("can not compile regexp" + regex);
-			return null;
-		    }
-		} else {
-		    logger.debug("regex=null for country " + country);
-		    return null;
-		}
-	    } else {
-		logger
-			.warn("can not proces ZipCode because can not find country for "
-				+ fields[8]);
+	    patterncountry = getPostalCodePattern(fields[8]);
+	    if (patterncountry == null) {
 		return null;
 	    }
 
@@ -802,6 +836,43 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	return zipCode;
     }
 
+    /**
+     * @return the compiled postal code regex of the country, or null if the
+     *         country doesn't exist or has no regex. The country is queried
+     *         once per import
+     */
+    protected Pattern getPostalCodePattern(String countryCode) {
+	if (postalCodePatterns.containsKey(countryCode)) {
+	    return postalCodePatterns.get(countryCode);
+	}
+	Pattern postalCodePattern = null;
+	Country country = countryDao.getByIso3166Alpha2Code(countryCode);
+	if (country != null) {
+	    String regex = country.getPostalCodeRegex();
+	    if (regex != null) {
+		postalCodePattern = Pattern.compile(regex);
+	    } else {
+		logger.debug("regex=null for country " + country);
+	    }
+	} else {
+	    logger
+		    .warn("can not proces ZipCode because can not find country for "
+			    + countryCode);
+	}
+	postalCodePatterns.put(countryCode, postalCodePattern);
+	return postalCodePattern;
+    }
+
+    /**
+     * @return the index of the adm by codes, created if needed
+     */
+    protected AdmIndex getAdmIndex() {
+	if (admIndex == null) {
+	    admIndex = new AdmIndex(admDao);
+	}
+	return admIndex;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -904,6 +975,22 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
 	super.setup();
 	acceptedPatterns = ImporterHelper.compileRegex(importerConfig
 		.getAcceptRegExString());
+	admIndex = new AdmIndex(admDao);
+	postalCodePatterns = new HashMap<String, Pattern>();
+	countryFeatureIds = null;
+	if (countryDao != null) {
+	    countryFeatureIds = new HashSet<Long>();
+	    for (Country country : countryDao.getAll()) {
+		if (country.getFeatureId() != null) {
+		    countryFeatureIds.add(country.getFeatureId());
+		}
+	    }
+	    logger.info(countryFeatureIds.size() + " countries will be updated by " + getClass().getSimpleName());
+	}
+	if (importerConfig.isIsInSpatialIndexEnabled()) {
+	    logger.info("loading the is_in spatial index");
+	    isInSpatialIndex = IsInSpatialIndex.load(cityDao, null);
+	}
     }
 
     /*
@@ -917,6 +1004,14 @@ public class GeonamesFeatureSimpleImporter extends AbstractSimpleImporterProcess
     this.statusMessage=internationalisationService.getString("import.teardown");
     try {
 	super.tearDown();
+	//release the memory
+	isInSpatialIndex = null;
+	if (admIndex != null) {
+	    logger.info("adm index of " + getClass().getSimpleName() + " : " + admIndex.size() + " codes, " + admIndex.getHits() + " hits, " + admIndex.getMisses() + " misses");
+	    admIndex = null;
+	}
+	countryFeatureIds = null;
+	postalCodePatterns = new HashMap<String, Pattern>();
 	if (!solRSynchroniser.commit()){
 	    logger.warn("The commit in tearDown of "+this.getClass().getSimpleName()+" has failed, the uncommitted changes will be commited with the auto commit of solr in few minuts");
 	}
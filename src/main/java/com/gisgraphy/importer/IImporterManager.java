@@ -88,4 +88,16 @@ public interface IImporterManager {
      */
     public List<ImporterStatusDto> getStatusDtoList();
 
-}
\ No newline at end of file
+    /**
+     * Fill the feature directory again from the tables of the placetypes. It
+     * is done at the end of {@link #importAll()}, and can be done on demand,
+     * e.g. when the directory is enabled on a database that has already been
+     * imported. If the rebuild fails, the directory is suspended and the
+     * features are searched in the placetype tables.
+     * 
+     * @return the number of entries of the directory, or -1 if there is no
+     *         directory or if it can not be rebuilt
+     */
+    public int rebuildFeatureDirectory();
+
+}
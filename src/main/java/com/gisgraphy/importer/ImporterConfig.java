@@ -105,6 +105,72 @@ public class ImporterConfig {
      */
     private int maxInsertsBeforeFlush = DEFAULT_MAX_INSERT_BEFORE_FLUSH;
 
+    /**
+     * Default value for {@link #importerThreads}
+     */
+    public final static int DEFAULT_IMPORTER_THREADS = 1;
+
+    /**
+     * How many threads process the lines of the files, for the importers that
+     * support it
+     * 
+     * @see #DEFAULT_IMPORTER_THREADS
+     */
+    private int importerThreads = DEFAULT_IMPORTER_THREADS;
+
+    private boolean bulkInsertEnabled = false;
+
+    private boolean streamingImportEnabled = false;
+
+    /**
+     * Default value for {@link #downloadThreads}
+     */
+    public final static int DEFAULT_DOWNLOAD_THREADS = 1;
+
+    /**
+     * How many files are downloaded at the same time
+     */
+    private int downloadThreads = DEFAULT_DOWNLOAD_THREADS;
+
+    private long downloadChunkSize = ChunkedDownloader.DEFAULT_CHUNK_SIZE;
+
+    private int downloadConnectionsPerFile = ChunkedDownloader.DEFAULT_NUMBER_OF_CONNECTIONS;
+
+    private boolean downloadChecksumEnabled = false;
+
+    /**
+     * Default value for {@link #houseNumberStreetCacheSize}, the cache is
+     * disabled
+     */
+    public final static int DEFAULT_HOUSE_NUMBER_STREET_CACHE_SIZE = 0;
+
+    /**
+     * How many streets the house number importer keeps in memory
+     */
+    private int houseNumberStreetCacheSize = DEFAULT_HOUSE_NUMBER_STREET_CACHE_SIZE;
+
+    /**
+     * Default value for {@link #openStreetMapPoisTileSize}, the pois are not
+     * grouped by tile
+     */
+    public final static double DEFAULT_OPENSTREETMAP_POIS_TILE_SIZE = 0D;
+
+    /**
+     * The size in degrees of the tiles the pois are grouped by
+     */
+    private double openStreetMapPoisTileSize = DEFAULT_OPENSTREETMAP_POIS_TILE_SIZE;
+
+    /**
+     * Default value for {@link #openStreetMapPoisTileCacheSize}, the number of
+     * tiles kept in memory depends on the number of workers
+     */
+    public final static int DEFAULT_OPENSTREETMAP_POIS_TILE_CACHE_SIZE = 0;
+
+    /**
+     * The number of tiles whose cities are kept in memory
+     */
+    private int openStreetMapPoisTileCacheSize = DEFAULT_OPENSTREETMAP_POIS_TILE_CACHE_SIZE;
+
     public final static String OPENSTREETMAP_DEFAULT_FILES_TO_DOWNLOAD = "allcountries.tar.bz2";
     
     public final static String OPENSTREETMAP_HOUSENUMBER_DEFAULT_FILES_TO_DOWNLOAD = "allcountries.tar.bz2";
@@ -224,6 +290,8 @@ public class ImporterConfig {
 
     private boolean openStreetMapFillIsIn = true;
     
+    private boolean isInSpatialIndexEnabled = false;
+    
     private String adm1FileName;
 
     private String adm2FileName;
@@ -264,6 +332,8 @@ public class ImporterConfig {
     
     private int parsedAddressUnlockKey;
     
+    private boolean alternateNamesSortMergeImportEnabled = false;
+    
     
     /*
      *  
@@ -1203,6 +1273,24 @@ public class ImporterConfig {
   	public void setParsedAddressUnlockKey(int parsedAddressUnlockKey) {
   		this.parsedAddressUnlockKey = parsedAddressUnlockKey;
   	}
+
+    /**
+     * @return true if the alternate names importer should find the features
+     *         in an index of all the featureIds loaded at the beginning of
+     *         the import, and insert the alternate names by batch (see
+     *         {@link FeatureIdIndex}). The features that received alternate
+     *         names are then saved once by batch
+     */
+    public boolean isAlternateNamesSortMergeImportEnabled() {
+	return alternateNamesSortMergeImportEnabled;
+    }
+
+    /**
+     * @see #isAlternateNamesSortMergeImportEnabled()
+     */
+    public void setAlternateNamesSortMergeImportEnabled(boolean alternateNamesSortMergeImportEnabled) {
+	this.alternateNamesSortMergeImportEnabled = alternateNamesSortMergeImportEnabled;
+    }
     
     private List<String> splitSemiColmunStringToList(String stringToSplit) {
 	List<String> list = new ArrayList<String>();
@@ -1661,6 +1749,222 @@ public class ImporterConfig {
     	return this.maxInsertsBeforeFlush;
     }
 
+    /**
+     * @return the number of threads that process the lines of the files, for
+     *         the importers whose lines don't depend on each other (streets,
+     *         pois). 1 means the files are processed sequentially
+     * @see AbstractSimpleImporterProcessor#isParallelizable()
+     */
+    public int getImporterThreads() {
+    	return importerThreads;
+    }
+
+    /**
+     * @see #getImporterThreads()
+     */
+    public void setImporterThreads(int importerThreads) {
+    	if (importerThreads < 1) {
+    		logger.warn("the number of importer threads should be at least 1, the default value " + DEFAULT_IMPORTER_THREADS + " will be used");
+    		this.importerThreads = DEFAULT_IMPORTER_THREADS;
+    	} else {
+    		this.importerThreads = importerThreads;
+    	}
+    }
+
+    /**
+     * @return true if the streets and pois importers should insert the
+     *         features by batch, without the Hibernate session (see
+     *         {@link com.gisgraphy.domain.repository.IGisDao#bulkInsert(java.util.List)}).
+     *         It is faster but a batch that contains an invalid feature
+     *         makes the import fail instead of only skipping the feature
+     */
+    public boolean isBulkInsertEnabled() {
+    	return bulkInsertEnabled;
+    }
+
+    /**
+     * @see #isBulkInsertEnabled()
+     */
+    public void setBulkInsertEnabled(boolean bulkInsertEnabled) {
+    	this.bulkInsertEnabled = bulkInsertEnabled;
+    }
+
+    /**
+     * @return true if the importers that support it should read the lines
+     *         directly from the downloaded archives, instead of extracting
+     *         them to disk first. The progress is then given in compressed
+     *         bytes instead of lines
+     */
+    public boolean isStreamingImportEnabled() {
+    	return streamingImportEnabled;
+    }
+
+    /**
+     * @see #isStreamingImportEnabled()
+     */
+    public void setStreamingImportEnabled(boolean streamingImportEnabled) {
+    	this.streamingImportEnabled = streamingImportEnabled;
+    }
+
+    /**
+     * @return the number of files that are downloaded at the same time
+     */
+    public int getDownloadThreads() {
+    	return downloadThreads;
+    }
+
+    /**
+     * @param downloadThreads
+     *            the number of files that are downloaded at the same time.
+     *            if it is lower than 1, {@link #DEFAULT_DOWNLOAD_THREADS} is
+     *            used
+     */
+    public void setDownloadThreads(int downloadThreads) {
+    	if (downloadThreads < 1) {
+    		logger.warn("the number of download threads should be at least 1, the default value " + DEFAULT_DOWNLOAD_THREADS + " will be used");
+    		this.downloadThreads = DEFAULT_DOWNLOAD_THREADS;
+    	} else {
+    		this.downloadThreads = downloadThreads;
+    	}
+    }
+
+    /**
+     * @return the size of the chunks (in bytes) of the files downloaded with
+     *         range requests
+     * @see ChunkedDownloader
+     */
+    public long getDownloadChunkSize() {
+    	return downloadChunkSize;
+    }
+
+    /**
+     * @param downloadChunkSize
+     *            the size of the chunks in bytes. if it is lower than 1,
+     *            {@link ChunkedDownloader#DEFAULT_CHUNK_SIZE} is used
+     */
+    public void setDownloadChunkSize(long downloadChunkSize) {
+    	if (downloadChunkSize < 1) {
+    		logger.warn("the download chunk size should be positive, the default value " + ChunkedDownloader.DEFAULT_CHUNK_SIZE + " will be used");
+    		this.downloadChunkSize = ChunkedDownloader.DEFAULT_CHUNK_SIZE;
+    	} else {
+    		this.downloadChunkSize = downloadChunkSize;
+    	}
+    }
+
+    /**
+     * @return how many chunks of a file are downloaded at the same time
+     */
+    public int getDownloadConnectionsPerFile() {
+    	return downloadConnectionsPerFile;
+    }
+
+    /**
+     * @param downloadConnectionsPerFile
+     *            how many chunks of a file are downloaded at the same time.
+     *            if it is lower than 1,
+     *            {@link ChunkedDownloader#DEFAULT_NUMBER_OF_CONNECTIONS} is
+     *            used
+     */
+    public void setDownloadConnectionsPerFile(int downloadConnectionsPerFile) {
+    	if (downloadConnectionsPerFile < 1) {
+    		logger.warn("the number of connections per file should be at least 1, the default value " + ChunkedDownloader.DEFAULT_NUMBER_OF_CONNECTIONS + " will be used");
+    		this.downloadConnectionsPerFile = ChunkedDownloader.DEFAULT_NUMBER_OF_CONNECTIONS;
+    	} else {
+    		this.downloadConnectionsPerFile = downloadConnectionsPerFile;
+    	}
+    }
+
+    /**
+     * @return true if the downloaded files should be checked against the md5
+     *         checksum published by the server
+     */
+    public boolean isDownloadChecksumEnabled() {
+    	return downloadChecksumEnabled;
+    }
+
+    /**
+     * @see #isDownloadChecksumEnabled()
+     */
+    public void setDownloadChecksumEnabled(boolean downloadChecksumEnabled) {
+    	this.downloadChecksumEnabled = downloadChecksumEnabled;
+    }
+
+    /**
+     * @return how many streets the house number importer keeps in memory, 0
+     *         if the streets are searched for each house number
+     * @see OpenStreetMapHouseNumberSimpleImporter
+     */
+    public int getHouseNumberStreetCacheSize() {
+    	return houseNumberStreetCacheSize;
+    }
+
+    /**
+     * @param houseNumberStreetCacheSize
+     *            how many streets the house number importer keeps in memory.
+     *            0 disables the cache, if it is negative
+     *            {@link #DEFAULT_HOUSE_NUMBER_STREET_CACHE_SIZE} is used
+     */
+    public void setHouseNumberStreetCacheSize(int houseNumberStreetCacheSize) {
+    	if (houseNumberStreetCacheSize < 0) {
+    		logger.warn("the size of the street cache of the house number importer should not be negative, the default value " + DEFAULT_HOUSE_NUMBER_STREET_CACHE_SIZE + " will be used");
+    		this.houseNumberStreetCacheSize = DEFAULT_HOUSE_NUMBER_STREET_CACHE_SIZE;
+    	} else {
+    		this.houseNumberStreetCacheSize = houseNumberStreetCacheSize;
+    	}
+    }
+
+    /**
+     * @return the size in degrees of the tiles the pois are grouped by when
+     *         they are imported by several threads and the is_in fields are
+     *         filled. Each worker loads the cities of a tile once and fills
+     *         the is_in fields of the pois of the tile in memory. 0 means that
+     *         the pois are not grouped.
+     * @see OpenStreetMapPoisSimpleImporter
+     * @see #getImporterThreads()
+     */
+    public double getOpenStreetMapPoisTileSize() {
+    	return openStreetMapPoisTileSize;
+    }
+
+    /**
+     * @param openStreetMapPoisTileSize
+     *            the size in degrees of the tiles, 0 disables the tiles. If it
+     *            is negative or greater than 180,
+     *            {@link #DEFAULT_OPENSTREETMAP_POIS_TILE_SIZE} is used
+     */
+    public void setOpenStreetMapPoisTileSize(double openStreetMapPoisTileSize) {
+    	if (openStreetMapPoisTileSize < 0 || openStreetMapPoisTileSize > 180) {
+    		logger.warn("the size of the tiles of the pois should be between 0 and 180 degrees, the default value " + DEFAULT_OPENSTREETMAP_POIS_TILE_SIZE + " will be used");
+    		this.openStreetMapPoisTileSize = DEFAULT_OPENSTREETMAP_POIS_TILE_SIZE;
+    	} else {
+    		this.openStreetMapPoisTileSize = openStreetMapPoisTileSize;
+    	}
+    }
+
+    /**
+     * @return the number of tiles whose cities are kept in memory when the
+     *         pois are grouped by tile, 0 means two tiles by worker
+     * @see #getOpenStreetMapPoisTileSize()
+     */
+    public int getOpenStreetMapPoisTileCacheSize() {
+    	return openStreetMapPoisTileCacheSize;
+    }
+
+    /**
+     * @param openStreetMapPoisTileCacheSize
+     *            the number of tiles whose cities are kept in memory, 0 means
+     *            two tiles by worker. If it is negative,
+     *            {@link #DEFAULT_OPENSTREETMAP_POIS_TILE_CACHE_SIZE} is used
+     */
+    public void setOpenStreetMapPoisTileCacheSize(int openStreetMapPoisTileCacheSize) {
+    	if (openStreetMapPoisTileCacheSize < 0) {
+    		logger.warn("the number of tiles of the pois kept in memory should not be negative, the default value " + DEFAULT_OPENSTREETMAP_POIS_TILE_CACHE_SIZE + " will be used");
+    		this.openStreetMapPoisTileCacheSize = DEFAULT_OPENSTREETMAP_POIS_TILE_CACHE_SIZE;
+    	} else {
+    		this.openStreetMapPoisTileCacheSize = openStreetMapPoisTileCacheSize;
+    	}
+    }
+
     /**
      * @param directoryPath
      *            The directory to check. it can be absolute or relative
@@ -1913,6 +2217,25 @@ public class ImporterConfig {
     	CommentedProperties.editPropertyFromClassPathRessource(PROPERTIES_CONFIG_FILE_CLASSPATH, OPENSTREETMAP_FILL_ISIN_FIELD_NAME, String.valueOf(openStreetMapFillIsIn));
     }
 
+    /**
+     * Whether the importers that fill the is_in fields should load the cities
+     * and the city subdivisions in an in memory spatial index instead of
+     * querying the database for each feature. It is a lot faster but it needs
+     * enough memory to hold all the cities.
+     * 
+     * @see IsInSpatialIndex
+     */
+    public boolean isIsInSpatialIndexEnabled() {
+    	return isInSpatialIndexEnabled;
+    }
+
+    /**
+     * @see #isIsInSpatialIndexEnabled()
+     */
+    public void setIsInSpatialIndexEnabled(boolean isInSpatialIndexEnabled) {
+    	this.isInSpatialIndexEnabled = isInSpatialIndexEnabled;
+    }
+
 
 	public boolean isRenameFilesAfterProcessing() {
 		return renameFilesAfterProcessing;
@@ -42,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -124,6 +125,11 @@ public class ImporterHelper {
 
     public static final String TAR_BZ2_FILE_ACCEPT_REGEX_STRING = ".*(.tar.bz2)";
 
+    /**
+     * The size of the buffer used to copy the downloaded files
+     */
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+
     protected static final Logger logger = LoggerFactory.getLogger(ImporterHelper.class);
     
     private static HttpClientParams params = new HttpClientParams(){{
@@ -138,14 +144,29 @@ public class ImporterHelper {
 
     public static FileFilter countryFileFilter = new FileFilter() {
 	public boolean accept(File file) {
-	    Pattern patternGeonames = Pattern.compile(GEONAMES_COUNTRY_FILE_ACCEPT_REGEX_STRING);
-	    Pattern patternOpenStreetMapUS = Pattern.compile(OPENSTREETMAP_US_FILE_ACCEPT_REGEX_STRING);
-	    Pattern patternQuattroshapes = Pattern.compile(QUATTROSHAPES_FILE_ACCEPT_REGEX_STRING);
-
-	    return (file.isFile() && file.exists()) && !EXCLUDED_README_FILENAME.equals(file.getName())
-		    && ( patternGeonames.matcher(file.getName()).matches() || ALLCOUTRY_FILENAME.equals(file.getName()) || patternOpenStreetMapUS.matcher(file.getName()).matches() || patternQuattroshapes.matcher(file.getName()).matches());
+	    return (file.isFile() && file.exists()) && isCountryFileName(file.getName());
 	}
     };
+
+    /**
+     * @param fileName
+     *            the name of a file, without its path
+     * @return true if the file is a country file that should be imported
+     *         (the same files as {@link #countryFileFilter}). It is used to
+     *         filter the entries of the archives when they are read without
+     *         being extracted
+     */
+    public static boolean isCountryFileName(String fileName) {
+	if (fileName == null) {
+	    return false;
+	}
+	Pattern patternGeonames = Pattern.compile(GEONAMES_COUNTRY_FILE_ACCEPT_REGEX_STRING);
+	Pattern patternOpenStreetMapUS = Pattern.compile(OPENSTREETMAP_US_FILE_ACCEPT_REGEX_STRING);
+	Pattern patternQuattroshapes = Pattern.compile(QUATTROSHAPES_FILE_ACCEPT_REGEX_STRING);
+
+	return !EXCLUDED_README_FILENAME.equals(fileName)
+		&& ( patternGeonames.matcher(fileName).matches() || ALLCOUTRY_FILENAME.equals(fileName) || patternOpenStreetMapUS.matcher(fileName).matches() || patternQuattroshapes.matcher(fileName).matches());
+    }
     
 
 	public static FileFilter splitedFileFilter = new FileFilter() {
@@ -392,6 +413,19 @@ public class ImporterHelper {
      *            the local file name (with absolute path)
      */
     public static void download(String address, String localFileName) throws  FileNotFoundException{
+	download(address, localFileName, null);
+    }
+
+    /**
+     * @param address
+     *            the address of the file to be downloaded
+     * @param localFileName
+     *            the local file name (with absolute path)
+     * @param downloadedBytes
+     *            the counter of the downloaded bytes, updated while the file
+     *            is downloaded, can be null
+     */
+    public static void download(String address, String localFileName, AtomicLong downloadedBytes) throws  FileNotFoundException{
 	logger.info("download file " + address + " to " + localFileName);
 	OutputStream out = null;
 	HttpURLConnection conn = null;
@@ -421,12 +455,15 @@ public class ImporterHelper {
 	    }
 	    in = conn.getInputStream();
 	    out = new BufferedOutputStream(new FileOutputStream(localFileName));
-	    byte[] buffer = new byte[1024];
+	    byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
 	    int numRead;
 	    long numWritten = 0;
 	    while ((numRead = in.read(buffer)) != -1) {
 		out.write(buffer, 0, numRead);
 		numWritten += numRead;
+		if (downloadedBytes != null) {
+		    downloadedBytes.addAndGet(numRead);
+		}
 	    }
 	    logger.info(localFileName + "\t" + numWritten);
 	} catch (UnknownHostException e) {
@@ -32,15 +32,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.repository.IDatabaseHelper;
+import com.gisgraphy.domain.repository.IFeatureDirectoryDao;
 import com.gisgraphy.domain.repository.IGisDao;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
 import com.gisgraphy.domain.repository.IImporterStatusListDao;
 import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.valueobject.ImporterStatusDto;
 import com.gisgraphy.fulltext.IsolrClient;
+import com.gisgraphy.geocoding.GeocodingResultCache;
 import com.gisgraphy.helper.FileHelper;
+import com.gisgraphy.reversegeocoding.IRefreshableReverseGeocodingService;
 import com.gisgraphy.service.impl.StatsUsageServiceImpl;
 
 /**
@@ -73,6 +81,21 @@ public class ImporterManager implements IImporterManager {
     
     @Autowired
     private IDatabaseHelper databaseHelper;
+    
+    @Autowired(required = false)
+    private IRefreshableReverseGeocodingService reverseGeocodingService;
+    
+    @Autowired(required = false)
+    private GeocodingResultCache geocodingResultCache;
+
+    @Autowired(required = false)
+    private IFeatureDirectoryDao featureDirectoryDao;
+
+    @Autowired(required = false)
+    private IGisFeatureDao gisFeatureDao;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
 
   
 
@@ -112,6 +135,10 @@ public class ImporterManager implements IImporterManager {
 	    logger.info("temporarily disabling stats");
 	    StatsUsageServiceImpl.disabled=true;
 	    this.inProgress = true;
+	    if (featureDirectoryDao != null) {
+		//the directory is filled in bulk at the end
+		featureDirectoryDao.suspend();
+	    }
 	    for (IImporterProcessor importer : importers) {
 		logger.info("will now process "
 			+ importer.getClass().getSimpleName());
@@ -133,6 +160,54 @@ public class ImporterManager implements IImporterManager {
 		} catch (Exception e) {
 			logger.error("The import is done but we can not persist the already done status : "+e.getMessage(),e);
 		}
+		rebuildFeatureDirectory();
+		if (reverseGeocodingService != null) {
+			//the streets and the cities have changed
+			reverseGeocodingService.refreshRoadIndex();
+			reverseGeocodingService.refreshBoundaryIndex();
+		}
+		if (geocodingResultCache != null) {
+			geocodingResultCache.invalidate();
+		}
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.importer.IImporterManager#rebuildFeatureDirectory()
+     */
+    public int rebuildFeatureDirectory() {
+	if (featureDirectoryDao == null) {
+	    return -1;
+	}
+	if (inProgress) {
+	    logger.error("You can not rebuild the feature directory while an import is in progress, it will be rebuilt at the end of the import");
+	    return -1;
+	}
+	if (gisFeatureDao == null || transactionManager == null) {
+	    logger.error("Can not rebuild the feature directory without the gisFeatureDao and the transactionManager, it is used as is");
+	    featureDirectoryDao.resume();
+	    return -1;
+	}
+	TransactionStatus txStatus = null;
+	try {
+	    DefaultTransactionDefinition txDefinition = new DefaultTransactionDefinition();
+	    txDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+	    txDefinition.setReadOnly(false);
+	    txStatus = transactionManager.getTransaction(txDefinition);
+	    int count = featureDirectoryDao.rebuild(gisFeatureDao.listPlacetypes());
+	    transactionManager.commit(txStatus);
+	    logger.info(count + " features have been stored in the feature directory");
+	    return count;
+	} catch (RuntimeException e) {
+	    logger.error("Can not rebuild the feature directory, it is suspended until the next rebuild : " + e.getMessage(), e);
+	    //the rebuild may have succeeded before the commit failed
+	    featureDirectoryDao.suspend();
+	    if (txStatus != null && !txStatus.isCompleted()) {
+		transactionManager.rollback(txStatus);
+	    }
+	    return -1;
 	}
     }
 
@@ -0,0 +1,441 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.CitySubdivision;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.ICitySubdivisionDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * In memory spatial index of the cities and the city subdivisions, used by the
+ * importers to fill the is_in fields without sending spatial queries to the
+ * database for every imported feature. It gives the same results as
+ * {@link ICityDao#getByShape(Point, String, boolean)},
+ * {@link ICitySubdivisionDao#getByShape(Point, String)} and
+ * {@link ICityDao#getNearests(Point, String, boolean, int, int)}.<br/>
+ * The index is a snapshot of the database at the time it is loaded : the
+ * features saved after are not seen, unless they are given to
+ * {@link #addCity(City)}. It can be queried by several threads. The cities
+ * are kept with their zip codes, alternate names and adm, so it needs some
+ * memory.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class IsInSpatialIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(IsInSpatialIndex.class);
+
+    /**
+     * The number of features loaded from the database in one query
+     */
+    public static final int LOAD_BATCH_SIZE = 5000;
+
+    /**
+     * Approximative number of meters for one degree of latitude, used to
+     * convert a distance to a bounding box
+     */
+    private static final double METERS_BY_DEGREE = 111320D;
+
+    /**
+     * The number of cities added once the index is built that are searched
+     * one by one, before the trees are built again with them
+     */
+    public static final int MAX_PENDING_CITIES = 1000;
+
+    /**
+     * The trees of the cities, replaced when they are built again
+     */
+    private volatile CityTrees cityTrees = new CityTrees(Collections.<City> emptyList());
+
+    /**
+     * All the cities, to build the trees again
+     */
+    private final List<City> cities = new ArrayList<City>();
+
+    private final STRtree citySubdivisionShapes = new STRtree();
+
+    private int numberOfCities = 0;
+
+    private int numberOfCitySubdivisions = 0;
+
+    private boolean built = false;
+
+    /**
+     * Load all the cities and the city subdivisions from the database and build
+     * the index
+     * 
+     * @param cityDao
+     *                the dao to load the cities
+     * @param citySubdivisionDao
+     *                the dao to load the subdivisions, if null the index won't
+     *                contain any subdivision
+     * @return the built index
+     */
+    public static IsInSpatialIndex load(ICityDao cityDao, ICitySubdivisionDao citySubdivisionDao) {
+	Assert.notNull(cityDao, "can not load the is_in index without a cityDao");
+	long start = System.currentTimeMillis();
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	long lastId = 0;
+	List<City> cities;
+	do {
+	    cities = cityDao.listEagerFromId(lastId, LOAD_BATCH_SIZE);
+	    for (City city : cities) {
+		index.addCity(city);
+		lastId = city.getId();
+	    }
+	    //the cities are fully initialized, we don't need to keep them in the session
+	    cityDao.flushAndClear();
+	} while (cities.size() == LOAD_BATCH_SIZE);
+	if (citySubdivisionDao != null) {
+	    lastId = 0;
+	    List<CitySubdivision> subdivisions;
+	    do {
+		subdivisions = citySubdivisionDao.listEagerFromId(lastId, LOAD_BATCH_SIZE);
+		for (CitySubdivision subdivision : subdivisions) {
+		    index.addCitySubdivision(subdivision);
+		    lastId = subdivision.getId();
+		}
+		citySubdivisionDao.flushAndClear();
+	    } while (subdivisions.size() == LOAD_BATCH_SIZE);
+	}
+	index.build();
+	logger.info("is_in index loaded in " + (System.currentTimeMillis() - start) + " ms with " + index.getNumberOfCities() + " cities and "
+		+ index.getNumberOfCitySubdivisions() + " city subdivisions");
+	return index;
+    }
+
+    /**
+     * Load the cities that can be returned for a location of the envelope and
+     * build the index : the cities whose shape intersects the envelope and the
+     * ones whose location is nearer than distance from it. For the locations
+     * of the envelope, the index gives the same results as the one returned by
+     * {@link #load(ICityDao, ICitySubdivisionDao)} (if the distance of the
+     * nearest queries is not greater), with only a small part of the cities.
+     * It doesn't contain any subdivision.
+     * 
+     * @param cityDao
+     *                the dao to load the cities
+     * @param envelope
+     *                the envelope of the locations that will be queried
+     * @param distance
+     *                the maximal distance in meters of the nearest queries
+     * @return the built index
+     */
+    public static IsInSpatialIndex load(ICityDao cityDao, Envelope envelope, int distance) {
+	Assert.notNull(cityDao, "can not load the is_in index without a cityDao");
+	Assert.notNull(envelope, "can not load the is_in index without an envelope");
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	for (City city : cityDao.listEagerInEnvelope(expand(envelope, distance))) {
+	    index.addCity(city);
+	}
+	cityDao.flushAndClear();
+	index.build();
+	return index;
+    }
+
+    /**
+     * @return the envelope that contains the search envelopes of
+     *         {@link #getNearestCities(Point, String, boolean, int, int)} for
+     *         all the locations of the given envelope
+     */
+    static Envelope expand(Envelope envelope, int distance) {
+	double latitudeDelta = distance / METERS_BY_DEGREE;
+	//the longitude delta is the biggest for the location that is the nearest of a pole
+	double maxLatitude = Math.min(Math.max(Math.abs(envelope.getMinY()), Math.abs(envelope.getMaxY())), 90D);
+	double longitudeDelta = latitudeDelta / Math.max(Math.cos(Math.toRadians(maxLatitude)), 0.01D);
+	return new Envelope(envelope.getMinX() - longitudeDelta, envelope.getMaxX() + longitudeDelta, envelope.getMinY() - latitudeDelta,
+		envelope.getMaxY() + latitudeDelta);
+    }
+
+    /**
+     * Add a city to the index, e.g. a city saved by the importer that uses the
+     * index. Once the index is built, the added cities are searched one by one
+     * until there are {@link #MAX_PENDING_CITIES} of them, then the trees are
+     * built again with all the cities.
+     */
+    public synchronized void addCity(City city) {
+	if (city == null || (city.getShape() == null && city.getLocation() == null)) {
+	    return;
+	}
+	cities.add(city);
+	numberOfCities++;
+	if (!built) {
+	    cityTrees.insert(city);
+	} else if (cityTrees.pendingCities.size() + 1 >= MAX_PENDING_CITIES) {
+	    CityTrees trees = new CityTrees(Collections.<City> emptyList());
+	    for (City indexed : cities) {
+		trees.insert(indexed);
+	    }
+	    trees.build();
+	    cityTrees = trees;
+	} else {
+	    //copy on write, so that the queries don't need to lock
+	    List<City> pendingCities = new ArrayList<City>(cityTrees.pendingCities);
+	    pendingCities.add(city);
+	    cityTrees = new CityTrees(cityTrees, pendingCities);
+	}
+    }
+
+    /**
+     * Add a city subdivision to the index, must be called before
+     * {@link #build()}
+     */
+    protected void addCitySubdivision(CitySubdivision subdivision) {
+	if (subdivision == null || subdivision.getShape() == null) {
+	    return;
+	}
+	Assert.state(!built, "can not add a city subdivision once the index is built");
+	citySubdivisionShapes.insert(subdivision.getShape().getEnvelopeInternal(), new ShapeEntry<CitySubdivision>(subdivision));
+	numberOfCitySubdivisions++;
+    }
+
+    /**
+     * Build the trees. STRtree are built on the first query if not done
+     * before, we do it here so that the concurrent queries never modify them.
+     */
+    protected synchronized void build() {
+	cityTrees.build();
+	citySubdivisionShapes.build();
+	built = true;
+    }
+
+    /**
+     * @see ICityDao#getByShape(Point, String, boolean)
+     * @return the smallest city whose shape contains the location or null
+     */
+    public City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+	Assert.notNull(location);
+	City best = null;
+	double bestArea = Double.MAX_VALUE;
+	for (Object o : cityTrees.queryShapes(location.getEnvelopeInternal())) {
+	    @SuppressWarnings("unchecked")
+	    ShapeEntry<City> entry = (ShapeEntry<City>) o;
+	    City city = entry.feature;
+	    if (filterMunicipality && !city.isMunicipality()) {
+		continue;
+	    }
+	    if (!isInCountry(city, countryCode)) {
+		continue;
+	    }
+	    //the area is cheaper to test than the contains
+	    if (entry.area < bestArea && entry.shape.contains(location)) {
+		best = city;
+		bestArea = entry.area;
+	    }
+	}
+	return best;
+    }
+
+    /**
+     * @see ICitySubdivisionDao#getByShape(Point, String)
+     * @return the smallest subdivision whose shape contains the location or
+     *         null
+     */
+    public CitySubdivision getCitySubdivisionByShape(Point location, String countryCode) {
+	Assert.notNull(location);
+	CitySubdivision best = null;
+	double bestArea = Double.MAX_VALUE;
+	for (Object o : citySubdivisionShapes.query(location.getEnvelopeInternal())) {
+	    @SuppressWarnings("unchecked")
+	    ShapeEntry<CitySubdivision> entry = (ShapeEntry<CitySubdivision>) o;
+	    if (!isInCountry(entry.feature, countryCode)) {
+		continue;
+	    }
+	    if (entry.area < bestArea && entry.shape.contains(location)) {
+		best = entry.feature;
+		bestArea = entry.area;
+	    }
+	}
+	return best;
+    }
+
+    /**
+     * @see ICityDao#getNearests(Point, String, boolean, int, int)
+     * @return the cities nearer than distance sorted by distance, never null
+     */
+    public List<City> getNearestCities(final Point location, String countryCode, boolean filterMunicipality, int distance, int limit) {
+	Assert.notNull(location);
+	double latitudeDelta = distance / METERS_BY_DEGREE;
+	//a degree of longitude is shorter when we go to the poles
+	double longitudeDelta = latitudeDelta / Math.max(Math.cos(Math.toRadians(location.getY())), 0.01D);
+	Envelope searchEnvelope = new Envelope(location.getX() - longitudeDelta, location.getX() + longitudeDelta, location.getY() - latitudeDelta,
+		location.getY() + latitudeDelta);
+	List<CityDistance> candidates = new ArrayList<CityDistance>();
+	for (Object o : cityTrees.queryLocations(searchEnvelope)) {
+	    City city = (City) o;
+	    if (filterMunicipality && !city.isMunicipality()) {
+		continue;
+	    }
+	    if (!isInCountry(city, countryCode)) {
+		continue;
+	    }
+	    double cityDistance = GeolocHelper.distance(location, city.getLocation());
+	    if (cityDistance < distance) {
+		candidates.add(new CityDistance(city, cityDistance));
+	    }
+	}
+	Collections.sort(candidates, CITY_DISTANCE_COMPARATOR);
+	int size = limit > 0 ? Math.min(limit, candidates.size()) : candidates.size();
+	List<City> results = new ArrayList<City>(size);
+	for (int i = 0; i < size; i++) {
+	    results.add(candidates.get(i).city);
+	}
+	return results;
+    }
+
+    /**
+     * @see ICityDao#getNearest(Point, String, boolean, int)
+     * @return the nearest city or null
+     */
+    public City getNearestCity(Point location, String countryCode, boolean filterMunicipality, int distance) {
+	List<City> cities = getNearestCities(location, countryCode, filterMunicipality, distance, 1);
+	return cities.isEmpty() ? null : cities.get(0);
+    }
+
+    /**
+     * @return the number of cities in the index
+     */
+    public int getNumberOfCities() {
+	return numberOfCities;
+    }
+
+    /**
+     * @return the number of city subdivisions in the index
+     */
+    public int getNumberOfCitySubdivisions() {
+	return numberOfCitySubdivisions;
+    }
+
+    private static boolean isInCountry(GisFeature feature, String countryCode) {
+	return countryCode == null || countryCode.equals(feature.getCountryCode());
+    }
+
+    /**
+     * The trees of the cities and the cities added since they have been built
+     */
+    private static final class CityTrees {
+	private final STRtree cityShapes;
+	private final STRtree cityLocations;
+	private final List<City> pendingCities;
+
+	private CityTrees(List<City> pendingCities) {
+	    this.cityShapes = new STRtree();
+	    this.cityLocations = new STRtree();
+	    this.pendingCities = pendingCities;
+	}
+
+	private CityTrees(CityTrees trees, List<City> pendingCities) {
+	    this.cityShapes = trees.cityShapes;
+	    this.cityLocations = trees.cityLocations;
+	    this.pendingCities = pendingCities;
+	}
+
+	private void insert(City city) {
+	    if (city.getShape() != null) {
+		cityShapes.insert(city.getShape().getEnvelopeInternal(), new ShapeEntry<City>(city));
+	    }
+	    if (city.getLocation() != null) {
+		cityLocations.insert(city.getLocation().getEnvelopeInternal(), city);
+	    }
+	}
+
+	private void build() {
+	    cityShapes.build();
+	    cityLocations.build();
+	}
+
+	/**
+	 * @return the {@link ShapeEntry} of the cities whose shape envelope
+	 *         intersects the given one
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> queryShapes(Envelope envelope) {
+	    List<Object> entries = cityShapes.query(envelope);
+	    for (City city : pendingCities) {
+		if (city.getShape() != null && city.getShape().getEnvelopeInternal().intersects(envelope)) {
+		    entries.add(new ShapeEntry<City>(city));
+		}
+	    }
+	    return entries;
+	}
+
+	/**
+	 * @return the cities whose location is in the given envelope
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> queryLocations(Envelope envelope) {
+	    List<Object> locatedCities = cityLocations.query(envelope);
+	    for (City city : pendingCities) {
+		if (city.getLocation() != null && envelope.intersects(city.getLocation().getCoordinate())) {
+		    locatedCities.add(city);
+		}
+	    }
+	    return locatedCities;
+	}
+    }
+
+    private static final class ShapeEntry<T extends GisFeature> {
+	private final T feature;
+	private final Geometry shape;
+	private final double area;
+
+	private ShapeEntry(T feature) {
+	    this.feature = feature;
+	    this.shape = feature.getShape();
+	    this.area = shape.getArea();
+	}
+    }
+
+    private static final class CityDistance {
+	private final City city;
+	private final double distance;
+
+	private CityDistance(City city, double distance) {
+	    this.city = city;
+	    this.distance = distance;
+	}
+    }
+
+    private static final Comparator<CityDistance> CITY_DISTANCE_COMPARATOR = new Comparator<CityDistance>() {
+	public int compare(CityDistance o1, CityDistance o2) {
+	    return Double.compare(o1.distance, o2.distance);
+	}
+    };
+
+}
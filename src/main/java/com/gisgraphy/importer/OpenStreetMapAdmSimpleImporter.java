@@ -130,6 +130,14 @@ public class OpenStreetMapAdmSimpleImporter extends AbstractSimpleImporterProces
 		return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapAdmDir());
 	}
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+	 */
+	@Override
+	protected File[] getArchives() {
+		return ImporterHelper.listTarFiles(importerConfig.getOpenStreetMapAdmDir());
+	}
+
 	/* (non-Javadoc)
 	 * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getNumberOfColumns()
 	 */
@@ -111,6 +111,11 @@ public class OpenStreetMapCitiesFileRetriever extends AbstractFileRetriever {
 	return ImporterHelper.listTarFiles(getDownloadDirectory());
     }
 
+    @Override
+    public boolean isStreamable() {
+	return true;
+    }
+
     @Override
     public boolean isFileNotFoundTolerant() {
 	return false;
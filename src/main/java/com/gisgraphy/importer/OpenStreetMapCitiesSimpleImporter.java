@@ -128,6 +128,14 @@ public class OpenStreetMapCitiesSimpleImporter extends AbstractSimpleImporterPro
 	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapCitiesDir());
     }
 
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+     */
+    @Override
+    protected File[] getArchives() {
+	return ImporterHelper.listTarFiles(importerConfig.getOpenStreetMapCitiesDir());
+    }
+
     /* (non-Javadoc)
      * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getNumberOfColumns()
      */
@@ -27,7 +27,9 @@ import static com.gisgraphy.street.HouseNumberUtil.normalizeNumber;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,7 +62,9 @@ import com.gisgraphy.importer.dto.InterpolationMember;
 import com.gisgraphy.importer.dto.InterpolationType;
 import com.gisgraphy.importer.dto.NodeHouseNumber;
 import com.gisgraphy.service.ServiceException;
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.operation.distance.DistanceOp;
 
 /**
  * Import the street from an (pre-processed) openStreet map data file .
@@ -92,6 +96,33 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 
 	protected static final double SEARCH_DISTANCE = 6000;
 
+	/**
+	 * The size, in degree, of the cells the streets found by the fulltext
+	 * engine are cached for, see {@link #getStreetCandidates(String, Point)}
+	 */
+	protected static final double STREET_CACHE_CELL_SIZE = 0.01;
+
+	/**
+	 * The max distance between the location of a street and the house number,
+	 * same as {@link IOpenStreetMapDao#getNearestByosmIds(Point, List)}
+	 */
+	protected static final double NEAREST_STREET_MAX_DISTANCE = 7000;
+
+	/**
+	 * The openstreetmap ids of the streets found by the fulltext engine for a
+	 * street name in a cell, kept across the transactions. null if the cache
+	 * is disabled
+	 */
+	private Map<String, List<Long>> streetCandidates;
+
+	/**
+	 * The streets loaded in the current transaction, by openstreetmap id (the
+	 * value is null if there is no such street). They are cleared on commit
+	 * because they are attached to the hibernate session. null if the cache is
+	 * disabled
+	 */
+	private Map<Long, OpenStreetMap> resolvedStreets;
+
 	
 	/*
 	 * (non-Javadoc)
@@ -104,7 +135,9 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 	protected void flushAndClear() {
 		//openStreetMapDao.flushAndClear();
 		//houseNumberDao.flushAndClear();
-
+		if (resolvedStreets != null) {
+			resolvedStreets.clear();
+		}
 	}
 
 	@Override
@@ -112,6 +145,32 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 		//temporary disable logging when importing
 		FullTextSearchEngine.disableLogging=true;
 		super.setup();
+		initStreetCache();
+	}
+
+	/**
+	 * Create the street caches if
+	 * {@link ImporterConfig#getHouseNumberStreetCacheSize()} is positive
+	 */
+	protected void initStreetCache() {
+		int cacheSize = importerConfig == null ? 0 : importerConfig.getHouseNumberStreetCacheSize();
+		if (cacheSize > 0) {
+			logger.info("the streets of the house numbers will be cached, cache size : " + cacheSize);
+			streetCandidates = createLruMap(cacheSize);
+			resolvedStreets = createLruMap(cacheSize);
+		} else {
+			streetCandidates = null;
+			resolvedStreets = null;
+		}
+	}
+
+	private static <K, V> Map<K, V> createLruMap(final int maxSize) {
+		return new LinkedHashMap<K, V>(16, 0.75F, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		};
 	}
 
 	/*
@@ -125,6 +184,14 @@ public class OpenStreetMapHouseNumberSimpleImporter extends AbstractSimpleImport
 		return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapHouseNumberDir());
 	}
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+	 */
+	@Override
+	protected File[] getArchives() {
+		return ImporterHelper.listTarFiles(importerConfig.getOpenStreetMapHouseNumberDir());
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -502,7 +569,7 @@ ___W___house"} SHAPE"
 				logger.warn("associated  : "+idAsLong+" is not a valid id for associated street");
 				return;
 			}
-			OpenStreetMap associatedStreet = openStreetMapDao.getByOpenStreetMapId(idAsLong);
+			OpenStreetMap associatedStreet = getStreet(idAsLong);
 			if (associatedStreet==null){
 				logger.warn("associated  : no street can be found for associated street for id "+idAsLong);
 				return;
@@ -531,7 +598,7 @@ ___W___house"} SHAPE"
 			for (AssociatedStreetMember houseMember : houseMembers){
 				if (houseMember!=null && houseMember.getLocation()!=null){
 					HouseNumber houseNumber = buildHouseNumberFromAssociatedHouseNumber(houseMember);
-				OpenStreetMap associatedStreet = openStreetMapDao.getNearestByosmIds(houseMember.getLocation(), streetIds);
+				OpenStreetMap associatedStreet = getNearestStreet(houseMember.getLocation(), streetIds);
 				if (associatedStreet!=null && houseNumber!=null){
 					associatedStreet.addHouseNumber(houseNumber);
 					saveOsm(associatedStreet);
@@ -743,7 +810,9 @@ ___W___house"} SHAPE"
 
 	protected OpenStreetMap findNearestStreet(String streetName, Point location) {
 		//Openstreetmap has sometimes, for a  same street, several segment, so we do a fulltext search and then search for the nearest based on shape,not nearest point
-		logger.error("findNearestStreet :streetname="+streetName+" and location = "+location);
+		if (logger.isDebugEnabled()){
+			logger.debug("findNearestStreet :streetname="+streetName+" and location = "+location);
+		}
 		if (location == null){
 			logger.warn("findNearestStreet :location is null");
 			return null;
@@ -751,20 +820,33 @@ ___W___house"} SHAPE"
 		if (streetName==null || "".equals(streetName.trim()) || "\"\"".equals(streetName.trim()) || "-".equals(streetName.trim()) || "---".equals(streetName.trim()) || "--".equals(streetName.trim())){
 			logger.warn("findNearestStreet : no streetname, we search by location "+location);
 				OpenStreetMap osm =	openStreetMapDao.getNearestFrom(location);
-				logger.error("findNearestStreet :getNearestFrom return "+osm);
+				if (logger.isDebugEnabled()){
+					logger.debug("findNearestStreet :getNearestFrom return "+osm);
+				}
 				return osm;
 		}
+		if (streetCandidates != null) {
+			List<Long> candidates;
+			try {
+				candidates = getStreetCandidates(streetName, location);
+			} catch (IllegalArgumentException e) {
+				logger.error("can not create a fulltext query for "+streetName+", will return the nearest");
+				return openStreetMapDao.getNearestFrom(location);
+			}
+			if (candidates == null || candidates.size() == 0) {
+				return null;
+			} else if (candidates.size() == 1) {
+				return getStreet(candidates.get(0));
+			}
+			return getNearestStreet(location, candidates);
+		}
 		FulltextQuery query;
 		try {
-			query = new FulltextQuery(streetName, Pagination.DEFAULT_PAGINATION, MEDIUM_OUTPUT, 
-					com.gisgraphy.fulltext.Constants.STREET_PLACETYPE, null);
+			query = createStreetQuery(streetName, location);
 		} catch (IllegalArgumentException e) {
 			logger.error("can not create a fulltext query for "+streetName+", will return the nearest");
 			return openStreetMapDao.getNearestFrom(location);
 		}
-		query.withAllWordsRequired(false).withoutSpellChecking();
-		query.around(location);
-			query.withRadius(SEARCH_DISTANCE);
 		FulltextResultsDto results;
 		try {
 			results = fullTextSearchEngine.executeQuery(query);
@@ -797,6 +879,126 @@ ___W___house"} SHAPE"
 		}
 	}
 
+	protected FulltextQuery createStreetQuery(String streetName, Point location) {
+		FulltextQuery query = new FulltextQuery(streetName, Pagination.DEFAULT_PAGINATION, MEDIUM_OUTPUT, 
+				com.gisgraphy.fulltext.Constants.STREET_PLACETYPE, null);
+		query.withAllWordsRequired(false).withoutSpellChecking();
+		query.around(location);
+		query.withRadius(SEARCH_DISTANCE);
+		return query;
+	}
+
+	/**
+	 * The house numbers of a same street are generally next to each other in
+	 * the files, so the fulltext engine is queried once per street name and
+	 * cell of {@link #STREET_CACHE_CELL_SIZE} degree, around the first house
+	 * number of the cell.
+	 * 
+	 * @return the openstreetmap ids of the streets found by the fulltext
+	 *         engine for the street name around the location, or null if the
+	 *         fulltext engine fails
+	 * @throws IllegalArgumentException
+	 *             if the fulltext query can not be created
+	 */
+	protected List<Long> getStreetCandidates(String streetName, Point location) {
+		String key = new StringBuilder(streetName.trim().toLowerCase())
+			.append('|').append((long) Math.floor(location.getX() / STREET_CACHE_CELL_SIZE))
+			.append('|').append((long) Math.floor(location.getY() / STREET_CACHE_CELL_SIZE))
+			.toString();
+		List<Long> candidates = streetCandidates.get(key);
+		if (candidates != null) {
+			return candidates;
+		}
+		FulltextResultsDto results;
+		try {
+			results = fullTextSearchEngine.executeQuery(createStreetQuery(streetName, location));
+		} catch (RuntimeException e) {
+			logger.error("error during fulltext search : "+e.getMessage(),e);
+			return null;
+		}
+		candidates = new ArrayList<Long>();
+		if (results.getResults() != null) {
+			for (SolrResponseDto dto : results.getResults()) {
+				if (dto != null && dto.getOpenstreetmap_id() != null && !candidates.contains(dto.getOpenstreetmap_id())) {
+					candidates.add(dto.getOpenstreetmap_id());
+				}
+			}
+		}
+		streetCandidates.put(key, candidates);
+		return candidates;
+	}
+
+	/**
+	 * @return the street with the given openstreetmap id, from the streets
+	 *         already loaded in the current transaction if the cache is
+	 *         enabled
+	 */
+	protected OpenStreetMap getStreet(Long openstreetmapId) {
+		if (resolvedStreets == null) {
+			return openStreetMapDao.getByOpenStreetMapId(openstreetmapId);
+		}
+		if (resolvedStreets.containsKey(openstreetmapId)) {
+			return resolvedStreets.get(openstreetmapId);
+		}
+		OpenStreetMap street = openStreetMapDao.getByOpenStreetMapId(openstreetmapId);
+		if (street == null) {
+			logger.warn("can not find street for id "+openstreetmapId);
+		}
+		resolvedStreets.put(openstreetmapId, street);
+		return street;
+	}
+
+	/**
+	 * @return the nearest street of the streets with the given openstreetmap
+	 *         ids. If the cache is enabled, the streets that are not already
+	 *         loaded in the current transaction are fetched in one query and
+	 *         the nearest is computed in memory, the same way
+	 *         {@link IOpenStreetMapDao#getNearestByosmIds(Point, List)} does
+	 */
+	protected OpenStreetMap getNearestStreet(Point point, List<Long> ids) {
+		if (resolvedStreets == null) {
+			return openStreetMapDao.getNearestByosmIds(point, ids);
+		}
+		if (point == null || ids == null || ids.size() == 0) {
+			return null;
+		}
+		List<Long> idsToLoad = new ArrayList<Long>();
+		for (Long id : ids) {
+			if (!resolvedStreets.containsKey(id)) {
+				idsToLoad.add(id);
+			}
+		}
+		if (idsToLoad.size() > 0) {
+			for (OpenStreetMap street : openStreetMapDao.getByOpenStreetMapIds(idsToLoad)) {
+				if (resolvedStreets.get(street.getOpenstreetmapId()) == null) {
+					//a street in two countries is returned twice, keep one, as getByOpenStreetMapId
+					resolvedStreets.put(street.getOpenstreetmapId(), street);
+				}
+			}
+			for (Long id : idsToLoad) {
+				if (!resolvedStreets.containsKey(id)) {
+					resolvedStreets.put(id, null);
+				}
+			}
+		}
+		OpenStreetMap nearest = null;
+		double smallestDistance = Double.MAX_VALUE;
+		for (Long id : ids) {
+			OpenStreetMap street = resolvedStreets.get(id);
+			if (street == null || street.getShape() == null || street.getLocation() == null
+					|| GeolocHelper.distance(street.getLocation(), point) > NEAREST_STREET_MAX_DISTANCE) {
+				continue;
+			}
+			Coordinate closest = DistanceOp.closestPoints(street.getShape(), point)[0];
+			double distance = GeolocHelper.distance(point.getFactory().createPoint(closest), point);
+			if (nearest == null || distance < smallestDistance) {
+				nearest = street;
+				smallestDistance = distance;
+			}
+		}
+		return nearest;
+	}
+
 	protected OpenStreetMap getNearestByIds(List<SolrResponseDto> results,Point point,String streetname) {
 		List<Long> ids = new ArrayList<Long>();
 		OpenStreetMap result = null;
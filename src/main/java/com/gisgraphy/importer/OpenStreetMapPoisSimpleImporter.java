@@ -24,7 +24,11 @@ package com.gisgraphy.importer;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -54,6 +58,7 @@ import com.gisgraphy.domain.valueobject.Output.OutputStyle;
 import com.gisgraphy.fulltext.FullTextSearchEngine;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.helper.StringHelper;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
 
 /**
@@ -93,6 +98,55 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     @Autowired
     protected ICityDao cityDao;
     
+    /**
+     * the in memory index used to fill the is_in fields, null if
+     * {@link ImporterConfig#isIsInSpatialIndexEnabled()} is false
+     */
+    protected IsInSpatialIndex isInSpatialIndex;
+    
+    /**
+     * the number of tile indexes kept in memory by worker, when
+     * {@link ImporterConfig#getOpenStreetMapPoisTileCacheSize()} is 0
+     */
+    static final int TILE_INDEXES_BY_WORKER = 2;
+    
+    /**
+     * the number of batches whose tile index was in memory
+     */
+    private final AtomicLong tileIndexHits = new AtomicLong();
+    
+    /**
+     * the number of batches whose tile index has been loaded
+     */
+    private final AtomicLong tileIndexMisses = new AtomicLong();
+    
+    /**
+     * the is_in indexes of the last used tiles, null if the pois are not
+     * grouped by tile
+     * 
+     * @see ImporterConfig#getOpenStreetMapPoisTileSize()
+     */
+    protected Map<Long, IsInSpatialIndex> tileIndexes;
+    
+    /**
+     * the is_in index of the tile of the batch that the current worker
+     * processes
+     */
+    private final ThreadLocal<IsInSpatialIndex> currentTileIndex = new ThreadLocal<IsInSpatialIndex>();
+    
+    /**
+     * the pois waiting to be inserted when
+     * {@link ImporterConfig#isBulkInsertEnabled()}. There is one list by
+     * thread because the lines can be processed by several workers, each one
+     * with its own transaction
+     */
+    private final ThreadLocal<List<GisFeature>> poisToInsert = new ThreadLocal<List<GisFeature>>() {
+    	@Override
+    	protected List<GisFeature> initialValue() {
+    		return new ArrayList<GisFeature>();
+    	}
+    };
+    
     protected boolean shouldFillIsInField(){
     	return importerConfig.isOpenStreetMapFillIsIn(); 
     }
@@ -103,15 +157,153 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
      */
     @Override
     protected void flushAndClear() {
+    	insertBufferedPois();
     	gisFeatureDao.flushAndClear();
     }
     
+    /**
+     * insert the pois buffered by the current thread, if any
+     */
+    protected void insertBufferedPois() {
+    	List<GisFeature> pois = poisToInsert.get();
+    	if (!pois.isEmpty()) {
+    		gisFeatureDao.bulkInsert(pois);
+    		pois.clear();
+    	}
+    }
+    
     @Override
     protected void setup() {
         super.setup();
         //temporary disable logging when importing
         FullTextSearchEngine.disableLogging=true;
         idGenerator.sync();
+        if (shouldFillIsInField() && isTileImport()){
+        	//the cities of each tile are loaded by the workers, we don't need to load all of them
+        	final int tileCacheSize = getTileCacheSize();
+        	logger.info("the pois will be grouped by tiles of " + importerConfig.getOpenStreetMapPoisTileSize() + " degrees, " + tileCacheSize + " tiles are kept in memory");
+        	tileIndexHits.set(0);
+        	tileIndexMisses.set(0);
+        	tileIndexes = Collections.synchronizedMap(new LinkedHashMap<Long, IsInSpatialIndex>(16, 0.75F, true) {
+        		private static final long serialVersionUID = 1L;
+
+        		@Override
+        		protected boolean removeEldestEntry(Map.Entry<Long, IsInSpatialIndex> eldest) {
+        			return size() > tileCacheSize;
+        		}
+        	});
+        } else if (shouldFillIsInField() && importerConfig.isIsInSpatialIndexEnabled()){
+        	logger.info("loading the is_in spatial index");
+        	isInSpatialIndex = IsInSpatialIndex.load(cityDao, null);
+        }
+    }
+    
+    /**
+     * @return the number of tile indexes kept in memory
+     * @see ImporterConfig#getOpenStreetMapPoisTileCacheSize()
+     */
+    protected int getTileCacheSize() {
+    	int tileCacheSize = importerConfig.getOpenStreetMapPoisTileCacheSize();
+    	return tileCacheSize > 0 ? tileCacheSize : getNumberOfWorkers() * TILE_INDEXES_BY_WORKER;
+    }
+    
+    /**
+     * @return the number of batches whose tile index was in memory
+     */
+    long getTileIndexHits() {
+    	return tileIndexHits.get();
+    }
+    
+    /**
+     * @return the number of batches whose tile index has been loaded
+     */
+    long getTileIndexMisses() {
+    	return tileIndexMisses.get();
+    }
+    
+    /**
+     * @return true if the pois are grouped by tile : the lines are processed by
+     *         several workers and {@link ImporterConfig#getOpenStreetMapPoisTileSize()}
+     *         is greater than 0
+     */
+    protected boolean isTileImport() {
+    	return importerConfig.getOpenStreetMapPoisTileSize() > 0 && getNumberOfWorkers() > 1;
+    }
+    
+    /**
+     * @return the tile of the location of the poi, or null if the pois are not
+     *         grouped by tile or if the location can not be read
+     */
+    @Override
+    protected Object getPartition(String line) {
+    	if (tileIndexes == null) {
+    		return null;
+    	}
+    	String[] fields = line.split("\t");
+    	if (fields.length <= 5 || "".equals(fields[5].trim())) {
+    		return null;
+    	}
+    	try {
+    		Point location = (Point) GeolocHelper.convertFromHEXEWKBToGeometry(fields[5]);
+    		return getTile(location.getX(), location.getY(), importerConfig.getOpenStreetMapPoisTileSize());
+    	} catch (RuntimeException e) {
+    		//the line will be rejected by processData
+    		return null;
+    	}
+    }
+    
+    /**
+     * Set the is_in index of the tile of the batch for the current worker,
+     * loading it if it is not among the last used tiles
+     */
+    @Override
+    protected void onBatchStart(Object partition) {
+    	if (tileIndexes == null) {
+    		return;
+    	}
+    	IsInSpatialIndex index = null;
+    	if (partition != null) {
+    		Long tile = (Long) partition;
+    		index = tileIndexes.get(tile);
+    		if (index != null) {
+    			tileIndexHits.incrementAndGet();
+    		} else {
+    			tileIndexMisses.incrementAndGet();
+    			//two workers may load the same tile at the same time, it is only a waste
+    			index = IsInSpatialIndex.load(cityDao, getTileEnvelope(tile.longValue(), importerConfig.getOpenStreetMapPoisTileSize()), DISTANCE);
+    			tileIndexes.put(tile, index);
+    		}
+    	}
+    	currentTileIndex.set(index);
+    }
+    
+    /**
+     * @return the tile that contains the location, the column and the row of
+     *         the tile are packed in a long
+     */
+    static Long getTile(double longitude, double latitude, double tileSize) {
+    	long column = (long) Math.floor(longitude / tileSize);
+    	long row = (long) Math.floor(latitude / tileSize);
+    	return Long.valueOf((column << 32) | (row & 0xFFFFFFFFL));
+    }
+    
+    /**
+     * @return the envelope of a tile returned by
+     *         {@link #getTile(double, double, double)}
+     */
+    static Envelope getTileEnvelope(long tile, double tileSize) {
+    	int column = (int) (tile >> 32);
+    	int row = (int) tile;
+    	return new Envelope(column * tileSize, (column + 1) * tileSize, row * tileSize, (row + 1) * tileSize);
+    }
+    
+    /**
+     * @return the is_in index of the tile that the current worker processes,
+     *         the global one, or null if the database should be queried
+     */
+    protected IsInSpatialIndex getIsInSpatialIndex() {
+    	IsInSpatialIndex tileIndex = currentTileIndex.get();
+    	return tileIndex != null ? tileIndex : isInSpatialIndex;
     }
     
 
@@ -123,6 +315,14 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapPoisDir());
     }
 
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+     */
+    @Override
+    protected File[] getArchives() {
+    	return ImporterHelper.listTarFiles(importerConfig.getOpenStreetMapPoisDir());
+    }
+
     /* (non-Javadoc)
      * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getNumberOfColumns()
      */
@@ -156,6 +356,15 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
 	if (pois == null){
 		return;
 	}
+	if (importerConfig.isBulkInsertEnabled()) {
+		//the errors will make the batch fail, so we don't catch them
+		List<GisFeature> buffer = poisToInsert.get();
+		buffer.addAll(pois);
+		if (buffer.size() >= getMaxInsertsBeforeFlush()) {
+			insertBufferedPois();
+		}
+		return;
+	}
 	try {
 		for (GisFeature poi:pois){
 			gisFeatureDao.save(poi);
@@ -272,7 +481,7 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
 	 protected void setIsInFields(GisFeature poi) {
 	    	if (poi != null && poi.getLocation() != null) {
 	    		//first searchByShape because it is the more reliable :
-	    		City cityByShape = cityDao.getByShape(poi.getLocation(),poi.getCountryCode(),true);
+	    		City cityByShape = getCityByShape(poi.getLocation(),poi.getCountryCode(),true);
 	    		if (cityByShape != null){
 	    			poi.setIsIn(cityByShape.getName());
 	    			poi.setCityId(cityByShape.getId());
@@ -385,10 +594,22 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
 	    }
 
 	 
+	 protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+			IsInSpatialIndex index = getIsInSpatialIndex();
+			if (index != null){
+				return index.getCityByShape(location, countryCode, filterMunicipality);
+			}
+			return cityDao.getByShape(location, countryCode, filterMunicipality);
+		}
+
 	 protected City getNearestCity(Point location, String countryCode, boolean filterMunicipality) {
 			if (location ==null){
 				return null;
 			}
+			IsInSpatialIndex index = getIsInSpatialIndex();
+			if (index != null){
+				return index.getNearestCity(location, countryCode, filterMunicipality, DISTANCE);
+			}
 			return cityDao.getNearest(location, countryCode, filterMunicipality, DISTANCE);
 		}
 
@@ -445,6 +666,15 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     protected boolean shouldIgnoreComments() {
     	return true;
     }
+    
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#isParallelizable()
+     */
+    @Override
+    protected boolean isParallelizable() {
+    	//each line is a poi that doesn't depend on the others
+    	return true;
+    }
 
     /* (non-Javadoc)
      * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#shouldIgnoreFirstLine()
@@ -473,6 +703,15 @@ public class OpenStreetMapPoisSimpleImporter extends AbstractSimpleImporterProce
     //TODO test
     protected void tearDown() {
     	super.tearDown();
+    	if (tileIndexes != null) {
+    		logger.info("tile indexes of the pois : " + tileIndexHits.get() + " hits, " + tileIndexMisses.get() + " misses (loaded), " + getTileCacheSize() + " tiles kept in memory");
+    	}
+    	//release the memory
+    	isInSpatialIndex = null;
+    	tileIndexes = null;
+    	currentTileIndex.remove();
+    	//the pois that are still there have been rolled back
+    	poisToInsert.remove();
     	String savedMessage = this.statusMessage;
     	try {
     		 FullTextSearchEngine.disableLogging=true;
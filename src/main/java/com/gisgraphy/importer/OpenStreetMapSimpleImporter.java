@@ -91,6 +91,25 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     @Autowired
     protected ICitySubdivisionDao citySubdivisionDao;
     
+    /**
+     * the in memory index used to fill the is_in fields, null if
+     * {@link ImporterConfig#isIsInSpatialIndexEnabled()} is false
+     */
+    protected IsInSpatialIndex isInSpatialIndex;
+    
+    /**
+     * the streets waiting to be inserted when
+     * {@link ImporterConfig#isBulkInsertEnabled()}. There is one list by
+     * thread because the lines can be processed by several workers, each one
+     * with its own transaction
+     */
+    private final ThreadLocal<List<OpenStreetMap>> streetsToInsert = new ThreadLocal<List<OpenStreetMap>>() {
+    	@Override
+    	protected List<OpenStreetMap> initialValue() {
+    		return new ArrayList<OpenStreetMap>();
+    	}
+    };
+    
     private static final Pattern pattern = Pattern.compile("(\\w+)\\s\\d+.*",Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
     
     
@@ -103,10 +122,22 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
      */
     @Override
     protected void flushAndClear() {
+	insertBufferedStreets();
 	openStreetMapDao.flushAndClear();
 
     }
     
+    /**
+     * insert the streets buffered by the current thread, if any
+     */
+    protected void insertBufferedStreets() {
+    	List<OpenStreetMap> streets = streetsToInsert.get();
+    	if (!streets.isEmpty()) {
+    		openStreetMapDao.bulkInsert(streets);
+    		streets.clear();
+    	}
+    }
+    
     @Override
     protected void setup() {
         super.setup();
@@ -115,6 +146,10 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
         GeolocSearchEngine.disableLogging=true;
         logger.info("reseting Openstreetmap generatedId");
         idGenerator.sync();
+        if (shouldFillIsInField() && importerConfig.isIsInSpatialIndexEnabled()){
+        	logger.info("loading the is_in spatial index");
+        	isInSpatialIndex = IsInSpatialIndex.load(cityDao, citySubdivisionDao);
+        }
     }
     
 
@@ -126,6 +161,14 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     	return ImporterHelper.listCountryFilesToImport(importerConfig.getOpenStreetMapDir());
     }
 
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+     */
+    @Override
+    protected File[] getArchives() {
+    	return ImporterHelper.listTarFiles(importerConfig.getOpenStreetMapDir());
+    }
+
     /* (non-Javadoc)
      * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getNumberOfColumns()
      */
@@ -305,6 +348,15 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 	}
 	
 		
+	if (importerConfig.isBulkInsertEnabled()) {
+		//the errors will make the batch fail, so we don't catch them
+		List<OpenStreetMap> streets = streetsToInsert.get();
+		streets.add(street);
+		if (streets.size() >= getMaxInsertsBeforeFlush()) {
+			insertBufferedStreets();
+		}
+		return;
+	}
 	try {
 		openStreetMapDao.save(street);
 	} catch (ConstraintViolationException e) {
@@ -392,7 +444,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     protected void setIsInFields(OpenStreetMap street) {
     	if (street != null && street.getLocation() != null) {
     		//first search By Shape because it is the more reliable :
-    		City cityByShape = cityDao.getByShape(street.getLocation(),street.getCountryCode(),true);
+    		City cityByShape = getCityByShape(street.getLocation(),street.getCountryCode(),true);
     		if (cityByShape != null){
     			street.setIsIn(cityByShape.getName());
     			street.setCityId(cityByShape.getId());
@@ -418,7 +470,7 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     				//AFTER setting admnames, we took the best one
     				street.setIsInAdm(getBestAdmName(cityByShape));//cityByShape.getAdm().getName()
     				//set the is_in_place
-    				CitySubdivision subdivision = citySubdivisionDao.getByShape(street.getLocation(),cityByShape.getCountryCode());
+    				CitySubdivision subdivision = getCitySubdivisionByShape(street.getLocation(),cityByShape.getCountryCode());
     				if (subdivision !=null){
     					street.setIsInPlace(subdivision.getName());
     				}
@@ -592,11 +644,30 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
 		return cityDao.getNearest(location, countryCode, filterMunicipality, DISTANCE);
 	}*/
 	
+	protected City getCityByShape(Point location, String countryCode, boolean filterMunicipality) {
+		if (isInSpatialIndex != null){
+			return isInSpatialIndex.getCityByShape(location, countryCode, filterMunicipality);
+		}
+		return cityDao.getByShape(location, countryCode, filterMunicipality);
+	}
+	
+	protected CitySubdivision getCitySubdivisionByShape(Point location, String countryCode) {
+		if (isInSpatialIndex != null){
+			return isInSpatialIndex.getCitySubdivisionByShape(location, countryCode);
+		}
+		return citySubdivisionDao.getByShape(location, countryCode);
+	}
+	
 	protected List<City> getNearestCities(Point location, String countryCode) {
 		if (location ==null){
 			return null;
 		}
-		List<City> cities = cityDao.getNearests(location, countryCode, false, DISTANCE,10);
+		List<City> cities;
+		if (isInSpatialIndex != null){
+			cities = isInSpatialIndex.getNearestCities(location, countryCode, false, DISTANCE,10);
+		} else {
+			cities = cityDao.getNearests(location, countryCode, false, DISTANCE,10);
+		}
 		if (cities ==null || cities.size()==0){
 			return null;
 		} else {
@@ -666,6 +737,15 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     protected boolean shouldIgnoreComments() {
 	return true;
     }
+    
+    /* (non-Javadoc)
+     * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#isParallelizable()
+     */
+    @Override
+    protected boolean isParallelizable() {
+    	//each line is a street that doesn't depend on the others
+    	return true;
+    }
 
     /* (non-Javadoc)
      * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#shouldIgnoreFirstLine()
@@ -698,6 +778,10 @@ public class OpenStreetMapSimpleImporter extends AbstractSimpleImporterProcessor
     //TODO test
     protected void tearDown() {
     	super.tearDown();
+    	//release the memory
+    	isInSpatialIndex = null;
+    	//the streets that are still there have been rolled back
+    	streetsToInsert.remove();
     	FullTextSearchEngine.disableLogging=false;
     	GeolocSearchEngine.disableLogging=false;
     	String savedMessage = this.statusMessage;
@@ -73,6 +73,14 @@ public class QuattroshapesSimpleImporter extends AbstractSimpleImporterProcessor
 		return ImporterHelper.listCountryFilesToImport(importerConfig.getQuattroshapesDir());
 	}
 
+	/* (non-Javadoc)
+	 * @see com.gisgraphy.importer.AbstractSimpleImporterProcessor#getArchives()
+	 */
+	@Override
+	protected File[] getArchives() {
+		return ImporterHelper.listTarFiles(importerConfig.getQuattroshapesDir());
+	}
+
 	/* (non-Javadoc)
 	 * @see com.gisgraphy.domain.geoloc.importer.AbstractImporterProcessor#getNumberOfColumns()
 	 */
@@ -0,0 +1,425 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.repository.ICityDao;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.index.strtree.STRtree;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Spatial index of the shapes of the cities, used by the reverse geocoder to
+ * find the city that contains a point without sending a spatial query to the
+ * database. It gives the same results as
+ * {@link ICityDao#getByShape(Point, String, boolean)} (the smallest shape
+ * wins). The shapes of the city subdivisions and of the adms are not loaded
+ * because the reverse geocoder doesn't look for them.<br/>
+ * Only a simplified copy of the shapes is kept in the heap, as packed
+ * coordinates. The simplification moves the boundary of less than
+ * {@link #SIMPLIFICATION_TOLERANCE} degree, so the simplified shape gives the
+ * right answer for all the points that are farther than that from its
+ * boundary. For the other points, the full shape is read from a memory mapped
+ * file, out of the heap.<br/>
+ * The index is a snapshot of the database at the time it is loaded. Once
+ * loaded it is never modified and can be queried by several threads.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class BoundaryIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(BoundaryIndex.class);
+
+    /**
+     * The number of shapes loaded from the database in one query
+     */
+    public static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * The maximum distance in degree between a shape and its simplified copy
+     * (about 50 meters)
+     */
+    public static final double SIMPLIFICATION_TOLERANCE = 0.0005D;
+
+    /**
+     * The rounding errors that are tolerated when the distance to the
+     * boundary is compared to the tolerance
+     */
+    private static final double EPSILON = 1E-9D;
+
+    /**
+     * The maximum size of one mapped part of the file of the full shapes
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private static final Comparator<Boundary> AREA_COMPARATOR = new Comparator<Boundary>() {
+	public int compare(Boundary o1, Boundary o2) {
+	    return Double.compare(o1.area, o2.area);
+	}
+    };
+
+    private final STRtree cities = new STRtree();
+
+    private int numberOfBoundaries = 0;
+
+    private int numberOfSimplifiedBoundaries = 0;
+
+    private boolean built = false;
+
+    private final File file;
+
+    private OutputStream out;
+
+    /**
+     * The position in the file of the next full shape
+     */
+    private long position = 0;
+
+    /**
+     * The offset in the file of the current mapped part
+     */
+    private long segmentStart = 0;
+
+    private final List<Long> segmentStarts = new ArrayList<Long>();
+
+    private ByteBuffer[] segments;
+
+    /**
+     * A shape of the index : the id of the feature, the area of the full
+     * shape, the rings of the simplified shape as x1,y1,x2,y2,... and where
+     * the full shape is in the file
+     */
+    static class Boundary {
+	final long id;
+	final double area;
+	final double[][] rings;
+	final double tolerance;
+	final int segment;
+	final int offset;
+	final int length;
+
+	Boundary(long id, double area, double[][] rings, double tolerance, int segment, int offset, int length) {
+	    this.id = id;
+	    this.area = area;
+	    this.rings = rings;
+	    this.tolerance = tolerance;
+	    this.segment = segment;
+	    this.offset = offset;
+	    this.length = length;
+	}
+    }
+
+    /**
+     * Create an empty index, the full shapes are written in a temporary file
+     */
+    protected BoundaryIndex() {
+	try {
+	    file = File.createTempFile("gisgraphy-boundaries", ".wkb");
+	    file.deleteOnExit();
+	    out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+	} catch (IOException e) {
+	    throw new RuntimeException("can not create the file of the boundary index : " + e.getMessage(), e);
+	}
+	segmentStarts.add(Long.valueOf(0));
+    }
+
+    /**
+     * Load the shapes of the cities from the database and build the index
+     * 
+     * @param cityDao
+     *                the dao to load the cities
+     * @return the built index
+     */
+    public static BoundaryIndex load(ICityDao cityDao) {
+	Assert.notNull(cityDao, "can not load the boundary index without a cityDao");
+	long start = System.currentTimeMillis();
+	BoundaryIndex index = new BoundaryIndex();
+	try {
+	    loadShapes(index, cityDao);
+	    index.build();
+	} catch (RuntimeException e) {
+	    index.close();
+	    throw e;
+	}
+	logger.info("boundary index loaded in " + (System.currentTimeMillis() - start) + " ms with the shapes of " + index.getNumberOfBoundaries() + " cities ("
+		+ index.numberOfSimplifiedBoundaries + " simplified), " + index.position / (1024 * 1024) + " Mb of shapes mapped from " + index.file.getAbsolutePath());
+	return index;
+    }
+
+    private static void loadShapes(BoundaryIndex index, ICityDao cityDao) {
+	long lastId = 0;
+	List<Object[]> shapes;
+	do {
+	    shapes = cityDao.listShapesFromId(lastId, LOAD_BATCH_SIZE);
+	    for (Object[] shape : shapes) {
+		Long id = (Long) shape[0];
+		index.addCity(id, (Geometry) shape[1]);
+		lastId = id;
+	    }
+	} while (shapes.size() == LOAD_BATCH_SIZE);
+    }
+
+    /**
+     * Add the shape of a city, must be called before {@link #build()}
+     */
+    protected void addCity(Long id, Geometry shape) {
+	if (id == null || shape == null || shape.isEmpty()) {
+	    return;
+	}
+	Assert.state(!built, "can not add a boundary once the index is built");
+	double[][] rings = getRings(shape);
+	if (rings == null) {
+	    //only the polygons can contain a point
+	    return;
+	}
+	double tolerance = 0;
+	Geometry simplified = TopologyPreservingSimplifier.simplify(shape, SIMPLIFICATION_TOLERANCE);
+	if (simplified != null && !simplified.isEmpty() && simplified.getNumPoints() < shape.getNumPoints()) {
+	    double[][] simplifiedRings = getRings(simplified);
+	    if (simplifiedRings != null) {
+		rings = simplifiedRings;
+		tolerance = SIMPLIFICATION_TOLERANCE;
+		numberOfSimplifiedBoundaries++;
+	    }
+	}
+	byte[] wkb = new WKBWriter().write(shape);
+	if (position - segmentStart + wkb.length > MAX_SEGMENT_SIZE) {
+	    segmentStart = position;
+	    segmentStarts.add(Long.valueOf(segmentStart));
+	}
+	try {
+	    out.write(wkb);
+	} catch (IOException e) {
+	    throw new RuntimeException("can not write the shape of " + id + " in the boundary index : " + e.getMessage(), e);
+	}
+	Boundary boundary = new Boundary(id.longValue(), shape.getArea(), rings, tolerance, segmentStarts.size() - 1, (int) (position - segmentStart), wkb.length);
+	position += wkb.length;
+	cities.insert(shape.getEnvelopeInternal(), boundary);
+	numberOfBoundaries++;
+    }
+
+    /**
+     * @return the coordinates of all the rings of the polygons of the shape,
+     *         or null if the shape has no polygon
+     */
+    static double[][] getRings(Geometry shape) {
+	List<double[]> rings = new ArrayList<double[]>();
+	for (int i = 0; i < shape.getNumGeometries(); i++) {
+	    Geometry geometry = shape.getGeometryN(i);
+	    if (geometry instanceof Polygon) {
+		Polygon polygon = (Polygon) geometry;
+		rings.add(toArray(polygon.getExteriorRing()));
+		for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+		    rings.add(toArray(polygon.getInteriorRingN(j)));
+		}
+	    }
+	}
+	return rings.size() == 0 ? null : rings.toArray(new double[rings.size()][]);
+    }
+
+    private static double[] toArray(LineString ring) {
+	Coordinate[] coordinates = ring.getCoordinates();
+	double[] packed = new double[coordinates.length * 2];
+	for (int i = 0; i < coordinates.length; i++) {
+	    packed[i * 2] = coordinates[i].x;
+	    packed[i * 2 + 1] = coordinates[i].y;
+	}
+	return packed;
+    }
+
+    /**
+     * Map the file of the full shapes and build the trees, no boundary can be
+     * added after
+     */
+    protected void build() {
+	try {
+	    out.close();
+	    out = null;
+	    segments = new ByteBuffer[segmentStarts.size()];
+	    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+	    try {
+		FileChannel channel = randomAccessFile.getChannel();
+		for (int i = 0; i < segments.length; i++) {
+		    long start = segmentStarts.get(i).longValue();
+		    long end = i + 1 < segments.length ? segmentStarts.get(i + 1).longValue() : position;
+		    //the mapping stays valid once the channel is closed
+		    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		}
+	    } finally {
+		randomAccessFile.close();
+	    }
+	} catch (IOException e) {
+	    throw new RuntimeException("can not map the file of the boundary index : " + e.getMessage(), e);
+	}
+	cities.build();
+	built = true;
+    }
+
+    /**
+     * @see ICityDao#getByShape(Point, String, boolean)
+     * @return the id of the smallest city whose shape contains the point or
+     *         null
+     */
+    public Long getCityIdByShape(Point point) {
+	for (Boundary boundary : getCandidates(point)) {
+	    if (contains(boundary, point)) {
+		return Long.valueOf(boundary.id);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * @return the boundaries whose envelope contains the point, the smallest
+     *         first
+     */
+    @SuppressWarnings("unchecked")
+    private List<Boundary> getCandidates(Point point) {
+	Assert.notNull(point);
+	Assert.state(built, "the boundary index is not built");
+	List<Boundary> candidates = (List<Boundary>) cities.query(point.getEnvelopeInternal());
+	if (candidates.size() > 1) {
+	    candidates = new ArrayList<Boundary>(candidates);
+	    Collections.sort(candidates, AREA_COMPARATOR);
+	}
+	return candidates;
+    }
+
+    /**
+     * @return true if the full shape of the boundary contains the point. The
+     *         full shape is only read when the point is too near of the
+     *         boundary of the simplified shape to trust it
+     */
+    boolean contains(Boundary boundary, Point point) {
+	double x = point.getX();
+	double y = point.getY();
+	boolean inside = false;
+	double minDistance = Double.MAX_VALUE;
+	//even-odd rule on all the rings, it handles the holes and the multi polygons
+	for (double[] ring : boundary.rings) {
+	    for (int i = 0; i + 3 < ring.length; i += 2) {
+		double x1 = ring[i];
+		double y1 = ring[i + 1];
+		double x2 = ring[i + 2];
+		double y2 = ring[i + 3];
+		if ((y1 > y) != (y2 > y) && x < (x2 - x1) * (y - y1) / (y2 - y1) + x1) {
+		    inside = !inside;
+		}
+		double distance = squaredDistance(x, y, x1, y1, x2, y2);
+		if (distance < minDistance) {
+		    minDistance = distance;
+		}
+	    }
+	}
+	double tolerance = boundary.tolerance + EPSILON;
+	if (minDistance > tolerance * tolerance) {
+	    return inside;
+	}
+	return getFullShape(boundary).contains(point);
+    }
+
+    /**
+     * @return the squared distance from the point to the segment
+     */
+    static double squaredDistance(double x, double y, double x1, double y1, double x2, double y2) {
+	double segmentX = x2 - x1;
+	double segmentY = y2 - y1;
+	double squaredLength = segmentX * segmentX + segmentY * segmentY;
+	double t = squaredLength == 0 ? 0 : ((x - x1) * segmentX + (y - y1) * segmentY) / squaredLength;
+	if (t < 0) {
+	    t = 0;
+	} else if (t > 1) {
+	    t = 1;
+	}
+	double dx = x1 + t * segmentX - x;
+	double dy = y1 + t * segmentY - y;
+	return dx * dx + dy * dy;
+    }
+
+    /**
+     * Read the full shape of a boundary from the mapped file
+     */
+    Geometry getFullShape(Boundary boundary) {
+	//a duplicate has its own position, so the reads can be concurrent
+	ByteBuffer buffer = segments[boundary.segment].duplicate();
+	buffer.position(boundary.offset);
+	byte[] wkb = new byte[boundary.length];
+	buffer.get(wkb);
+	try {
+	    return new WKBReader().read(wkb);
+	} catch (ParseException e) {
+	    throw new IllegalStateException("can not read the shape of " + boundary.id + " in the boundary index : " + e.getMessage());
+	}
+    }
+
+    /**
+     * Delete the file of the full shapes, once the index is replaced by a new
+     * one. The file is deleted at the latest when the JVM exits if the system
+     * doesn't allow to delete a mapped file
+     */
+    public void close() {
+	if (out != null) {
+	    try {
+		out.close();
+	    } catch (IOException e) {
+		logger.warn("can not close the file of the boundary index : " + e.getMessage());
+	    }
+	    out = null;
+	}
+	//the mapping stays valid for the queries in progress
+	if (!file.delete()) {
+	    logger.info("the file of the boundary index " + file.getAbsolutePath() + " will be deleted when the jvm exits");
+	}
+    }
+
+    /**
+     * @return the number of city shapes in the index
+     */
+    public int getNumberOfBoundaries() {
+	return numberOfBoundaries;
+    }
+
+}
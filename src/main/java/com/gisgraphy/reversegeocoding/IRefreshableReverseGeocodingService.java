@@ -0,0 +1,45 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+/**
+ * A {@link IReverseGeocodingService} whose in memory indexes can be reloaded
+ * from the database, e.g : after an import
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public interface IRefreshableReverseGeocodingService extends IReverseGeocodingService {
+
+    /**
+     * (Re)load the road index from the database. The previous index is used
+     * until the new one is loaded.
+     */
+    public void refreshRoadIndex();
+
+    /**
+     * (Re)load the boundary index from the database. The previous index is
+     * used until the new one is loaded.
+     */
+    public void refreshBoundaryIndex();
+
+}
@@ -26,13 +26,18 @@
 package com.gisgraphy.reversegeocoding;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
 import org.slf4j.Logger;
@@ -49,7 +54,10 @@ import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
 import com.gisgraphy.domain.repository.ICityDao;
 import com.gisgraphy.domain.repository.IOpenStreetMapDao;
 import com.gisgraphy.domain.valueobject.Constants;
+import com.gisgraphy.helper.NamedThreadFactory;
+import com.gisgraphy.helper.StreamingJsonSerializer;
 import com.gisgraphy.importer.LabelGenerator;
+import com.gisgraphy.serializer.common.OutputFormat;
 import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.service.ServiceException;
@@ -63,7 +71,7 @@ import com.vividsolutions.jts.geom.Point;
  * 
  */
 @Service
-public class ReverseGeocodingService implements IReverseGeocodingService {
+public class ReverseGeocodingService implements IRefreshableReverseGeocodingService {
 
 	private static final ArrayList<Address> NO_ADDRESS_LIST = new ArrayList<Address>();
 
@@ -80,6 +88,9 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 	
 	AddressResultsDtoSerializer addressResultsDtoSerializer = new AddressResultsDtoSerializer();
 
+	@Autowired(required = false)
+	protected StreamingJsonSerializer streamingJsonSerializer;
+
 	/**
 	 * The logger
 	 */
@@ -88,7 +99,171 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 
 	public static int DEFAULT_RADIUS = 30000;
 
-	
+	private boolean roadIndexEnabled = false;
+
+	private boolean boundaryIndexEnabled = false;
+
+	/**
+	 * The in memory index of the streets, null if it is disabled or not
+	 * loaded yet
+	 */
+	protected volatile RoadIndex roadIndex;
+
+	/**
+	 * The index of the city shapes, null if it is
+	 * disabled or not loaded yet
+	 */
+	protected volatile BoundaryIndex boundaryIndex;
+
+	/**
+	 * The thread that loads the indexes at startup, null if no index is
+	 * enabled
+	 */
+	private ExecutorService indexLoader;
+
+	/**
+	 * Load the road and boundary indexes in the background if they are
+	 * enabled, the database is used until they are loaded
+	 */
+	@PostConstruct
+	public void init() {
+		if (!isRoadIndexEnabled() && !isBoundaryIndexEnabled()) {
+			return;
+		}
+		indexLoader = Executors.newSingleThreadExecutor(new NamedThreadFactory("reverse-geocoding-index-loader"));
+		if (isRoadIndexEnabled()) {
+			indexLoader.execute(new Runnable() {
+				public void run() {
+					refreshRoadIndex();
+				}
+			});
+		}
+		if (isBoundaryIndexEnabled()) {
+			indexLoader.execute(new Runnable() {
+				public void run() {
+					refreshBoundaryIndex();
+				}
+			});
+		}
+		//the thread ends once the indexes are loaded
+		indexLoader.shutdown();
+	}
+
+	/**
+	 * Stop the loading of the indexes if it is not finished
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (indexLoader != null) {
+			indexLoader.shutdownNow();
+		}
+	}
+
+	/**
+	 * (Re)load the road index from the database, e.g : after an import. The
+	 * previous index is used until the new one is loaded. The refreshes are
+	 * done one at a time, a refresh waits for the one in progress.
+	 * 
+	 * @see #setRoadIndexEnabled(boolean)
+	 */
+	public synchronized void refreshRoadIndex() {
+		if (!isRoadIndexEnabled()) {
+			roadIndex = null;
+			return;
+		}
+		try {
+			roadIndex = RoadIndex.load(openStreetMapDao);
+		} catch (RuntimeException e) {
+			logger.error("can not load the road index, the streets will be searched in the database : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return true if the nearest street is searched in an in memory index
+	 *         of the streets rather than in the database (see
+	 *         {@link RoadIndex})
+	 */
+	public boolean isRoadIndexEnabled() {
+		return roadIndexEnabled;
+	}
+
+	/**
+	 * @see #isRoadIndexEnabled()
+	 */
+	public void setRoadIndexEnabled(boolean roadIndexEnabled) {
+		this.roadIndexEnabled = roadIndexEnabled;
+	}
+
+	/**
+	 * (Re)load the boundary index from the database, e.g : after an import.
+	 * The previous index is used until the new one is loaded, then it is
+	 * closed. The refreshes are done one at a time, so that an index is only
+	 * closed once.
+	 * 
+	 * @see #setBoundaryIndexEnabled(boolean)
+	 */
+	public synchronized void refreshBoundaryIndex() {
+		BoundaryIndex index = null;
+		if (isBoundaryIndexEnabled()) {
+			try {
+				index = BoundaryIndex.load(cityDao);
+			} catch (RuntimeException e) {
+				logger.error("can not load the boundary index, the cities will be searched in the database : " + e.getMessage(), e);
+				return;
+			}
+		}
+		BoundaryIndex previous = boundaryIndex;
+		boundaryIndex = index;
+		if (previous != null) {
+			previous.close();
+		}
+	}
+
+	/**
+	 * @return true if the city that contains a point is searched in an index
+	 *         of the shapes rather than in the database (see
+	 *         {@link BoundaryIndex})
+	 */
+	public boolean isBoundaryIndexEnabled() {
+		return boundaryIndexEnabled;
+	}
+
+	/**
+	 * @see #isBoundaryIndexEnabled()
+	 */
+	public void setBoundaryIndexEnabled(boolean boundaryIndexEnabled) {
+		this.boundaryIndexEnabled = boundaryIndexEnabled;
+	}
+
+	/**
+	 * @return the smallest city whose shape contains the point, from the
+	 *         boundary index if it is loaded, from the database otherwise
+	 */
+	protected City getCityByShape(Point point) {
+		BoundaryIndex index = boundaryIndex;
+		if (index == null) {
+			return cityDao.getByShape(point, null, false);
+		}
+		Long id = index.getCityIdByShape(point);
+		return id == null ? null : cityDao.get(id);
+	}
+
+	/**
+	 * @param onlyRoad
+	 *            whether the footways should be excluded
+	 * @return the nearest street with a name, from the road index if it is
+	 *         loaded (the street is then loaded by its id), from the database
+	 *         otherwise
+	 */
+	protected OpenStreetMap getNearestStreet(Point point, boolean onlyRoad) {
+		RoadIndex index = roadIndex;
+		if (index == null) {
+			return onlyRoad ? openStreetMapDao.getNearestRoadFrom(point) : openStreetMapDao.getNearestFrom(point);
+		}
+		Long id = index.getNearestRoadId(point, onlyRoad);
+		return id == null ? null : openStreetMapDao.get(id);
+	}
+
 
 	public AddressResultsDto executeQuery(ReverseGeocodingQuery query)
 			throws ServiceException {
@@ -97,11 +272,11 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 		Assert.notNull(point, "Can not execute a query without a valid point");
 		long start = System.currentTimeMillis();
 		statsUsageService.increaseUsage(StatsUsageType.REVERSEGEOCODING);
-		OpenStreetMap openStreetMap = openStreetMapDao.getNearestRoadFrom(point);
+		OpenStreetMap openStreetMap = getNearestStreet(point, true);
 		//AddressResultsDto addressResultsDto = null;
 		if (openStreetMap==null){
 			logger.debug("no road found, try to search deeper");
-			openStreetMap =openStreetMapDao.getNearestFrom(point);
+			openStreetMap = getNearestStreet(point, false);
 		}
 		if (openStreetMap!= null){
 			//stupid patch
@@ -171,7 +346,7 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 			
 		} else {
 			logger.info("No street found, try to find city by shape");
-			City city = cityDao.getByShape(point, null, false);
+			City city = getCityByShape(point);
 			Address address = null;
 			if (city == null){
 				logger.info("No city by shape found, try by vicinity");
@@ -218,6 +393,14 @@ public class ReverseGeocodingService implements IReverseGeocodingService {
 				"Can not serialize into a null outputStream");
 	AddressResultsDto AddressResultDto = executeQuery(query);
 	Map<String, Object> extraParameter = new HashMap<String, Object>();
+	if (query.getOutputFormat() == OutputFormat.JSON && streamingJsonSerializer != null && streamingJsonSerializer.isEnabled()) {
+		try {
+			streamingJsonSerializer.write(outputStream, AddressResultDto, false, query.getCallback());
+		} catch (IOException e) {
+			throw new ServiceException(e);
+		}
+		return;
+	}
 	extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, query.getCallback());
 	addressResultsDtoSerializer.serialize(outputStream, query.getOutputFormat(), AddressResultDto, false,extraParameter);
 	}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.street.StreetType;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * In memory spatial index of the streets, used by the reverse geocoder to
+ * find the nearest street of a point without sending a spatial query to the
+ * database. It searches the same streets as
+ * {@link IOpenStreetMapDao#getNearestRoadFrom(Point)} and
+ * {@link IOpenStreetMapDao#getNearestFrom(Point)} : only the streets with a
+ * name are indexed and they are searched in a box of
+ * {@link #SEARCH_DISTANCE} meters around the point.<br/>
+ * Only the id, the type and the coordinates of the streets are kept, the
+ * coordinates are packed in a float array (about one meter of precision).
+ * The distance is computed from the point to the nearest segment of the
+ * shape on a plane, the longitudes being scaled by the cosine of the
+ * latitude of the point. It is an approximation of the distance of the
+ * database : when two streets are at almost the same distance (less than
+ * a few meters of difference), the index may return the other one.<br/>
+ * The index is a snapshot of the database at the time it is loaded. Once
+ * loaded it is never modified and can be queried by several threads.<br/>
+ * The index is on heap : the JTS {@link STRtree} is already a packed R-tree
+ * (sort tile recursive, built once), and the float arrays cost about 8 bytes
+ * by vertex, so it does not need a memory mapped file. It only gives the id
+ * of the street : the caller loads the street with its house numbers by
+ * primary key, which is a cheap query compared to the spatial one, and keeps
+ * the labels and the house numbers in the database as the only source.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class RoadIndex {
+
+    protected static final Logger logger = LoggerFactory.getLogger(RoadIndex.class);
+
+    /**
+     * The number of streets loaded from the database in one query
+     */
+    public static final int LOAD_BATCH_SIZE = 10000;
+
+    /**
+     * The distance in meters around the point where the streets are searched,
+     * the same as the one of the dao
+     */
+    public static final int SEARCH_DISTANCE = 7000;
+
+    /**
+     * Approximative number of meters for one degree of latitude
+     */
+    private static final double METERS_BY_DEGREE = 111320D;
+
+    private final STRtree roads = new STRtree();
+
+    private int numberOfRoads = 0;
+
+    private boolean built = false;
+
+    /**
+     * A street of the index : its id, whether it is a road (a street type
+     * that is not a footway) and its coordinates as x1,y1,x2,y2,...
+     */
+    static class Road {
+	final long id;
+	final boolean road;
+	final float[] coordinates;
+
+	Road(long id, boolean road, float[] coordinates) {
+	    this.id = id;
+	    this.road = road;
+	    this.coordinates = coordinates;
+	}
+    }
+
+    /**
+     * Load all the streets that have a name from the database and build the
+     * index
+     * 
+     * @param openStreetMapDao
+     *                the dao to load the streets
+     * @return the built index
+     */
+    public static RoadIndex load(IOpenStreetMapDao openStreetMapDao) {
+	Assert.notNull(openStreetMapDao, "can not load the road index without an openStreetMapDao");
+	long start = System.currentTimeMillis();
+	RoadIndex index = new RoadIndex();
+	long lastId = 0;
+	List<Object[]> roads;
+	do {
+	    roads = openStreetMapDao.listNamedShapesFromId(lastId, LOAD_BATCH_SIZE);
+	    for (Object[] road : roads) {
+		Long id = (Long) road[0];
+		index.addRoad(id, (StreetType) road[1], (LineString) road[2]);
+		lastId = id;
+	    }
+	} while (roads.size() == LOAD_BATCH_SIZE);
+	index.build();
+	logger.info("road index loaded in " + (System.currentTimeMillis() - start) + " ms with " + index.getNumberOfRoads() + " roads");
+	return index;
+    }
+
+    /**
+     * Add a street to the index, must be called before {@link #build()}
+     */
+    protected void addRoad(Long id, StreetType streetType, LineString shape) {
+	if (id == null || shape == null || shape.isEmpty()) {
+	    return;
+	}
+	Assert.state(!built, "can not add a road once the index is built");
+	Coordinate[] shapeCoordinates = shape.getCoordinates();
+	float[] coordinates = new float[shapeCoordinates.length * 2];
+	for (int i = 0; i < shapeCoordinates.length; i++) {
+	    coordinates[i * 2] = (float) shapeCoordinates[i].x;
+	    coordinates[i * 2 + 1] = (float) shapeCoordinates[i].y;
+	}
+	//like 'streetType <> FOOTWAY' in sql, a street without type is not a road
+	boolean road = streetType != null && streetType != StreetType.FOOTWAY;
+	roads.insert(shape.getEnvelopeInternal(), new Road(id.longValue(), road, coordinates));
+	numberOfRoads++;
+    }
+
+    /**
+     * Build the tree, no road can be added after
+     */
+    protected void build() {
+	roads.build();
+	built = true;
+    }
+
+    /**
+     * @param point
+     *                the point from which we want the street
+     * @param onlyRoad
+     *                whether the footways and the streets without type
+     *                should be excluded
+     * @return the id of the nearest street or null if there is no street in
+     *         {@link #SEARCH_DISTANCE} meters
+     * @see IOpenStreetMapDao#getNearestFrom(Point, boolean, boolean)
+     */
+    public Long getNearestRoadId(Point point, boolean onlyRoad) {
+	Assert.notNull(point);
+	double latitudeDelta = SEARCH_DISTANCE / METERS_BY_DEGREE;
+	//a degree of longitude is shorter when we go to the poles
+	double longitudeScale = Math.max(Math.cos(Math.toRadians(point.getY())), 0.01D);
+	double longitudeDelta = latitudeDelta / longitudeScale;
+	Envelope searchEnvelope = new Envelope(point.getX() - longitudeDelta, point.getX() + longitudeDelta, point.getY() - latitudeDelta,
+		point.getY() + latitudeDelta);
+	Road nearest = null;
+	double nearestDistance = Double.MAX_VALUE;
+	for (Object o : roads.query(searchEnvelope)) {
+	    Road road = (Road) o;
+	    if (onlyRoad && !road.road) {
+		continue;
+	    }
+	    double distance = squaredDistance(point.getX(), point.getY(), longitudeScale, road.coordinates);
+	    if (distance < nearestDistance) {
+		nearestDistance = distance;
+		nearest = road;
+	    }
+	}
+	return nearest == null ? null : Long.valueOf(nearest.id);
+    }
+
+    /**
+     * @return the squared distance, in degree of latitude, from the point to
+     *         the nearest segment of the line. The longitudes are scaled by
+     *         longitudeScale so that both axis have the same unit
+     */
+    static double squaredDistance(double x, double y, double longitudeScale, float[] coordinates) {
+	if (coordinates.length == 2) {
+	    double dx = (coordinates[0] - x) * longitudeScale;
+	    double dy = coordinates[1] - y;
+	    return dx * dx + dy * dy;
+	}
+	double min = Double.MAX_VALUE;
+	for (int i = 0; i + 3 < coordinates.length; i += 2) {
+	    //the segment and the point, relative to the point
+	    double ax = (coordinates[i] - x) * longitudeScale;
+	    double ay = coordinates[i + 1] - y;
+	    double bx = (coordinates[i + 2] - x) * longitudeScale;
+	    double by = coordinates[i + 3] - y;
+	    double segmentX = bx - ax;
+	    double segmentY = by - ay;
+	    double squaredLength = segmentX * segmentX + segmentY * segmentY;
+	    //projection of the point on the segment, bounded to the segment
+	    double t = squaredLength == 0 ? 0 : -(ax * segmentX + ay * segmentY) / squaredLength;
+	    if (t < 0) {
+		t = 0;
+	    } else if (t > 1) {
+		t = 1;
+	    }
+	    double cx = ax + t * segmentX;
+	    double cy = ay + t * segmentY;
+	    double distance = cx * cx + cy * cy;
+	    if (distance < min) {
+		min = distance;
+	    }
+	}
+	return min;
+    }
+
+    /**
+     * @return the number of streets in the index
+     */
+    public int getNumberOfRoads() {
+	return numberOfRoads;
+    }
+
+}
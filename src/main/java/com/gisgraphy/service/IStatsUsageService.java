@@ -25,6 +25,7 @@
  */
 package com.gisgraphy.service;
 
+import com.gisgraphy.stats.LatencyHistogram;
 import com.gisgraphy.stats.StatsUsage;
 import com.gisgraphy.stats.StatsUsageType;
 
@@ -77,4 +78,31 @@ public interface IStatsUsageService {
      */
     void flush(StatsUsageType statsUsageType);
 
+    /**
+     * @param statsUsageType
+     *                the {@link StatsUsageType} of the request
+     * @param timeInMillis
+     *                the time the request took, it is added to the latency
+     *                histogram of the type
+     */
+    void recordLatency(StatsUsageType statsUsageType, long timeInMillis);
+
+    /**
+     * @param statsUsageType
+     *                the usagetype
+     * @return the histogram of the times recorded for the specified
+     *         {@link StatsUsageType} since the start or the last reset, it is
+     *         not persisted
+     * @see #recordLatency(StatsUsageType, long)
+     */
+    LatencyHistogram getLatencyHistogram(StatsUsageType statsUsageType);
+
+    /**
+     * @param statsUsageType
+     *                the usagetype
+     * @return the number of usages by second of the specified
+     *         {@link StatsUsageType} during the last minute
+     */
+    double getRate(StatsUsageType statsUsageType);
+
 }
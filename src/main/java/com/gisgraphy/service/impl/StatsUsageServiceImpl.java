@@ -22,11 +22,19 @@
  *******************************************************************************/
 package com.gisgraphy.service.impl;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
@@ -34,16 +42,46 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import com.gisgraphy.domain.repository.IStatsUsageDao;
+import com.gisgraphy.helper.NamedThreadFactory;
 import com.gisgraphy.service.IStatsUsageService;
+import com.gisgraphy.stats.LatencyHistogram;
 import com.gisgraphy.stats.StatsUsage;
 import com.gisgraphy.stats.StatsUsageType;
+import com.gisgraphy.stats.UsageRate;
 
+/**
+ * The counters are kept in memory and can be increased concurrently by the
+ * servlet threads without lock. Every {@link IStatsUsageService#FLUSH_THRESHOLD}
+ * usages, the value is persisted by a background thread, so the request
+ * thread never waits for the database.<br/>
+ * The rate and the latency histogram of each type are only kept in memory.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
 public class StatsUsageServiceImpl implements IStatsUsageService {
 
+    protected static final Logger logger = LoggerFactory
+	    .getLogger(StatsUsageServiceImpl.class);
+
+    private static final long RESET_COUNTER_VALUE = 0L;
+
+    /**
+     * One counter by type. The map is filled once and never modified, so it
+     * can be read without synchronization
+     */
+    private final Map<StatsUsageType, AtomicLong> counterMap = new EnumMap<StatsUsageType, AtomicLong>(StatsUsageType.class);
+
+    /**
+     * Whether a flush is already waiting in the executor for a type, to not
+     * queue several flushes of the same counter
+     */
+    private final Map<StatsUsageType, AtomicBoolean> pendingFlushes = new EnumMap<StatsUsageType, AtomicBoolean>(StatsUsageType.class);
 
-    private static final Long RESET_COUNTER_VALUE = Long.valueOf(0L);
+    private final Map<StatsUsageType, UsageRate> rateMap = new EnumMap<StatsUsageType, UsageRate>(StatsUsageType.class);
 
-    private Map<String, Long> counterMap = new HashMap<String, Long>();
+    private final Map<StatsUsageType, LatencyHistogram> latencyMap = new EnumMap<StatsUsageType, LatencyHistogram>(StatsUsageType.class);
+
+    private Executor flushExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("stats-usage-flush"));
     
     @Autowired
     IStatsUsageDao statsUsageDao;
@@ -53,6 +91,14 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
     
     public static boolean disabled = false;
 
+    public StatsUsageServiceImpl() {
+	for (StatsUsageType statsUsageType : StatsUsageType.values()) {
+	    counterMap.put(statsUsageType, new AtomicLong(RESET_COUNTER_VALUE));
+	    pendingFlushes.put(statsUsageType, new AtomicBoolean(false));
+	    rateMap.put(statsUsageType, new UsageRate());
+	    latencyMap.put(statsUsageType, new LatencyHistogram());
+	}
+    }
 
     @PostConstruct
     protected void init() {
@@ -62,6 +108,24 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
 
     }
 
+    /**
+     * Persist the counters that have not been flushed yet and stop the flush
+     * thread
+     */
+    @PreDestroy
+    protected void destroy() {
+	if (flushExecutor instanceof ExecutorService) {
+	    ((ExecutorService) flushExecutor).shutdown();
+	}
+	for (StatsUsageType statsUsageType : StatsUsageType.values()) {
+	    try {
+		flush(statsUsageType);
+	    } catch (RuntimeException e) {
+		logger.warn("can not flush the usage of " + statsUsageType + " : " + e.getMessage());
+	    }
+	}
+    }
+
     private StatsUsage initCounter(StatsUsageType statsUsageType) {
 	StatsUsage statsUsage = statsUsageDao
 	    .getByUsageType(statsUsageType);
@@ -69,7 +133,7 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
 	statsUsage = new StatsUsage(statsUsageType);
 	statsUsageDao.save(statsUsage);
 	}
-	this.counterMap.put(statsUsage.getStatsUsageType().toString(),
+	this.counterMap.get(statsUsage.getStatsUsageType()).set(
 	    statsUsage.getUsage());
 	return statsUsage;
     }
@@ -89,7 +153,7 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
      * @see com.gisgraphy.service.IStatsUsageService#GetUsage(com.gisgraphy.stats.StatsUsageType)
      */
     public Long getUsage(StatsUsageType statsUsageType) {
-    	return counterMap.get(statsUsageType.toString());
+    	return Long.valueOf(counterMap.get(statsUsageType).get());
     }
 
     /*
@@ -99,22 +163,51 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
      */
     public void increaseUsage(StatsUsageType statsUsageType) {
     	if (!disabled){
-    		long newValue = counterMap.get(statsUsageType.toString()) + 1;
-    		counterMap.put(statsUsageType.toString(), newValue);
+    		long newValue = counterMap.get(statsUsageType).incrementAndGet();
+    		rateMap.get(statsUsageType).mark();
     		if (newValue % IStatsUsageService.FLUSH_THRESHOLD == 0) {
-    			flush(statsUsageType);
+    			scheduleFlush(statsUsageType);
     		}
     	}
     }
 
+    /**
+     * ask the flush thread to persist the counter, unless it is already
+     * planned
+     */
+    protected void scheduleFlush(final StatsUsageType statsUsageType) {
+	final AtomicBoolean pending = pendingFlushes.get(statsUsageType);
+	if (pending.compareAndSet(false, true)) {
+	    try {
+		flushExecutor.execute(new Runnable() {
+		    public void run() {
+			//reset before flushing to not miss the usages done during the flush
+			pending.set(false);
+			try {
+			    flush(statsUsageType);
+			} catch (RuntimeException e) {
+			    logger.error("can not flush the usage of " + statsUsageType + " : " + e.getMessage(), e);
+			}
+		    }
+		});
+	    } catch (RuntimeException e) {
+		//the executor has been shutdown or is saturated, the next threshold will retry
+		pending.set(false);
+		logger.warn("can not schedule the flush of the usage of " + statsUsageType + " : " + e.getMessage());
+	    }
+	}
+    }
+
     public void resetUsage(StatsUsageType statsUsageType) {
     	if (!disabled){
-    		counterMap.put(statsUsageType.toString(), RESET_COUNTER_VALUE);
+    		counterMap.get(statsUsageType).set(RESET_COUNTER_VALUE);
+    		rateMap.get(statsUsageType).reset();
+    		latencyMap.get(statsUsageType).reset();
     		flush(statsUsageType);
     	}
     }
 
-    public void flush(StatsUsageType statsUsageType) {
+    public synchronized void flush(StatsUsageType statsUsageType) {
     	if (!disabled){
     		statsUsageDao.flushAndClear();
     		StatsUsage statsUsage = statsUsageDao.getByUsageType(statsUsageType);
@@ -127,11 +220,56 @@ public class StatsUsageServiceImpl implements IStatsUsageService {
     		txDefinition.setReadOnly(false);
 
     		txStatus = transactionManager.getTransaction(txDefinition);
-    		statsUsage.setUsage(counterMap.get(statsUsageType.toString()));
+    		statsUsage.setUsage(getUsage(statsUsageType));
     		statsUsageDao.save(statsUsage);
     		transactionManager.commit(txStatus);
     	}
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.service.IStatsUsageService#recordLatency(com.gisgraphy.stats.StatsUsageType, long)
+     */
+    public void recordLatency(StatsUsageType statsUsageType, long timeInMillis) {
+	if (!disabled) {
+	    latencyMap.get(statsUsageType).record(timeInMillis);
+	}
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.service.IStatsUsageService#getLatencyHistogram(com.gisgraphy.stats.StatsUsageType)
+     */
+    public LatencyHistogram getLatencyHistogram(StatsUsageType statsUsageType) {
+	return latencyMap.get(statsUsageType);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.gisgraphy.service.IStatsUsageService#getRate(com.gisgraphy.stats.StatsUsageType)
+     */
+    public double getRate(StatsUsageType statsUsageType) {
+	return rateMap.get(statsUsageType).getRate();
+    }
+
+    /**
+     * @return the executor that persists the counters when the threshold is
+     *         reached
+     */
+    public Executor getFlushExecutor() {
+	return flushExecutor;
+    }
+
+    /**
+     * @param flushExecutor
+     *            the executor that persists the counters when the threshold
+     *            is reached. The default one has a single daemon thread
+     */
+    public void setFlushExecutor(Executor flushExecutor) {
+	this.flushExecutor = flushExecutor;
+    }
 
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the response times of a type of request. The times are counted
+ * in fixed buckets (see {@link #BUCKET_UPPER_BOUNDS}), so the percentiles are
+ * approximated by the upper bound of their bucket. It can be updated
+ * concurrently without lock.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class LatencyHistogram {
+
+    /**
+     * The upper bounds (included, in milliseconds) of the buckets. The last
+     * bucket counts the times greater than the last bound
+     */
+    public final static long[] BUCKET_UPPER_BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong(0);
+
+    private final AtomicLong totalTime = new AtomicLong(0);
+
+    /**
+     * @param timeInMillis
+     *            the response time of a request
+     */
+    public void record(long timeInMillis) {
+	long time = Math.max(0, timeInMillis);
+	counts.incrementAndGet(getBucket(time));
+	count.incrementAndGet();
+	totalTime.addAndGet(time);
+    }
+
+    private int getBucket(long time) {
+	for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+	    if (time <= BUCKET_UPPER_BOUNDS[i]) {
+		return i;
+	    }
+	}
+	return BUCKET_UPPER_BOUNDS.length;
+    }
+
+    /**
+     * @return the number of recorded times
+     */
+    public long getCount() {
+	return count.get();
+    }
+
+    /**
+     * @return the mean of the recorded times in milliseconds, 0 if there is
+     *         none
+     */
+    public long getMean() {
+	long n = count.get();
+	return n == 0 ? 0 : totalTime.get() / n;
+    }
+
+    /**
+     * @return the number of times by bucket, the bucket i counts the times
+     *         lower or equal to {@link #BUCKET_UPPER_BOUNDS}[i] and greater
+     *         than the previous bound
+     */
+    public long[] getCounts() {
+	long[] snapshot = new long[counts.length()];
+	for (int i = 0; i < snapshot.length; i++) {
+	    snapshot[i] = counts.get(i);
+	}
+	return snapshot;
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, between 0 and 100 (e.g : 99)
+     * @return the upper bound of the bucket of the percentile in
+     *         milliseconds, {@link Long#MAX_VALUE} if it is in the last
+     *         bucket, 0 if no time has been recorded
+     */
+    public long getPercentile(double percentile) {
+	long[] snapshot = getCounts();
+	long total = 0;
+	for (long bucketCount : snapshot) {
+	    total += bucketCount;
+	}
+	if (total == 0) {
+	    return 0;
+	}
+	long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+	long seen = 0;
+	for (int i = 0; i < BUCKET_UPPER_BOUNDS.length; i++) {
+	    seen += snapshot[i];
+	    if (seen >= rank) {
+		return BUCKET_UPPER_BOUNDS[i];
+	    }
+	}
+	return Long.MAX_VALUE;
+    }
+
+    /**
+     * Forget the recorded times
+     */
+    public void reset() {
+	for (int i = 0; i < counts.length(); i++) {
+	    counts.set(i, 0);
+	}
+	count.set(0);
+	totalTime.set(0);
+    }
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate of a type of request, computed on the last complete period (one
+ * minute by default). The requests are counted without lock, the counter is
+ * only synchronized when a period ends.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class UsageRate {
+
+    /**
+     * Default period in milliseconds
+     */
+    public final static long DEFAULT_PERIOD = 60 * 1000;
+
+    private final long period;
+
+    private final AtomicLong currentCount = new AtomicLong(0);
+
+    private volatile long currentPeriodStart;
+
+    private volatile long lastPeriodCount = 0;
+
+    public UsageRate() {
+	this(DEFAULT_PERIOD, System.currentTimeMillis());
+    }
+
+    /**
+     * @param period
+     *            the period in milliseconds
+     * @param start
+     *            the start of the first period
+     */
+    UsageRate(long period, long start) {
+	this.period = period;
+	this.currentPeriodStart = start;
+    }
+
+    /**
+     * Count a request
+     */
+    public void mark() {
+	mark(System.currentTimeMillis());
+    }
+
+    void mark(long now) {
+	rotate(now);
+	currentCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of requests by second during the last complete
+     *         period
+     */
+    public double getRate() {
+	return getRate(System.currentTimeMillis());
+    }
+
+    double getRate(long now) {
+	rotate(now);
+	return lastPeriodCount * 1000D / period;
+    }
+
+    private void rotate(long now) {
+	if (now - currentPeriodStart < period) {
+	    return;
+	}
+	synchronized (this) {
+	    long elapsedPeriods = (now - currentPeriodStart) / period;
+	    if (elapsedPeriods == 0) {
+		//already done by another thread
+		return;
+	    }
+	    long count = currentCount.getAndSet(0);
+	    //no request during the last period if more than one has elapsed
+	    lastPeriodCount = elapsedPeriods == 1 ? count : 0;
+	    currentPeriodStart += elapsedPeriods * period;
+	}
+    }
+
+    /**
+     * Forget the counted requests
+     */
+    public synchronized void reset() {
+	currentCount.set(0);
+	lastPeriodCount = 0;
+    }
+
+}
@@ -0,0 +1,405 @@
+package com.gisgraphy.street;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.helper.GeolocHelper;
+
+/**
+ * Compact binary form of the house numbers of a street, stored in one solr
+ * value instead of one 'number:lng,lat' string per house number.
+ * <p>
+ * The house numbers are sorted by their numeric value. For each of them we
+ * store a flag byte, the delta of the numeric value with the previous one, the
+ * label only when it is not the numeric value itself (e.g : '12b'), and the
+ * deltas of the latitude and longitude as fixed point integers (1e-7 degree,
+ * about one centimeter). All the integers are variable length encoded.
+ * <p>
+ * The house numbers are read with a {@link Cursor} that decodes them in place,
+ * without creating any object per house number.
+ *
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class CompactHouseNumbers {
+
+	/**
+	 * The prefix of the solr values that are compact house numbers, the legacy
+	 * values always begin with the house number
+	 */
+	public static final String SOLR_VALUE_PREFIX = "~hn1:";
+
+	static final byte VERSION = 1;
+
+	static final int FLAG_LABEL = 1;
+
+	static final int FLAG_NO_NUMBER = 2;
+
+	static final double FIXED_POINT_PRECISION = 1E7;
+
+	private static final String CHARSET = "UTF-8";
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+		public int compare(Entry o1, Entry o2) {
+			if (o1.number == null || o2.number == null) {
+				if (o1.number != null) {
+					return -1;
+				}
+				if (o2.number != null) {
+					return 1;
+				}
+			} else if (o1.number.intValue() != o2.number.intValue()) {
+				return o1.number.intValue() < o2.number.intValue() ? -1 : 1;
+			}
+			return o1.label.compareTo(o2.label);
+		}
+	};
+
+	private final byte[] data;
+
+	private final int size;
+
+	/**
+	 * @param data
+	 *            the encoded house numbers, as returned by {@link #getData()}
+	 */
+	public CompactHouseNumbers(byte[] data) {
+		if (data == null || data.length == 0) {
+			throw new IllegalArgumentException("can not read compact house numbers from empty data");
+		}
+		if (data[0] != VERSION) {
+			throw new IllegalArgumentException("unknown version of compact house numbers : " + data[0]);
+		}
+		this.data = data;
+		this.size = (int) readVarint(data, new int[] { 1 });
+	}
+
+	/**
+	 * @param houseNumbers
+	 *            the house numbers to encode, the ones without number or
+	 *            location are ignored
+	 * @return the encoded house numbers or null if there is no house number to
+	 *         encode
+	 */
+	public static CompactHouseNumbers encode(Collection<HouseNumber> houseNumbers) {
+		if (houseNumbers == null || houseNumbers.size() == 0) {
+			return null;
+		}
+		List<Entry> entries = new ArrayList<Entry>(houseNumbers.size());
+		for (HouseNumber houseNumber : houseNumbers) {
+			if (houseNumber == null || houseNumber.getNumber() == null || houseNumber.getLocation() == null) {
+				continue;
+			}
+			String label = houseNumber.getNumber().trim();
+			entries.add(new Entry(label, HouseNumberUtil.normalizeNumberToInt(label), toFixedPoint(houseNumber.getLatitude()), toFixedPoint(houseNumber.getLongitude())));
+		}
+		if (entries.size() == 0) {
+			return null;
+		}
+		Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+		Arrays.sort(sorted, ENTRY_COMPARATOR);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(8 + sorted.length * 8);
+		out.write(VERSION);
+		writeVarint(out, sorted.length);
+		int previousNumber = 0;
+		int previousLatitude = 0;
+		int previousLongitude = 0;
+		for (Entry entry : sorted) {
+			int flags = 0;
+			if (entry.number == null) {
+				flags |= FLAG_NO_NUMBER;
+			}
+			if (entry.number == null || !entry.label.equals(entry.number.toString())) {
+				flags |= FLAG_LABEL;
+			}
+			out.write(flags);
+			if (entry.number != null) {
+				writeVarint(out, entry.number.intValue() - previousNumber);
+				previousNumber = entry.number.intValue();
+			}
+			if ((flags & FLAG_LABEL) != 0) {
+				byte[] label = toBytes(entry.label);
+				writeVarint(out, label.length);
+				out.write(label, 0, label.length);
+			}
+			writeVarint(out, zigzag(entry.latitude - previousLatitude));
+			writeVarint(out, zigzag(entry.longitude - previousLongitude));
+			previousLatitude = entry.latitude;
+			previousLongitude = entry.longitude;
+		}
+		return new CompactHouseNumbers(out.toByteArray());
+	}
+
+	/**
+	 * @param value
+	 *            a value of the house numbers solr field
+	 * @return true if the value is compact house numbers, false if it is a
+	 *         legacy 'number:lng,lat' value
+	 */
+	public static boolean isCompact(String value) {
+		return value != null && value.startsWith(SOLR_VALUE_PREFIX);
+	}
+
+	/**
+	 * @param value
+	 *            a value returned by {@link #toSolrValue()}
+	 * @return the house numbers or null if the value is not compact house
+	 *         numbers
+	 */
+	public static CompactHouseNumbers fromSolrValue(String value) {
+		if (!isCompact(value)) {
+			return null;
+		}
+		try {
+			return new CompactHouseNumbers(Base64.decodeBase64(value.substring(SOLR_VALUE_PREFIX.length()).getBytes("US-ASCII")));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the value to store in the house numbers solr field
+	 */
+	public String toSolrValue() {
+		try {
+			return SOLR_VALUE_PREFIX + new String(Base64.encodeBase64(data), "US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the house numbers as dto, sorted by number
+	 */
+	public List<HouseNumberDto> toHouseNumberDtos() {
+		List<HouseNumberDto> dtos = new ArrayList<HouseNumberDto>(size);
+		Cursor cursor = cursor();
+		while (cursor.next()) {
+			dtos.add(new HouseNumberDto(GeolocHelper.createPoint(cursor.getLongitude(), cursor.getLatitude()), cursor.getLabel()));
+		}
+		return dtos;
+	}
+
+	/**
+	 * @return the house numbers as a read only list of dto, sorted by number.
+	 *         The dtos are only decoded when an element of the list is read,
+	 *         the geocoder scans the house numbers of the list with a
+	 *         {@link Cursor} instead
+	 */
+	public HouseNumberDtoList asList() {
+		return new HouseNumberDtoList();
+	}
+
+	/**
+	 * @return a new cursor positioned before the first house number
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * @return the number of house numbers
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the encoded house numbers
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Iterate over the house numbers, sorted by number. the values of the
+	 * current house number are decoded in the fields of the cursor, only
+	 * {@link #getLabel()} creates an object. A cursor is not thread safe.
+	 */
+	public class Cursor {
+
+		private final int[] position = new int[] { 1 };
+
+		private int remaining;
+
+		private boolean hasNumber;
+
+		private int number;
+
+		private int labelOffset = -1;
+
+		private int labelLength;
+
+		private int latitude;
+
+		private int longitude;
+
+		private Cursor() {
+			remaining = (int) readVarint(data, position);
+		}
+
+		/**
+		 * Move to the next house number
+		 *
+		 * @return false if there is no more house number
+		 */
+		public boolean next() {
+			if (remaining <= 0) {
+				return false;
+			}
+			remaining--;
+			int flags = data[position[0]++];
+			hasNumber = (flags & FLAG_NO_NUMBER) == 0;
+			if (hasNumber) {
+				number += (int) readVarint(data, position);
+			}
+			if ((flags & FLAG_LABEL) != 0) {
+				labelLength = (int) readVarint(data, position);
+				labelOffset = position[0];
+				position[0] += labelLength;
+			} else {
+				labelOffset = -1;
+			}
+			latitude += unzigzag(readVarint(data, position));
+			longitude += unzigzag(readVarint(data, position));
+			return true;
+		}
+
+		/**
+		 * @return false if the label of the house number has no numeric part
+		 */
+		public boolean hasNumber() {
+			return hasNumber;
+		}
+
+		/**
+		 * @return the numeric value of the house number, as returned by
+		 *         {@link HouseNumberUtil#normalizeNumberToInt(String)}
+		 */
+		public int getNumber() {
+			return number;
+		}
+
+		/**
+		 * @return the label of the house number (e.g : '12b')
+		 */
+		public String getLabel() {
+			if (labelOffset == -1) {
+				return Integer.toString(number);
+			}
+			try {
+				return new String(data, labelOffset, labelLength, CHARSET);
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		public double getLatitude() {
+			return latitude / FIXED_POINT_PRECISION;
+		}
+
+		public double getLongitude() {
+			return longitude / FIXED_POINT_PRECISION;
+		}
+	}
+
+	/**
+	 * A read only list of the house numbers as dto, that keeps the compact
+	 * house numbers it is decoded from. The dtos are decoded the first time
+	 * an element is read.
+	 */
+	public class HouseNumberDtoList extends AbstractList<HouseNumberDto> {
+
+		private volatile List<HouseNumberDto> dtos;
+
+		private HouseNumberDtoList() {
+		}
+
+		/**
+		 * @return the compact house numbers the list is decoded from
+		 */
+		public CompactHouseNumbers getCompactHouseNumbers() {
+			return CompactHouseNumbers.this;
+		}
+
+		@Override
+		public HouseNumberDto get(int index) {
+			List<HouseNumberDto> decoded = dtos;
+			if (decoded == null) {
+				decoded = Collections.unmodifiableList(toHouseNumberDtos());
+				dtos = decoded;
+			}
+			return decoded.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private static class Entry {
+		private final String label;
+		private final Integer number;
+		private final int latitude;
+		private final int longitude;
+
+		private Entry(String label, Integer number, int latitude, int longitude) {
+			this.label = label;
+			this.number = number;
+			this.latitude = latitude;
+			this.longitude = longitude;
+		}
+	}
+
+	static int toFixedPoint(Double degree) {
+		return (int) Math.round(degree.doubleValue() * FIXED_POINT_PRECISION);
+	}
+
+	static long zigzag(int value) {
+		return ((long) value << 1) ^ ((long) value >> 63);
+	}
+
+	static int unzigzag(long value) {
+		return (int) ((value >>> 1) ^ -(value & 1));
+	}
+
+	static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	static long readVarint(byte[] data, int[] position) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[position[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static byte[] toBytes(String label) {
+		try {
+			return label.getBytes(CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
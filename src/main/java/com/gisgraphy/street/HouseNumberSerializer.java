@@ -5,7 +5,6 @@ import static com.gisgraphy.street.HouseNumberDeserializer.HOUSE_NUMBERS_SEPARAT
 import static com.gisgraphy.street.HouseNumberDeserializer.LAT_LON_SEPARATOR;
 
 import java.util.List;
-import java.util.Locale;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -57,9 +56,9 @@ public class HouseNumberSerializer {
 			String cleaned = clean_pattern.matcher(houseNumber.getNumber()).replaceAll("");
 			sb.append(cleaned)
 			.append(HOUSENUMBER_AND_LOCATION_SEPARATOR)
-			.append(String.format(Locale.US, "%s", houseNumber.getLongitude().doubleValue()))
+			.append(houseNumber.getLongitude().doubleValue())
 			.append(LAT_LON_SEPARATOR)
-			.append(String.format(Locale.US, "%s", houseNumber.getLatitude().doubleValue()));
+			.append(houseNumber.getLatitude().doubleValue());
 		return sb.toString().trim();
 	}
 	
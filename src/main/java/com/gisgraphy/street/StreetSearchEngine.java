@@ -85,6 +85,7 @@ public class StreetSearchEngine implements IStreetSearchEngine {
 
 	long end = System.currentTimeMillis();
 	long qTime = end - start;
+	statsUsageService.recordLatency(StatsUsageType.STREET, qTime);
 	logger.info(query + " took " + (qTime) + " ms and returns "
 		+ results.size() + " results");
 	return new StreetSearchResultsDto(results, qTime,query.getName());
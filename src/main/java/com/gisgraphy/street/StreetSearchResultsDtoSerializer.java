@@ -41,8 +41,10 @@ import com.gisgraphy.domain.valueobject.StreetDistance;
 import com.gisgraphy.domain.valueobject.StreetSearchResultsDto;
 import com.gisgraphy.geoloc.GeolocResultsDto;
 import com.gisgraphy.helper.OutputFormatHelper;
+import com.gisgraphy.helper.StreamingJsonSerializer;
 import com.gisgraphy.serializer.UniversalSerializer;
 import com.gisgraphy.serializer.common.OutputFormat;
+import com.gisgraphy.serializer.common.UniversalSerializerConstant;
 import com.gisgraphy.serializer.exception.UnsupportedFormatException;
 import com.gisgraphy.service.ServiceException;
 import com.sun.syndication.feed.module.georss.GeoRSSModule;
@@ -73,6 +75,8 @@ public class StreetSearchResultsDtoSerializer implements
     protected static final Logger logger = LoggerFactory
 	    .getLogger(StreetSearchResultsDtoSerializer.class);
 
+    private StreamingJsonSerializer streamingJsonSerializer;
+
     
 
    
@@ -84,7 +88,9 @@ public class StreetSearchResultsDtoSerializer implements
 		    + " is not applicable for street search");
 	} 
 	   
-	if (outputFormat == OutputFormat.JSON || outputFormat == OutputFormat.PHP || outputFormat == OutputFormat.PYTHON  || outputFormat == OutputFormat.RUBY || outputFormat == OutputFormat.XML || outputFormat == OutputFormat.YAML) {
+	if (outputFormat == OutputFormat.JSON && streamingJsonSerializer != null && streamingJsonSerializer.isEnabled()) {
+	    serializeWithStreamingJsonSerializer(outputStream, streetSearchResultsDto, indent, extraParameters);
+	} else if (outputFormat == OutputFormat.JSON || outputFormat == OutputFormat.PHP || outputFormat == OutputFormat.PYTHON  || outputFormat == OutputFormat.RUBY || outputFormat == OutputFormat.XML || outputFormat == OutputFormat.YAML) {
 		serializeWithUniveraslSerializer(outputStream, streetSearchResultsDto,  indent, outputFormat,extraParameters);
 	}else 	if (outputFormat==OutputFormat.ATOM){
 	    int  startPaginationIndex = getStartPaginationIndex(extraParameters);
@@ -109,6 +115,15 @@ public class StreetSearchResultsDtoSerializer implements
 	}
 	return 1;
     }    
+    private void serializeWithStreamingJsonSerializer(OutputStream outputStream, StreetSearchResultsDto streetSearchResultsDto, boolean indent, Map<String, Object> extraParameters) {
+	Object callback = extraParameters == null ? null : extraParameters.get(UniversalSerializerConstant.CALLBACK_METHOD_NAME);
+	try {
+	    streamingJsonSerializer.write(outputStream, streetSearchResultsDto, indent, callback == null ? null : callback.toString());
+	} catch (Exception e) {
+	    throw new ServiceException(e);
+	}
+    }
+
     private void serializeWithUniveraslSerializer(OutputStream outputStream, StreetSearchResultsDto streetSearchResultsDto,boolean indent, OutputFormat format,Map<String,Object> extraParameters) {
    	 try {
    	     UniversalSerializer.getInstance().write(outputStream, streetSearchResultsDto,  indent,extraParameters, format);
@@ -201,4 +216,12 @@ public class StreetSearchResultsDtoSerializer implements
 
     }
 
+    /**
+     * @param streamingJsonSerializer
+     *                the serializer to write the JSON with, when it is enabled
+     */
+    public void setStreamingJsonSerializer(StreamingJsonSerializer streamingJsonSerializer) {
+	this.streamingJsonSerializer = streamingJsonSerializer;
+    }
+
 }
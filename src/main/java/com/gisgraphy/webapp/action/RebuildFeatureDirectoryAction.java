@@ -0,0 +1,90 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.action;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts2.ServletActionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.gisgraphy.importer.IImporterManager;
+import com.opensymphony.xwork2.ActionSupport;
+
+/**
+ * Fill the feature directory from the tables of the placetypes, e.g. when
+ * featuredirectory.enabled is set on a database that has already been
+ * imported. The directory is otherwise only filled at the end of the import.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ * @see IImporterManager#rebuildFeatureDirectory()
+ */
+public class RebuildFeatureDirectoryAction extends ActionSupport {
+
+    private static final long serialVersionUID = -2954815437780251409L;
+
+    private static Logger logger = LoggerFactory.getLogger(RebuildFeatureDirectoryAction.class);
+
+    private IImporterManager importerManager;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.opensymphony.xwork2.ActionSupport#execute()
+     */
+    @Override
+    public String execute() throws IOException {
+	String message;
+	if (importerManager.isInProgress()) {
+	    message = "The feature directory can not be rebuilt while an import is in progress, it will be rebuilt at the end of the import";
+	} else {
+	    int count = importerManager.rebuildFeatureDirectory();
+	    if (count == -1) {
+		message = "The feature directory has not been rebuilt, see the logs for more details";
+	    } else {
+		message = count + " features have been stored in the feature directory";
+	    }
+	}
+	logger.info(message);
+	HttpServletResponse response = ServletActionContext.getResponse();
+	response.setContentType("text/plain");
+	PrintWriter out = response.getWriter();
+	out.println(message);
+	out.flush();
+	return NONE;
+    }
+
+    /**
+     * @param importerManager
+     *                the importerManager to set
+     */
+    @Required
+    public void setImporterManager(IImporterManager importerManager) {
+	this.importerManager = importerManager;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.action;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.struts2.ServletActionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.gisgraphy.fulltext.IFullTextReindexer;
+import com.gisgraphy.importer.IImporterManager;
+import com.opensymphony.xwork2.ActionSupport;
+
+/**
+ * Start the reindex of the fulltext search engine from the database in
+ * background, or display its progress if it is already in progress. The
+ * reindex is refused while an import is in progress.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ * @see IFullTextReindexer
+ */
+public class ReindexAction extends ActionSupport {
+
+    private static final long serialVersionUID = 4183962043370817285L;
+
+    private static Logger logger = LoggerFactory.getLogger(ReindexAction.class);
+
+    /**
+     * The fields that are only computed during the import are not stored in
+     * the database, so the reindex can not rebuild them
+     */
+    static final String NOT_REBUILT_FIELDS_MESSAGE = "The fields that are only computed during the import (is_in_zip, is_in_cities and the alternate labels of the streets) are not rebuilt, run the import again to rebuild them";
+
+    private IFullTextReindexer fullTextReindexer;
+
+    private IImporterManager importerManager;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.opensymphony.xwork2.ActionSupport#execute()
+     */
+    @Override
+    public String execute() throws IOException {
+	String message;
+	if (importerManager.isInProgress()) {
+	    message = "The fulltext search engine can not be reindexed while an import is in progress";
+	} else if (fullTextReindexer.reindexInBackground()) {
+	    message = "The reindex of the fulltext search engine has been started. " + NOT_REBUILT_FIELDS_MESSAGE;
+	} else {
+	    message = "The reindex of the fulltext search engine is in progress : " + fullTextReindexer.getNumberOfIndexedDocuments() + " documents sent. " + NOT_REBUILT_FIELDS_MESSAGE;
+	}
+	logger.info(message);
+	HttpServletResponse response = ServletActionContext.getResponse();
+	response.setContentType("text/plain");
+	PrintWriter out = response.getWriter();
+	out.println(message);
+	out.flush();
+	return NONE;
+    }
+
+    /**
+     * @param fullTextReindexer
+     *                the fullTextReindexer to set
+     */
+    @Required
+    public void setFullTextReindexer(IFullTextReindexer fullTextReindexer) {
+	this.fullTextReindexer = fullTextReindexer;
+    }
+
+    /**
+     * @param importerManager
+     *                the importerManager to set
+     */
+    @Required
+    public void setImporterManager(IImporterManager importerManager) {
+	this.importerManager = importerManager;
+    }
+
+}
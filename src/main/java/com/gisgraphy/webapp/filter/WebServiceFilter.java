@@ -0,0 +1,178 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.FilterChain;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Dispatch the requests of the web services directly to their servlet, so that
+ * they don't go through the rest of the filter chain (open session in view,
+ * cache, sitemesh, urlrewrite, struts, displaytag,...). The web services are
+ * stateless : the DAOs they call open a hibernate session only when they are
+ * used and close it right after.
+ * <br/>
+ * The endpoints are set with the 'mappings' init parameter, a comma separated
+ * list of 'pattern=servlet name', e.g :
+ * <code>/fulltext/*=fulltext service,/geoloc/*=geoloc service</code>. The
+ * requests that don't match any pattern continue in the chain. The time spent
+ * in each endpoint is logged in debug.
+ * 
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class WebServiceFilter extends OncePerRequestFilter {
+
+    protected static final String MAPPINGS_PARAMETER = "mappings";
+
+    private static final String MAPPING_SEPARATOR = "=";
+
+    /**
+     * A web service endpoint and its timing
+     */
+    protected static class Endpoint {
+	private final String pattern;
+	private final String servletName;
+	private final AtomicLong numberOfRequests = new AtomicLong();
+	private final AtomicLong totalTime = new AtomicLong();
+
+	public Endpoint(String pattern, String servletName) {
+	    this.pattern = pattern;
+	    this.servletName = servletName;
+	}
+
+	public String getPattern() {
+	    return pattern;
+	}
+
+	public String getServletName() {
+	    return servletName;
+	}
+
+	public long getNumberOfRequests() {
+	    return numberOfRequests.get();
+	}
+
+	/**
+	 * @return the time spent in the endpoint, in ms
+	 */
+	public long getTotalTime() {
+	    return totalTime.get();
+	}
+
+	protected void addRequest(long time) {
+	    numberOfRequests.incrementAndGet();
+	    totalTime.addAndGet(time);
+	}
+    }
+
+    private List<Endpoint> endpoints = Collections.emptyList();
+
+    private UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    /**
+     * Read the mappings parameter
+     */
+    @Override
+    public void initFilterBean() throws ServletException {
+	String mappingsParam = getFilterConfig().getInitParameter(MAPPINGS_PARAMETER);
+	if (StringUtils.isBlank(mappingsParam)) {
+	    logger.warn("no web service mappings are defined, all the requests will go through the filter chain");
+	    return;
+	}
+	List<Endpoint> parsed = new ArrayList<Endpoint>();
+	for (String mapping : org.springframework.util.StringUtils.commaDelimitedListToStringArray(mappingsParam)) {
+	    int separatorIndex = mapping.indexOf(MAPPING_SEPARATOR);
+	    if (separatorIndex <= 0 || separatorIndex == mapping.length() - 1) {
+		throw new ServletException("the web service mapping '" + mapping + "' is not of the form pattern=servlet name");
+	    }
+	    parsed.add(new Endpoint(mapping.substring(0, separatorIndex).trim(), mapping.substring(separatorIndex + 1).trim()));
+	}
+	endpoints = parsed;
+    }
+
+    /**
+     * Forward the request to the servlet of the endpoint it matches, if any.
+     * Otherwise, it forwards to the next filter in the chain.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+	Endpoint endpoint = getEndpoint(urlPathHelper.getPathWithinApplication(request));
+	if (endpoint == null) {
+	    chain.doFilter(request, response);
+	    return;
+	}
+	RequestDispatcher dispatcher = getServletContext().getNamedDispatcher(endpoint.getServletName());
+	if (dispatcher == null) {
+	    logger.warn("there is no servlet named '" + endpoint.getServletName() + "', the request will go through the filter chain");
+	    chain.doFilter(request, response);
+	    return;
+	}
+	long start = System.currentTimeMillis();
+	try {
+	    dispatcher.forward(request, response);
+	} finally {
+	    long time = System.currentTimeMillis() - start;
+	    endpoint.addRequest(time);
+	    if (logger.isDebugEnabled()) {
+		logger.debug(request.getRequestURI() + " has been served by " + endpoint.getServletName() + " in " + time + " ms ("
+			+ endpoint.getNumberOfRequests() + " requests, " + endpoint.getTotalTime() / endpoint.getNumberOfRequests() + " ms on average)");
+	    }
+	}
+    }
+
+    /**
+     * @param path
+     *            the path within the application
+     * @return the endpoint the path matches, or null if none
+     */
+    protected Endpoint getEndpoint(String path) {
+	for (Endpoint endpoint : endpoints) {
+	    if (PatternMatchUtils.simpleMatch(endpoint.getPattern(), path)) {
+		return endpoint;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * @return the web service endpoints, with their timing
+     */
+    public List<Endpoint> getEndpoints() {
+	return Collections.unmodifiableList(endpoints);
+    }
+
+}
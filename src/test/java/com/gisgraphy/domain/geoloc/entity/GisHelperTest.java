@@ -34,6 +34,24 @@ public class GisHelperTest {
     	Assert.assertFalse(GisHelper.getBoundingBox("alias", 51.8365537F ,7.0562314F, 10000).contains("NaN"));
     	//System.out.println(GisHelper.getBoundingBox("alias", 48.867138600000004,2.3958578000000004, 500));
     }
+    
+    @Test
+    public void testMakeEnvelopeWithParametersShouldBeTheSameForAllTheLocations(){
+    	String envelope = GisHelper.makeEnvelope("alias");
+    	Assert.assertTrue(envelope.contains(":"+GisHelper.ENVELOPE_MIN_X_PARAMETER));
+    	Assert.assertTrue(envelope.contains(":"+GisHelper.ENVELOPE_MAX_Y_PARAMETER));
+    	Assert.assertTrue(envelope.contains("alias.location"));
+    }
+    
+    @Test
+    public void testGetEnvelopeBoundsShouldBeTheSameAsTheOnesOfMakeEnvelope(){
+    	double[] bounds = GisHelper.getEnvelopeBounds(51.8365537F ,7.0562314F, 10000);
+    	Assert.assertEquals(4, bounds.length);
+    	String envelope = GisHelper.makeEnvelope("alias", 51.8365537F ,7.0562314F, 10000);
+    	Assert.assertTrue(envelope.contains("ST_MakeEnvelope("+bounds[0]+", "+bounds[1]+", "+bounds[2]+", "+bounds[3]+", "));
+    	Assert.assertTrue(bounds[0] < 7.0562314F && bounds[2] > 7.0562314F);
+    	Assert.assertTrue(bounds[1] < 51.8365537F && bounds[3] > 51.8365537F);
+    }
 
 
     @Test
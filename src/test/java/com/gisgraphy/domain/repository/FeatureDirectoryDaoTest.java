@@ -0,0 +1,199 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.domain.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.FeatureDirectory;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.valueobject.GisFeatureDistance;
+import com.gisgraphy.fulltext.AbstractIntegrationHttpSolrTestCase;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+/**
+ * @author <a href="mailto:david.masclet@gisgraphy.com">David Masclet</a>
+ */
+public class FeatureDirectoryDaoTest extends AbstractIntegrationHttpSolrTestCase {
+
+    @Autowired
+    private IFeatureDirectoryDao featureDirectoryDao;
+
+    @Autowired
+    private IGisFeatureDao gisFeatureDao;
+
+    @Autowired
+    private ICityDao cityDao;
+
+    @Test
+    public void testSaveShouldStoreTheFeatureInTheDirectory() {
+	City paris = GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L);
+	this.cityDao.save(paris);
+
+	FeatureDirectory entry = featureDirectoryDao.get(1L);
+	assertNotNull(entry);
+	assertEquals(paris.getId(), entry.getGisFeatureId());
+	assertEquals("City", entry.getPlacetype());
+	assertEquals(City.class, entry.getPlacetypeClass());
+	assertEquals("FR", entry.getCountryCode());
+	assertEquals(paris.getLocation(), entry.getLocation());
+    }
+
+    @Test
+    public void testRemoveShouldRemoveTheFeatureFromTheDirectory() {
+	City paris = GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L);
+	this.cityDao.save(paris);
+	GisFeature gisFeature = GisgraphyTestHelper.createGisFeature("test", 2.46667F, 49.01668F, 2L);
+	this.gisFeatureDao.save(gisFeature);
+	assertEquals(2, featureDirectoryDao.count());
+
+	this.cityDao.remove(paris);
+	assertNull(featureDirectoryDao.get(1L));
+	assertNotNull(featureDirectoryDao.get(2L));
+    }
+
+    @Test
+    public void testDeleteAllShouldOnlyRemoveTheFeaturesOfThePlacetype() {
+	this.cityDao.save(GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L));
+	this.gisFeatureDao.save(GisgraphyTestHelper.createGisFeature("test", 2.46667F, 49.01668F, 2L));
+
+	this.cityDao.deleteAll();
+	assertNull(featureDirectoryDao.get(1L));
+	assertNotNull(featureDirectoryDao.get(2L));
+
+	this.gisFeatureDao.deleteAll();
+	assertEquals(0, featureDirectoryDao.count());
+    }
+
+    @Test
+    public void testListNearestShouldBeSortedByDistanceAndExcludeTheSpecifiedFeature() {
+	City paris = GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L);
+	City goussainville = GisgraphyTestHelper.createCity("goussainville", 2.46667F, 49.01667F, 2L);
+	City bordeaux = GisgraphyTestHelper.createCity("bordeaux", -0.56667F, 44.83333F, 3L);
+	this.cityDao.save(paris);
+	this.cityDao.save(goussainville);
+	this.cityDao.save(bordeaux);
+
+	List<FeatureDirectory> nearests = featureDirectoryDao.listNearest(paris.getLocation(), 0, 1000000, -1, -1);
+	assertEquals(3, nearests.size());
+	assertEquals(Long.valueOf(1L), nearests.get(0).getFeatureId());
+	assertEquals(Long.valueOf(2L), nearests.get(1).getFeatureId());
+	assertEquals(Long.valueOf(3L), nearests.get(2).getFeatureId());
+
+	nearests = featureDirectoryDao.listNearest(paris.getLocation(), paris.getId(), 100000, -1, -1);
+	assertEquals(1, nearests.size());
+	assertEquals(Long.valueOf(2L), nearests.get(0).getFeatureId());
+
+	nearests = featureDirectoryDao.listNearest(paris.getLocation(), 0, 1000000, 2, 1);
+	assertEquals(1, nearests.size());
+	assertEquals(Long.valueOf(2L), nearests.get(0).getFeatureId());
+    }
+
+    @Test
+    public void testSaveShouldNotStoreTheFeatureWhenTheDirectoryIsNotMaintained() {
+	FeatureDirectoryDao dao = (FeatureDirectoryDao) featureDirectoryDao;
+	dao.setMaintained(false);
+	try {
+	    this.cityDao.save(GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L));
+	    assertEquals(0, featureDirectoryDao.count());
+	} finally {
+	    dao.setMaintained(true);
+	}
+    }
+
+    @Test
+    public void testRebuildShouldStoreTheFeaturesOfAllThePlacetypesAndResumeTheDirectory() {
+	FeatureDirectoryDao dao = (FeatureDirectoryDao) featureDirectoryDao;
+	dao.suspend();
+	try {
+	    assertFalse(dao.isMaintained());
+	    City paris = GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L);
+	    this.cityDao.save(paris);
+	    GisFeature gisFeature = GisgraphyTestHelper.createGisFeature("test", 2.46667F, 49.01668F, 2L);
+	    this.gisFeatureDao.save(gisFeature);
+	    assertEquals("the directory should not be maintained while it is suspended", 0, featureDirectoryDao.count());
+
+	    assertEquals(2, featureDirectoryDao.rebuild(this.gisFeatureDao.listPlacetypes()));
+	    assertTrue(dao.isMaintained());
+	    FeatureDirectory entry = featureDirectoryDao.get(1L);
+	    assertNotNull(entry);
+	    assertEquals(paris.getId(), entry.getGisFeatureId());
+	    assertEquals("City", entry.getPlacetype());
+	    assertEquals("FR", entry.getCountryCode());
+	    entry = featureDirectoryDao.get(2L);
+	    assertNotNull(entry);
+	    assertEquals(gisFeature.getId(), entry.getGisFeatureId());
+	    assertEquals("GisFeature", entry.getPlacetype());
+
+	    assertEquals("the directory should be emptied before it is rebuilt", 2, featureDirectoryDao.rebuild(this.gisFeatureDao.listPlacetypes()));
+	    assertEquals(2, featureDirectoryDao.count());
+	} finally {
+	    dao.rebuild(new ArrayList<Class<? extends GisFeature>>());
+	}
+    }
+
+    @Test
+    public void testGisFeatureDaoShouldUseTheDirectoryWhenItIsEnabled() {
+	City paris = GisgraphyTestHelper.createCity("paris", 2.3333F, 48.86667F, 1L);
+	City bordeaux = GisgraphyTestHelper.createCity("bordeaux", -0.56667F, 44.83333F, 3L);
+	GisFeature gisFeature = GisgraphyTestHelper.createGisFeature("test", 2.46667F, 49.01668F, 2L);
+	this.cityDao.save(paris);
+	this.cityDao.save(bordeaux);
+	this.gisFeatureDao.save(gisFeature);
+
+	FeatureDirectoryDao dao = (FeatureDirectoryDao) featureDirectoryDao;
+	boolean enabled = dao.isEnabled();
+	dao.setEnabled(true);
+	try {
+	    GisFeature retrieved = this.gisFeatureDao.getByFeatureId(1L);
+	    assertNotNull(retrieved);
+	    assertEquals(City.class, retrieved.getClass());
+	    assertEquals(paris.getId(), retrieved.getId());
+	    assertNull(this.gisFeatureDao.getByFeatureId(4L));
+
+	    List<Long> featureIds = new ArrayList<Long>();
+	    featureIds.add(1L);
+	    featureIds.add(2L);
+	    featureIds.add(4L);
+	    assertEquals(2, this.gisFeatureDao.listByFeatureIds(featureIds).size());
+
+	    List<GisFeatureDistance> results = this.gisFeatureDao.getNearestAndDistanceFrom(paris.getLocation(), 1000000, true, GisFeature.class);
+	    assertEquals(3, results.size());
+	    assertEquals(paris.getId(), results.get(0).getId());
+	    assertEquals(gisFeature.getId(), results.get(1).getId());
+	    assertEquals(bordeaux.getId(), results.get(2).getId());
+	    assertTrue(results.get(1).getDistance() < results.get(2).getDistance());
+
+	    results = this.gisFeatureDao.getNearestAndDistanceFromGisFeature(paris, 1000000, 1, 1, true, GisFeature.class, false);
+	    assertEquals(1, results.size());
+	    assertEquals(gisFeature.getId(), results.get(0).getId());
+	} finally {
+	    dao.setEnabled(enabled);
+	}
+    }
+
+}
@@ -345,6 +345,50 @@ public class OpenStreetMapDaoTest extends AbstractIntegrationHttpSolrTestCase{
     
     
 
+    @Test
+    public void testGetByOpenstreetMapIds(){
+	OpenStreetMap streetOSM = GisgraphyTestHelper.createOpenStreetMapForPeterMartinStreet();
+	streetOSM.setOpenstreetmapId(12345678L);
+	openStreetMapDao.save(streetOSM);
+	OpenStreetMap streetOSM2 = GisgraphyTestHelper.createOpenStreetMapForPeterMartinStreet();
+	streetOSM2.setGid(3567L);
+	streetOSM2.setOpenstreetmapId(12345679L);
+	openStreetMapDao.save(streetOSM2);
+	
+	List<Long> ids = new ArrayList<Long>();
+	ids.add(12345678L);
+	ids.add(12345679L);
+	ids.add(1L);
+	List<OpenStreetMap> retrieveOSMs = openStreetMapDao.getByOpenStreetMapIds(ids);
+	assertEquals("getByOpenStreetMapIds should return the entities that exist",2, retrieveOSMs.size());
+	
+	assertEquals(0, openStreetMapDao.getByOpenStreetMapIds(new ArrayList<Long>()).size());
+	assertEquals(0, openStreetMapDao.getByOpenStreetMapIds(null).size());
+    }
+
+    @Test
+    public void testListForFullTextFromIdAndGetMaxId(){
+	assertEquals(0, openStreetMapDao.getMaxId());
+	OpenStreetMap streetOSM = GisgraphyTestHelper.createOpenStreetMapForPeterMartinStreet();
+	openStreetMapDao.save(streetOSM);
+	OpenStreetMap streetOSM2 = GisgraphyTestHelper.createOpenStreetMapForPeterMartinStreet();
+	streetOSM2.setGid(3567L);
+	openStreetMapDao.save(streetOSM2);
+	assertEquals(streetOSM2.getId().longValue(), openStreetMapDao.getMaxId());
+
+	List<OpenStreetMap> streets = openStreetMapDao.listForFullTextFromId(0, streetOSM2.getId(), 0);
+	assertEquals(2, streets.size());
+	assertEquals(streetOSM.getId(), streets.get(0).getId());
+	assertEquals(streetOSM2.getId(), streets.get(1).getId());
+
+	streets = openStreetMapDao.listForFullTextFromId(0, streetOSM2.getId(), 1);
+	assertEquals(1, streets.size());
+	assertEquals(streetOSM.getId(), streets.get(0).getId());
+
+	streets = openStreetMapDao.listForFullTextFromId(streetOSM.getId(), streetOSM.getId(), 0);
+	assertEquals("the range should be empty when fromId equals toId", 0, streets.size());
+    }
+
     @Test
     public void testGetByOpenstreetMapId_withTwoStreets(){
     	//sometimes a streets starts in one country and ends in an other so there is two streets with the same id
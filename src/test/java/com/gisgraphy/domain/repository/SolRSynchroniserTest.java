@@ -33,6 +33,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -384,6 +385,131 @@ public class SolRSynchroniserTest extends AbstractIntegrationHttpSolrTestCase {
     }
     
     
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSaveAFeatureInBufferedModeShouldSendTheFeaturesByBatchWhenFlushing() throws SolrServerException, IOException {
+	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
+		1.6F);
+	city.setFeatureId(2L);
+	City city2 = GisgraphyTestHelper.createCityAtSpecificPoint("my city2", 1.7F,
+		1.8F);
+	city2.setFeatureId(3L);
+	
+	SolrServer mockSolrServer = createMock(SolrServer.class);
+	expect(mockSolrServer.add((Collection<SolrInputDocument>) EasyMock.anyObject())).andReturn(null).atLeastOnce();
+	replay(mockSolrServer);
+	
+	IsolrClient mockSolrClient = createMock(IsolrClient.class);
+	expect(mockSolrClient.getServer()).andStubReturn(mockSolrServer);
+	replay(mockSolrClient);
+	
+	SolRSynchroniser bufferedSolrsynchroniser = new SolRSynchroniser(mockSolrClient);
+	bufferedSolrsynchroniser.setBuffered(true);
+	bufferedSolrsynchroniser.setNumberOfFlushers(1);
+	try {
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city));
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city2));
+	    bufferedSolrsynchroniser.flush();
+	    EasyMock.verify(mockSolrServer);
+	} finally {
+	    bufferedSolrsynchroniser.destroy();
+	}
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCommitInBufferedModeShouldSendTheBufferedFeaturesBeforeCommitting() throws SolrServerException, IOException {
+	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
+		1.6F);
+	city.setFeatureId(2L);
+	
+	SolrServer mockSolrServer = EasyMock.createStrictMock(SolrServer.class);
+	expect(mockSolrServer.add((Collection<SolrInputDocument>) EasyMock.anyObject())).andReturn(null);
+	expect(mockSolrServer.commit(true, true)).andReturn(null);
+	replay(mockSolrServer);
+	
+	IsolrClient mockSolrClient = createMock(IsolrClient.class);
+	expect(mockSolrClient.getServer()).andStubReturn(mockSolrServer);
+	replay(mockSolrClient);
+	
+	SolRSynchroniser bufferedSolrsynchroniser = new SolRSynchroniser(mockSolrClient);
+	bufferedSolrsynchroniser.setBuffered(true);
+	bufferedSolrsynchroniser.setNumberOfFlushers(1);
+	try {
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city));
+	    Assert.assertTrue(bufferedSolrsynchroniser.commit());
+	    EasyMock.verify(mockSolrServer);
+	} finally {
+	    bufferedSolrsynchroniser.destroy();
+	}
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testFlushInBufferedModeShouldFailWhenABatchCanNotBeSent() throws SolrServerException, IOException {
+	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
+		1.6F);
+	city.setFeatureId(2L);
+	
+	SolrServer mockSolrServer = createMock(SolrServer.class);
+	expect(mockSolrServer.add((Collection<SolrInputDocument>) EasyMock.anyObject())).andStubThrow(new SolrServerException("exception"));
+	replay(mockSolrServer);
+	
+	IsolrClient mockSolrClient = createMock(IsolrClient.class);
+	expect(mockSolrClient.getServer()).andStubReturn(mockSolrServer);
+	replay(mockSolrClient);
+	
+	SolRSynchroniser bufferedSolrsynchroniser = new SolRSynchroniser(mockSolrClient);
+	bufferedSolrsynchroniser.setBuffered(true);
+	try {
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city));
+	    bufferedSolrsynchroniser.flush();
+	    fail("The solrSynchroniser should have throw");
+	} catch (GisgraphyCommunicationException ignore) {
+	} finally {
+	    bufferedSolrsynchroniser.destroy();
+	}
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testFlushInBufferedModeShouldReportTheLostFeaturesWhenABatchFailsOnAnError() throws SolrServerException, IOException {
+	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
+		1.6F);
+	city.setFeatureId(2L);
+	City city2 = GisgraphyTestHelper.createCityAtSpecificPoint("my city2", 1.7F,
+		1.8F);
+	city2.setFeatureId(3L);
+	
+	SolrServer mockSolrServer = createMock(SolrServer.class);
+	expect(mockSolrServer.add((Collection<SolrInputDocument>) EasyMock.anyObject())).andThrow(new Error("error"));
+	expect(mockSolrServer.add((Collection<SolrInputDocument>) EasyMock.anyObject())).andReturn(null);
+	replay(mockSolrServer);
+	
+	IsolrClient mockSolrClient = createMock(IsolrClient.class);
+	expect(mockSolrClient.getServer()).andStubReturn(mockSolrServer);
+	replay(mockSolrClient);
+	
+	SolRSynchroniser bufferedSolrsynchroniser = new SolRSynchroniser(mockSolrClient);
+	bufferedSolrsynchroniser.setBuffered(true);
+	bufferedSolrsynchroniser.setNumberOfFlushers(1);
+	try {
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city));
+	    try {
+		bufferedSolrsynchroniser.flush();
+		fail("The solrSynchroniser should have throw");
+	    } catch (GisgraphyCommunicationException e) {
+		Assert.assertTrue("the lost feature should be reported : " + e.getMessage(), e.getMessage().contains("featureIds [2]"));
+	    }
+	    //the flusher has survived the error
+	    bufferedSolrsynchroniser.handleEvent(new GisFeatureStoredEvent(city2));
+	    bufferedSolrsynchroniser.flush();
+	    EasyMock.verify(mockSolrServer);
+	} finally {
+	    bufferedSolrsynchroniser.destroy();
+	}
+    }
+    
     @Test
     public void testDeleteAListOfFeatureShouldRetryOnFailure() throws SolrServerException, IOException {
 	City city = GisgraphyTestHelper.createCityAtSpecificPoint("my city", 1.5F,
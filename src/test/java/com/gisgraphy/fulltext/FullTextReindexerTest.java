@@ -0,0 +1,242 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.fulltext;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.geoloc.entity.OpenStreetMap;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.domain.repository.ISolRSynchroniser;
+import com.gisgraphy.geoloc.GisgraphyCommunicationException;
+
+public class FullTextReindexerTest {
+
+    @Test
+    public void createRangesShouldSkipTheRangesOfTheCheckpoint() {
+	FullTextReindexer reindexer = new FullTextReindexer();
+	reindexer.setRangeSize(10);
+	Properties checkpoint = new Properties();
+	checkpoint.setProperty("gisfeature.10", "20");
+	checkpoint.setProperty("openstreetmap.0", "10");
+
+	List<FullTextReindexer.Range> ranges = reindexer.createRanges(FullTextReindexer.Source.GISFEATURE, 25, checkpoint);
+	assertEquals(2, ranges.size());
+	assertEquals(0, ranges.get(0).fromId);
+	assertEquals(10, ranges.get(0).toId);
+	assertEquals(20, ranges.get(1).fromId);
+	assertEquals(30, ranges.get(1).toId);
+
+	assertEquals(0, reindexer.createRanges(FullTextReindexer.Source.GISFEATURE, 0, checkpoint).size());
+    }
+
+    @Test
+    public void reindexShouldSendAllTheRowsByBatchAndRemoveTheCheckpoint() throws SolrServerException, IOException {
+	File checkpointFile = File.createTempFile("reindex", ".checkpoint");
+	checkpointFile.delete();
+
+	IGisFeatureDao gisFeatureDao = createMock(IGisFeatureDao.class);
+	expect(gisFeatureDao.getMaxId()).andReturn(3L);
+	expect(gisFeatureDao.listForFullTextFromId(0, 10, 2)).andReturn(createFeatures(1, 2));
+	expect(gisFeatureDao.listForFullTextFromId(2, 10, 2)).andReturn(createFeatures(3));
+	replay(gisFeatureDao);
+
+	IOpenStreetMapDao openStreetMapDao = createMock(IOpenStreetMapDao.class);
+	expect(openStreetMapDao.getMaxId()).andReturn(0L);
+	replay(openStreetMapDao);
+
+	ISolRSynchroniser solRSynchroniser = createMock(ISolRSynchroniser.class);
+	expect(solRSynchroniser.buildSolrInputDocument((GisFeature) EasyMock.anyObject())).andStubReturn(new SolrInputDocument());
+	expect(solRSynchroniser.commit()).andReturn(true);
+	replay(solRSynchroniser);
+
+	SolrServer solrServer = createMock(SolrServer.class);
+	expect(solrServer.add(EasyMock.<Collection<SolrInputDocument>> anyObject())).andReturn(null).times(2);
+	expect(solrServer.commit(true, true)).andReturn(null).once();
+	replay(solrServer);
+
+	FullTextReindexer reindexer = createReindexer(gisFeatureDao, openStreetMapDao, solRSynchroniser, solrServer);
+	reindexer.setCheckpointFile(checkpointFile.getAbsolutePath());
+
+	assertEquals(3, reindexer.reindex());
+	assertEquals(3, reindexer.getNumberOfIndexedDocuments());
+	assertFalse(reindexer.isInProgress());
+	assertFalse("the checkpoint should be removed once the reindex is done", checkpointFile.exists());
+	verify(gisFeatureDao);
+	verify(solRSynchroniser);
+	verify(solrServer);
+    }
+
+    @Test
+    public void reindexShouldRecordTheRangesIndexedWhenItFails() throws SolrServerException, IOException {
+	File checkpointFile = File.createTempFile("reindex", ".checkpoint");
+	checkpointFile.delete();
+
+	IGisFeatureDao gisFeatureDao = createMock(IGisFeatureDao.class);
+	expect(gisFeatureDao.getMaxId()).andReturn(0L);
+	replay(gisFeatureDao);
+
+	IOpenStreetMapDao openStreetMapDao = createMock(IOpenStreetMapDao.class);
+	expect(openStreetMapDao.getMaxId()).andReturn(15L);
+	expect(openStreetMapDao.listForFullTextFromId(0, 10, 2)).andReturn(createStreets(4));
+	expect(openStreetMapDao.listForFullTextFromId(10, 20, 2)).andReturn(createStreets(12));
+	replay(openStreetMapDao);
+
+	ISolRSynchroniser solRSynchroniser = createMock(ISolRSynchroniser.class);
+	expect(solRSynchroniser.buildSolrInputDocument((GisFeature) EasyMock.anyObject())).andStubReturn(new SolrInputDocument());
+	replay(solRSynchroniser);
+
+	SolrServer solrServer = createMock(SolrServer.class);
+	expect(solrServer.add(EasyMock.<Collection<SolrInputDocument>> anyObject())).andReturn(null).once();
+	expect(solrServer.commit(true, true)).andReturn(null).once();
+	expect(solrServer.add(EasyMock.<Collection<SolrInputDocument>> anyObject())).andStubThrow(new SolrServerException("exception"));
+	replay(solrServer);
+
+	FullTextReindexer reindexer = createReindexer(gisFeatureDao, openStreetMapDao, solRSynchroniser, solrServer);
+	reindexer.setNumberOfThreads(1);
+	reindexer.setCheckpointFile(checkpointFile.getAbsolutePath());
+
+	try {
+	    reindexer.reindex();
+	    fail("the reindex should fail when a batch can not be sent");
+	} catch (GisgraphyCommunicationException ignore) {
+	}
+	assertFalse(reindexer.isInProgress());
+	assertTrue(checkpointFile.exists());
+	Properties checkpoint = new Properties();
+	FileInputStream in = new FileInputStream(checkpointFile);
+	try {
+	    checkpoint.load(in);
+	} finally {
+	    in.close();
+	}
+	assertEquals(1, checkpoint.size());
+	assertEquals("10", checkpoint.getProperty("openstreetmap.0"));
+	reindexer.resetCheckpoint();
+	assertFalse(checkpointFile.exists());
+    }
+
+    @Test
+    public void reindexInBackgroundShouldNotStartASecondReindex() throws Exception {
+	final CountDownLatch started = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	IGisFeatureDao gisFeatureDao = createMock(IGisFeatureDao.class);
+	expect(gisFeatureDao.getMaxId()).andAnswer(new IAnswer<Long>() {
+	    public Long answer() throws Throwable {
+		started.countDown();
+		release.await(10, TimeUnit.SECONDS);
+		return 0L;
+	    }
+	}).once();
+	replay(gisFeatureDao);
+
+	IOpenStreetMapDao openStreetMapDao = createMock(IOpenStreetMapDao.class);
+	expect(openStreetMapDao.getMaxId()).andReturn(0L);
+	replay(openStreetMapDao);
+
+	ISolRSynchroniser solRSynchroniser = createMock(ISolRSynchroniser.class);
+	expect(solRSynchroniser.commit()).andReturn(true);
+	replay(solRSynchroniser);
+
+	FullTextReindexer reindexer = createReindexer(gisFeatureDao, openStreetMapDao, solRSynchroniser, createMock(SolrServer.class));
+
+	assertTrue(reindexer.reindexInBackground());
+	assertTrue(started.await(10, TimeUnit.SECONDS));
+	assertTrue(reindexer.isInProgress());
+	assertFalse("a reindex is already in progress", reindexer.reindexInBackground());
+	try {
+	    reindexer.reindex();
+	    fail("a reindex is already in progress");
+	} catch (IllegalStateException ignore) {
+	}
+	release.countDown();
+	for (int i = 0; i < 100 && reindexer.isInProgress(); i++) {
+	    Thread.sleep(100);
+	}
+	assertFalse(reindexer.isInProgress());
+	verify(gisFeatureDao);
+	verify(solRSynchroniser);
+    }
+
+    private FullTextReindexer createReindexer(IGisFeatureDao gisFeatureDao, IOpenStreetMapDao openStreetMapDao, ISolRSynchroniser solRSynchroniser, SolrServer solrServer) {
+	IsolrClient solrClient = createMock(IsolrClient.class);
+	expect(solrClient.getServer()).andStubReturn(solrServer);
+	replay(solrClient);
+
+	FullTextReindexer reindexer = new FullTextReindexer();
+	reindexer.setGisFeatureDao(gisFeatureDao);
+	reindexer.setOpenStreetMapDao(openStreetMapDao);
+	reindexer.setSolRSynchroniser(solRSynchroniser);
+	reindexer.setSolrClient(solrClient);
+	reindexer.setRangeSize(10);
+	reindexer.setBatchSize(2);
+	return reindexer;
+    }
+
+    private List<GisFeature> createFeatures(long... ids) {
+	List<GisFeature> features = new ArrayList<GisFeature>();
+	for (long id : ids) {
+	    GisFeature feature = new GisFeature();
+	    feature.setId(id);
+	    features.add(feature);
+	}
+	return features;
+    }
+
+    private List<OpenStreetMap> createStreets(long... ids) {
+	List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>();
+	for (long id : ids) {
+	    OpenStreetMap street = new OpenStreetMap();
+	    street.setId(id);
+	    street.setGid(id);
+	    streets.add(street);
+	}
+	return streets;
+    }
+
+}
@@ -27,11 +27,14 @@ package com.gisgraphy.fulltext;
 
 import static com.gisgraphy.domain.valueobject.Pagination.paginate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 
 import org.apache.solr.client.solrj.SolrServer;
@@ -125,6 +128,20 @@ public class OutputstreamResponseWrapperTest extends
 
     }
 
+    @Test
+    public void testProcessResponseShouldStreamTheResponseAndCountTheBytes() throws UnsupportedEncodingException {
+	byte[] response = "<response><result numFound=\"0\"/></response>".getBytes("UTF-8");
+	ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+	OutputstreamResponseWrapper outputstreamResponseWrapper = new OutputstreamResponseWrapper(
+		outputStream, "XML");
+	assertEquals(-1, outputstreamResponseWrapper.getTimeToFirstByte());
+	outputstreamResponseWrapper.processResponse(new ByteArrayInputStream(response), "UTF-8");
+	assertEquals(response.length, outputstreamResponseWrapper.getBytesStreamed());
+	assertTrue(outputstreamResponseWrapper.getTimeToFirstByte() >= 0);
+	assertEquals(new String(response, "UTF-8"), outputStream.toString("UTF-8"));
+	assertEquals("UTF-8", outputstreamResponseWrapper.getEncoding());
+    }
+
     public void setCityDao(ICityDao cityDao) {
 	this.cityDao = cityDao;
     }
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.geocoding;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.addressparser.Address;
+import com.gisgraphy.addressparser.AddressResultsDto;
+
+public class GeocodingResultCacheTest {
+
+    private AddressResultsDto createResults() {
+	return new AddressResultsDto(new ArrayList<Address>(), 10L);
+    }
+
+    @Test
+    public void canonicalize() {
+	Assert.assertEquals("", GeocodingResultCache.canonicalize(null));
+	Assert.assertEquals("", GeocodingResultCache.canonicalize("  \t "));
+	Assert.assertEquals("1, rue de la paix -paris.", GeocodingResultCache.canonicalize(" 1,  Rue de la PAIX\t-Paris. "));
+	Assert.assertEquals("méribel", GeocodingResultCache.canonicalize("Méribel"));
+    }
+
+    @Test
+    public void buildKeyShouldNotDependOnTheCaseAndTheSpaces() {
+	Assert.assertEquals(GeocodingResultCache.buildKey("1 rue de la paix, Paris", "FR", false, false),
+		GeocodingResultCache.buildKey(" 1 rue de la Paix,  paris ", "fr", false, false));
+	Assert.assertFalse(GeocodingResultCache.buildKey("1 rue de la paix, Paris", "FR", false, false).equals(
+		GeocodingResultCache.buildKey("1 rue de la paix, Paris", "FR", true, false)));
+	Assert.assertFalse(GeocodingResultCache.buildKey("1 rue de la paix, Paris", "FR", false, false).equals(
+		GeocodingResultCache.buildKey("1 rue de la paix, Paris", "DE", false, false)));
+    }
+
+    @Test
+    public void buildKeyShouldDependOnThePunctuation() {
+	Assert.assertFalse(GeocodingResultCache.buildKey("10-12 rue de la paix", "FR", false, false).equals(
+		GeocodingResultCache.buildKey("10 12 rue de la paix", "FR", false, false)));
+	Assert.assertFalse(GeocodingResultCache.buildKey("1 rue de la paix, Paris", "FR", false, false).equals(
+		GeocodingResultCache.buildKey("1 rue de la paix; Paris", "FR", false, false)));
+    }
+
+    @Test
+    public void buildKeyForAStructuredAddressShouldUseTheFields() {
+	Address address = new Address();
+	address.setStreetName("rue de la paix");
+	address.setCity("Paris");
+	Address other = new Address();
+	other.setStreetName("Rue de la Paix");
+	other.setCity("paris");
+	Assert.assertEquals(GeocodingResultCache.buildKey(address, "FR"), GeocodingResultCache.buildKey(other, "FR"));
+	other.setHouseNumber("1");
+	Assert.assertFalse(GeocodingResultCache.buildKey(address, "FR").equals(GeocodingResultCache.buildKey(other, "FR")));
+    }
+
+    @Test
+    public void getShouldReturnTheCachedResultsAndCountTheHits() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	cache.setMaxSize(10);
+	AddressResultsDto results = createResults();
+	Assert.assertNull(cache.getResults("key"));
+	cache.putResults("key", results);
+	AddressResultsDto cached = cache.getResults("key");
+	Assert.assertNotNull(cached);
+	Assert.assertEquals(results.getQTime(), cached.getQTime());
+	Assert.assertNull(cache.getResults("other"));
+	Assert.assertEquals(1, cache.getHits());
+	Assert.assertEquals(2, cache.getMisses());
+	Assert.assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void getShouldReturnACopyOfTheCachedResults() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	cache.setMaxSize(10);
+	AddressResultsDto results = createResults();
+	results.getResult().add(new Address());
+	cache.putResults("key", results);
+	results.getResult().clear();
+	results.setQTime(50L);
+
+	AddressResultsDto cached = cache.getResults("key");
+	Assert.assertNotSame(results, cached);
+	Assert.assertEquals("the cached results should not be modified by the caller", 1, cached.getResult().size());
+	Assert.assertEquals(Long.valueOf(10L), cached.getQTime());
+	cached.setQTime(0L);
+	cached.getResult().clear();
+	AddressResultsDto other = cache.getResults("key");
+	Assert.assertNotSame(cached, other);
+	Assert.assertEquals(1, other.getResult().size());
+	Assert.assertEquals(Long.valueOf(10L), other.getQTime());
+    }
+
+    @Test
+    public void getShouldReturnACopyOfTheCachedAddresses() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	cache.setMaxSize(10);
+	AddressResultsDto results = createResults();
+	Address address = new Address();
+	address.setCity("Paris");
+	address.setLat(48.85D);
+	results.getResult().add(address);
+	Address parsedAddress = new Address();
+	parsedAddress.setCity("paris");
+	results.setParsedAddress(parsedAddress);
+	cache.putResults("key", results);
+	address.setCity("Lyon");
+	parsedAddress.setCity("lyon");
+
+	AddressResultsDto cached = cache.getResults("key");
+	Assert.assertNotSame(address, cached.getResult().get(0));
+	Assert.assertEquals("the cached addresses should not be modified by the caller", "Paris", cached.getResult().get(0).getCity());
+	Assert.assertEquals(48.85D, cached.getResult().get(0).getLat(), 0.0001);
+	Assert.assertEquals("paris", cached.getParsedAddress().getCity());
+	cached.getResult().get(0).setCity("Marseille");
+	cached.getParsedAddress().setCity("marseille");
+	AddressResultsDto other = cache.getResults("key");
+	Assert.assertEquals("Paris", other.getResult().get(0).getCity());
+	Assert.assertEquals("paris", other.getParsedAddress().getCity());
+    }
+
+    @Test
+    public void putShouldEvictTheLeastRecentlyUsedEntries() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	cache.setMaxSize(2);
+	cache.putResults("first", createResults());
+	cache.putResults("second", createResults());
+	//first is now the most recently used
+	Assert.assertNotNull(cache.getResults("first"));
+	cache.putResults("third", createResults());
+	Assert.assertEquals(2, cache.getSize());
+	Assert.assertNull(cache.getResults("second"));
+	Assert.assertNotNull(cache.getResults("first"));
+	Assert.assertNotNull(cache.getResults("third"));
+    }
+
+    @Test
+    public void invalidateShouldRemoveAllTheEntries() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	cache.setMaxSize(10);
+	cache.putResults("key", createResults());
+	cache.invalidate();
+	Assert.assertEquals(0, cache.getSize());
+	Assert.assertNull(cache.getResults("key"));
+    }
+
+    @Test
+    public void cacheShouldBeDisabledByDefault() {
+	GeocodingResultCache cache = new GeocodingResultCache();
+	Assert.assertFalse(cache.isEnabled());
+	cache.putResults("key", createResults());
+	Assert.assertNull(cache.getResults("key"));
+	Assert.assertEquals(0, cache.getSize());
+    }
+
+}
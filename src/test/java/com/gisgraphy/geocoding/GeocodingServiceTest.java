@@ -27,6 +27,7 @@ import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -45,6 +46,7 @@ import com.gisgraphy.addressparser.commons.GeocodingLevels;
 import com.gisgraphy.addressparser.exception.AddressParserException;
 import com.gisgraphy.addressparser.format.BasicAddressFormater;
 import com.gisgraphy.addressparser.format.DisplayMode;
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
 import com.gisgraphy.domain.valueobject.GisgraphyConfig;
 import com.gisgraphy.domain.valueobject.Pagination;
 import com.gisgraphy.fulltext.FullTextSearchEngine;
@@ -59,6 +61,7 @@ import com.gisgraphy.importer.LabelGenerator;
 import com.gisgraphy.serializer.common.OutputFormat;
 import com.gisgraphy.service.IStatsUsageService;
 import com.gisgraphy.stats.StatsUsageType;
+import com.gisgraphy.street.CompactHouseNumbers;
 import com.gisgraphy.street.HouseNumberDto;
 import com.gisgraphy.test.GisgraphyTestHelper;
 import com.vividsolutions.jts.geom.Point;
@@ -1139,6 +1142,45 @@ public class GeocodingServiceTest {
     	
     }
     
+    @Test
+    public void searchHouseNumberShouldScanTheCompactHouseNumbersLikeTheDtos(){
+    	GeocodingService service = new GeocodingService();
+    	List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+    	houseNumbers.add(new HouseNumber("300", GeolocHelper.createPoint(2D, 3D)));
+    	houseNumbers.add(new HouseNumber("302", GeolocHelper.createPoint(4D, 5D)));
+    	houseNumbers.add(new HouseNumber("306b", GeolocHelper.createPoint(6D, 7D)));
+    	houseNumbers.add(new HouseNumber("bis", GeolocHelper.createPoint(8D, 9D)));
+    	List<HouseNumberDto> compact = CompactHouseNumbers.encode(houseNumbers).asList();
+    	List<HouseNumberDto> dtos = new ArrayList<HouseNumberDto>(compact);
+    	
+    	for (int houseNumberToFind : new int[]{1, 300, 302, 304, 306, 400}){
+    		for (String countryCode : new String[]{"FR", "CZ"}){
+    			HouseNumberDtoInterpolation expected = service.searchHouseNumber(houseNumberToFind, dtos, countryCode);
+    			HouseNumberDtoInterpolation actual = service.searchHouseNumber(houseNumberToFind, compact, countryCode);
+    			Assert.assertEquals(expected.getExactNumber(), actual.getExactNumber());
+    			assertSameLocation(expected.getExactLocation(), actual.getExactLocation());
+    			Assert.assertEquals(expected.getLowerNumber(), actual.getLowerNumber());
+    			assertSameLocation(expected.getLowerLocation(), actual.getLowerLocation());
+    			Assert.assertEquals(expected.getHigherNumber(), actual.getHigherNumber());
+    			assertSameLocation(expected.getHigherLocation(), actual.getHigherLocation());
+    		}
+    	}
+    	HouseNumberDtoInterpolation result = service.searchHouseNumber(304, compact, "FR");
+    	Assert.assertEquals(302, result.getLowerNumber().intValue());
+    	Assert.assertEquals(4D, result.getLowerLocation().getX(),0.0001);
+    	Assert.assertEquals(306, result.getHigherNumber().intValue());
+    	Assert.assertEquals(6D, result.getHigherLocation().getX(),0.0001);
+    }
+    
+    private void assertSameLocation(Point expected, Point actual){
+    	if (expected == null){
+    		Assert.assertNull(actual);
+    	} else {
+    		Assert.assertEquals(expected.getX(), actual.getX(),0.0000001);
+    		Assert.assertEquals(expected.getY(), actual.getY(),0.0000001);
+    	}
+    }
+    
     @Test
     public void searchHouseNumber_WithNullValues(){
     	GeocodingService service = new GeocodingService();
@@ -2360,4 +2402,119 @@ public class GeocodingServiceTest {
     }
 
    
+    @Test
+    public void geocodeWithPipelineShouldSearchStreetsAroundTheCityIfACityIsFound() {
+	final List<Point> streetSearchPoints = Collections.synchronizedList(new ArrayList<Point>());
+	GeocodingService geocodingService = new GeocodingService() {
+	    @Override
+	    protected List<SolrResponseDto> findCitiesInText(String text, String countryCode) {
+		List<SolrResponseDto> cities = new ArrayList<SolrResponseDto>();
+		cities.add(GisgraphyTestHelper.createSolrResponseDtoForCity());
+		return cities;
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findStreetInText(String text, String countryCode, Point point) {
+		streetSearchPoints.add(point);
+		return new ArrayList<SolrResponseDto>();
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findExactMatches(String text, String countryCode) {
+		return new ArrayList<SolrResponseDto>();
+	    }
+	};
+	ImporterConfig importerConfig = new ImporterConfig();
+	geocodingService.setImporterConfig(importerConfig);
+	geocodingService.setPipelineEnabled(true);
+	try {
+	    AddressResultsDto results = geocodingService.geocodeWithPipeline("champs elysees Name", "FR", null);
+	    Assert.assertNotNull("the pipeline should not fall back to the sequential geocoding", results);
+	    Assert.assertEquals("when no street is found, the city should be returned", 1, results.getResult().size());
+	    Assert.assertEquals("Name", results.getResult().get(0).getCity());
+	    boolean streetSearchedAroundCity = false;
+	    for (Point point : streetSearchPoints) {
+		if (point != null) {
+		    Assert.assertEquals(2.36D, point.getX(), 0.0001);
+		    Assert.assertEquals(1.55D, point.getY(), 0.0001);
+		    streetSearchedAroundCity = true;
+		}
+	    }
+	    Assert.assertTrue("the streets should be searched around the city", streetSearchedAroundCity);
+	} finally {
+	    geocodingService.shutdownPipeline();
+	}
+    }
+
+    @Test
+    public void geocodeWithPipelineShouldUseTheSpeculativeStreetSearchIfNoCityIsFound() {
+	final List<Point> streetSearchPoints = Collections.synchronizedList(new ArrayList<Point>());
+	GeocodingService geocodingService = new GeocodingService() {
+	    @Override
+	    protected List<SolrResponseDto> findCitiesInText(String text, String countryCode) {
+		return new ArrayList<SolrResponseDto>();
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findStreetInText(String text, String countryCode, Point point) {
+		streetSearchPoints.add(point);
+		List<SolrResponseDto> streets = new ArrayList<SolrResponseDto>();
+		streets.add(GisgraphyTestHelper.createSolrResponseDtoForStreet("is_in"));
+		return streets;
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findExactMatches(String text, String countryCode) {
+		return new ArrayList<SolrResponseDto>();
+	    }
+	};
+	ImporterConfig importerConfig = new ImporterConfig();
+	geocodingService.setImporterConfig(importerConfig);
+	geocodingService.setPipelineEnabled(true);
+	try {
+	    AddressResultsDto results = geocodingService.geocodeWithPipeline("champs elysees", "FR", null);
+	    Assert.assertNotNull("the pipeline should not fall back to the sequential geocoding", results);
+	    Assert.assertEquals(1, results.getResult().size());
+	    Assert.assertEquals("only the speculative street search should be done", 1, streetSearchPoints.size());
+	    Assert.assertNull(streetSearchPoints.get(0));
+	} finally {
+	    geocodingService.shutdownPipeline();
+	}
+    }
+
+    @Test
+    public void geocodeWithPipelineShouldReturnNullIfAStageTimesOut() {
+	GeocodingService geocodingService = new GeocodingService() {
+	    @Override
+	    protected List<SolrResponseDto> findCitiesInText(String text, String countryCode) {
+		return new ArrayList<SolrResponseDto>();
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findStreetInText(String text, String countryCode, Point point) {
+		return new ArrayList<SolrResponseDto>();
+	    }
+
+	    @Override
+	    protected List<SolrResponseDto> findExactMatches(String text, String countryCode) {
+		try {
+		    Thread.sleep(2000);
+		} catch (InterruptedException e) {
+		    //the stage has been cancelled
+		}
+		return new ArrayList<SolrResponseDto>();
+	    }
+	};
+	ImporterConfig importerConfig = new ImporterConfig();
+	geocodingService.setImporterConfig(importerConfig);
+	geocodingService.setPipelineEnabled(true);
+	geocodingService.setPipelineTimeout(50);
+	try {
+	    Assert.assertNull("a timeout should make the pipeline fall back to the sequential geocoding",
+		    geocodingService.geocodeWithPipeline("champs elysees", "FR", null));
+	} finally {
+	    geocodingService.shutdownPipeline();
+	}
+    }
+
 }
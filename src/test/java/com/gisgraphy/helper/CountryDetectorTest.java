@@ -32,6 +32,38 @@ public class CountryDetectorTest {
 	
 	}
 	
+	@Test
+	public void detectAndRemoveCountryShouldIgnoreTheSeparatorsAndTheCase() {
+		CountryDetector detector = new CountryDetector();
+		CountryDetectorDto dto = detector.detectAndRemoveCountry("via alba,1  12100 Cuneo,   ITALY  ");
+		Assert.assertEquals("IT", dto.getCountryCode());
+		Assert.assertEquals("via alba,1  12100 Cuneo", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("10 rue de la paix 75002 Paris - france");
+		Assert.assertEquals("FR", dto.getCountryCode());
+		Assert.assertEquals("10 rue de la paix 75002 Paris", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("France");
+		Assert.assertEquals("FR", dto.getCountryCode());
+		Assert.assertEquals("", dto.getAddress());
+	}
+
+	@Test
+	public void detectAndRemoveCountryShouldNotRemoveMexico() {
+		CountryDetector detector = new CountryDetector();
+		CountryDetectorDto dto = detector.detectAndRemoveCountry("avenida reforma 10 mexico");
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals("avenida reforma 10 mexico", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("via alba,1 12100 Cuneo Panama");
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals("via alba,1 12100 Cuneo Panama", dto.getAddress());
+
+		dto = detector.detectAndRemoveCountry("");
+		Assert.assertEquals(null, dto.getCountryCode());
+		Assert.assertEquals("", dto.getAddress());
+	}
+
 	@Test
 	public void DetectAndRemoveCountry_performance() {
 		CountryDetector detector = new CountryDetector();
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+    private byte[] createContent(int size) {
+	byte[] content = new byte[size];
+	for (int i = 0; i < size; i++) {
+	    content[i] = (byte) i;
+	}
+	return content;
+    }
+
+    private byte[] readAll(InputStream in) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buffer = new byte[1000];
+	int read;
+	while ((read = in.read(buffer)) != -1) {
+	    out.write(buffer, 0, read);
+	}
+	return out.toByteArray();
+    }
+
+    @Test
+    public void readShouldReturnTheContentOfTheWrappedStream() throws IOException {
+	byte[] content = createContent(10000);
+	ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(content), "test", 1024, 2);
+	try {
+	    Assert.assertTrue(Arrays.equals(content, readAll(in)));
+	    Assert.assertEquals("the end of the stream should be returned more than once", -1, in.read());
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test
+    public void readByteShouldReturnUnsignedBytes() throws IOException {
+	ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(new byte[] { (byte) 200, 1 }), "test");
+	try {
+	    Assert.assertEquals(200, in.read());
+	    Assert.assertEquals(1, in.read());
+	    Assert.assertEquals(-1, in.read());
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test
+    public void readShouldThrowTheErrorsOfTheWrappedStream() throws IOException {
+	InputStream failingStream = new InputStream() {
+	    @Override
+	    public int read() throws IOException {
+		throw new IOException("corrupted");
+	    }
+	};
+	ReadAheadInputStream in = new ReadAheadInputStream(failingStream, "test");
+	try {
+	    in.read();
+	    Assert.fail("the error of the wrapped stream should be thrown");
+	} catch (IOException e) {
+	    Assert.assertEquals("corrupted", e.getCause().getMessage());
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test
+    public void readShouldThrowTheRuntimeExceptionsOfTheWrappedStreamAfterTheContentReadBefore() throws IOException {
+	InputStream failingStream = new InputStream() {
+	    private int count = 0;
+
+	    @Override
+	    public int read() throws IOException {
+		if (count == 100) {
+		    throw new IllegalStateException("corrupted block");
+		}
+		return count++;
+	    }
+	};
+	ReadAheadInputStream in = new ReadAheadInputStream(failingStream, "test", 10, 2);
+	try {
+	    for (int i = 0; i < 100; i++) {
+		Assert.assertEquals(i, in.read());
+	    }
+	    in.read();
+	    Assert.fail("the runtime exception of the wrapped stream should be thrown as an IOException");
+	} catch (IOException e) {
+	    Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+	    Assert.assertEquals("corrupted block", e.getCause().getMessage());
+	} finally {
+	    in.close();
+	}
+    }
+
+    @Test
+    public void closeShouldStopTheReadingOfALongStream() throws IOException {
+	InputStream endlessStream = new InputStream() {
+	    @Override
+	    public int read() throws IOException {
+		return 1;
+	    }
+	};
+	ReadAheadInputStream in = new ReadAheadInputStream(endlessStream, "test", 16, 1);
+	Assert.assertEquals(1, in.read());
+	in.close();
+	try {
+	    in.read(new byte[100]);
+	} catch (IOException e) {
+	    //ok the stream is closed
+	}
+    }
+
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlAccessOrder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorOrder;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+
+import org.junit.Test;
+
+import com.gisgraphy.addressparser.Address;
+import com.gisgraphy.addressparser.AddressResultsDto;
+import com.gisgraphy.addressparser.commons.GeocodingLevels;
+import com.gisgraphy.domain.valueobject.Constants;
+import com.gisgraphy.geoloc.GeolocResultsDto;
+import com.gisgraphy.serializer.UniversalSerializer;
+import com.gisgraphy.serializer.common.OutputFormat;
+import com.gisgraphy.serializer.common.UniversalSerializerConstant;
+import com.gisgraphy.street.StreetSearchResultsDto;
+import com.gisgraphy.test.GisgraphyTestHelper;
+import com.vividsolutions.jts.geom.Point;
+
+public class StreamingJsonSerializerTest {
+
+    private static final String NEW_LINE = System.getProperty("line.separator");
+
+    @Test
+    public void writeShouldWriteTheSameBytesAsTheUniversalSerializerForAGeolocResultsDto() throws IOException {
+	assertSameAsUniversalSerializer(GisgraphyTestHelper.createGeolocResultsDto(310L));
+	assertSameAsUniversalSerializer(new GeolocResultsDto());
+    }
+
+    @Test
+    public void writeShouldWriteTheSameBytesAsTheUniversalSerializerForAStreetSearchResultsDto() throws IOException {
+	assertSameAsUniversalSerializer(GisgraphyTestHelper.createStreetSearchResultsDto());
+    }
+
+    @Test
+    public void writeShouldWriteTheSameBytesAsTheUniversalSerializerForAnAddressResultsDto() throws IOException {
+	Address address = new Address();
+	address.setId(123L);
+	address.setHouseNumber("10-12");
+	address.setStreetName("rue de la \u00e9glise \"neuve\"");
+	address.setStreetType("residential");
+	address.setCity("Paris");
+	address.setZipCode("75001");
+	address.setCountryCode("FR");
+	address.setLat(48.8566D);
+	address.setLng(2.3522D);
+	address.setDistance(12.5D);
+	address.setGeocodingLevel(GeocodingLevels.HOUSE_NUMBER);
+	List<Address> addresses = new ArrayList<Address>();
+	addresses.add(address);
+	addresses.add(new Address());
+	AddressResultsDto addressResultsDto = new AddressResultsDto(addresses, 15L);
+	Address parsedAddress = new Address();
+	parsedAddress.setStreetName("rue de la \u00e9glise");
+	addressResultsDto.setParsedAddress(parsedAddress);
+	assertSameAsUniversalSerializer(addressResultsDto);
+	assertSameAsUniversalSerializer(new AddressResultsDto(new ArrayList<Address>(), 1L));
+    }
+
+    @Test
+    public void writeShouldWriteTheFieldsThenTheGettersAndTheNullValues() throws IOException {
+	Result result = new Result("paris", 3.5D, null);
+	assertEquals("{\"name\":\"paris\",\"distance\":3.5,\"type\":null,\"tags\":[]}", write(result, false, null));
+    }
+
+    @Test
+    public void writeShouldWriteTheNestedObjectsCollectionsAndMaps() throws IOException {
+	Results results = new Results();
+	results.numFound = 2L;
+	results.result = Arrays.asList(new Result("a", 1D, Type.CITY), new Result("b", Double.NaN, null));
+	results.extra = new LinkedHashMap<String, Object>();
+	results.extra.put("flag", Boolean.TRUE);
+	results.extra.put("codes", new int[] { 1, 2 });
+	assertEquals("{\"numFound\":2,\"result\":[{\"name\":\"a\",\"distance\":1.0,\"type\":\"city\",\"tags\":[]},"
+		+ "{\"name\":\"b\",\"distance\":\"NaN\",\"type\":null,\"tags\":[]}],\"extra\":{\"flag\":true,\"codes\":[1,2]}}",
+		write(results, false, null));
+    }
+
+    @Test
+    public void writeShouldUseTheJaxbAnnotations() throws IOException {
+	AnnotatedResult result = new AnnotatedResult();
+	assertEquals("{\"id\":1,\"QTime\":2,\"date\":1000,\"codes\":[\"a\"]}", write(result, false, null));
+	result.name = "label";
+	assertEquals("{\"id\":1,\"QTime\":2,\"label\":\"label\",\"date\":1000,\"codes\":[\"a\"]}", write(result, false, null));
+	assertEquals("{\"a\":1,\"b\":2,\"c\":3}", write(new SortedResult(), false, null));
+    }
+
+    @Test
+    public void writeShouldEscapeTheStrings() throws IOException {
+	Result result = new Result("a\"b\\c\nd\u0001e\u001ff\bg\u2028", 1D, null);
+	assertEquals("{\"name\":\"a\\\"b\\\\c\\nd\\u0001e\\u001Ff\\bg\u2028\",\"distance\":1.0,\"type\":null,\"tags\":[]}", write(result, false, null));
+	assertEquals("{\"name\":\"\u00e9t\u00e9\",\"distance\":1.0,\"type\":null,\"tags\":[]}", write(new Result("\u00e9t\u00e9", 1D, null), false, null));
+    }
+
+    @Test
+    public void writeShouldWrapTheJsonInTheCallback() throws IOException {
+	assertEquals("doit({\"name\":\"a\",\"distance\":1.0,\"type\":null,\"tags\":[]});", write(new Result("a", 1D, null), false, "doit"));
+	assertEquals("{\"name\":\"a\",\"distance\":1.0,\"type\":null,\"tags\":[]}", write(new Result("a", 1D, null), false, " "));
+    }
+
+    @Test
+    public void writeShouldIndentLikeThePrettyPrinter() throws IOException {
+	Results results = new Results();
+	results.numFound = 1L;
+	results.result = Arrays.asList(new Result("a", 1D, null));
+	results.extra = new HashMap<String, Object>();
+	assertEquals("{" + NEW_LINE + "  \"numFound\" : 1," + NEW_LINE + "  \"result\" : [ {" + NEW_LINE + "    \"name\" : \"a\"," + NEW_LINE
+		+ "    \"distance\" : 1.0," + NEW_LINE + "    \"type\" : null," + NEW_LINE + "    \"tags\" : [ ]" + NEW_LINE + "  } ]," + NEW_LINE
+		+ "  \"extra\" : { }" + NEW_LINE + "}", write(results, true, null));
+    }
+
+    private void assertSameAsUniversalSerializer(Object dto) throws IOException {
+	for (String callback : new String[] { null, "doit" }) {
+	    for (boolean indent : new boolean[] { false, true }) {
+		Map<String, Object> extraParameter = new HashMap<String, Object>();
+		extraParameter.put(UniversalSerializerConstant.CALLBACK_METHOD_NAME, callback);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		UniversalSerializer.getInstance().write(expected, dto, indent, extraParameter, OutputFormat.JSON);
+		assertEquals(dto.getClass().getSimpleName() + " with callback=" + callback + " and indent=" + indent, expected.toString(Constants.CHARSET),
+			write(dto, indent, callback));
+	    }
+	}
+    }
+
+    private String write(Object dto, boolean indent, String callback) throws IOException {
+	ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+	new StreamingJsonSerializer().write(outputStream, dto, indent, callback);
+	return outputStream.toString(Constants.CHARSET);
+    }
+
+    public enum Type {
+	@XmlEnumValue("city")
+	CITY
+    }
+
+    public static class Result {
+	private String name;
+	private Double distance;
+	private Type type;
+	@XmlTransient
+	private String internal = "hidden";
+	private List<String> tags = new ArrayList<String>();
+
+	public Result(String name, Double distance, Type type) {
+	    this.name = name;
+	    this.distance = distance;
+	    this.type = type;
+	}
+
+	public String getName() {
+	    return name;
+	}
+
+	public Double getDistance() {
+	    return distance;
+	}
+
+	public Type getType() {
+	    return type;
+	}
+
+	public String getInternal() {
+	    return internal;
+	}
+
+	public List<String> getTags() {
+	    return tags;
+	}
+
+	public Point getLocation() {
+	    return GeolocHelper.createPoint(1F, 2F);
+	}
+    }
+
+    public static class Results {
+	private Long numFound;
+	private List<Result> result;
+	private Map<String, Object> extra;
+
+	public Long getNumFound() {
+	    return numFound;
+	}
+
+	public List<Result> getResult() {
+	    return result;
+	}
+
+	public Map<String, Object> getExtra() {
+	    return extra;
+	}
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlType(propOrder = { "id", "qTime" })
+    public static class AnnotatedResult {
+	@XmlElement(name = "label")
+	private String name;
+	@XmlElement(name = "QTime")
+	private Long qTime = 2L;
+	private Long id = 1L;
+	private Date date = new Date(1000L);
+	@XmlElementWrapper(name = "codes")
+	@XmlElement(name = "code")
+	private List<String> code = Arrays.asList("a");
+	private transient String label;
+
+	public String getLabel() {
+	    return label;
+	}
+
+	public Long getNotAField() {
+	    return 3L;
+	}
+    }
+
+    @XmlAccessorOrder(XmlAccessOrder.ALPHABETICAL)
+    public static class SortedResult {
+	public int c = 3;
+	public int a = 1;
+	public int b = 2;
+    }
+
+}
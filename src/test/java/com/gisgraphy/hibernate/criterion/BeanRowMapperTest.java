@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.hibernate.criterion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class BeanRowMapperTest {
+
+    @Test
+    public void forAliasesShouldReturnTheSameMapperForTheSameAliases() {
+	BeanRowMapper<Bean> mapper = BeanRowMapper.forAliases(Bean.class, new String[] { "name", "distance" });
+	assertSame(mapper, BeanRowMapper.forAliases(Bean.class, new String[] { "name", "distance" }));
+	assertEquals(1, mapper.indexOf("distance"));
+	assertEquals(-1, mapper.indexOf("id"));
+    }
+
+    @Test
+    public void mapShouldUseTheSettersAndTheFields() {
+	BeanRowMapper<Bean> mapper = BeanRowMapper.forAliases(Bean.class, new String[] { "distance", "id", "name" });
+	Bean bean = mapper.map(new Object[] { 12.5D, 3L, "paris" });
+	assertEquals("paris", bean.getName());
+	assertEquals(3L, bean.id.longValue());
+	assertEquals(12.5D, bean.distance.doubleValue(), 0.0001);
+	assertEquals(1, bean.nameSetterCalls);
+
+	Bean other = mapper.map(new Object[] { null, 4L, null });
+	assertNull(other.getName());
+	assertNull(other.distance);
+	assertEquals(4L, other.id.longValue());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void forAliasesShouldFailWhenAnAliasIsNotAProperty() {
+	BeanRowMapper.forAliases(Bean.class, new String[] { "unknown" });
+    }
+
+    public static class Bean {
+	private Long id;
+	private String name;
+	private Double distance;
+	private int nameSetterCalls = 0;
+
+	public String getName() {
+	    return name;
+	}
+
+	public void setName(String name) {
+	    nameSetterCalls++;
+	    this.name = name;
+	}
+    }
+
+}
@@ -2,11 +2,29 @@ package com.gisgraphy.importer;
 
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.tools.bzip2.CBZip2OutputStream;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
+import com.gisgraphy.domain.valueobject.Constants;
+import com.gisgraphy.domain.valueobject.ImporterStatus;
 import com.gisgraphy.domain.valueobject.NameValueDTO;
 
 public class AbstractSimpleImporterProcessorTest {
@@ -73,4 +91,281 @@ public class AbstractSimpleImporterProcessorTest {
 		Assert.assertTrue(importerProcessor.isEmptyField(fields5, 0, false));
 	}
 
+
+	private class ParallelImporter extends AbstractSimpleImporterProcessor {
+		
+		private final File file;
+		
+		private final String lineInError;
+		
+		private final Set<String> processedLines = Collections.synchronizedSet(new HashSet<String>());
+		
+		private ParallelImporter(File file, String lineInError) {
+			this.file = file;
+			this.lineInError = lineInError;
+		}
+		
+		public List<NameValueDTO<Integer>> rollback() {
+			return null;
+		}
+		
+		@Override
+		protected boolean shouldIgnoreFirstLine() {
+			return true;
+		}
+		
+		@Override
+		protected boolean shouldIgnoreComments() {
+			return true;
+		}
+		
+		@Override
+		protected void setCommitFlushMode() {
+		}
+		
+		@Override
+		protected void processData(String line) throws ImporterException {
+			if (line.equals(lineInError)) {
+				throw new RuntimeException("error for " + line);
+			}
+			processedLines.add(line);
+		}
+		
+		@Override
+		protected int getNumberOfColumns() {
+			return 1;
+		}
+		
+		@Override
+		protected File[] getFiles() {
+			return new File[] { file };
+		}
+		
+		@Override
+		protected void flushAndClear() {
+		}
+		
+		@Override
+		protected boolean isParallelizable() {
+			return true;
+		}
+	}
+	
+	private File createFileWithLines(int numberOfLines) throws IOException {
+		File file = File.createTempFile("parallelImport", ".txt");
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), Constants.CHARSET);
+		try {
+			writer.write("header\n");
+			writer.write("#comment\n");
+			for (int i = 0; i < numberOfLines; i++) {
+				writer.write("line" + i + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+	
+	private File createArchiveWithLines(int numberOfLines) throws IOException {
+		File archive = File.createTempFile("streamingImport", ".tar.bz2");
+		archive.deleteOnExit();
+		StringBuffer content = new StringBuffer("header\n#comment\n");
+		for (int i = 0; i < numberOfLines; i++) {
+			content.append("line").append(i).append("\n");
+		}
+		FileOutputStream out = new FileOutputStream(archive);
+		out.write('B');
+		out.write('Z');
+		TarOutputStream tar = new TarOutputStream(new CBZip2OutputStream(out));
+		try {
+			addEntry(tar, "readme.txt", "not a country file\n".getBytes(Constants.CHARSET));
+			addEntry(tar, "FR.txt", content.toString().getBytes(Constants.CHARSET));
+		} finally {
+			tar.close();
+		}
+		return archive;
+	}
+
+	private void addEntry(TarOutputStream tar, String name, byte[] content) throws IOException {
+		TarEntry entry = new TarEntry(name);
+		entry.setSize(content.length);
+		tar.putNextEntry(entry);
+		tar.write(content);
+		tar.closeEntry();
+	}
+
+	private PlatformTransactionManager createTransactionManager() {
+		PlatformTransactionManager transactionManager = EasyMock.createMock(PlatformTransactionManager.class);
+		EasyMock.expect(transactionManager.getTransaction((TransactionDefinition) EasyMock.anyObject())).andStubReturn(new SimpleTransactionStatus());
+		transactionManager.commit((TransactionStatus) EasyMock.anyObject());
+		EasyMock.expectLastCall().anyTimes();
+		transactionManager.rollback((TransactionStatus) EasyMock.anyObject());
+		EasyMock.expectLastCall().anyTimes();
+		EasyMock.replay(transactionManager);
+		return transactionManager;
+	}
+	
+	@Test
+	public void processInParallelShouldProcessAllTheLines() throws IOException {
+		File file = createFileWithLines(1005);
+		ParallelImporter importer = new ParallelImporter(file, null);
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setImporterThreads(4);
+		importerConfig.setMaxInsertsBeforeFlush(10);
+		importer.setImporterConfig(importerConfig);
+		importer.setTransactionManager(createTransactionManager());
+		
+		importer.process();
+		
+		Assert.assertEquals(ImporterStatus.PROCESSED, importer.getStatus());
+		Assert.assertEquals(1005, importer.processedLines.size());
+		Assert.assertTrue(importer.processedLines.contains("line0"));
+		Assert.assertTrue(importer.processedLines.contains("line1004"));
+		Assert.assertFalse(importer.processedLines.contains("header"));
+		Assert.assertFalse(importer.processedLines.contains("#comment"));
+		Assert.assertEquals(1007, importer.getTotalReadLine());
+		Assert.assertEquals(1007, importer.getReadFileLine());
+	}
+	
+	@Test
+	public void processInParallelShouldSendTheLinesOfAPartitionInTheSameBatches() throws IOException {
+		File file = createFileWithLines(1005);
+		final ThreadLocal<Object> currentPartition = new ThreadLocal<Object>();
+		final List<String> linesOfAnotherPartition = Collections.synchronizedList(new ArrayList<String>());
+		ParallelImporter importer = new ParallelImporter(file, null) {
+			@Override
+			protected Object getPartition(String line) {
+				return Integer.valueOf(Integer.parseInt(line.substring("line".length())) % 3);
+			}
+
+			@Override
+			protected void onBatchStart(Object partition) {
+				currentPartition.set(partition);
+			}
+
+			@Override
+			protected void processData(String line) throws ImporterException {
+				if (!getPartition(line).equals(currentPartition.get())) {
+					linesOfAnotherPartition.add(line);
+				}
+				super.processData(line);
+			}
+		};
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setImporterThreads(4);
+		importerConfig.setMaxInsertsBeforeFlush(10);
+		importer.setImporterConfig(importerConfig);
+		importer.setTransactionManager(createTransactionManager());
+		
+		importer.process();
+		
+		Assert.assertEquals(ImporterStatus.PROCESSED, importer.getStatus());
+		Assert.assertEquals(1005, importer.processedLines.size());
+		Assert.assertTrue("a batch should only contain the lines of one partition : " + linesOfAnotherPartition, linesOfAnotherPartition.isEmpty());
+		Assert.assertEquals(1007, importer.getTotalReadLine());
+	}
+	
+	@Test
+	public void processInStreamingModeShouldReadTheLinesFromTheArchives() throws IOException {
+		final File archive = createArchiveWithLines(1005);
+		ParallelImporter importer = new ParallelImporter(null, null) {
+			@Override
+			protected File[] getArchives() {
+				return new File[] { archive };
+			}
+
+			@Override
+			protected File[] getFiles() {
+				throw new RuntimeException("the files should not be listed in streaming mode");
+			}
+		};
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setStreamingImportEnabled(true);
+		importerConfig.setMaxInsertsBeforeFlush(10);
+		importer.setImporterConfig(importerConfig);
+		importer.setTransactionManager(createTransactionManager());
+		
+		importer.process();
+		
+		Assert.assertEquals(ImporterStatus.PROCESSED, importer.getStatus());
+		Assert.assertEquals(1005, importer.processedLines.size());
+		Assert.assertTrue(importer.processedLines.contains("line0"));
+		Assert.assertTrue(importer.processedLines.contains("line1004"));
+		Assert.assertFalse(importer.processedLines.contains("header"));
+		Assert.assertFalse(importer.processedLines.contains("not a country file"));
+		Assert.assertEquals("the progress should be given in compressed bytes", archive.length(), importer.getNumberOfLinesToProcess());
+		Assert.assertEquals(archive.length(), importer.getTotalReadLine());
+	}
+	
+	@Test
+	public void processInParallelShouldFailIfALineFails() throws IOException {
+		File file = createFileWithLines(1005);
+		ParallelImporter importer = new ParallelImporter(file, "line500");
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setImporterThreads(4);
+		importerConfig.setMaxInsertsBeforeFlush(10);
+		importer.setImporterConfig(importerConfig);
+		importer.setTransactionManager(createTransactionManager());
+		
+		try {
+			importer.process();
+			Assert.fail("the import should fail when a line can not be processed");
+		} catch (ImporterException e) {
+			//ok
+		}
+		Assert.assertEquals(ImporterStatus.ERROR, importer.getStatus());
+		Assert.assertFalse(importer.processedLines.contains("line500"));
+	}
+
+	@Test
+	public void processInParallelShouldFailIfALineThrowsAnError() throws IOException {
+		File file = createFileWithLines(1005);
+		ParallelImporter importer = new ParallelImporter(file, null) {
+			@Override
+			protected void processData(String line) throws ImporterException {
+				if ("line500".equals(line)) {
+					throw new Error("line500");
+				}
+				super.processData(line);
+			}
+		};
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setImporterThreads(2);
+		importerConfig.setMaxInsertsBeforeFlush(10);
+		importer.setImporterConfig(importerConfig);
+		importer.setTransactionManager(createTransactionManager());
+		
+		try {
+			importer.process();
+			Assert.fail("the import should fail when a line throws an error");
+		} catch (ImporterException e) {
+			//ok
+		}
+		Assert.assertEquals(ImporterStatus.ERROR, importer.getStatus());
+		Assert.assertFalse(importer.processedLines.contains("line500"));
+	}
+
+	@Test
+	public void pendingBatchesShouldOnlySendTheBatchesThatAreNotTooSmallBeforeTheyAreFull() {
+		//a batch is sent early from 2 lines, when there are 4 waiting lines
+		AbstractSimpleImporterProcessor.PendingBatches pendingBatches = new AbstractSimpleImporterProcessor.PendingBatches(8, 4);
+		int lineNumber = 0;
+		for (String partition : new String[] { "a", "b", "c", "d", "e" }) {
+			Assert.assertNull("the batches are too small to be sent", pendingBatches.add(partition, "line", ++lineNumber));
+		}
+		AbstractSimpleImporterProcessor.LineBatch batch = pendingBatches.add("a", "line", ++lineNumber);
+		Assert.assertNotNull("a batch of 2 lines can be sent", batch);
+		Assert.assertEquals("a", batch.partition);
+		Assert.assertEquals(2, batch.size());
+
+		for (String partition : new String[] { "f", "g", "h" }) {
+			Assert.assertNull(pendingBatches.add(partition, "line", ++lineNumber));
+		}
+		batch = pendingBatches.add("i", "line", ++lineNumber);
+		Assert.assertNotNull("a small batch should be sent when there are twice too many waiting lines", batch);
+		Assert.assertEquals(1, batch.size());
+		Assert.assertEquals(7, pendingBatches.removeAll().size());
+	}
+
 }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.repository.IAdmDao;
+
+public class AdmIndexTest {
+
+    @Test
+    public void getAdmShouldQueryTheCodesOnlyOnce() {
+	Adm adm = new Adm(2);
+	adm.setId(12L);
+	IAdmDao admDao = EasyMock.createMock(IAdmDao.class);
+	EasyMock.expect(admDao.getAdm("FR", "A1", "B2", null, null)).andReturn(adm).once();
+	EasyMock.expect(admDao.get(12L)).andReturn(adm).times(2);
+	EasyMock.replay(admDao);
+
+	AdmIndex admIndex = new AdmIndex(admDao);
+	assertSame(adm, admIndex.getAdm("FR", "A1", "B2", null, null));
+	assertSame(adm, admIndex.getAdm("FR", "A1", "B2", null, null));
+	assertSame(adm, admIndex.getAdm("fr", "A1", "B2", null, null));
+	assertEquals(1, admIndex.getMisses());
+	assertEquals(2, admIndex.getHits());
+	EasyMock.verify(admDao);
+    }
+
+    @Test
+    public void getAdmShouldQueryTheCodesNotFoundAgainWhenAnAdmIsSaved() {
+	Adm adm = new Adm(1);
+	adm.setId(1L);
+	IAdmDao admDao = EasyMock.createMock(IAdmDao.class);
+	EasyMock.expect(admDao.getAdm("FR", "A1", null, null, null)).andReturn(null).once();
+	EasyMock.expect(admDao.getAdm("FR", "A1", null, null, null)).andReturn(adm).once();
+	EasyMock.replay(admDao);
+
+	AdmIndex admIndex = new AdmIndex(admDao);
+	assertNull(admIndex.getAdm("FR", "A1", null, null, null));
+	assertNull(admIndex.getAdm("FR", "A1", null, null, null));
+	admIndex.onAdmSaved(adm);
+	assertSame(adm, admIndex.getAdm("FR", "A1", null, null, null));
+	EasyMock.verify(admDao);
+    }
+
+    @Test
+    public void getAdmOrFirstValidParentIfNotFoundShouldDowngradeTheLevels() {
+	Adm adm1 = new Adm(1);
+	adm1.setId(1L);
+	IAdmDao admDao = EasyMock.createMock(IAdmDao.class);
+	EasyMock.expect(admDao.getAdm("FR", "A1", "B2", "C3", null)).andReturn(null).once();
+	EasyMock.expect(admDao.getAdm("FR", "A1", "B2", null, null)).andReturn(null).once();
+	EasyMock.expect(admDao.getAdm("FR", "A1", null, null, null)).andReturn(adm1).once();
+	EasyMock.expect(admDao.get(1L)).andReturn(adm1).once();
+	EasyMock.replay(admDao);
+
+	AdmIndex admIndex = new AdmIndex(admDao);
+	assertSame(adm1, admIndex.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", "C3", null));
+	assertSame(adm1, admIndex.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", "C3", null));
+	EasyMock.verify(admDao);
+    }
+
+    @Test
+    public void getAdmOrFirstValidParentIfNotFoundShouldFallBackToTheAdm1LikeTheDao() {
+	Adm adm1 = new Adm(1);
+	adm1.setId(1L);
+	IAdmDao admDao = EasyMock.createMock(IAdmDao.class);
+	//no adm for the codes, even at the adm1 level, the dao ends with getAdm1
+	EasyMock.expect(admDao.getAdm("FR", "A1", "B2", null, null)).andReturn(null).once();
+	EasyMock.expect(admDao.getAdm("FR", "A1", null, null, null)).andReturn(null).once();
+	EasyMock.expect(admDao.getAdm1("FR", "A1")).andReturn(adm1).once();
+	EasyMock.expect(admDao.get(1L)).andReturn(adm1).once();
+	EasyMock.replay(admDao);
+
+	AdmIndex admIndex = new AdmIndex(admDao);
+	assertSame(adm1, admIndex.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", null, null));
+	assertSame(adm1, admIndex.getAdmOrFirstValidParentIfNotFound("FR", "A1", "B2", null, null));
+	assertNull("the adm1 fallback should not be cached as a getAdm result", admIndex.getAdm("FR", "A1", null, null, null));
+	EasyMock.verify(admDao);
+    }
+
+}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mortbay.jetty.testing.ServletTester;
+
+import com.gisgraphy.helper.FileHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+
+public class ChunkedDownloaderTest {
+
+    private static final int FILE_SIZE = 95000;
+
+    private static final int CHUNK_SIZE = 10000;
+
+    private static ServletTester servletTester;
+
+    private static String fileUrl;
+
+    private File tempDir;
+
+    /**
+     * Serve a file with range requests and its md5 checksum
+     */
+    public static class FileServlet extends HttpServlet {
+
+	static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+	static byte[] content;
+	static String checksum;
+	static boolean acceptRanges = true;
+	static int failingRangeStart = -1;
+	static final AtomicInteger numberOfRangeRequests = new AtomicInteger();
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+	    if (request.getRequestURI().endsWith(ChunkedDownloader.CHECKSUM_EXTENSION)) {
+		if (checksum == null) {
+		    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+		} else {
+		    response.getOutputStream().write((checksum + "  file.bin\n").getBytes("US-ASCII"));
+		}
+		return;
+	    }
+	    response.setHeader("ETag", "\"v1\"");
+	    String range = request.getHeader("Range");
+	    if (acceptRanges) {
+		response.setHeader("Accept-Ranges", "bytes");
+	    }
+	    if (acceptRanges && range != null) {
+		Matcher matcher = RANGE_PATTERN.matcher(range);
+		Assert.assertTrue("unexpected range " + range, matcher.matches());
+		int start = Integer.parseInt(matcher.group(1));
+		int end = Integer.parseInt(matcher.group(2));
+		numberOfRangeRequests.incrementAndGet();
+		if (start == failingRangeStart) {
+		    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+		    return;
+		}
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+		response.setContentLength(end - start + 1);
+		response.getOutputStream().write(content, start, end - start + 1);
+	    } else {
+		response.setContentLength(content.length);
+		response.getOutputStream().write(content);
+	    }
+	}
+    }
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+	servletTester = new ServletTester();
+	servletTester.setContextPath("/");
+	servletTester.addServlet(FileServlet.class, "/*");
+	fileUrl = servletTester.createSocketConnector(true) + "/file.bin";
+	servletTester.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+	servletTester.stop();
+    }
+
+    @Before
+    public void setUp() {
+	FileServlet.content = new byte[FILE_SIZE];
+	new Random(1).nextBytes(FileServlet.content);
+	FileServlet.checksum = null;
+	FileServlet.acceptRanges = true;
+	FileServlet.failingRangeStart = -1;
+	FileServlet.numberOfRangeRequests.set(0);
+	tempDir = FileHelper.createTempDir(this.getClass().getSimpleName() + System.currentTimeMillis());
+    }
+
+    @After
+    public void tearDown() {
+	GisgraphyTestHelper.DeleteNonEmptyDirectory(tempDir);
+    }
+
+    private byte[] read(File file) throws IOException {
+	byte[] bytes = new byte[(int) file.length()];
+	InputStream in = new FileInputStream(file);
+	try {
+	    int offset = 0;
+	    int read;
+	    while (offset < bytes.length && (read = in.read(bytes, offset, bytes.length - offset)) != -1) {
+		offset += read;
+	    }
+	} finally {
+	    in.close();
+	}
+	return bytes;
+    }
+
+    @Test
+    public void downloadShouldDownloadTheFileByChunks() throws IOException {
+	File file = new File(tempDir, "file.bin");
+	ChunkedDownloader downloader = new ChunkedDownloader(CHUNK_SIZE, 3, true);
+
+	downloader.download(fileUrl, file.getPath());
+
+	Assert.assertTrue(Arrays.equals(FileServlet.content, read(file)));
+	Assert.assertEquals(10, FileServlet.numberOfRangeRequests.get());
+	Assert.assertEquals(FILE_SIZE, downloader.getDownloadedBytes());
+	Assert.assertFalse("the manifest should be deleted once the file is downloaded", new File(file.getPath() + ChunkedDownloader.MANIFEST_EXTENSION)
+		.exists());
+    }
+
+    @Test
+    public void downloadShouldResumeTheChunksThatHaveFailed() throws IOException {
+	File file = new File(tempDir, "file.bin");
+	File manifestFile = new File(file.getPath() + ChunkedDownloader.MANIFEST_EXTENSION);
+	FileServlet.failingRangeStart = 5 * CHUNK_SIZE;
+	try {
+	    new ChunkedDownloader(CHUNK_SIZE, 1, true).download(fileUrl, file.getPath());
+	    Assert.fail("the download should fail when a chunk can not be downloaded");
+	} catch (ImporterException e) {
+	    //ok
+	}
+	Assert.assertTrue("the manifest should be kept to resume the download", manifestFile.exists());
+	Properties manifest = new Properties();
+	InputStream in = new FileInputStream(manifestFile);
+	try {
+	    manifest.load(in);
+	} finally {
+	    in.close();
+	}
+	int numberOfChunksDone = 0;
+	for (Object key : manifest.keySet()) {
+	    if (key.toString().startsWith("chunk.")) {
+		numberOfChunksDone++;
+	    }
+	}
+	Assert.assertTrue(numberOfChunksDone >= 5);
+	Assert.assertNull("the failing chunk should not be marked as done", manifest.getProperty("chunk.5"));
+
+	FileServlet.failingRangeStart = -1;
+	FileServlet.numberOfRangeRequests.set(0);
+	new ChunkedDownloader(CHUNK_SIZE, 1, true).download(fileUrl, file.getPath());
+
+	Assert.assertTrue(Arrays.equals(FileServlet.content, read(file)));
+	Assert.assertEquals("only the missing chunks should be downloaded", 10 - numberOfChunksDone, FileServlet.numberOfRangeRequests.get());
+	Assert.assertFalse(manifestFile.exists());
+    }
+
+    @Test
+    public void downloadShouldVerifyTheChecksum() throws IOException {
+	File file = new File(tempDir, "file.bin");
+	FileServlet.checksum = ChunkedDownloader.md5(writeContent(new File(tempDir, "expected.bin")));
+
+	new ChunkedDownloader(CHUNK_SIZE, 2, true).download(fileUrl, file.getPath());
+
+	Assert.assertTrue(Arrays.equals(FileServlet.content, read(file)));
+    }
+
+    @Test
+    public void downloadShouldDeleteTheFileWhenTheChecksumIsWrong() {
+	File file = new File(tempDir, "file.bin");
+	FileServlet.checksum = "d41d8cd98f00b204e9800998ecf8427e";
+	try {
+	    new ChunkedDownloader(CHUNK_SIZE, 2, true).download(fileUrl, file.getPath());
+	    Assert.fail("the download should fail when the checksum is wrong");
+	} catch (Exception e) {
+	    //ok
+	}
+	Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void downloadShouldUseOneConnectionWhenTheServerDoesntAcceptRanges() throws IOException {
+	File file = new File(tempDir, "file.bin");
+	FileServlet.acceptRanges = false;
+
+	ChunkedDownloader downloader = new ChunkedDownloader(CHUNK_SIZE, 3, false);
+	downloader.download(fileUrl, file.getPath());
+
+	Assert.assertTrue(Arrays.equals(FileServlet.content, read(file)));
+	Assert.assertEquals(0, FileServlet.numberOfRangeRequests.get());
+	Assert.assertEquals("the bytes should be counted while they are copied", FILE_SIZE, downloader.getDownloadedBytes());
+    }
+
+    private File writeContent(File file) throws IOException {
+	FileOutputStream out = new FileOutputStream(file);
+	try {
+	    out.write(FileServlet.content);
+	} finally {
+	    out.close();
+	}
+	return file;
+    }
+
+}
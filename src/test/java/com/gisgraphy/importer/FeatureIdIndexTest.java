@@ -0,0 +1,111 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
+
+public class FeatureIdIndexTest {
+
+    @Test
+    public void loadShouldPageOverEachPlacetypeTable() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	placetypes.add(Adm.class);
+	placetypes.add(City.class);
+	List<Object[]> admPage = new ArrayList<Object[]>();
+	admPage.add(new Object[] { 1L, 300L });
+	List<Object[]> cityFirstPage = new ArrayList<Object[]>();
+	for (long id = 1; id <= FeatureIdIndex.PAGE_SIZE; id++) {
+	    cityFirstPage.add(new Object[] { id + 10, 1000L + id });
+	}
+	List<Object[]> citySecondPage = new ArrayList<Object[]>();
+	citySecondPage.add(new Object[] { 20000L, 5L });
+	citySecondPage.add(new Object[] { 20001L, null });
+
+	IGisFeatureDao gisFeatureDao = EasyMock.createMock(IGisFeatureDao.class);
+	EasyMock.expect(gisFeatureDao.listPlacetypes()).andReturn(placetypes);
+	EasyMock.expect(gisFeatureDao.listFeatureIdsFromId(Adm.class, 0, FeatureIdIndex.PAGE_SIZE)).andReturn(admPage);
+	EasyMock.expect(gisFeatureDao.listFeatureIdsFromId(City.class, 0, FeatureIdIndex.PAGE_SIZE)).andReturn(cityFirstPage);
+	EasyMock.expect(gisFeatureDao.listFeatureIdsFromId(City.class, FeatureIdIndex.PAGE_SIZE + 10, FeatureIdIndex.PAGE_SIZE)).andReturn(citySecondPage);
+	EasyMock.replay(gisFeatureDao);
+
+	FeatureIdIndex index = FeatureIdIndex.load(gisFeatureDao);
+	EasyMock.verify(gisFeatureDao);
+	assertEquals(FeatureIdIndex.PAGE_SIZE + 2, index.size());
+	assertEquals(1L, index.getId(300L));
+	assertSame(Adm.class, index.getPlacetype(300L));
+	assertEquals(20000L, index.getId(5L));
+	assertSame(City.class, index.getPlacetype(5L));
+	assertEquals(11L, index.getId(1001L));
+	assertSame(City.class, index.getPlacetype(1001L));
+	assertEquals(-1L, index.getId(4L));
+	assertNull(index.getPlacetype(4L));
+    }
+
+    @Test
+    public void getIdShouldFindAllTheFeaturesWhateverTheOrderTheyAreAddedIn() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	for (int i = 0; i < 200; i++) {
+	    placetypes.add(i % 2 == 0 ? City.class : Adm.class);
+	}
+	FeatureIdIndex index = new FeatureIdIndex(placetypes, 0);
+	Random random = new Random(12);
+	int size = 50000;
+	long[] featureIds = new long[size];
+	for (int i = 0; i < size; i++) {
+	    //descending with some noise, to test the unsorted and the already sorted ranges
+	    featureIds[i] = i % 3 == 0 ? random.nextLong() : (size - i) * 7L;
+	    index.add(featureIds[i], i, i % 200);
+	}
+	index.sort();
+	assertEquals(size, index.size());
+	for (int i = 0; i < size; i++) {
+	    assertEquals(i, index.getId(featureIds[i]));
+	    assertSame(i % 2 == 0 ? City.class : Adm.class, index.getPlacetype(featureIds[i]));
+	}
+	assertEquals(-1L, index.getId(3L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexShouldNotAcceptMoreThan256Placetypes() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	for (int i = 0; i < 257; i++) {
+	    placetypes.add(City.class);
+	}
+	new FeatureIdIndex(placetypes, 0);
+    }
+
+}
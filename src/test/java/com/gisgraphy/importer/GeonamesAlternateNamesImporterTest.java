@@ -23,6 +23,7 @@
 package com.gisgraphy.importer;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
@@ -31,7 +32,13 @@ import junit.framework.Assert;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import com.gisgraphy.domain.geoloc.entity.Adm;
+import com.gisgraphy.domain.geoloc.entity.AlternateName;
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.GisFeature;
 import com.gisgraphy.domain.repository.IAlternateNameDao;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.IGisFeatureDao;
 import com.gisgraphy.domain.repository.ISolRSynchroniser;
 import com.gisgraphy.domain.repository.SolRSynchroniser;
 import com.gisgraphy.domain.valueobject.ImporterStatus;
@@ -82,6 +89,111 @@ public class GeonamesAlternateNamesImporterTest extends AbstractIntegrationHttpS
 	assertEquals(5, deleted.get(0).getValue().intValue());
     }
     
+    @SuppressWarnings("unchecked")
+    @Test
+    public void sortMergeImportShouldInsertTheAlternateNamesByBatchAndSaveEachFeatureOnce() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	placetypes.add(City.class);
+	placetypes.add(Adm.class);
+	FeatureIdIndex index = new FeatureIdIndex(placetypes, 10);
+	index.add(100L, 1L, 0);
+	index.add(200L, 2L, 1);
+	index.sort();
+	City city = new City();
+	city.setId(1L);
+	city.setFeatureId(100L);
+	List<GisFeature> cities = new ArrayList<GisFeature>();
+	cities.add(city);
+	List<Long> ids = new ArrayList<Long>();
+	ids.add(1L);
+
+	IAlternateNameDao alternateNameDao = EasyMock.createMock(IAlternateNameDao.class);
+	EasyMock.expect(alternateNameDao.listNamesByGisFeatureIds(ids)).andReturn(new ArrayList<AlternateName>());
+	alternateNameDao.bulkInsert((List<AlternateName>) EasyMock.anyObject());
+	alternateNameDao.flushAndClear();
+	EasyMock.expectLastCall().times(2);
+	EasyMock.replay(alternateNameDao);
+	IGisFeatureDao gisFeatureDao = EasyMock.createMock(IGisFeatureDao.class);
+	EasyMock.expect(gisFeatureDao.listByPlacetypeAndIds(City.class, ids)).andReturn(cities);
+	EasyMock.expect(gisFeatureDao.save(city)).andReturn(city);
+	gisFeatureDao.flushAndClear();
+	EasyMock.expectLastCall().times(2);
+	EasyMock.replay(gisFeatureDao);
+	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+	cityDao.flushAndClear();
+	EasyMock.expectLastCall().times(2);
+	EasyMock.replay(cityDao);
+
+	GeonamesAlternateNamesSimpleImporter importer = new GeonamesAlternateNamesSimpleImporter();
+	importer.setAlternateNameDao(alternateNameDao);
+	importer.setGisFeatureDao(gisFeatureDao);
+	importer.setCityDao(cityDao);
+	importer.featureIdIndex = index;
+	importer.processData("1\t100\tfr\tnom\t\t");
+	importer.processData("2\t100\ten\tname\t\t");
+	//not in the index
+	importer.processData("3\t300\ten\tunknown\t\t");
+	importer.flushAndClear();
+
+	EasyMock.verify(alternateNameDao);
+	EasyMock.verify(gisFeatureDao);
+	EasyMock.verify(cityDao);
+    }
+
+    @Test
+    public void sortMergeImportShouldNotInsertTheDuplicatedNames() {
+	List<Class<? extends GisFeature>> placetypes = new ArrayList<Class<? extends GisFeature>>();
+	placetypes.add(City.class);
+	FeatureIdIndex index = new FeatureIdIndex(placetypes, 10);
+	index.add(100L, 1L, 0);
+	index.sort();
+	City city = new City();
+	city.setId(1L);
+	city.setFeatureId(100L);
+	List<GisFeature> cities = new ArrayList<GisFeature>();
+	cities.add(city);
+	List<Long> ids = new ArrayList<Long>();
+	ids.add(1L);
+	AlternateName storedName = new AlternateName();
+	storedName.setGisFeature(city);
+	storedName.setLanguage("de");
+	storedName.setName("stored");
+	List<AlternateName> storedNames = new ArrayList<AlternateName>();
+	storedNames.add(storedName);
+	AlternateName expectedName = new AlternateName();
+	expectedName.setLanguage("fr");
+	expectedName.setName("nom");
+	List<AlternateName> expectedNames = new ArrayList<AlternateName>();
+	expectedNames.add(expectedName);
+
+	IAlternateNameDao alternateNameDao = EasyMock.createMock(IAlternateNameDao.class);
+	EasyMock.expect(alternateNameDao.listNamesByGisFeatureIds(ids)).andReturn(storedNames);
+	//AlternateName.equals compares the language and the name
+	alternateNameDao.bulkInsert(expectedNames);
+	alternateNameDao.flushAndClear();
+	EasyMock.expectLastCall().times(2);
+	EasyMock.replay(alternateNameDao);
+	IGisFeatureDao gisFeatureDao = EasyMock.createNiceMock(IGisFeatureDao.class);
+	EasyMock.expect(gisFeatureDao.listByPlacetypeAndIds(City.class, ids)).andReturn(cities);
+	EasyMock.replay(gisFeatureDao);
+	ICityDao cityDao = EasyMock.createNiceMock(ICityDao.class);
+	EasyMock.replay(cityDao);
+
+	GeonamesAlternateNamesSimpleImporter importer = new GeonamesAlternateNamesSimpleImporter();
+	importer.setAlternateNameDao(alternateNameDao);
+	importer.setGisFeatureDao(gisFeatureDao);
+	importer.setCityDao(cityDao);
+	importer.featureIdIndex = index;
+	importer.processData("1\t100\tfr\tnom\t\t");
+	//the same pair twice in the file
+	importer.processData("2\t100\tfr\tnom\t1\t");
+	//already stored
+	importer.processData("3\t100\tde\tstored\t\t");
+	importer.flushAndClear();
+
+	EasyMock.verify(alternateNameDao);
+    }
+
     @Test
     public void testTeardown(){
 	ISolRSynchroniser mockSolRSynchroniser = EasyMock.createMock(ISolRSynchroniser.class);
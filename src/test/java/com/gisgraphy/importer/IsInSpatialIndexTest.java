@@ -0,0 +1,211 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.City;
+import com.gisgraphy.domain.geoloc.entity.CitySubdivision;
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.domain.repository.ICitySubdivisionDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Point;
+
+public class IsInSpatialIndexTest {
+
+    private City createCity(String name, float lng, float lat, int shapeSize, boolean municipality) {
+	City city = GisgraphyTestHelper.createCityAtSpecificPoint(name, lng, lat);
+	if (shapeSize > 0) {
+	    city.setShape(GeolocHelper.createPolygonBox(lng, lat, shapeSize));
+	}
+	city.setMunicipality(municipality);
+	return city;
+    }
+
+    @Test
+    public void getCityByShapeShouldReturnTheSmallestCityThatContainsThePoint() {
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	City big = createCity("big", 2F, 48F, 20000, true);
+	City small = createCity("small", 2.01F, 48.01F, 5000, true);
+	City far = createCity("far", 10F, 40F, 5000, true);
+	index.addCity(big);
+	index.addCity(small);
+	index.addCity(far);
+	index.build();
+
+	Assert.assertSame(small, index.getCityByShape(GeolocHelper.createPoint(2.01F, 48.01F), "FR", true));
+	Assert.assertSame(big, index.getCityByShape(GeolocHelper.createPoint(2.1F, 47.95F), "FR", true));
+	Assert.assertSame(big, index.getCityByShape(GeolocHelper.createPoint(2.1F, 47.95F), null, true));
+	Assert.assertNull(index.getCityByShape(GeolocHelper.createPoint(2.01F, 48.01F), "DE", true));
+	Assert.assertNull(index.getCityByShape(GeolocHelper.createPoint(5F, 45F), "FR", true));
+    }
+
+    @Test
+    public void getCityByShapeShouldFilterMunicipality() {
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	City big = createCity("big", 2F, 48F, 20000, true);
+	City small = createCity("small", 2.01F, 48.01F, 5000, false);
+	index.addCity(big);
+	index.addCity(small);
+	index.build();
+
+	Point point = GeolocHelper.createPoint(2.01F, 48.01F);
+	Assert.assertSame(big, index.getCityByShape(point, "FR", true));
+	Assert.assertSame(small, index.getCityByShape(point, "FR", false));
+    }
+
+    @Test
+    public void getCitySubdivisionByShape() {
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	CitySubdivision subdivision = new CitySubdivision();
+	subdivision.setName("district");
+	subdivision.setCountryCode("FR");
+	subdivision.setLocation(GeolocHelper.createPoint(2F, 48F));
+	subdivision.setShape(GeolocHelper.createPolygonBox(2F, 48F, 5000));
+	index.addCitySubdivision(subdivision);
+	index.build();
+
+	Assert.assertSame(subdivision, index.getCitySubdivisionByShape(GeolocHelper.createPoint(2.01F, 48.01F), "FR"));
+	Assert.assertNull(index.getCitySubdivisionByShape(GeolocHelper.createPoint(2.01F, 48.01F), "DE"));
+	Assert.assertNull(index.getCitySubdivisionByShape(GeolocHelper.createPoint(3F, 48F), "FR"));
+    }
+
+    @Test
+    public void getNearestCitiesShouldReturnTheCitiesSortedByDistance() {
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	City near = createCity("near", 2.01F, 48F, 0, false);
+	City middle = createCity("middle", 2.1F, 48F, 0, true);
+	City far = createCity("far", 2.3F, 48F, 0, true);
+	City tooFar = createCity("tooFar", 4F, 48F, 0, true);
+	index.addCity(far);
+	index.addCity(tooFar);
+	index.addCity(near);
+	index.addCity(middle);
+	index.build();
+
+	Point point = GeolocHelper.createPoint(2F, 48F);
+	List<City> cities = index.getNearestCities(point, "FR", false, 40000, 10);
+	Assert.assertEquals(3, cities.size());
+	Assert.assertSame(near, cities.get(0));
+	Assert.assertSame(middle, cities.get(1));
+	Assert.assertSame(far, cities.get(2));
+
+	cities = index.getNearestCities(point, "FR", false, 40000, 2);
+	Assert.assertEquals(2, cities.size());
+	Assert.assertSame(near, cities.get(0));
+
+	Assert.assertSame(middle, index.getNearestCity(point, "FR", true, 40000));
+	Assert.assertEquals(0, index.getNearestCities(point, "DE", false, 40000, 10).size());
+	Assert.assertNull(index.getNearestCity(GeolocHelper.createPoint(50F, 10F), "FR", false, 40000));
+    }
+
+    @Test
+    public void addCityShouldAddTheCityToABuiltIndex() {
+	IsInSpatialIndex index = new IsInSpatialIndex();
+	City big = createCity("big", 2F, 48F, 20000, true);
+	index.addCity(big);
+	index.build();
+	Point point = GeolocHelper.createPoint(2.01F, 48.01F);
+	Assert.assertSame(big, index.getCityByShape(point, "FR", true));
+
+	City small = createCity("small", 2.01F, 48.01F, 5000, true);
+	index.addCity(small);
+	Assert.assertEquals(2, index.getNumberOfCities());
+	Assert.assertSame(small, index.getCityByShape(point, "FR", true));
+	Assert.assertSame(small, index.getNearestCity(point, "FR", true, 40000));
+
+	//the trees are built again with the added cities
+	for (int i = 0; i < IsInSpatialIndex.MAX_PENDING_CITIES; i++) {
+	    index.addCity(createCity("far" + i, 10F, 40F + i * 0.001F, 0, true));
+	}
+	Assert.assertEquals(IsInSpatialIndex.MAX_PENDING_CITIES + 2, index.getNumberOfCities());
+	Assert.assertSame(small, index.getCityByShape(point, "FR", true));
+	Assert.assertSame(small, index.getNearestCity(point, "FR", true, 40000));
+	Assert.assertEquals("far0", index.getNearestCity(GeolocHelper.createPoint(10F, 39.99F), "FR", true, 40000).getName());
+    }
+
+    @Test
+    public void loadShouldLoadAllTheCitiesAndSubdivisions() {
+	City city = createCity("city", 2F, 48F, 5000, true);
+	city.setId(1L);
+	List<City> cities = new ArrayList<City>();
+	cities.add(city);
+	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+	EasyMock.expect(cityDao.listEagerFromId(0, IsInSpatialIndex.LOAD_BATCH_SIZE)).andReturn(cities);
+	cityDao.flushAndClear();
+	EasyMock.replay(cityDao);
+
+	ICitySubdivisionDao citySubdivisionDao = EasyMock.createMock(ICitySubdivisionDao.class);
+	EasyMock.expect(citySubdivisionDao.listEagerFromId(0, IsInSpatialIndex.LOAD_BATCH_SIZE)).andReturn(new ArrayList<CitySubdivision>());
+	citySubdivisionDao.flushAndClear();
+	EasyMock.replay(citySubdivisionDao);
+
+	IsInSpatialIndex index = IsInSpatialIndex.load(cityDao, citySubdivisionDao);
+	Assert.assertEquals(1, index.getNumberOfCities());
+	Assert.assertEquals(0, index.getNumberOfCitySubdivisions());
+	Assert.assertSame(city, index.getCityByShape(GeolocHelper.createPoint(2F, 48F), "FR", true));
+	EasyMock.verify(cityDao);
+	EasyMock.verify(citySubdivisionDao);
+    }
+
+    @Test
+    public void loadWithAnEnvelopeShouldLoadTheCitiesOfTheExpandedEnvelope() {
+	City city = createCity("city", 2.5F, 48.5F, 5000, true);
+	List<City> cities = new ArrayList<City>();
+	cities.add(city);
+	Envelope envelope = new Envelope(2D, 3D, 48D, 49D);
+	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+	EasyMock.expect(cityDao.listEagerInEnvelope(IsInSpatialIndex.expand(envelope, 40000))).andReturn(cities);
+	cityDao.flushAndClear();
+	EasyMock.replay(cityDao);
+
+	IsInSpatialIndex index = IsInSpatialIndex.load(cityDao, envelope, 40000);
+	Assert.assertEquals(1, index.getNumberOfCities());
+	Assert.assertSame(city, index.getCityByShape(GeolocHelper.createPoint(2.5F, 48.5F), "FR", true));
+	Assert.assertSame(city, index.getNearestCity(GeolocHelper.createPoint(2.1F, 48.1F), "FR", true, 40000));
+	EasyMock.verify(cityDao);
+    }
+
+    @Test
+    public void expandShouldContainTheSearchEnvelopesOfTheNearestQueries() {
+	Envelope expanded = IsInSpatialIndex.expand(new Envelope(2D, 3D, 48D, 49D), 40000);
+	double latitudeDelta = 40000 / 111320D;
+	Assert.assertEquals(48D - latitudeDelta, expanded.getMinY(), 0.000001D);
+	Assert.assertEquals(49D + latitudeDelta, expanded.getMaxY(), 0.000001D);
+	//the longitude delta is computed at the latitude of the tile that is the nearest of the pole
+	double longitudeDelta = latitudeDelta / Math.cos(Math.toRadians(49D));
+	Assert.assertEquals(2D - longitudeDelta, expanded.getMinX(), 0.000001D);
+	Assert.assertEquals(3D + longitudeDelta, expanded.getMaxX(), 0.000001D);
+
+	expanded = IsInSpatialIndex.expand(new Envelope(2D, 3D, -49D, -48D), 40000);
+	Assert.assertEquals(2D - longitudeDelta, expanded.getMinX(), 0.000001D);
+    }
+
+}
@@ -985,4 +985,113 @@ public class OpenStreetMapHouseNumberSimpleImporterTest {
 	
 	
 
+	@Test
+	public void findNearestStreet_withStreetCache_shouldQueryTheFulltextEngineOncePerStreetAndCell(){
+		List<SolrResponseDto> results = new ArrayList<SolrResponseDto>();
+		SolrResponseDto solrResponseDto = EasyMock.createMock(SolrResponseDto.class);
+		long openstreetmapId = 233L;
+		EasyMock.expect(solrResponseDto.getOpenstreetmap_id()).andStubReturn(openstreetmapId);
+		EasyMock.replay(solrResponseDto);
+		results.add(solrResponseDto);
+		FulltextResultsDto mockResultDTO = EasyMock.createMock(FulltextResultsDto.class);
+		EasyMock.expect(mockResultDTO.getResultsSize()).andStubReturn(1);
+		EasyMock.expect(mockResultDTO.getResults()).andStubReturn(results);
+		EasyMock.replay(mockResultDTO);
+		
+		String streetName="streetname";
+		Point point = GeolocHelper.createPoint(2.0001F,	3.0001F);
+		FulltextQuery query = new FulltextQuery(streetName, Pagination.DEFAULT_PAGINATION, OpenStreetMapHouseNumberSimpleImporter.MEDIUM_OUTPUT, 
+				com.gisgraphy.fulltext.Constants.STREET_PLACETYPE, null);
+		query.around(point);
+		query.withRadius(OpenStreetMapHouseNumberSimpleImporter.SEARCH_DISTANCE);
+		query.withAllWordsRequired(false).withoutSpellChecking();
+		
+		OpenStreetMap osm = new OpenStreetMap();
+		osm.setOpenstreetmapId(openstreetmapId);
+		IOpenStreetMapDao osmDaoMock = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(osmDaoMock.getByOpenStreetMapId(openstreetmapId)).andReturn(osm).once();
+		EasyMock.replay(osmDaoMock);
+
+		IFullTextSearchEngine fulltextEngine = EasyMock.createMock(IFullTextSearchEngine.class);
+		EasyMock.expect(fulltextEngine.executeQuery(query)).andReturn(mockResultDTO).once();
+		EasyMock.replay(fulltextEngine);
+		
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setHouseNumberStreetCacheSize(100);
+		importer.setImporterConfig(importerConfig);
+		importer.initStreetCache();
+		importer.setFullTextSearchEngine(fulltextEngine);
+		importer.setOpenStreetMapDao(osmDaoMock);
+		
+		Assert.assertEquals(osm, importer.findNearestStreet(streetName, point));
+		//same street, same cell
+		Assert.assertEquals(osm, importer.findNearestStreet(" StreetName", GeolocHelper.createPoint(2.0002F,	3.0002F)));
+		EasyMock.verify(fulltextEngine);
+		EasyMock.verify(osmDaoMock);
+	}
+	
+	@Test
+	public void getNearestStreet_withStreetCache_shouldLoadTheStreetsOnceAndReturnTheNearest(){
+		OpenStreetMap street1 = new OpenStreetMap();
+		street1.setOpenstreetmapId(1L);
+		street1.setShape(GeolocHelper.createLineString("LINESTRING (2 3, 2.001 3)"));
+		street1.setLocation(GeolocHelper.createPoint(2.0005F, 3F));
+		OpenStreetMap street2 = new OpenStreetMap();
+		street2.setOpenstreetmapId(2L);
+		street2.setShape(GeolocHelper.createLineString("LINESTRING (2 3.001, 2.001 3.001)"));
+		street2.setLocation(GeolocHelper.createPoint(2.0005F, 3.001F));
+		OpenStreetMap farStreet = new OpenStreetMap();
+		farStreet.setOpenstreetmapId(3L);
+		farStreet.setShape(GeolocHelper.createLineString("LINESTRING (10 10, 10.001 10)"));
+		farStreet.setLocation(GeolocHelper.createPoint(10.0005F, 10F));
+		List<Long> ids = new ArrayList<Long>();
+		ids.add(1L);
+		ids.add(2L);
+		ids.add(3L);
+		ids.add(4L);
+		List<OpenStreetMap> streets = new ArrayList<OpenStreetMap>();
+		streets.add(street1);
+		streets.add(street2);
+		streets.add(farStreet);
+		
+		IOpenStreetMapDao osmDaoMock = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(osmDaoMock.getByOpenStreetMapIds(ids)).andReturn(streets).once();
+		EasyMock.replay(osmDaoMock);
+		
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setHouseNumberStreetCacheSize(100);
+		importer.setImporterConfig(importerConfig);
+		importer.initStreetCache();
+		importer.setOpenStreetMapDao(osmDaoMock);
+		
+		Assert.assertEquals(street2, importer.getNearestStreet(GeolocHelper.createPoint(2.0002F, 3.0009F), ids));
+		Assert.assertEquals(street1, importer.getNearestStreet(GeolocHelper.createPoint(2.0002F, 3.0001F), ids));
+		Assert.assertNull(importer.getNearestStreet(GeolocHelper.createPoint(50F, 50F), ids));
+		EasyMock.verify(osmDaoMock);
+	}
+	
+	@Test
+	public void getStreet_withStreetCache_shouldBeClearedOnCommit(){
+		OpenStreetMap osm = new OpenStreetMap();
+		osm.setOpenstreetmapId(1L);
+		IOpenStreetMapDao osmDaoMock = EasyMock.createMock(IOpenStreetMapDao.class);
+		EasyMock.expect(osmDaoMock.getByOpenStreetMapId(1L)).andReturn(osm).times(2);
+		EasyMock.replay(osmDaoMock);
+		
+		OpenStreetMapHouseNumberSimpleImporter importer = new OpenStreetMapHouseNumberSimpleImporter();
+		ImporterConfig importerConfig = new ImporterConfig();
+		importerConfig.setHouseNumberStreetCacheSize(100);
+		importer.setImporterConfig(importerConfig);
+		importer.initStreetCache();
+		importer.setOpenStreetMapDao(osmDaoMock);
+		
+		Assert.assertEquals(osm, importer.getStreet(1L));
+		Assert.assertEquals(osm, importer.getStreet(1L));
+		importer.flushAndClear();
+		Assert.assertEquals(osm, importer.getStreet(1L));
+		EasyMock.verify(osmDaoMock);
+	}
+	
 }
@@ -3,6 +3,7 @@ package com.gisgraphy.importer;
 import static com.gisgraphy.test.GisgraphyTestHelper.alternateNameContains;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -28,6 +29,8 @@ import com.gisgraphy.domain.valueobject.AlternateNameSource;
 import com.gisgraphy.domain.valueobject.GISSource;
 import com.gisgraphy.helper.GeolocHelper;
 import com.gisgraphy.helper.StringHelper;
+import com.gisgraphy.test.GisgraphyTestHelper;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Point;
 
 public class OpenStreetMapPoisSimpleImporterTest {
@@ -328,6 +331,60 @@ public class OpenStreetMapPoisSimpleImporterTest {
 			
 		}
 		
+		@Test
+		public void getTileAndGetTileEnvelope(){
+			Long tile = OpenStreetMapPoisSimpleImporter.getTile(2.5D, 48.5D, 1D);
+			Assert.assertEquals(new Envelope(2D, 3D, 48D, 49D), OpenStreetMapPoisSimpleImporter.getTileEnvelope(tile.longValue(), 1D));
+			Assert.assertEquals(tile, OpenStreetMapPoisSimpleImporter.getTile(2.9D, 48.1D, 1D));
+			Assert.assertFalse(tile.equals(OpenStreetMapPoisSimpleImporter.getTile(3.1D, 48.1D, 1D)));
+
+			tile = OpenStreetMapPoisSimpleImporter.getTile(-0.2D, -33.2D, 0.5D);
+			Assert.assertEquals(new Envelope(-0.5D, 0D, -33.5D, -33D), OpenStreetMapPoisSimpleImporter.getTileEnvelope(tile.longValue(), 0.5D));
+		}
+
+		@Test
+		public void onBatchStartShouldLoadTheCitiesOfTheTileOnce(){
+			ImporterConfig importerConfig = new ImporterConfig();
+			importerConfig.setOpenStreetMapFillIsIn(true);
+			importerConfig.setOpenStreetMapPoisTileSize(1D);
+			OpenStreetMapPoisSimpleImporter importer = new OpenStreetMapPoisSimpleImporter();
+			importer.setImporterConfig(importerConfig);
+			importer.tileIndexes = new HashMap<Long, IsInSpatialIndex>();
+
+			City city = GisgraphyTestHelper.createCityAtSpecificPoint("cityName", 2.5F, 48.5F);
+			city.setShape(GeolocHelper.createPolygonBox(2.5F, 48.5F, 5000));
+			city.setMunicipality(true);
+			List<City> cities = new ArrayList<City>();
+			cities.add(city);
+			ICityDao citydao = EasyMock.createMock(ICityDao.class);
+			EasyMock.expect(citydao.listEagerInEnvelope(IsInSpatialIndex.expand(new Envelope(2D, 3D, 48D, 49D), OpenStreetMapPoisSimpleImporter.DISTANCE))).andReturn(cities);
+			citydao.flushAndClear();
+			EasyMock.replay(citydao);
+			importer.setCityDao(citydao);
+
+			Long tile = OpenStreetMapPoisSimpleImporter.getTile(2.5D, 48.5D, 1D);
+			importer.onBatchStart(tile);
+			importer.onBatchStart(tile);
+
+			Point location = GeolocHelper.createPoint(2.51F, 48.51F);
+			Assert.assertSame(city, importer.getCityByShape(location, "FR", true));
+			Assert.assertSame(city, importer.getNearestCity(location, "FR", true));
+			Assert.assertEquals(1, importer.getTileIndexHits());
+			Assert.assertEquals(1, importer.getTileIndexMisses());
+			EasyMock.verify(citydao);
+		}
+
+		@Test
+		public void getTileCacheSizeShouldUseTheConfiguredSize(){
+			ImporterConfig importerConfig = new ImporterConfig();
+			importerConfig.setImporterThreads(3);
+			OpenStreetMapPoisSimpleImporter importer = new OpenStreetMapPoisSimpleImporter();
+			importer.setImporterConfig(importerConfig);
+			Assert.assertEquals(3 * OpenStreetMapPoisSimpleImporter.TILE_INDEXES_BY_WORKER, importer.getTileCacheSize());
+			importerConfig.setOpenStreetMapPoisTileCacheSize(20);
+			Assert.assertEquals(20, importer.getTileCacheSize());
+		}
+		
 	    @Test
 	    public void testSetIsInFields_first_null_second_ok(){
 	    	OpenStreetMapPoisSimpleImporter OpenStreetMapPoisSimpleImporter = new OpenStreetMapPoisSimpleImporter();
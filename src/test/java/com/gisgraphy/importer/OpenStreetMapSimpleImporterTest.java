@@ -451,6 +451,33 @@ public class OpenStreetMapSimpleImporterTest extends AbstractIntegrationHttpSolr
 	//EasyMock.verify(idGenerator);
     }
     
+    @Test
+    public void testProcessDataInBulkInsertModeShouldInsertTheStreetsByBatch(){
+	String line = "11\tBachlettenstrasse\t010100000006C82291A0521E4054CC39B16BC64740\t0.00142246604529\tFR\ta city\t59000\t\tresidential\ttrue\t0102000020E6100000020000009A0FE6A0A09B1E40D1A3D33BC3C94740FF09E3B9C29B1E406E169BEDC6C94740\t70___20___30\t4\tyes\tasphalt\t100\t200\tname:fr===Rue de Bachlettenstrasse";
+	OpenStreetMapSimpleImporter importer = new OpenStreetMapSimpleImporter();
+	ImporterConfig importerConfig = new ImporterConfig();
+	importerConfig.setBulkInsertEnabled(true);
+	importerConfig.setOpenStreetMapFillIsIn(false);
+	importerConfig.setMaxInsertsBeforeFlush(2);
+	importer.setImporterConfig(importerConfig);
+	IIdGenerator idGenerator = EasyMock.createMock(IIdGenerator.class);
+	EasyMock.expect(idGenerator.getNextGId()).andStubReturn(1L);
+	EasyMock.replay(idGenerator);
+	importer.setIdGenerator(idGenerator);
+	IOpenStreetMapDao dao = EasyMock.createMock(IOpenStreetMapDao.class);
+	//the first two streets are inserted when the buffer is full, the third one when flushing
+	dao.bulkInsert((List<OpenStreetMap>)EasyMock.anyObject());
+	EasyMock.expectLastCall().times(2);
+	dao.flushAndClear();
+	EasyMock.replay(dao);
+	importer.setOpenStreetMapDao(dao);
+	importer.processData(line);
+	importer.processData(line);
+	importer.processData(line);
+	importer.flushAndClear();
+	EasyMock.verify(dao);
+    }
+    
     @Test
     public void testImportWithErrors(){
 	OpenStreetMapSimpleImporter importer = createImporterThatThrows();
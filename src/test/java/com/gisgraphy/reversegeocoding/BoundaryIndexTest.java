@@ -0,0 +1,131 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.repository.ICityDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class BoundaryIndexTest {
+
+    @Test
+    public void getCityIdByShapeShouldReturnTheSmallestCityThatContainsThePoint() throws ParseException {
+	BoundaryIndex index = new BoundaryIndex();
+	try {
+	    index.addCity(1L, createGeometry("POLYGON ((2 48, 3 48, 3 49, 2 49, 2 48))"));
+	    index.addCity(2L, createGeometry("POLYGON ((2.4 48.4, 2.6 48.4, 2.6 48.6, 2.4 48.6, 2.4 48.4))"));
+	    //a city with a hole where the point is
+	    index.addCity(3L, createGeometry("POLYGON ((2.45 48.45, 2.55 48.45, 2.55 48.55, 2.45 48.55, 2.45 48.45), (2.49 48.49, 2.51 48.49, 2.51 48.51, 2.49 48.51, 2.49 48.49))"));
+	    index.build();
+	    Assert.assertEquals(Long.valueOf(2L), index.getCityIdByShape(GeolocHelper.createPoint(2.5F, 48.5F)));
+	    Assert.assertEquals(Long.valueOf(3L), index.getCityIdByShape(GeolocHelper.createPoint(2.46F, 48.46F)));
+	    Assert.assertEquals(Long.valueOf(1L), index.getCityIdByShape(GeolocHelper.createPoint(2.1F, 48.1F)));
+	    Assert.assertNull(index.getCityIdByShape(GeolocHelper.createPoint(4F, 48.5F)));
+	    Assert.assertEquals(3, index.getNumberOfBoundaries());
+	} finally {
+	    index.close();
+	}
+    }
+
+    @Test
+    public void getCityIdByShapeShouldUseTheFullShapeNearTheBoundary() throws ParseException {
+	//a circle of 0.01 degree, the simplification cuts its border
+	StringBuilder wkt = new StringBuilder("POLYGON ((");
+	for (int i = 0; i <= 1000; i++) {
+	    double angle = 2 * Math.PI * (i % 1000) / 1000;
+	    if (i > 0) {
+		wkt.append(", ");
+	    }
+	    wkt.append(2 + 0.01 * Math.cos(angle)).append(" ").append(48 + 0.01 * Math.sin(angle));
+	}
+	wkt.append("))");
+	Geometry circle = createGeometry(wkt.toString());
+	BoundaryIndex index = new BoundaryIndex();
+	try {
+	    index.addCity(1L, circle);
+	    index.build();
+	    for (int i = 0; i < 100; i++) {
+		double angle = 2 * Math.PI * i / 100 + 0.001;
+		for (double radius = 0.0099; radius < 0.0101; radius += 0.00005) {
+		    com.vividsolutions.jts.geom.Point point = GeolocHelper.createPoint(2 + radius * Math.cos(angle), 48 + radius * Math.sin(angle));
+		    Assert.assertEquals("wrong result for " + point, circle.contains(point), index.getCityIdByShape(point) != null);
+		}
+	    }
+	} finally {
+	    index.close();
+	}
+    }
+
+    @Test
+    public void getCityIdByShapeShouldHandleTheMultiPolygonsAndIgnoreTheLines() throws ParseException {
+	BoundaryIndex index = new BoundaryIndex();
+	try {
+	    index.addCity(1L, createGeometry("MULTIPOLYGON (((2 48, 3 48, 3 49, 2 49, 2 48)), ((5 5, 6 5, 6 6, 5 6, 5 5)))"));
+	    index.addCity(2L, createGeometry("LINESTRING (2 48, 3 49)"));
+	    index.build();
+	    Assert.assertEquals(Long.valueOf(1L), index.getCityIdByShape(GeolocHelper.createPoint(2.5F, 48.5F)));
+	    Assert.assertEquals(Long.valueOf(1L), index.getCityIdByShape(GeolocHelper.createPoint(5.5F, 5.5F)));
+	    Assert.assertNull(index.getCityIdByShape(GeolocHelper.createPoint(4F, 4F)));
+	    Assert.assertEquals("only the polygons should be indexed", 1, index.getNumberOfBoundaries());
+	} finally {
+	    index.close();
+	}
+    }
+
+    @Test
+    public void loadShouldPageOverTheShapes() throws ParseException {
+	List<Object[]> firstPage = new ArrayList<Object[]>();
+	for (long id = 1; id <= BoundaryIndex.LOAD_BATCH_SIZE; id++) {
+	    firstPage.add(new Object[] { id, createGeometry("POLYGON ((10 10, 11 10, 11 11, 10 11, 10 10))") });
+	}
+	List<Object[]> secondPage = new ArrayList<Object[]>();
+	secondPage.add(new Object[] { 5000L, createGeometry("POLYGON ((2 48, 3 48, 3 49, 2 49, 2 48))") });
+	ICityDao cityDao = EasyMock.createMock(ICityDao.class);
+	EasyMock.expect(cityDao.listShapesFromId(0L, BoundaryIndex.LOAD_BATCH_SIZE)).andReturn(firstPage);
+	EasyMock.expect(cityDao.listShapesFromId((long) BoundaryIndex.LOAD_BATCH_SIZE, BoundaryIndex.LOAD_BATCH_SIZE)).andReturn(secondPage);
+	EasyMock.replay(cityDao);
+
+	BoundaryIndex index = BoundaryIndex.load(cityDao);
+	try {
+	    Assert.assertEquals(BoundaryIndex.LOAD_BATCH_SIZE + 1, index.getNumberOfBoundaries());
+	    Assert.assertEquals(Long.valueOf(5000L), index.getCityIdByShape(GeolocHelper.createPoint(2.5F, 48.5F)));
+	} finally {
+	    index.close();
+	}
+	EasyMock.verify(cityDao);
+    }
+
+    private Geometry createGeometry(String wkt) throws ParseException {
+	return new WKTReader().read(wkt);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.reversegeocoding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gisgraphy.domain.repository.IOpenStreetMapDao;
+import com.gisgraphy.helper.GeolocHelper;
+import com.gisgraphy.street.StreetType;
+import com.vividsolutions.jts.geom.Point;
+
+public class RoadIndexTest {
+
+    @Test
+    public void getNearestRoadIdShouldUseTheDistanceToTheSegmentsAndNotToTheVertices() {
+	RoadIndex index = new RoadIndex();
+	//a long street whose vertices are far from the point but which passes near it
+	index.addRoad(1L, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (2.0 48.0, 2.0 48.1)"));
+	//a short street whose vertex is nearer than the vertices of the first one
+	index.addRoad(2L, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (2.003 48.05, 2.004 48.05)"));
+	index.build();
+	Point point = GeolocHelper.createPoint(2.001F, 48.05F);
+	Assert.assertEquals(Long.valueOf(1L), index.getNearestRoadId(point, true));
+	Assert.assertEquals(2, index.getNumberOfRoads());
+    }
+
+    @Test
+    public void getNearestRoadIdShouldExcludeTheFootwaysOnlyForRoads() {
+	RoadIndex index = new RoadIndex();
+	index.addRoad(1L, StreetType.FOOTWAY, GeolocHelper.createLineString("LINESTRING (2.001 48.0, 2.001 48.1)"));
+	index.addRoad(2L, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (2.01 48.0, 2.01 48.1)"));
+	index.build();
+	Point point = GeolocHelper.createPoint(2.0F, 48.05F);
+	Assert.assertEquals(Long.valueOf(2L), index.getNearestRoadId(point, true));
+	Assert.assertEquals(Long.valueOf(1L), index.getNearestRoadId(point, false));
+    }
+
+    @Test
+    public void getNearestRoadIdShouldExcludeTheStreetsWithoutTypeOnlyForRoads() {
+	RoadIndex index = new RoadIndex();
+	index.addRoad(1L, null, GeolocHelper.createLineString("LINESTRING (2.001 48.0, 2.001 48.1)"));
+	index.addRoad(2L, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (2.01 48.0, 2.01 48.1)"));
+	index.build();
+	Point point = GeolocHelper.createPoint(2.0F, 48.05F);
+	Assert.assertEquals(Long.valueOf(2L), index.getNearestRoadId(point, true));
+	Assert.assertEquals(Long.valueOf(1L), index.getNearestRoadId(point, false));
+    }
+
+    @Test
+    public void getNearestRoadIdShouldReturnNullIfThereIsNoRoadAround() {
+	RoadIndex index = new RoadIndex();
+	index.addRoad(1L, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (10.0 40.0, 10.1 40.0)"));
+	index.build();
+	Assert.assertNull(index.getNearestRoadId(GeolocHelper.createPoint(2.0F, 48.0F), false));
+    }
+
+    @Test
+    public void loadShouldPageOverTheStreets() {
+	IOpenStreetMapDao openStreetMapDao = EasyMock.createMock(IOpenStreetMapDao.class);
+	List<Object[]> firstPage = new ArrayList<Object[]>();
+	for (long i = 1; i <= RoadIndex.LOAD_BATCH_SIZE; i++) {
+	    firstPage.add(new Object[] { i, StreetType.RESIDENTIAL, GeolocHelper.createLineString("LINESTRING (10.0 40.0, 10.1 40.0)") });
+	}
+	List<Object[]> secondPage = new ArrayList<Object[]>();
+	secondPage.add(new Object[] { RoadIndex.LOAD_BATCH_SIZE + 1L, StreetType.RESIDENTIAL,
+		GeolocHelper.createLineString("LINESTRING (2.0 48.0, 2.1 48.0)") });
+	EasyMock.expect(openStreetMapDao.listNamedShapesFromId(0L, RoadIndex.LOAD_BATCH_SIZE)).andReturn(firstPage);
+	EasyMock.expect(openStreetMapDao.listNamedShapesFromId((long) RoadIndex.LOAD_BATCH_SIZE, RoadIndex.LOAD_BATCH_SIZE)).andReturn(secondPage);
+	EasyMock.replay(openStreetMapDao);
+
+	RoadIndex index = RoadIndex.load(openStreetMapDao);
+
+	Assert.assertEquals(RoadIndex.LOAD_BATCH_SIZE + 1, index.getNumberOfRoads());
+	Assert.assertEquals(Long.valueOf(RoadIndex.LOAD_BATCH_SIZE + 1L), index.getNearestRoadId(GeolocHelper.createPoint(2.05F, 48.001F), true));
+	EasyMock.verify(openStreetMapDao);
+    }
+
+}
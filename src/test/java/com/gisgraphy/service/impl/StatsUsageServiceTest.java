@@ -22,13 +22,20 @@
  *******************************************************************************/
 package com.gisgraphy.service.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import javax.annotation.Resource;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import com.gisgraphy.domain.repository.AbstractTransactionalTestCase;
 import com.gisgraphy.domain.repository.IStatsUsageDao;
 import com.gisgraphy.service.IStatsUsageService;
+import com.gisgraphy.stats.LatencyHistogram;
 import com.gisgraphy.stats.StatsUsageType;
 
 public class StatsUsageServiceTest extends AbstractTransactionalTestCase {
@@ -39,6 +46,19 @@ public class StatsUsageServiceTest extends AbstractTransactionalTestCase {
     @Resource
     private IStatsUsageDao statsUsageDao;
 
+    private Executor originalFlushExecutor;
+
+    @Before
+    public void saveFlushExecutor() {
+	originalFlushExecutor = ((StatsUsageServiceImpl) statsUsageService).getFlushExecutor();
+    }
+
+    @After
+    public void restoreFlushExecutor() {
+	//the service is a shared bean, the other tests should flush in the background
+	((StatsUsageServiceImpl) statsUsageService).setFlushExecutor(originalFlushExecutor);
+    }
+
     @Test
     public void testStatUsageServiceShouldInitAllTheCounter() {
 	int counter = statsUsageService.getNumberOfCounter();
@@ -89,6 +109,8 @@ public class StatsUsageServiceTest extends AbstractTransactionalTestCase {
 
     @Test
     public void testIncreaseUsageShouldflush() {
+	//flush in the current thread (and transaction) to be able to check the value
+	((StatsUsageServiceImpl) statsUsageService).setFlushExecutor(synchronousExecutor);
 	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
 	for (int i = 1; i < IStatsUsageService.FLUSH_THRESHOLD; i++) {
 	    statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
@@ -101,4 +123,54 @@ public class StatsUsageServiceTest extends AbstractTransactionalTestCase {
 			.getUsage());
     }
 
+    @Test
+    public void testIncreaseUsageShouldFlushInTheBackground() {
+	final List<Runnable> tasks = new ArrayList<Runnable>();
+	((StatsUsageServiceImpl) statsUsageService).setFlushExecutor(new Executor() {
+	    public void execute(Runnable command) {
+		tasks.add(command);
+	    }
+	});
+	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
+	for (int i = 1; i <= IStatsUsageService.FLUSH_THRESHOLD * 2; i++) {
+	    statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
+	}
+	assertEquals("the flush should not be done by the calling thread",new Long(0), statsUsageDao.getByUsageType(
+		StatsUsageType.FULLTEXT).getUsage());
+	assertEquals("a flush should not be planned twice",1, tasks.size());
+	tasks.get(0).run();
+	assertEquals(new Long(IStatsUsageService.FLUSH_THRESHOLD * 2),
+		statsUsageDao.getByUsageType(StatsUsageType.FULLTEXT)
+			.getUsage());
+    }
+
+    @Test
+    public void testRecordLatencyShouldUpdateTheHistogramOfTheType() {
+	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
+	statsUsageService.resetUsage(StatsUsageType.GEOLOC);
+	statsUsageService.recordLatency(StatsUsageType.FULLTEXT, 15);
+	statsUsageService.recordLatency(StatsUsageType.FULLTEXT, 25);
+	LatencyHistogram histogram = statsUsageService.getLatencyHistogram(StatsUsageType.FULLTEXT);
+	assertEquals(2, histogram.getCount());
+	assertEquals(20, histogram.getMean());
+	assertEquals(50, histogram.getPercentile(99));
+	assertEquals("the other types should not be updated", 0,
+		statsUsageService.getLatencyHistogram(StatsUsageType.GEOLOC).getCount());
+    }
+
+    @Test
+    public void testResetUsageShouldResetTheHistogramAndTheRate() {
+	statsUsageService.recordLatency(StatsUsageType.FULLTEXT, 15);
+	statsUsageService.increaseUsage(StatsUsageType.FULLTEXT);
+	statsUsageService.resetUsage(StatsUsageType.FULLTEXT);
+	assertEquals(0, statsUsageService.getLatencyHistogram(StatsUsageType.FULLTEXT).getCount());
+	assertEquals(0D, statsUsageService.getRate(StatsUsageType.FULLTEXT), 0.0001);
+    }
+
+    private Executor synchronousExecutor = new Executor() {
+	public void execute(Runnable command) {
+	    command.run();
+	}
+    };
+
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void recordShouldCountTheTimeInItsBucket() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.record(1);
+	histogram.record(3);
+	histogram.record(5);
+	histogram.record(20000);
+	long[] counts = histogram.getCounts();
+	Assert.assertEquals(LatencyHistogram.BUCKET_UPPER_BOUNDS.length + 1, counts.length);
+	Assert.assertEquals(1, counts[0]);
+	Assert.assertEquals("the bounds should be included", 2, counts[2]);
+	Assert.assertEquals(1, counts[counts.length - 1]);
+	Assert.assertEquals(4, histogram.getCount());
+	Assert.assertEquals((1 + 3 + 5 + 20000) / 4, histogram.getMean());
+    }
+
+    @Test
+    public void recordShouldCountNegativeTimesAsZero() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.record(-5);
+	Assert.assertEquals(1, histogram.getCounts()[0]);
+	Assert.assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void getPercentileShouldReturnTheUpperBoundOfTheBucket() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	Assert.assertEquals("no time recorded", 0, histogram.getPercentile(99));
+	for (int i = 0; i < 98; i++) {
+	    histogram.record(8);
+	}
+	histogram.record(150);
+	histogram.record(60000);
+	Assert.assertEquals(10, histogram.getPercentile(50));
+	Assert.assertEquals(10, histogram.getPercentile(98));
+	Assert.assertEquals(200, histogram.getPercentile(99));
+	Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+	Assert.assertEquals(10, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void resetShouldForgetTheTimes() {
+	LatencyHistogram histogram = new LatencyHistogram();
+	histogram.record(12);
+	histogram.reset();
+	Assert.assertEquals(0, histogram.getCount());
+	Assert.assertEquals(0, histogram.getMean());
+	Assert.assertEquals(0, histogram.getPercentile(50));
+	for (long bucketCount : histogram.getCounts()) {
+	    Assert.assertEquals(0, bucketCount);
+	}
+    }
+
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UsageRateTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void getRateShouldBeComputedOnTheLastCompletePeriod() {
+	UsageRate rate = new UsageRate(1000, 0);
+	for (int i = 0; i < 5; i++) {
+	    rate.mark(100 + i);
+	}
+	Assert.assertEquals("the first period is not complete", 0D, rate.getRate(999), DELTA);
+	rate.mark(1500);
+	Assert.assertEquals(5D, rate.getRate(1600), DELTA);
+	Assert.assertEquals(1D, rate.getRate(2000), DELTA);
+    }
+
+    @Test
+    public void getRateShouldBeZeroIfAPeriodWithoutRequestHasElapsed() {
+	UsageRate rate = new UsageRate(1000, 0);
+	rate.mark(100);
+	rate.mark(200);
+	Assert.assertEquals(0D, rate.getRate(2500), DELTA);
+    }
+
+    @Test
+    public void getRateShouldBeInRequestsBySecond() {
+	UsageRate rate = new UsageRate(60000, 0);
+	for (int i = 0; i < 120; i++) {
+	    rate.mark(i);
+	}
+	Assert.assertEquals(2D, rate.getRate(60000), DELTA);
+    }
+
+    @Test
+    public void resetShouldForgetTheRequests() {
+	UsageRate rate = new UsageRate(1000, 0);
+	rate.mark(100);
+	Assert.assertEquals(1D, rate.getRate(1100), DELTA);
+	rate.reset();
+	Assert.assertEquals(0D, rate.getRate(1200), DELTA);
+	Assert.assertEquals(0D, rate.getRate(2200), DELTA);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.gisgraphy.street;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gisgraphy.domain.geoloc.entity.HouseNumber;
+import com.gisgraphy.helper.GeolocHelper;
+
+public class CompactHouseNumbersTest {
+
+	private static final double DELTA = 0.0000001D;
+
+	@Test
+	public void encodeShouldSortTheHouseNumbersAndKeepTheLabelsAndLocations() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("12b", 2.3522219D, 48.856614D));
+		houseNumbers.add(createHouseNumber("3", -73.9856644D, 40.7484405D));
+		houseNumbers.add(createHouseNumber("bis", 179.9999999D, -89.9999999D));
+		houseNumbers.add(createHouseNumber("12", -179.9999999D, 89.9999999D));
+		houseNumbers.add(createHouseNumber(null, 1D, 1D));
+		houseNumbers.add(createHouseNumber("4", null, null));
+		houseNumbers.add(null);
+
+		CompactHouseNumbers compact = CompactHouseNumbers.encode(houseNumbers);
+		assertEquals(4, compact.size());
+
+		CompactHouseNumbers.Cursor cursor = compact.cursor();
+		assertTrue(cursor.next());
+		assertEquals("3", cursor.getLabel());
+		assertEquals(3, cursor.getNumber());
+		assertEquals(-73.9856644D, cursor.getLongitude(), DELTA);
+		assertEquals(40.7484405D, cursor.getLatitude(), DELTA);
+		assertTrue(cursor.next());
+		assertEquals("12", cursor.getLabel());
+		assertEquals(12, cursor.getNumber());
+		assertEquals(-179.9999999D, cursor.getLongitude(), DELTA);
+		assertEquals(89.9999999D, cursor.getLatitude(), DELTA);
+		assertTrue(cursor.next());
+		assertEquals("12b", cursor.getLabel());
+		assertEquals(12, cursor.getNumber());
+		assertEquals(2.3522219D, cursor.getLongitude(), DELTA);
+		assertEquals(48.856614D, cursor.getLatitude(), DELTA);
+		assertTrue(cursor.next());
+		assertEquals("bis", cursor.getLabel());
+		assertFalse(cursor.hasNumber());
+		assertEquals(179.9999999D, cursor.getLongitude(), DELTA);
+		assertEquals(-89.9999999D, cursor.getLatitude(), DELTA);
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	public void asListShouldDecodeTheHouseNumbersWhenTheyAreRead() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("12", 2.3522219D, 48.856614D));
+		houseNumbers.add(createHouseNumber("3", -73.9856644D, 40.7484405D));
+		CompactHouseNumbers compact = CompactHouseNumbers.encode(houseNumbers);
+
+		CompactHouseNumbers.HouseNumberDtoList list = compact.asList();
+		assertSame(compact, list.getCompactHouseNumbers());
+		assertEquals(2, list.size());
+		assertEquals("3", list.get(0).getNumber());
+		assertEquals(-73.9856644D, list.get(0).getLocation().getX(), DELTA);
+		assertEquals("12", list.get(1).getNumber());
+		assertEquals(48.856614D, list.get(1).getLocation().getY(), DELTA);
+	}
+
+	@Test
+	public void encodeShouldReturnNullWhenThereIsNoHouseNumberToEncode() {
+		assertNull(CompactHouseNumbers.encode(null));
+		assertNull(CompactHouseNumbers.encode(new ArrayList<HouseNumber>()));
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber(null, 1D, 1D));
+		assertNull(CompactHouseNumbers.encode(houseNumbers));
+	}
+
+	@Test
+	public void solrValueShouldBeReadBack() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		houseNumbers.add(createHouseNumber("1", 10.3D, 9.6D));
+		houseNumbers.add(createHouseNumber("2ter", 10.4D, 9.7D));
+
+		String value = CompactHouseNumbers.encode(houseNumbers).toSolrValue();
+		assertTrue(CompactHouseNumbers.isCompact(value));
+		assertFalse(CompactHouseNumbers.isCompact("1:10.3,9.6"));
+		assertNull(CompactHouseNumbers.fromSolrValue("1:10.3,9.6"));
+
+		List<HouseNumberDto> dtos = CompactHouseNumbers.fromSolrValue(value).toHouseNumberDtos();
+		assertEquals(2, dtos.size());
+		assertEquals("1", dtos.get(0).getNumber());
+		assertEquals(10.3D, dtos.get(0).getLocation().getX(), DELTA);
+		assertEquals(9.6D, dtos.get(0).getLocation().getY(), DELTA);
+		assertEquals("2ter", dtos.get(1).getNumber());
+		assertEquals(10.4D, dtos.get(1).getLocation().getX(), DELTA);
+		assertEquals(9.7D, dtos.get(1).getLocation().getY(), DELTA);
+	}
+
+	@Test
+	public void compactValueShouldBeSmallerThanTheLegacyOne() {
+		List<HouseNumber> houseNumbers = new ArrayList<HouseNumber>();
+		HouseNumberSerializer serializer = new HouseNumberSerializer();
+		int legacySize = 0;
+		for (int i = 1; i < 200; i++) {
+			HouseNumber houseNumber = createHouseNumber(String.valueOf(i), 2.35D + i * 0.00013D, 48.85D + i * 0.00007D);
+			houseNumbers.add(houseNumber);
+			legacySize += serializer.serialize(houseNumber).length();
+		}
+		String value = CompactHouseNumbers.encode(houseNumbers).toSolrValue();
+		assertTrue("the compact value should be smaller than the legacy ones : " + value.length() + " vs " + legacySize, value.length() * 2 < legacySize);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownVersionShouldBeRejected() {
+		new CompactHouseNumbers(new byte[] { 42, 0 });
+	}
+
+	private HouseNumber createHouseNumber(String number, Double lng, Double lat) {
+		HouseNumber houseNumber = new HouseNumber();
+		houseNumber.setNumber(number);
+		if (lng != null) {
+			houseNumber.setLocation(GeolocHelper.createPoint(lng, lat));
+		}
+		return houseNumber;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ *   Gisgraphy Project 
+ * 
+ *   This library is free software; you can redistribute it and/or
+ *   modify it under the terms of the GNU Lesser General Public
+ *   License as published by the Free Software Foundation; either
+ *   version 2.1 of the License, or (at your option) any later version.
+ * 
+ *   This library is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *   Lesser General Public License for more details.
+ * 
+ *   You should have received a copy of the GNU Lesser General Public
+ *   License along with this library; if not, write to the Free Software
+ *   Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307, USA
+ * 
+ *  Copyright 2008  Gisgraphy project 
+ *  David Masclet <davidmasclet@gisgraphy.com>
+ *  
+ *  
+ *******************************************************************************/
+package com.gisgraphy.webapp.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockRequestDispatcher;
+import org.springframework.mock.web.MockServletContext;
+
+public class WebServiceFilterTest {
+
+    private WebServiceFilter filter = null;
+
+    @Before
+    public void setUp() throws Exception {
+	filter = new WebServiceFilter();
+	MockServletContext servletContext = new MockServletContext() {
+	    @Override
+	    public RequestDispatcher getNamedDispatcher(String name) {
+		return "fulltext service".equals(name) ? new MockRequestDispatcher(name) : null;
+	    }
+	};
+	MockFilterConfig config = new MockFilterConfig(servletContext);
+	config.addInitParameter("mappings", "/fulltext/*=fulltext service, /geoloc/*=geoloc service");
+	filter.init(config);
+    }
+
+    @Test
+    public void filterShouldDispatchTheWebServicesToTheirServlet() throws Exception {
+	MockHttpServletRequest request = new MockHttpServletRequest("GET", "/fulltext/search");
+	MockHttpServletResponse response = new MockHttpServletResponse();
+	MockFilterChain chain = new MockFilterChain();
+
+	filter.doFilter(request, response, chain);
+
+	assertNull("the request should not go through the filter chain", chain.getForwardURL());
+	assertEquals("fulltext service", response.getForwardedUrl());
+	assertEquals(1, filter.getEndpoints().get(0).getNumberOfRequests());
+	assertEquals(0, filter.getEndpoints().get(1).getNumberOfRequests());
+    }
+
+    @Test
+    public void filterShouldContinueTheChainWhenPathDoesntMatch() throws Exception {
+	MockHttpServletRequest request = new MockHttpServletRequest("GET", "/editProfile.html");
+	MockHttpServletResponse response = new MockHttpServletResponse();
+	MockFilterChain chain = new MockFilterChain();
+
+	filter.doFilter(request, response, chain);
+
+	assertEquals("/editProfile.html", chain.getForwardURL());
+    }
+
+    @Test
+    public void filterShouldContinueTheChainWhenTheServletDoesntExist() throws Exception {
+	MockHttpServletRequest request = new MockHttpServletRequest("GET", "/geoloc/search");
+	MockHttpServletResponse response = new MockHttpServletResponse();
+	MockFilterChain chain = new MockFilterChain();
+
+	filter.doFilter(request, response, chain);
+
+	assertEquals("/geoloc/search", chain.getForwardURL());
+	assertEquals(0, filter.getEndpoints().get(1).getNumberOfRequests());
+    }
+
+    @Test(expected = ServletException.class)
+    public void initShouldFailWithAWrongMapping() throws Exception {
+	MockFilterConfig config = new MockFilterConfig();
+	config.addInitParameter("mappings", "/fulltext/*");
+	new WebServiceFilter().init(config);
+    }
+
+}